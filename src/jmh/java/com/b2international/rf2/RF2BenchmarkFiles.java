@@ -0,0 +1,121 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import com.b2international.rf2.model.RF2File;
+import com.b2international.rf2.sctid.RF2VerhoeffCheck;
+
+/**
+ * Generates synthetic, but valid International edition sized RF2 files for the benchmarks.
+ * 
+ * @since 0.4
+ */
+public final class RF2BenchmarkFiles {
+
+	public static final String RELATIONSHIP_HEADER = "id\teffectiveTime\tactive\tmoduleId\tsourceId\tdestinationId\trelationshipGroup\ttypeId\tcharacteristicTypeId\tmodifierId";
+	public static final String DESCRIPTION_HEADER = "id\teffectiveTime\tactive\tmoduleId\tconceptId\tlanguageCode\ttypeId\tterm\tcaseSignificanceId";
+
+	private static final String[] EFFECTIVE_TIMES = { "20020131", "20090731", "20150131", "20190731", "20210131" };
+	private static final String[] WORDS = { "structure", "of", "left", "right", "disorder", "finding", "procedure", "entire", "body", "acute", "chronic", "bone" };
+	
+	private RF2BenchmarkFiles() {}
+	
+	/**
+	 * Writes a Relationship Snapshot like file with the given number of rows to the given path.
+	 * 
+	 * @param path
+	 * @param rows
+	 * @return
+	 * @throws IOException
+	 */
+	public static Path relationships(Path path, int rows) throws IOException {
+		final Random random = new Random(rows);
+		try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+			writer.write(RELATIONSHIP_HEADER);
+			writer.write(RF2File.CRLF);
+			for (int i = 0; i < rows; i++) {
+				writer.write(String.join(RF2File.TAB, 
+					sctid(100_000 + i, '2'),
+					EFFECTIVE_TIMES[random.nextInt(EFFECTIVE_TIMES.length)],
+					random.nextInt(10) == 0 ? "0" : "1",
+					"900000000000207008",
+					sctid(100_000 + random.nextInt(10_000_000), '0'),
+					sctid(100_000 + random.nextInt(10_000_000), '0'),
+					Integer.toString(random.nextInt(4)),
+					"116680003",
+					"900000000000011006",
+					"900000000000451002"
+				));
+				writer.write(RF2File.CRLF);
+			}
+		}
+		return path;
+	}
+	
+	/**
+	 * Writes a Description Snapshot like file with the given number of rows to the given path.
+	 * 
+	 * @param path
+	 * @param rows
+	 * @return
+	 * @throws IOException
+	 */
+	public static Path descriptions(Path path, int rows) throws IOException {
+		final Random random = new Random(rows);
+		try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+			writer.write(DESCRIPTION_HEADER);
+			writer.write(RF2File.CRLF);
+			final StringBuilder term = new StringBuilder();
+			for (int i = 0; i < rows; i++) {
+				term.setLength(0);
+				for (int w = random.nextInt(6); w >= 0; w--) {
+					term.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+				}
+				term.append("(disorder)");
+				writer.write(String.join(RF2File.TAB, 
+					sctid(100_000 + i, '1'),
+					EFFECTIVE_TIMES[random.nextInt(EFFECTIVE_TIMES.length)],
+					random.nextInt(10) == 0 ? "0" : "1",
+					"900000000000207008",
+					sctid(100_000 + random.nextInt(10_000_000), '0'),
+					"en",
+					random.nextBoolean() ? "900000000000013009" : "900000000000003001",
+					term,
+					"900000000000448009"
+				));
+				writer.write(RF2File.CRLF);
+			}
+		}
+		return path;
+	}
+	
+	/**
+	 * @param itemId
+	 * @param componentIdentifier
+	 * @return a valid SNOMED CT identifier in the international namespace with the given item identifier and component identifier.
+	 */
+	public static String sctid(long itemId, char componentIdentifier) {
+		final String sctidWithoutCheckDigit = Long.toString(itemId) + '0' + componentIdentifier;
+		return sctidWithoutCheckDigit + RF2VerhoeffCheck.calculateChecksum(sctidWithoutCheckDigit, false);
+	}
+	
+}
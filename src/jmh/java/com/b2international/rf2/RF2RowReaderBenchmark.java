@@ -0,0 +1,97 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.b2international.rf2.io.RF2Row;
+import com.b2international.rf2.io.RF2RowReader;
+import com.b2international.rf2.model.RF2File;
+
+/**
+ * Compares reading an International edition sized Relationship file with <code>Files.lines</code> and <code>String.split</code> against the
+ * byte level {@link RF2RowReader}.
+ * 
+ * @since 0.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class RF2RowReaderBenchmark {
+
+	@Param({ "2800000" })
+	public int rows;
+	
+	private Path file;
+	
+	@Setup
+	public void setup() throws IOException {
+		file = RF2BenchmarkFiles.relationships(Files.createTempFile("sct2_Relationship_Snapshot_INT_", ".txt"), rows);
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+	
+	@Benchmark
+	public void filesLinesSplit(Blackhole blackhole) throws IOException {
+		try (Stream<String> lines = Files.lines(file)) {
+			lines.skip(1).map(line -> line.split(RF2File.TAB, -1)).forEach(blackhole::consume);
+		}
+	}
+	
+	@Benchmark
+	public void rowReaderStrings(Blackhole blackhole) throws IOException {
+		try (Stream<String[]> rows = RF2RowReader.open(file).skip(1).rows()) {
+			rows.forEach(blackhole::consume);
+		}
+	}
+	
+	@Benchmark
+	public void rowReaderSlices(Blackhole blackhole) throws IOException {
+		try (RF2RowReader reader = RF2RowReader.open(file).skip(1)) {
+			RF2Row row;
+			while ((row = reader.next()) != null) {
+				// touch the ID column without materializing it
+				blackhole.consume(row.length(0));
+				blackhole.consume(row.byteAt(0, 0));
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.b2international.rf2.check.RF2IssueAcceptor;
+import com.b2international.rf2.io.RF2Row;
+import com.b2international.rf2.io.RF2RowReader;
+import com.b2international.rf2.model.RF2Columns;
+import com.b2international.rf2.sctid.RF2VerhoeffCheck;
+import com.b2international.rf2.validation.RF2ColumnCheck;
+import com.b2international.rf2.validation.RF2ColumnValidator;
+
+/**
+ * Measures validated SCTIDs per second of a <code>referencedComponentId</code> column with the parse/startsWith/subSequence based checks (as
+ * they were done before the single pass check), with the single pass check on {@link String} values and with the single pass check on the raw
+ * bytes of {@link RF2Row}s.
+ *
+ * @since 0.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RF2SCTIDValidationBenchmark {
+
+	private static final int IDS = 100_000;
+	private static final List<Integer> EXPECTED_COMPONENT_IDENTIFIERS = List.of(0, 1, 2);
+
+	private final RF2ColumnValidator validator = RF2ColumnValidator.VALIDATORS.get(RF2Columns.REFERENCED_COMPONENT_ID);
+	private String[] ids;
+	private RF2Row[] rows;
+	private RF2ColumnCheck check;
+
+	@Setup
+	public void setup() throws IOException {
+		final Random random = new Random(0L);
+		ids = new String[IDS];
+		final StringBuilder content = new StringBuilder();
+		for (int i = 0; i < IDS; i++) {
+			ids[i] = RF2BenchmarkFiles.sctid(100_000 + random.nextInt(100_000_000), (char) ('0' + random.nextInt(3)));
+			content.append(ids[i]).append("\r\n");
+		}
+		rows = new RF2Row[IDS];
+		try (RF2RowReader reader = new RF2RowReader(Channels.newChannel(new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.UTF_8))), RF2RowReader.DEFAULT_BUFFER_SIZE)) {
+			for (int i = 0; i < IDS; i++) {
+				rows[i] = reader.next().copy();
+			}
+		}
+		check = validator.compile(null, RF2Columns.REFERENCED_COMPONENT_ID, new RF2IssueAcceptor());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(IDS)
+	public RF2IssueAcceptor parseAndSubSequence() {
+		final RF2IssueAcceptor acceptor = new RF2IssueAcceptor();
+		for (String id : ids) {
+			checkSCTID(EXPECTED_COMPONENT_IDENTIFIERS, id, acceptor);
+		}
+		return acceptor;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(IDS)
+	public RF2IssueAcceptor singlePassChars() {
+		final RF2IssueAcceptor acceptor = new RF2IssueAcceptor();
+		for (String id : ids) {
+			validator.check(null, RF2Columns.REFERENCED_COMPONENT_ID, id, acceptor);
+		}
+		return acceptor;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(IDS)
+	public RF2IssueAcceptor singlePassBytes() {
+		final RF2IssueAcceptor acceptor = new RF2IssueAcceptor();
+		for (RF2Row row : rows) {
+			check.check(row, 0, acceptor);
+		}
+		return acceptor;
+	}
+
+	/*
+	 * The SCTID check as it was implemented before the single pass check, including building the list of expected component identifiers per value.
+	 */
+	private static void checkSCTID(final List<Integer> componentIdentifiers, String columnValue, RF2IssueAcceptor acceptor) {
+		final List<Integer> expectedComponentIdentifiers = componentIdentifiers.stream().sorted().collect(Collectors.toList());
+		if (columnValue == null || columnValue.isBlank()) {
+			acceptor.error("SCTID '%s' is empty or contains only white space characters.", columnValue);
+			return;
+		}
+		try {
+			Long.parseLong(columnValue);
+		} catch (final NumberFormatException e) {
+			acceptor.error("SCTID '%s' should be a number.", columnValue);
+			return;
+		}
+		if (columnValue.startsWith("0")) {
+			acceptor.error("SCTID '%s' can't start with leading zero.", columnValue);
+			return;
+		}
+		if (columnValue.length() < 6 || columnValue.length() > 18) {
+			acceptor.error("SCTID '%s' length must be between 6-18 characters.", columnValue);
+			return;
+		}
+		final int actualComponentIdentifier = Character.digit(columnValue.charAt(columnValue.length() - 2), 10);
+		if (!expectedComponentIdentifiers.contains(actualComponentIdentifier)) {
+			acceptor.error("SCTID '%s' has unsatisfying componentIdentifier. Expected '%s' but was '%s'.", columnValue, expectedComponentIdentifiers, actualComponentIdentifier);
+			return;
+		}
+		final CharSequence rawComponentId = columnValue.subSequence(0, columnValue.length() - 1);
+		final char expectedChecksum = RF2VerhoeffCheck.calculateChecksum(rawComponentId, false);
+		final char actualChecksum = columnValue.charAt(columnValue.length() - 1);
+		if (actualChecksum != expectedChecksum) {
+			acceptor.error("SCTID '%s' has incorrect Verhoeff check-digit. Expected '%s' but was '%s'.", columnValue, expectedChecksum, actualChecksum);
+		}
+	}
+
+}
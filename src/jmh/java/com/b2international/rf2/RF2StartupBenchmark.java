@@ -0,0 +1,107 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time of the first run of each command on a small Concept file in a new JVM, which is dominated by class loading and
+ * initialization. The files are written without loading any of the RF2-D2 classes.
+ *
+ * @since 0.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(10)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class RF2StartupBenchmark {
+
+	private static final String HEADER = "id\teffectiveTime\tactive\tmoduleId\tdefinitionStatusId\r\n";
+	private static final String ROW = "100005\t20210131\t1\t900000000000207008\t900000000000074008\r\n";
+	private static final String INACTIVE_ROW = "138875005\t20020131\t0\t900000000000207008\t900000000000074008\r\n";
+
+	private Path dir;
+	private Path delta;
+	private Path snapshot;
+	private Path rules;
+
+	@Setup
+	public void setup() throws IOException {
+		dir = Files.createTempDirectory("rf2-startup");
+		delta = Files.writeString(dir.resolve("sct2_Concept_Delta_INT_20210131.txt"), HEADER + ROW);
+		snapshot = Files.writeString(dir.resolve("sct2_Concept_Snapshot_INT_20210131.txt"), HEADER + ROW + INACTIVE_ROW);
+		rules = Files.writeString(dir.resolve("rules.yml"), "rules:\n  - exclude:\n      - active: 0\n");
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		try (Stream<Path> paths = Files.walk(dir)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	@Benchmark
+	public void version() {
+		RF2.main(new String[] { "--version" });
+	}
+
+	@Benchmark
+	public void check() {
+		RF2.main(new String[] { "check", delta.toString() });
+	}
+
+	@Benchmark
+	public void diff() {
+		RF2.main(new String[] { "diff", snapshot.toString(), delta.toString() });
+	}
+
+	@Benchmark
+	public void create() {
+		RF2.main(new String[] { "create", "-o", dir.resolve("create").toString(), snapshot.toString(), delta.toString() });
+	}
+
+	@Benchmark
+	public void transformRules() {
+		RF2.main(new String[] { "transform", "-o", dir.resolve("transform-rules").toString(), snapshot.toString(), rules.toString() });
+	}
+
+	@Benchmark
+	public void transformScript() {
+		RF2.main(new String[] { "transform", "-o", dir.resolve("transform-script").toString(), snapshot.toString(), "active == '1'" });
+	}
+
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.b2international.rf2.check.RF2IssueAcceptor;
+import com.b2international.rf2.io.RF2Row;
+import com.b2international.rf2.io.RF2RowReader;
+import com.b2international.rf2.model.RF2Columns;
+import com.b2international.rf2.model.RF2ContentFile;
+import com.b2international.rf2.naming.RF2ContentFileName;
+import com.b2international.rf2.naming.file.RF2ContentType;
+import com.b2international.rf2.sctid.RF2VerhoeffCheck;
+import com.b2international.rf2.validation.RF2ValidationPlan;
+
+/**
+ * Measures validated cells per second on a Description Snapshot with the validation as it was done before compiling the validators (lines split
+ * into {@link String}s, a validator looked up per cell and the {@link String} based checks, copied below as they were) and with a compiled
+ * {@link RF2ValidationPlan} reading the rows with an {@link RF2RowReader}. Both variants read the file sequentially.
+ * 
+ * @since 0.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class RF2ValidationBenchmark {
+
+	private static final int ROWS = 1_000_000;
+	private static final int CELLS = ROWS * 9;
+	
+	private Path file;
+	private RF2ContentFile contentFile;
+	private String[] header;
+	
+	@Setup
+	public void setup() throws IOException {
+		final Path dir = Files.createTempDirectory("rf2-validation");
+		file = RF2BenchmarkFiles.descriptions(dir.resolve("sct2_Description_Snapshot-en_INT_20210131.txt"), ROWS);
+		contentFile = new RF2ContentFile(dir, new RF2ContentFileName(file.getFileName().toString()), null);
+		header = RF2BenchmarkFiles.DESCRIPTION_HEADER.split(RF2ContentFile.TAB);
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+		Files.deleteIfExists(file.getParent());
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(CELLS)
+	public RF2IssueAcceptor validatorLookupPerCell() throws IOException {
+		final RF2IssueAcceptor acceptor = new RF2IssueAcceptor();
+		final Map<Integer, BaselineValidator> validatorsByIndex = new HashMap<>(header.length);
+		for (int i = 0; i < header.length; i++) {
+			validatorsByIndex.put(i, BaselineValidator.VALIDATORS.getOrDefault(header[i], BaselineValidator.NOOP));
+		}
+		try (Stream<String[]> rows = Files.lines(file).skip(1).map(line -> line.split(RF2ContentFile.TAB, -1))) {
+			rows.forEach(row -> {
+				for (int i = 0; i < row.length; i++) {
+					validatorsByIndex.get(i).check(contentFile, header[i], row[i], acceptor);
+				}
+			});
+		}
+		return acceptor;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(CELLS)
+	public RF2IssueAcceptor compiledValidationPlan() throws IOException {
+		final RF2IssueAcceptor acceptor = new RF2IssueAcceptor();
+		final RF2ValidationPlan validationPlan = RF2ValidationPlan.compile(contentFile, header, acceptor);
+		try (RF2RowReader reader = RF2RowReader.open(file).skip(1)) {
+			RF2Row row;
+			while ((row = reader.next()) != null) {
+				validationPlan.validate(row, acceptor);
+			}
+		}
+		return acceptor;
+	}
+	
+	/**
+	 * The {@link String} based column validators of the Description columns before the validation plan, unchanged, so the baseline does not
+	 * benefit from the byte level checks that the validators fall back to since then.
+	 */
+	@FunctionalInterface
+	private interface BaselineValidator {
+		
+		Set<String> LANG_CODES = Set.of(Locale.getISOLanguages());
+		
+		Map<String, Integer> COMPONENT_TYPES_DIGIT_ASSOCIATION = Map.of(
+			RF2ContentType.CONCEPT.getContentType(), 0,
+			RF2ContentType.DESCRIPTION.getContentType(), 1,
+			RF2ContentType.TEXT_DEFINITION.getContentType(), 1,
+			RF2ContentType.RELATIONSHIP.getContentType(), 2,
+			RF2ContentType.STATED_RELATIONSHIP.getContentType(), 2
+		);
+		
+		BaselineValidator NOOP = (file, columnHeader, columnValue, acceptor) -> {};
+		
+		BaselineValidator CONCEPT_ID = (file, columnHeader, columnValue, acceptor) -> checkSCTID(Set.of(RF2ContentType.CONCEPT), columnValue, acceptor);
+		
+		Map<String, BaselineValidator> VALIDATORS = Map.of(
+			RF2Columns.ID, BaselineValidator::checkId,
+			RF2Columns.EFFECTIVE_TIME, (file, columnHeader, columnValue, acceptor) -> {
+				if (!columnValue.isEmpty()) {
+					try {
+						DateTimeFormatter.BASIC_ISO_DATE.parse(columnValue);
+					} catch (DateTimeParseException e) {
+						acceptor.error("Effective time '%s' is not in ISO date format (YYYYMMMDD).", columnValue);
+					}
+				}
+			},
+			RF2Columns.ACTIVE, (file, columnHeader, columnValue, acceptor) -> {
+				if (columnValue == null || columnValue.isBlank()) {
+					acceptor.error("'%s' cannot be null or empty", columnHeader);
+				} else if (!"1".equals(columnValue) && !"0".equals(columnValue)) {
+					acceptor.error("'%s' is not a valid Boolean value in column '%s'. Expected '0 or 1'.", columnValue, columnHeader);
+				}
+			},
+			RF2Columns.MODULE_ID, CONCEPT_ID,
+			RF2Columns.CONCEPT_ID, CONCEPT_ID,
+			RF2Columns.LANGUAGE_CODE, (file, columnHeader, columnValue, acceptor) -> {
+				if (!LANG_CODES.contains(columnValue)) {
+					acceptor.error("LanguageCode '%s' is not a valid ISO 639 language code.", columnValue);
+				}
+			},
+			RF2Columns.TYPE_ID, CONCEPT_ID,
+			RF2Columns.TERM, (file, columnHeader, columnValue, acceptor) -> {
+				if (columnValue == null || columnValue.isBlank()) {
+					acceptor.error("'%s' column value cannot be empty", columnHeader);
+				}
+			},
+			RF2Columns.CASE_SIGNIFICANCE_ID, CONCEPT_ID
+		);
+		
+		void check(RF2ContentFile file, String columnHeader, String columnValue, RF2IssueAcceptor acceptor);
+		
+		private static void checkId(RF2ContentFile file, String columnHeader, String columnValue, RF2IssueAcceptor acceptor) {
+			Optional<RF2ContentType> rf2ContentType = file.getRF2FileName().getElement(RF2ContentType.class);
+			if (!rf2ContentType.isPresent()) {
+				acceptor.warn("Unable to validate ID column due to missing content type part in file name");
+				return;
+			}
+			RF2ContentType contentType = rf2ContentType.get();
+			if (contentType.isRefset()) {
+				try {
+					UUID.fromString(columnValue);
+				} catch (IllegalArgumentException e) {
+					acceptor.error("Member ID '%s' is not a valid UUID.", columnValue);
+				}
+			} else {
+				checkSCTID(Set.of(contentType), columnValue, acceptor);
+			}
+		}
+		
+		private static void checkSCTID(Set<RF2ContentType> expectedContentTypes, String columnValue, RF2IssueAcceptor acceptor) {
+			if (columnValue == null || columnValue.isBlank()) {
+				acceptor.error("SCTID '%s' is empty or contains only white space characters.", columnValue);
+				return;
+			}
+			try {
+				Long.parseLong(columnValue);
+			} catch (final NumberFormatException e) {
+				acceptor.error("SCTID '%s' should be a number.", columnValue);
+				return;
+			}
+			if (columnValue.startsWith("0")) {
+				acceptor.error("SCTID '%s' can't start with leading zero.", columnValue);
+				return;
+			}
+			if (columnValue.length() < 6 || columnValue.length() > 18) {
+				acceptor.error("SCTID '%s' length must be between 6-18 characters.", columnValue);
+				return;
+			}
+			List<Integer> expectedComponentIdentifiers = expectedContentTypes.stream()
+					.map(RF2ContentType::getContentType)
+					.map(COMPONENT_TYPES_DIGIT_ASSOCIATION::get)
+					.sorted()
+					.collect(Collectors.toList());
+			final int actualComponentIdentifier = Character.digit(columnValue.charAt(columnValue.length() - 2), 10);
+			if (!expectedComponentIdentifiers.contains(actualComponentIdentifier)) {
+				acceptor.error("SCTID '%s' has unsatisfying componentIdentifier. Expected '%s' but was '%s'.", columnValue, expectedComponentIdentifiers, actualComponentIdentifier);
+				return;
+			}
+			var rawComponentId = columnValue.subSequence(0, columnValue.length() - 1);
+			var expectedChecksum = RF2VerhoeffCheck.calculateChecksum(rawComponentId, false);
+			var actualChecksum = columnValue.charAt(columnValue.length() - 1);
+			if (actualChecksum != expectedChecksum) {
+				acceptor.error("SCTID '%s' has incorrect Verhoeff check-digit. Expected '%s' but was '%s'.", columnValue, expectedChecksum, actualChecksum);
+			}
+		}
+		
+	}
+	
+}
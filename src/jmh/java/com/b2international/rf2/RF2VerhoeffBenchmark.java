@@ -0,0 +1,127 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.b2international.rf2.sctid.RF2Verhoeff;
+import com.b2international.rf2.sctid.RF2VerhoeffCheck;
+
+/**
+ * Measures verified and generated SCTIDs per second with {@link RF2VerhoeffCheck} on {@link String}s and with the batch API of
+ * {@link RF2Verhoeff} on <code>long</code> and byte column values.
+ *
+ * @since 0.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RF2VerhoeffBenchmark {
+
+	private static final int IDS = 1_000_000;
+
+	private String[] ids;
+	private long[] longIds;
+	private long[] itemIds;
+	private byte[] buffer;
+	private int[] offsets;
+	private int[] lengths;
+	private byte[] results;
+	private long[] generated;
+
+	@Setup
+	public void setup() {
+		final Random random = new Random(0L);
+		ids = new String[IDS];
+		longIds = new long[IDS];
+		itemIds = new long[IDS];
+		offsets = new int[IDS];
+		lengths = new int[IDS];
+		final StringBuilder column = new StringBuilder();
+		for (int i = 0; i < IDS; i++) {
+			itemIds[i] = (100_000 + random.nextInt(100_000_000)) * 100L + random.nextInt(3);
+			ids[i] = RF2BenchmarkFiles.sctid(itemIds[i] / 100, (char) ('0' + itemIds[i] % 100));
+			longIds[i] = Long.parseLong(ids[i]);
+			offsets[i] = column.length();
+			lengths[i] = ids[i].length();
+			column.append(ids[i]).append('\t');
+		}
+		buffer = column.toString().getBytes(StandardCharsets.US_ASCII);
+		results = new byte[IDS];
+		generated = new long[IDS];
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(IDS)
+	public int verifyStrings() {
+		int invalid = 0;
+		for (String id : ids) {
+			if (RF2VerhoeffCheck.calculateChecksum(id, true) != '0') {
+				invalid++;
+			}
+		}
+		return invalid;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(IDS)
+	public int verifyLongs() {
+		return RF2Verhoeff.verify(longIds, 0, IDS, results);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(IDS)
+	public int verifyBytes() {
+		return RF2Verhoeff.verify(buffer, offsets, lengths, 0, IDS, results);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(IDS)
+	public String[] generateStrings() {
+		final String[] sctids = new String[IDS];
+		for (int i = 0; i < IDS; i++) {
+			final String code = Long.toString(itemIds[i]);
+			sctids[i] = code + RF2VerhoeffCheck.calculateChecksum(code, false);
+		}
+		return sctids;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(IDS)
+	public long[] generateLongs() {
+		System.arraycopy(itemIds, 0, generated, 0, IDS);
+		RF2Verhoeff.appendCheckDigits(generated, 0, IDS);
+		return generated;
+	}
+
+}
@@ -15,13 +15,18 @@
  */
 package com.b2international.rf2;
 
+import java.util.List;
+
 import com.b2international.rf2.spec.RF2Specification;
 
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.HelpCommand;
 import picocli.CommandLine.IVersionProvider;
+import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.RunLast;
+import picocli.CommandLine.Spec;
 
 /**
  * @since 0.1
@@ -29,30 +34,63 @@ import picocli.CommandLine.Option;
 @Command(
 	name = "rf2",
 	description = "RF2-D2, a SNOMED CT release tool.",
-	subcommands = {
-		RF2Check.class,
-		RF2Create.class,
-		RF2Transform.class,
-		RF2Diff.class,
-		HelpCommand.class
-	},
 	versionProvider = RF2.VersionProvider.class
 )
 public final class RF2 extends RF2Command {
 
+	// subcommands are registered in main, so only the invoked one is introspected
+	private static final List<Class<? extends RF2Command>> SUBCOMMANDS = List.of(
+		RF2Check.class,
+		RF2Create.class,
+		RF2Transform.class,
+		RF2Diff.class
+	);
+	
+	private static final String HELP_COMMAND = "help";
+
+	@Spec
+	CommandSpec spec;
+
 	@Option(names = {"-v", "--version"}, versionHelp = true, description = "Print version information and exit.")
 	boolean versionInfoRequested;
 
 	@Option(names = {"-h", "--help"}, usageHelp = true, description = "Show this help message and exit.")
 	boolean usageHelpRequested;
 
+	@Override
+	protected boolean isSpecificationRequired() {
+		return false;
+	}
+	
 	@Override
 	public void doRun(RF2Specification specification) throws Exception {
-		CommandLine.usage(this, System.out, CommandLine.Help.Ansi.AUTO);
+		spec.commandLine().usage(System.out, CommandLine.Help.Ansi.AUTO);
 	}
 	
 	public static void main(String[] args) {
-		CommandLine.run(new RF2(), args);
+		final CommandLine commandLine = new CommandLine(new RF2());
+		final String invokedCommand = args.length > 0 ? args[0] : null;
+		final boolean isSubcommandInvoked = SUBCOMMANDS.stream().anyMatch(subcommand -> getName(subcommand).equals(invokedCommand));
+		for (Class<? extends RF2Command> subcommand : SUBCOMMANDS) {
+			// the usage help and the help command need all subcommands, otherwise picocli reflection is limited to the invoked one
+			if (!isSubcommandInvoked || getName(subcommand).equals(invokedCommand)) {
+				commandLine.addSubcommand(getName(subcommand), newInstance(subcommand));
+			}
+		}
+		commandLine.addSubcommand(HELP_COMMAND, new HelpCommand());
+		commandLine.parseWithHandler(new RunLast(), args);
+	}
+	
+	private static String getName(Class<? extends RF2Command> subcommand) {
+		return subcommand.getAnnotation(Command.class).name();
+	}
+	
+	private static RF2Command newInstance(Class<? extends RF2Command> subcommand) {
+		try {
+			return subcommand.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException("Couldn't instantiate subcommand: " + subcommand.getName(), e);
+		}
 	}
 	
 	/**
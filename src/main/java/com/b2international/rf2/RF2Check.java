@@ -16,16 +16,25 @@
 package com.b2international.rf2;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
+import com.b2international.rf2.check.RF2CheckCache;
+import com.b2international.rf2.check.RF2CheckResult;
+import com.b2international.rf2.check.RF2Issue.Severity;
 import com.b2international.rf2.check.RF2IssueAcceptor;
 import com.b2international.rf2.console.Console;
 import com.b2international.rf2.model.RF2ContentFile;
 import com.b2international.rf2.model.RF2File;
+import com.b2international.rf2.model.RF2SourceCatalog;
 import com.b2international.rf2.spec.RF2Specification;
+import com.b2international.rf2.validation.RF2ReferentialIntegrity;
+import com.b2international.rf2.validation.RF2ValidationPlan;
 
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
 /**
@@ -38,15 +47,41 @@ import picocli.CommandLine.Parameters;
 public final class RF2Check extends RF2Command {
 
 	private static final String PATH_DESCRIPTION = "RF2 source files to check.";
+	private static final String CHECK_CACHE_DESCRIPTION = "Directory of the cache of check results. RF2 files checked before with the same content, specification and validators report their cached issues without being validated again. Disabled by default.";
+	private static final String FULL_DESCRIPTION = "Validate all RF2 files, even the ones with cached check results. Their cached results are replaced with the new ones.";
+	private static final String REFERENCES_DESCRIPTION = "Check that the components referenced by the RF2 files exist in the Concept, Description and Relationship files being checked. Only enable it when the checked files include every component they reference (eg. Full or Snapshot files of a release and its dependencies).";
+	private static final String MAX_ISSUES_DESCRIPTION = "Maximum number of issues to report for each rule in a file, the rest of the issues are only counted. Default value is " + RF2IssueAcceptor.DEFAULT_MAX_ISSUES_PER_RULE + ".";
 	
 	@Parameters(arity = "1..*", description = PATH_DESCRIPTION, paramLabel = "PATH", converter = RF2FileTypeConverter.class)
 	List<RF2File> sources;
 	
+	@Option(required = false, names = {"-m", "--maxissues"}, description = MAX_ISSUES_DESCRIPTION)
+	int maxIssuesPerRule = RF2IssueAcceptor.DEFAULT_MAX_ISSUES_PER_RULE;
+	
+	@Option(required = false, names = {"--cache"}, paramLabel = "DIR", description = CHECK_CACHE_DESCRIPTION)
+	String cacheDir;
+	
+	@Option(required = false, names = {"--full"}, description = FULL_DESCRIPTION)
+	boolean full;
+	
+	@Option(required = false, names = {"-r", "--references"}, description = REFERENCES_DESCRIPTION)
+	boolean references;
+	
+	private RF2CheckCache checkCache;
+	
 	@Override
 	public void doRun(RF2Specification specification) throws Exception {
+		if (cacheDir != null) {
+			// everything besides the checked file that changes the reported issues
+			final String configuration = String.join("\n", getVersion(), specification.getVersion(), specification.getRf2Version(), RF2ValidationPlan.getValidators(), Integer.toString(maxIssuesPerRule));
+			checkCache = new RF2CheckCache(WORK_DIR.resolve(cacheDir), configuration);
+		}
 		for (RF2File source : sources) {
 			check(source);
 		}
+		if (references) {
+			checkReferences();
+		}
 	}
 	
 	private void check(final RF2File file) throws IOException {
@@ -66,26 +101,82 @@ public final class RF2Check extends RF2Command {
 		
 		final Console detailConsole = this.console.withIndentation(indentation + 1).withPrefix("-");
 		detailConsole.log("type: %s", file.getType());
-		if (file instanceof RF2ContentFile) {
-			RF2ContentFile rf2ContentFile = (RF2ContentFile) file;
-			if (rf2ContentFile.isDataFile()) {
-				detailConsole.log("header: %s", Arrays.toString(rf2ContentFile.getHeader()));
-				detailConsole.log("lines: %d", rf2ContentFile.rowsParallel().count());
-			}
+		final RF2CheckResult result = checkOrGetCached(file);
+		if (isDataFile(file)) {
+			detailConsole.log("header: %s", Arrays.toString(((RF2ContentFile) file).getHeader()));
+			detailConsole.log("lines: %d", result.getRows());
 		}
-
-		// check all RF2 files
-		final RF2IssueAcceptor issueAcceptor = new RF2IssueAcceptor();
-		file.check(issueAcceptor);
 		
 		final Console issueConsole = detailConsole.withIndentation(indentation + 2);
 		
-		if (issueAcceptor.hasIssues()) {
+		if (result.hasIssues()) {
 			detailConsole.log("issues:");
-			issueAcceptor.getErrors().forEach(issueConsole::error);
-			issueAcceptor.getWarns().forEach(issueConsole::warn);
+			result.getIssues().forEach(issue -> log(issueConsole, issue.getSeverity(), "%s", issue));
 		}
 		
 	}
 	
+	private RF2CheckResult checkOrGetCached(RF2File file) throws IOException {
+		// only the rows of data files take long to validate
+		if (checkCache == null || !isDataFile(file)) {
+			return runChecks(file);
+		}
+		final RF2ContentFile contentFile = (RF2ContentFile) file;
+		if (!full) {
+			final Optional<RF2CheckResult> cachedResult = checkCache.get(contentFile);
+			if (cachedResult.isPresent()) {
+				return cachedResult.get();
+			}
+		}
+		final RF2CheckResult result = runChecks(file);
+		checkCache.put(contentFile, result);
+		return result;
+	}
+	
+	private RF2CheckResult runChecks(RF2File file) throws IOException {
+		final long rows = isDataFile(file) ? ((RF2ContentFile) file).countRows() : -1L;
+		// check all RF2 files
+		final RF2IssueAcceptor issueAcceptor = new RF2IssueAcceptor(maxIssuesPerRule);
+		file.check(issueAcceptor);
+		return RF2CheckResult.of(rows, issueAcceptor);
+	}
+	
+	private void checkReferences() throws IOException {
+		console.log("references");
+		final Console detailConsole = console.withIndentation(1).withPrefix("-");
+		// keeps the checked releases open while their files are read
+		try (RF2SourceCatalog catalog = new RF2SourceCatalog(sources)) {
+			final List<RF2ContentFile> dataFiles = new ArrayList<>();
+			for (RF2File file : catalog.getFiles()) {
+				if (isDataFile(file)) {
+					dataFiles.add((RF2ContentFile) file);
+				}
+			}
+			final RF2ReferentialIntegrity referentialIntegrity = RF2ReferentialIntegrity.collect(dataFiles);
+			referentialIntegrity.getComponentCounts().forEach((componentType, count) -> detailConsole.log("%s: %d", componentType, count));
+			for (RF2ContentFile file : dataFiles) {
+				final RF2IssueAcceptor issueAcceptor = new RF2IssueAcceptor(maxIssuesPerRule);
+				referentialIntegrity.check(file, issueAcceptor);
+				final RF2CheckResult result = RF2CheckResult.of(-1L, issueAcceptor);
+				if (result.hasIssues()) {
+					console.withIndentation(1).log(file.getRF2FileName().toString());
+					final Console issueConsole = console.withIndentation(2).withPrefix("-");
+					result.getIssues().forEach(issue -> log(issueConsole, issue.getSeverity(), "%s", issue));
+				}
+			}
+		}
+	}
+	
+	private static boolean isDataFile(RF2File file) {
+		return file instanceof RF2ContentFile && ((RF2ContentFile) file).isDataFile();
+	}
+	
+	private void log(Console issueConsole, Severity severity, String message, Object...args) {
+		if (severity == Severity.ERROR) {
+			issueConsole.error(message, args);
+		} else {
+			issueConsole.warn(message, args);
+		}
+	}
+	
 }
@@ -21,6 +21,7 @@ import java.nio.file.Paths;
 import java.util.Properties;
 
 import com.b2international.rf2.console.Console;
+import com.b2international.rf2.io.RF2ColumnarCache;
 import com.b2international.rf2.spec.RF2Specification;
 import com.google.common.base.Strings;
 
@@ -43,6 +44,7 @@ public abstract class RF2Command implements Runnable {
 	private static final String VERSION_PROPERTY = "version";
 	private static final String DEV_VERSION = "@version@";
 	protected static final Path WORK_DIR = Paths.get(System.getProperty("user.dir"));
+	protected static final String CACHE_DESCRIPTION = "Directory of the columnar cache of parsed RF2 files. Sources read before with the same content are loaded from the cache without parsing their text. Disabled by default.";
 	
 	private static RF2Specification SPECIFICATION;
 	
@@ -51,7 +53,7 @@ public abstract class RF2Command implements Runnable {
 	@Override
 	public final void run() {
 		try {
-			doRun(getRF2Specification());
+			doRun(isSpecificationRequired() ? getRF2Specification() : null);
 		} catch (Exception e) {
 			if (Strings.isNullOrEmpty(e.getMessage())) {
 				console.error("Failed to run command. Unexpected error:");
@@ -65,6 +67,15 @@ public abstract class RF2Command implements Runnable {
 		}
 	}
 
+	/**
+	 * @return <code>true</code> if the command needs the {@link RF2Specification}, otherwise the specification is not read and
+	 *         {@link #doRun(RF2Specification)} receives <code>null</code>.
+	 * @since 0.4
+	 */
+	protected boolean isSpecificationRequired() {
+		return true;
+	}
+	
 	/**
 	 * Actual command implementation.
 	 * @param specification
@@ -83,6 +94,19 @@ public abstract class RF2Command implements Runnable {
 		return SPECIFICATION;
 	}
 	
+	/**
+	 * Opens the {@link RF2ColumnarCache} in the given directory (relative to the working directory), which is passed to the files of the command in
+	 * its context.
+	 * 
+	 * @param cacheDir
+	 * @return the cache in the given directory or <code>null</code> if the directory is <code>null</code> and caching is disabled
+	 * @throws IOException
+	 * @since 0.4
+	 */
+	protected static final RF2ColumnarCache openColumnarCache(String cacheDir) throws IOException {
+		return cacheDir == null ? null : new RF2ColumnarCache(WORK_DIR.resolve(cacheDir));
+	}
+	
 	/**
 	 * @return the cli.properties file content as {@link Properties}
 	 */
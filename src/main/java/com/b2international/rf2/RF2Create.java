@@ -23,6 +23,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import com.b2international.rf2.index.RF2RowFingerprint;
+import com.b2international.rf2.io.RF2ZipWriter;
 import com.b2international.rf2.model.RF2Directory;
 import com.b2international.rf2.model.RF2File;
 import com.b2international.rf2.spec.RF2ReleaseSpecification;
@@ -50,6 +52,11 @@ public final class RF2Create extends RF2Command {
 	private static final String COUNTRY_DESCRIPTION = "Configure the country value in the [CountryNamespace] part of RF2 Release files. Default value is 'INT'.";
 	private static final String NAMESPACE_DESCRIPTION = "Configure the namespace value in the [CountryNamespace] part of RF2 Release files. Default value is empty.";
 	private static final String CONTENT_SUB_TYPES_DESCRIPTION = "Configure the content sub types to be created in the RF2 Release. Default is ['Delta', 'Snapshot', 'Full'].";
+	private static final String OFF_HEAP_DESCRIPTION = "Keep the component index used to detect duplicate lines and select Snapshot lines outside of the Java heap (in direct memory).";
+	private static final String FINGERPRINT_DESCRIPTION = "The line fingerprint used to detect duplicate lines with different content, XXHASH64 or MURMUR3. Default value is 'XXHASH64'.";
+	private static final String VERIFY_DESCRIPTION = "Compare lines with the same ID, effectiveTime and fingerprint column by column before skipping them as duplicates.";
+	private static final String COMPRESSION_DESCRIPTION = "The compression level of the created RF2 Release archive, from 0 (store only, for intermediate builds) to 9 (smallest archive). Default value is 6.";
+	private static final String SORT_DESCRIPTION = "Sort the lines of created Snapshot files by ID and effectiveTime. By default lines are written in the order they were selected from the sources, or sorted if the sources were read in parallel.";
 	
 	@Parameters(arity = "0..*", paramLabel = "PATH", description = PATH_DESCRIPTION, converter = RF2FileTypeConverter.class)
 	List<RF2File> sources;
@@ -78,6 +85,24 @@ public final class RF2Create extends RF2Command {
 	@Option(required = false, names = {"-C", "--contentsubtype"}, description = CONTENT_SUB_TYPES_DESCRIPTION)
 	String[] contentSubTypes;
 	
+	@Option(required = false, names = {"-O", "--offheap"}, description = OFF_HEAP_DESCRIPTION)
+	boolean offHeapIndex;
+	
+	@Option(required = false, names = {"-S", "--sort"}, description = SORT_DESCRIPTION)
+	boolean sortSnapshots;
+	
+	@Option(required = false, names = {"-f", "--fingerprint"}, description = FINGERPRINT_DESCRIPTION)
+	RF2RowFingerprint fingerprint = RF2RowFingerprint.XXHASH64;
+	
+	@Option(required = false, names = {"--verify"}, description = VERIFY_DESCRIPTION)
+	boolean verifyDuplicates;
+	
+	@Option(required = false, names = {"-z", "--compression"}, description = COMPRESSION_DESCRIPTION)
+	int compressionLevel = RF2ZipWriter.DEFAULT_COMPRESSION_LEVEL;
+	
+	@Option(required = false, names = {"--cache"}, paramLabel = "DIR", description = CACHE_DESCRIPTION)
+	String cacheDir;
+	
 	@Override
 	public void doRun(RF2Specification specification) throws Exception {
 		final Path outputDirectory;
@@ -109,9 +134,19 @@ public final class RF2Create extends RF2Command {
 				// merge overridable options from command line
 				.merge(new RF2Specification(null, null, new RF2ReleaseSpecification(null, product, null, releaseStatus, country, namespace, releaseDate, releaseTime, contentSubTypes, null)));
 		
-		mergedSpec
-			.prepare(outputDirectory)
-			.create(new RF2CreateContext(mergedSpec, sources, console));
+		final RF2CreateContext.Options options = RF2CreateContext.Options.DEFAULT
+				.withOffHeapIndex(offHeapIndex)
+				.withSortSnapshots(sortSnapshots)
+				.withFingerprint(fingerprint)
+				.withVerifyDuplicates(verifyDuplicates)
+				.withCompressionLevel(compressionLevel)
+				.withColumnarCache(openColumnarCache(cacheDir));
+		
+		try (RF2CreateContext context = new RF2CreateContext(mergedSpec, sources, console, options)) {
+			mergedSpec
+				.prepare(outputDirectory)
+				.create(context);
+		}
 	}
 
 }
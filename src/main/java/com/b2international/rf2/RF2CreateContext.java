@@ -18,52 +18,202 @@ package com.b2international.rf2;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.function.BiConsumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 import com.b2international.rf2.console.Console;
+import com.b2international.rf2.index.RF2RowFingerprint;
+import com.b2international.rf2.io.RF2ColumnarCache;
+import com.b2international.rf2.io.RF2ZipWriter;
 import com.b2international.rf2.model.RF2ContentFile;
 import com.b2international.rf2.model.RF2File;
+import com.b2international.rf2.model.RF2SourceCatalog;
 import com.b2international.rf2.spec.RF2Specification;
 
 /**
  * @since 0.1
  */
-public final class RF2CreateContext extends RF2Context {
+public final class RF2CreateContext extends RF2Context implements AutoCloseable {
 
-	private final List<RF2File> sources;
+	private final RF2SourceCatalog sourceCatalog;
+	private final Options options;
 
 	public RF2CreateContext(RF2Specification specification, List<RF2File> sources, Console log) {
+		this(specification, sources, log, Options.DEFAULT);
+	}
+	
+	/**
+	 * @param options - the options of creating the RF2 files
+	 * @since 0.4
+	 */
+	public RF2CreateContext(RF2Specification specification, List<RF2File> sources, Console log, Options options) {
+		this(specification, new RF2SourceCatalog(sources == null ? Collections.emptyList() : sources), log, options);
+	}
+	
+	private RF2CreateContext(RF2Specification specification, RF2SourceCatalog sourceCatalog, Console log, Options options) {
 		super(specification, log);
-		this.sources = sources == null ? Collections.emptyList() : sources;
+		this.sourceCatalog = sourceCatalog;
+		this.options = options == null ? Options.DEFAULT : options;
+	}
+	
+	/**
+	 * @param console - the console to log to
+	 * @return a context with the same sources and options that logs to the given console
+	 * @since 0.4
+	 */
+	public RF2CreateContext newSubContext(Console console) {
+		return new RF2CreateContext(specification, sourceCatalog, console, options);
 	}
 	
 	public List<RF2File> getSources() {
-		return sources;
+		return sourceCatalog.getSources();
+	}
+	
+	/**
+	 * @return the files of the sources, shared with all sub contexts of this context.
+	 * @since 0.4
+	 */
+	public RF2SourceCatalog getSourceCatalog() {
+		return sourceCatalog;
+	}
+	
+	/**
+	 * @return <code>true</code> if the component indexes used to create RF2 files should be allocated outside of the Java heap.
+	 * @since 0.4
+	 */
+	public boolean isOffHeapIndex() {
+		return options.offHeapIndex;
+	}
+	
+	/**
+	 * @return <code>true</code> if the lines of created Snapshot files should be sorted by ID, otherwise they are written in the order they were
+	 *         selected from the sources, unless the sources are read in parallel.
+	 * @since 0.4
+	 */
+	public boolean isSortSnapshots() {
+		return options.sortSnapshots;
+	}
+	
+	/**
+	 * @return the fingerprint of source lines used to detect lines with the same ID and effectiveTime but different content.
+	 * @since 0.4
+	 */
+	public RF2RowFingerprint getFingerprint() {
+		return options.fingerprint;
+	}
+	
+	/**
+	 * @return <code>true</code> if lines with the same ID, effectiveTime and fingerprint should be compared column by column before they are
+	 *         skipped as duplicates.
+	 * @since 0.4
+	 */
+	public boolean isVerifyDuplicates() {
+		return options.verifyDuplicates;
+	}
+	
+	/**
+	 * @return the compression level of the created release archive, from {@link RF2ZipWriter#STORE_ONLY} to 9.
+	 * @since 0.4
+	 */
+	public int getCompressionLevel() {
+		return options.compressionLevel;
+	}
+	
+	/**
+	 * @return the cache the rows of the sources are read from, if caching is enabled.
+	 * @since 0.4
+	 */
+	public Optional<RF2ColumnarCache> getColumnarCache() {
+		return Optional.ofNullable(options.columnarCache);
 	}
 
-	public void visitSourceRows(Predicate<RF2ContentFile> fileFilter, Predicate<String[]> lineFilter, boolean parallel, BiConsumer<RF2File, String[]> visitor) throws IOException {
-		for (RF2File source : sources) {
-			source.visit(file -> {
-				if (file instanceof RF2ContentFile) {
-					final RF2ContentFile contentFile = (RF2ContentFile) file;
-					if (!fileFilter.test(contentFile)) {
-						return;
-					}
-					
-					try {
-						// read lines
-						Stream<String[]> rows = parallel ? contentFile.rowsParallel() : contentFile.rows();
-						rows
-							.filter(lineFilter)
-							.forEach(line -> visitor.accept(contentFile, line));
-					} catch (Exception e) {
-						throw new RuntimeException(e);
-					}
-				}
-			});
+	public void visitSourceRows(String[] header, Predicate<RF2ContentFile> fileFilter, Predicate<String[]> lineFilter, boolean parallel, BiConsumer<RF2File, String[]> visitor) throws IOException {
+		for (RF2ContentFile contentFile : sourceCatalog.getContentFiles(header)) {
+			if (!fileFilter.test(contentFile)) {
+				continue;
+			}
+			
+			try {
+				// read lines
+				Stream<String[]> rows = parallel ? contentFile.rowsParallel(getColumnarCache()) : contentFile.rows(getColumnarCache());
+				rows
+					.filter(lineFilter)
+					.forEach(line -> visitor.accept(contentFile, line));
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
 		}
 	}
 	
+	/**
+	 * Closes the sources opened by this context and its sub contexts.
+	 * @since 0.4
+	 */
+	@Override
+	public void close() throws IOException {
+		sourceCatalog.close();
+	}
+	
+	/**
+	 * The options of creating RF2 files. Options are immutable, each <code>with</code> method returns a copy with a single option changed.
+	 *
+	 * @since 0.4
+	 */
+	public static final class Options {
+
+		/**
+		 * Keeps the component indexes on the Java heap, writes Snapshot lines in the order they were selected, detects duplicate lines by their
+		 * {@link RF2RowFingerprint#XXHASH64} fingerprint without verifying them, uses the default compression level and reads the text of the
+		 * sources.
+		 */
+		public static final Options DEFAULT = new Options(false, false, RF2RowFingerprint.XXHASH64, false, RF2ZipWriter.DEFAULT_COMPRESSION_LEVEL, null);
+
+		private final boolean offHeapIndex;
+		private final boolean sortSnapshots;
+		private final RF2RowFingerprint fingerprint;
+		private final boolean verifyDuplicates;
+		private final int compressionLevel;
+		private final RF2ColumnarCache columnarCache;
+
+		private Options(boolean offHeapIndex, boolean sortSnapshots, RF2RowFingerprint fingerprint, boolean verifyDuplicates, int compressionLevel, RF2ColumnarCache columnarCache) {
+			this.offHeapIndex = offHeapIndex;
+			this.sortSnapshots = sortSnapshots;
+			this.fingerprint = fingerprint == null ? RF2RowFingerprint.XXHASH64 : fingerprint;
+			this.verifyDuplicates = verifyDuplicates;
+			this.compressionLevel = compressionLevel;
+			this.columnarCache = columnarCache;
+		}
+
+		public Options withOffHeapIndex(boolean offHeapIndex) {
+			return new Options(offHeapIndex, sortSnapshots, fingerprint, verifyDuplicates, compressionLevel, columnarCache);
+		}
+
+		public Options withSortSnapshots(boolean sortSnapshots) {
+			return new Options(offHeapIndex, sortSnapshots, fingerprint, verifyDuplicates, compressionLevel, columnarCache);
+		}
+
+		public Options withFingerprint(RF2RowFingerprint fingerprint) {
+			return new Options(offHeapIndex, sortSnapshots, fingerprint, verifyDuplicates, compressionLevel, columnarCache);
+		}
+
+		public Options withVerifyDuplicates(boolean verifyDuplicates) {
+			return new Options(offHeapIndex, sortSnapshots, fingerprint, verifyDuplicates, compressionLevel, columnarCache);
+		}
+
+		public Options withCompressionLevel(int compressionLevel) {
+			return new Options(offHeapIndex, sortSnapshots, fingerprint, verifyDuplicates, compressionLevel, columnarCache);
+		}
+
+		/**
+		 * @param columnarCache - the cache the rows of the sources are read from and written to, or <code>null</code> to read the text of the sources
+		 * @return
+		 */
+		public Options withColumnarCache(RF2ColumnarCache columnarCache) {
+			return new Options(offHeapIndex, sortSnapshots, fingerprint, verifyDuplicates, compressionLevel, columnarCache);
+		}
+
+	}
+	
 }
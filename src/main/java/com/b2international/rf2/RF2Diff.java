@@ -48,6 +48,9 @@ public final class RF2Diff extends RF2Command {
 	@Option(names = {"-n", "--new"}, description = "to extract only the component IDs that need to be added to the BASE RF2 file to get the COMPARE RF2 file")
 	boolean newOnly = false;
 	
+	@Option(required = false, names = {"--cache"}, paramLabel = "DIR", description = CACHE_DESCRIPTION)
+	String cacheDir;
+	
 	@Override
 	protected void doRun(RF2Specification specification) throws Exception {
 		final Console diffConsole;
@@ -62,7 +65,7 @@ public final class RF2Diff extends RF2Command {
 		} else {
 			diffConsole = console;
 		}
-		compare.diff(base, diffConsole);
+		compare.diff(base, new RF2DiffContext(specification, diffConsole, openColumnarCache(cacheDir)));
 	}
 	
 	private static final class ChangeOnlyConsole extends DelegatingConsole {
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2;
+
+import java.util.Optional;
+
+import com.b2international.rf2.console.Console;
+import com.b2international.rf2.io.RF2ColumnarCache;
+import com.b2international.rf2.spec.RF2Specification;
+
+/**
+ * @since 0.4
+ */
+public final class RF2DiffContext extends RF2Context {
+
+	private final RF2ColumnarCache columnarCache;
+
+	public RF2DiffContext(RF2Specification specification, Console console) {
+		this(specification, console, null);
+	}
+
+	/**
+	 * @param columnarCache - the cache the rows of the compared files are read from and written to, or <code>null</code> to read their text
+	 */
+	public RF2DiffContext(RF2Specification specification, Console console, RF2ColumnarCache columnarCache) {
+		super(specification, console);
+		this.columnarCache = columnarCache;
+	}
+
+	/**
+	 * @param console - the console to print the differences to
+	 * @return a context with the same options that prints to the given console
+	 */
+	public RF2DiffContext newSubContext(Console console) {
+		return new RF2DiffContext(specification, console, columnarCache);
+	}
+
+	/**
+	 * @return the cache the rows of the compared files are read from, if caching is enabled.
+	 */
+	public Optional<RF2ColumnarCache> getColumnarCache() {
+		return Optional.ofNullable(columnarCache);
+	}
+
+}
@@ -19,9 +19,13 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+import com.b2international.rf2.io.RF2ZipWriter;
 import com.b2international.rf2.model.RF2Directory;
 import com.b2international.rf2.model.RF2File;
 import com.b2international.rf2.spec.RF2Specification;
+import com.b2international.rf2.transform.RF2RowScript;
+import com.b2international.rf2.transform.RF2Transformation;
+import com.b2international.rf2.transform.RF2TransformRules;
 
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
@@ -37,10 +41,14 @@ import picocli.CommandLine.Parameters;
 public final class RF2Transform extends RF2Command {
 
 	private static final String GROOVY_EXT = ".groovy";
+	private static final String YML_EXT = ".yml";
+	private static final String YAML_EXT = ".yaml";
 	
 	private static final String PATH_DESCRIPTION = "RF2 source file to replace column values in.";
-	private static final String SCRIPT_DESCRIPTION = "Script Expression or PATH to a .groovy script file to apply to each RF2 line in the specified source file.";
+	private static final String SCRIPT_DESCRIPTION = "Script Expression, PATH to a .groovy script file or PATH to a .yml transform rules file to apply to each RF2 line in the specified source file.";
 	private static final String OUTDIR_DESCRIPTION = "Output directory where the transformed RF2 output file will be created.";
+	private static final String COMPRESSION_DESCRIPTION = "The compression level of transformed RF2 Release archives, from 0 (store only, for intermediate builds) to 9 (smallest archive). Default value is 6.";
+	private static final String PARALLEL_DESCRIPTION = "Transform the rows of each RF2 file on all available processors. Each thread runs its own instance of the script, so scripts must not rely on state shared between rows.";
 	
 	@Parameters(arity = "1", paramLabel = "PATH", description = PATH_DESCRIPTION, index = "0", converter = RF2FileTypeConverter.class)
 	RF2File source;
@@ -51,18 +59,35 @@ public final class RF2Transform extends RF2Command {
 	@Option(required = false, names = {"-o", "--outdir"}, description = OUTDIR_DESCRIPTION)
 	String outDir = "target";
 	
+	@Option(required = false, names = {"-z", "--compression"}, description = COMPRESSION_DESCRIPTION)
+	int compressionLevel = RF2ZipWriter.DEFAULT_COMPRESSION_LEVEL;
+	
+	@Option(required = false, names = {"-P", "--parallel"}, description = PARALLEL_DESCRIPTION)
+	boolean parallel = false;
+	
+	@Option(required = false, names = {"--cache"}, paramLabel = "DIR", description = CACHE_DESCRIPTION)
+	String cacheDir;
+	
 	@Override
 	protected void doRun(RF2Specification specification) throws Exception {
-		final String rawScript;
-		if (script.endsWith(GROOVY_EXT)) {
+		final RF2Transformation transformation;
+		if (script.endsWith(YML_EXT) || script.endsWith(YAML_EXT)) {
+			Path rulesPath = Paths.get(script);
+			if (!Files.exists(rulesPath)) {
+				console.log("The specified rules file at '%s' does not exist", rulesPath);
+				return;
+			}
+			// declarative rules do not need a script engine
+			transformation = RF2TransformRules.read(rulesPath);
+		} else if (script.endsWith(GROOVY_EXT)) {
 			Path scriptPath = Paths.get(script);
 			if (!Files.exists(scriptPath)) {
 				console.log("The specified script file at '%s' does not exist", scriptPath);
 				return;
 			}
-			rawScript = Files.readString(scriptPath);
+			transformation = RF2RowScript.compile(Files.readString(scriptPath));
 		} else {
-			rawScript = script;
+			transformation = RF2RowScript.compile(script);
 		}
 
 		if (source instanceof RF2Directory) {
@@ -75,7 +100,7 @@ public final class RF2Transform extends RF2Command {
 			Files.createDirectories(outputDirectory);
 		}
 
-		source.transform(new RF2TransformContext(rawScript, specification, outputDirectory, console));
+		source.transform(new RF2TransformContext(transformation, specification, outputDirectory, console, compressionLevel, parallel, openColumnarCache(cacheDir)));
 	}
 
 }
@@ -16,11 +16,16 @@
 package com.b2international.rf2;
 
 import java.nio.file.Path;
+import java.util.Optional;
 
 import com.b2international.rf2.console.Console;
+import com.b2international.rf2.io.RF2ColumnarCache;
+import com.b2international.rf2.io.RF2ZipWriter;
 import com.b2international.rf2.spec.RF2Specification;
+import com.b2international.rf2.transform.RF2RowScript;
+import com.b2international.rf2.transform.RF2Transformation;
+import com.google.common.base.Preconditions;
 
-import groovy.lang.GroovyShell;
 import groovy.lang.Script;
 
 /**
@@ -29,16 +34,26 @@ import groovy.lang.Script;
 public final class RF2TransformContext extends RF2Context {
 
 	private final Path parent;
-	private Script compiledScript;
+	private final RF2Transformation transformation;
+	private final int compressionLevel;
+	private final boolean parallel;
+	private final RF2ColumnarCache columnarCache;
 
 	public RF2TransformContext(String rawScript, RF2Specification specification, Path parent, Console console) {
-		this(compileScript(rawScript), specification, parent, console);
+		this(RF2RowScript.compile(rawScript), specification, parent, console, RF2ZipWriter.DEFAULT_COMPRESSION_LEVEL, false, null);
 	}
 
-	RF2TransformContext(Script compiledScript, RF2Specification specification, Path parent, Console console) {
+	/**
+	 * @param columnarCache - the cache the rows of the transformed files are read from and written to, or <code>null</code> to read their text
+	 * @since 0.4
+	 */
+	public RF2TransformContext(RF2Transformation transformation, RF2Specification specification, Path parent, Console console, int compressionLevel, boolean parallel, RF2ColumnarCache columnarCache) {
 		super(specification, console);
 		this.parent = parent;
-		this.compiledScript = compiledScript;
+		this.transformation = transformation;
+		this.compressionLevel = compressionLevel;
+		this.parallel = parallel;
+		this.columnarCache = columnarCache;
 	}
 
 	public Path getParent() {
@@ -46,20 +61,48 @@ public final class RF2TransformContext extends RF2Context {
 	}
 
 	public RF2TransformContext newSubContext(Path parent) {
-		return new RF2TransformContext(compiledScript, specification, parent, getConsole());
+		return new RF2TransformContext(transformation, specification, parent, getConsole(), compressionLevel, parallel, columnarCache);
 	}
 
+	/**
+	 * @return a new instance of the dynamically compiled script
+	 * @throws IllegalStateException - if the rows are transformed with declarative rules instead of a script
+	 */
 	public Script getCompiledScript() {
-		return compiledScript;
+		Preconditions.checkState(transformation instanceof RF2RowScript, "Rows are not transformed with a script");
+		return ((RF2RowScript) transformation).newScript();
 	}
 
-	private static Script compileScript(String rawScript) {
-		final GroovyShell shell = new GroovyShell();
-		try {
-			return (Script) shell.getClassLoader().parseClass(rawScript).getDeclaredConstructor().newInstance();
-		} catch (Exception e) {
-			throw new RuntimeException("Couldn't instantiate script", e);
-		}
+	/**
+	 * @return the script or the rules compiled for the headers of the transformed files
+	 * @since 0.4
+	 */
+	public RF2Transformation getTransformation() {
+		return transformation;
+	}
+
+	/**
+	 * @return the compression level of transformed release archives, from {@link RF2ZipWriter#STORE_ONLY} to 9.
+	 * @since 0.4
+	 */
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	/**
+	 * @return <code>true</code> if the rows of each file should be transformed on all available processors, with one script instance per thread
+	 * @since 0.4
+	 */
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * @return the cache the rows of the transformed files are read from, if caching is enabled.
+	 * @since 0.4
+	 */
+	public Optional<RF2ColumnarCache> getColumnarCache() {
+		return Optional.ofNullable(columnarCache);
 	}
 
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.check;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Optional;
+
+import com.b2international.rf2.io.RF2ContentHash;
+import com.b2international.rf2.model.RF2ContentFile;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+
+/**
+ * A local directory of the {@link RF2CheckResult results} of already checked RF2 content files, so files that did not change since their last
+ * check are reported without validating their rows again.
+ * <p>
+ * Results are keyed by the {@link RF2ContentHash content hash} and the name of the checked file, the header it was expected to have by the
+ * specification, and the configuration of the check (versions of the CLI and the specification, the registered validators and the maximum number
+ * of reported issues). A result is never reported for a file with different content or for a check that would report different issues, but it
+ * is reported for the same file in a copied, moved or downloaded again release.
+ * </p>
+ *
+ * @since 0.4
+ */
+public final class RF2CheckCache {
+
+	private static final int VERSION = 2;
+	private static final String EXTENSION = ".rf2check.json";
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final Path directory;
+	private final String configuration;
+
+	/**
+	 * @param directory - the cache directory, created if it does not exist yet
+	 * @param configuration - describes everything besides the checked file that affects the result of a check
+	 * @throws IOException
+	 */
+	public RF2CheckCache(Path directory, String configuration) throws IOException {
+		this.directory = Files.createDirectories(directory);
+		this.configuration = configuration;
+	}
+
+	/**
+	 * @return the directory of the cached results
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @param file
+	 * @return the result of the last check of the given file if it did not change since then
+	 * @throws IOException - if the content of the file cannot be read
+	 */
+	public Optional<RF2CheckResult> get(RF2ContentFile file) throws IOException {
+		final Path resultPath = getResultPath(file);
+		if (!Files.isRegularFile(resultPath)) {
+			return Optional.empty();
+		}
+		try {
+			return Optional.of(MAPPER.readValue(resultPath.toFile(), RF2CheckResult.class));
+		} catch (IOException e) {
+			// results of other versions or incomplete writes are replaced by the next check
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Stores the result of checking the given file, replacing its previous result.
+	 *
+	 * @param file
+	 * @param result
+	 * @throws IOException - if the content of the file cannot be read
+	 */
+	public void put(RF2ContentFile file, RF2CheckResult result) throws IOException {
+		final Path resultPath = getResultPath(file);
+		try {
+			final Path tempPath = Files.createTempFile(directory, resultPath.getFileName().toString(), ".tmp");
+			try {
+				Files.write(tempPath, MAPPER.writeValueAsBytes(result));
+				try {
+					Files.move(tempPath, resultPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(tempPath, resultPath, StandardCopyOption.REPLACE_EXISTING);
+				}
+			} finally {
+				Files.deleteIfExists(tempPath);
+			}
+		} catch (IOException e) {
+			// the cache is optional, the file is checked again next time
+		}
+	}
+
+	private Path getResultPath(RF2ContentFile file) throws IOException {
+		final String key = Hashing.murmur3_128().newHasher()
+				.putInt(VERSION)
+				.putString(String.join("\n", file.getRF2FileName().toString(), Arrays.toString(file.getSpecification().getHeader()), configuration), StandardCharsets.UTF_8)
+				.putBytes(RF2ContentHash.of(file.getPath()).asBytes())
+				.hash()
+				.toString();
+		return directory.resolve(key + EXTENSION);
+	}
+
+}
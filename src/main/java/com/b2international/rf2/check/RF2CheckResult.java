@@ -0,0 +1,118 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.check;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.b2international.rf2.check.RF2Issue.Severity;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The outcome of checking a single RF2 file, as it is reported to the user: the number of rows of the file and the formatted issues in the
+ * order they are reported. Unlike an {@link RF2IssueAcceptor}, a result can be stored and reported again without checking the file.
+ *
+ * @since 0.4
+ */
+public final class RF2CheckResult {
+
+	private final long rows;
+	private final List<Issue> issues;
+
+	@JsonCreator
+	public RF2CheckResult(@JsonProperty("rows") long rows, @JsonProperty("issues") List<Issue> issues) {
+		this.rows = rows;
+		this.issues = issues == null ? List.of() : Collections.unmodifiableList(issues);
+	}
+
+	/**
+	 * Formats the issues retained by the given acceptor, errors first. The issues of each rule are followed by the number of issues that were
+	 * counted but not retained, along with the last retained message of the rule (or its message template if none were retained).
+	 *
+	 * @param rows - the number of rows of the checked file or <code>-1</code> if it is not a data file
+	 * @param acceptor - the acceptor of the issues of the checked file
+	 * @return
+	 */
+	public static RF2CheckResult of(long rows, RF2IssueAcceptor acceptor) {
+		final List<Issue> issues = new ArrayList<>();
+		for (Severity severity : Severity.values()) {
+			acceptor.getIssuesByRule(severity).forEach((rule, ruleIssues) -> {
+				ruleIssues.forEach(issue -> issues.add(new Issue(severity, issue.toString())));
+				final long notReported = acceptor.getIssueCount(severity, rule) - ruleIssues.size();
+				if (notReported > 0 && !ruleIssues.isEmpty()) {
+					issues.add(new Issue(severity, String.format("%d more issues like '%s' were not reported", notReported, ruleIssues.get(ruleIssues.size() - 1).getMessage())));
+				} else if (notReported > 0) {
+					// nothing was retained to show as an example, so report the message template of the rule
+					issues.add(new Issue(severity, String.format("%d issues of type '%s' were not reported", notReported, rule)));
+				}
+			});
+		}
+		return new RF2CheckResult(rows, issues);
+	}
+
+	/**
+	 * @return the number of rows of the checked file or <code>-1</code> if it is not a data file
+	 */
+	@JsonProperty
+	public long getRows() {
+		return rows;
+	}
+
+	@JsonProperty
+	public List<Issue> getIssues() {
+		return issues;
+	}
+
+	public boolean hasIssues() {
+		return !issues.isEmpty();
+	}
+
+	/**
+	 * A formatted issue of a checked file.
+	 *
+	 * @since 0.4
+	 */
+	public static final class Issue {
+
+		private final Severity severity;
+		private final String message;
+
+		@JsonCreator
+		public Issue(@JsonProperty("severity") Severity severity, @JsonProperty("message") String message) {
+			this.severity = severity;
+			this.message = message;
+		}
+
+		@JsonProperty
+		public Severity getSeverity() {
+			return severity;
+		}
+
+		@JsonProperty
+		public String getMessage() {
+			return message;
+		}
+
+		@Override
+		public String toString() {
+			return message;
+		}
+
+	}
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.check;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+
+/**
+ * An issue reported by an RF2 check. The issue's rule is its message template, the message itself is only formatted when requested.
+ *
+ * @since 0.4
+ */
+public final class RF2Issue {
+
+	/**
+	 * Orders issues by their location in the file, issues without a location come first.
+	 */
+	static final Comparator<RF2Issue> LOCATION_ORDER = Comparator.comparingLong(RF2Issue::getFileOffset)
+			.thenComparingInt(RF2Issue::getColumn)
+			.thenComparingLong(issue -> issue.sequence);
+
+	/**
+	 * @since 0.4
+	 */
+	public enum Severity {
+		ERROR,
+		WARN
+	}
+
+	private final Severity severity;
+	private final String rule;
+	private final Object[] args;
+	private final Path file;
+	private final long fileOffset;
+	private final int column;
+	private final String columnHeader;
+	private final String value;
+	private final long sequence;
+	private long lineNumber;
+	private String message;
+
+	RF2Issue(Severity severity, String rule, Object[] args, Path file, long fileOffset, long lineNumber, int column, String columnHeader, String value, long sequence) {
+		this.severity = severity;
+		this.rule = rule;
+		this.args = args;
+		this.file = file;
+		this.fileOffset = fileOffset;
+		this.lineNumber = lineNumber;
+		this.column = column;
+		this.columnHeader = columnHeader;
+		this.value = value;
+		this.sequence = sequence;
+	}
+
+	public Severity getSeverity() {
+		return severity;
+	}
+
+	/**
+	 * @return the message template of this issue, which also identifies the rule that reported it.
+	 */
+	public String getRule() {
+		return rule;
+	}
+
+	/**
+	 * @return the formatted message of this issue.
+	 */
+	public String getMessage() {
+		if (message == null) {
+			message = String.format(rule, args);
+		}
+		return message;
+	}
+
+	/**
+	 * @return the file this issue was reported for or <code>null</code> if it is not related to a row of a file.
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the byte offset of the row this issue was reported for or <code>-1</code> if it is not related to a row.
+	 */
+	public long getFileOffset() {
+		return fileOffset;
+	}
+
+	/**
+	 * @return the 1-based line number of the row this issue was reported for or <code>0</code> if it is unknown or the issue is not related to a row.
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * @return the index of the column this issue was reported for or <code>-1</code> if it is not related to a column.
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+	/**
+	 * @return the header of the column this issue was reported for or <code>null</code> if it is not related to a column.
+	 */
+	public String getColumnHeader() {
+		return columnHeader;
+	}
+
+	/**
+	 * @return the raw value of the cell this issue was reported for or <code>null</code> if it is not related to a column.
+	 */
+	public String getValue() {
+		return value;
+	}
+
+	void setLineNumber(long lineNumber) {
+		this.lineNumber = lineNumber;
+	}
+
+	@Override
+	public String toString() {
+		if (fileOffset < 0) {
+			return getMessage();
+		}
+		final String location = lineNumber > 0 ? String.format("line %d", lineNumber) : String.format("offset %d", fileOffset);
+		if (columnHeader == null) {
+			return String.format("%s (%s)", getMessage(), location);
+		} else {
+			return String.format("%s (%s, column '%s')", getMessage(), location, columnHeader);
+		}
+	}
+
+}
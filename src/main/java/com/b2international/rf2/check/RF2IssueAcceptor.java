@@ -1,6 +1,6 @@
 /*
  * Copyright 2019 B2i Healthcare, https://b2ihealthcare.com
- * 
+ *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
@@ -15,36 +15,297 @@
  */
 package com.b2international.rf2.check;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.b2international.rf2.check.RF2Issue.Severity;
+import com.b2international.rf2.io.RF2Row;
+import com.b2international.rf2.io.RF2RowReader;
+import com.google.common.base.Preconditions;
 
 /**
+ * Collects the issues reported by RF2 checks.
+ * <p>
+ * Issues are recorded without any synchronization into buffers owned by the reporting threads and are merged only when they are requested.
+ * Each rule (message template) retains at most {@link #getMaxIssuesPerRule()} issues, the ones closest to the beginning of the file, the rest
+ * of the issues are only counted. Messages are formatted when they are requested, so an issue that is not retained costs only a counter
+ * increment.
+ * </p>
+ * <p>
+ * Issues reported while a thread is inside a {@link #at(Path, RF2Row) row cursor} record the location (file, row, column and raw value) of the
+ * validated cell as well.
+ * </p>
+ *
  * @since 0.1
  */
 public final class RF2IssueAcceptor {
 
-	private List<String> errors = Collections.synchronizedList(new ArrayList<>());
-	private List<String> warns = Collections.synchronizedList(new ArrayList<>());
-	
+	public static final int DEFAULT_MAX_ISSUES_PER_RULE = 100;
+
+	private final int maxIssuesPerRule;
+	private final Queue<IssueBuffer> buffers = new ConcurrentLinkedQueue<>();
+	private final ThreadLocal<IssueBuffer> threadBuffer = ThreadLocal.withInitial(() -> {
+		final IssueBuffer buffer = new IssueBuffer();
+		buffers.add(buffer);
+		return buffer;
+	});
+
+	public RF2IssueAcceptor() {
+		this(DEFAULT_MAX_ISSUES_PER_RULE);
+	}
+
+	/**
+	 * @param maxIssuesPerRule - the maximum number of issues to retain for a single rule
+	 */
+	public RF2IssueAcceptor(int maxIssuesPerRule) {
+		Preconditions.checkArgument(maxIssuesPerRule >= 0, "Maximum number of issues per rule must be greater than or equal to zero, was: %s", maxIssuesPerRule);
+		this.maxIssuesPerRule = maxIssuesPerRule;
+	}
+
+	public int getMaxIssuesPerRule() {
+		return maxIssuesPerRule;
+	}
+
 	public void warn(String message, Object...args) {
-		warns.add(String.format(message, args));
+		threadBuffer.get().add(Severity.WARN, message, args);
 	}
-	
+
 	public void error(String message, Object...args) {
-		errors.add(String.format(message, args));
+		threadBuffer.get().add(Severity.ERROR, message, args);
 	}
-	
+
+	/**
+	 * Marks the given row of the given file as the current location of the calling thread. Issues reported by the calling thread are attached to
+	 * the row (and the column selected on the returned cursor) until the cursor is closed.
+	 *
+	 * @param file - the file the row belongs to
+	 * @param row - the row that is being checked
+	 * @return
+	 */
+	public Cursor at(Path file, RF2Row row) {
+		final IssueBuffer buffer = threadBuffer.get();
+		buffer.cursor.file = file;
+		buffer.cursor.row = row;
+		buffer.cursor.column = -1;
+		buffer.cursor.columnHeader = null;
+		return buffer.cursor;
+	}
+
+	/**
+	 * @param severity
+	 * @return the retained issues with the given severity, grouped by rule and ordered by their location in the file.
+	 */
+	public List<RF2Issue> getIssues(Severity severity) {
+		final List<RF2Issue> issues = new ArrayList<>();
+		for (List<RF2Issue> ruleIssues : getIssuesByRule(severity).values()) {
+			issues.addAll(ruleIssues);
+		}
+		return issues;
+	}
+
+	/**
+	 * Merges the retained issues of all threads per rule. The issues must not be requested while other threads might still report issues.
+	 *
+	 * @param severity
+	 * @return the retained issues with the given severity per rule, in the order of the location of the first issue of each rule. Rules without
+	 *         any retained issues come last.
+	 */
+	public Map<String, List<RF2Issue>> getIssuesByRule(Severity severity) {
+		final Map<String, List<RF2Issue>> issuesByRule = new HashMap<>();
+		for (IssueBuffer buffer : buffers) {
+			for (Map.Entry<String, RuleIssues> entry : buffer.rules.get(severity).entrySet()) {
+				issuesByRule.computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).addAll(entry.getValue().retained);
+			}
+		}
+		final Map<String, List<RF2Issue>> merged = new LinkedHashMap<>();
+		issuesByRule.values().forEach(issues -> issues.sort(RF2Issue.LOCATION_ORDER));
+		issuesByRule.entrySet().stream()
+			.sorted(Comparator.comparing(entry -> entry.getValue().isEmpty() ? null : entry.getValue().get(0), Comparator.nullsLast(RF2Issue.LOCATION_ORDER)))
+			.forEach(entry -> {
+				final List<RF2Issue> issues = entry.getValue();
+				merged.put(entry.getKey(), Collections.unmodifiableList(issues.subList(0, Math.min(issues.size(), maxIssuesPerRule))));
+			});
+		return merged;
+	}
+
+	/**
+	 * @param severity
+	 * @param rule
+	 * @return the number of issues reported for the given rule, including the ones not retained.
+	 */
+	public long getIssueCount(Severity severity, String rule) {
+		long count = 0L;
+		for (IssueBuffer buffer : buffers) {
+			final RuleIssues ruleIssues = buffer.rules.get(severity).get(rule);
+			if (ruleIssues != null) {
+				count += ruleIssues.count;
+			}
+		}
+		return count;
+	}
+
 	public List<String> getErrors() {
-		return Collections.unmodifiableList(errors);
+		return getMessages(Severity.ERROR, RF2Issue::getMessage);
 	}
-	
+
 	public List<String> getWarns() {
-		return Collections.unmodifiableList(warns);
+		return getMessages(Severity.WARN, RF2Issue::getMessage);
+	}
+
+	/**
+	 * @return the retained error messages followed by the location of the issue in the file (eg. <code>(line 2, column 'id')</code>), if any.
+	 * @since 0.4
+	 */
+	public List<String> getLocatedErrors() {
+		return getMessages(Severity.ERROR, RF2Issue::toString);
+	}
+
+	/**
+	 * @return the retained warning messages followed by the location of the issue in the file, if any.
+	 * @since 0.4
+	 */
+	public List<String> getLocatedWarns() {
+		return getMessages(Severity.WARN, RF2Issue::toString);
 	}
 
 	public boolean hasIssues() {
-		return !getErrors().isEmpty() || !getWarns().isEmpty();
+		for (IssueBuffer buffer : buffers) {
+			for (Map<String, RuleIssues> rules : buffer.rules.values()) {
+				if (!rules.isEmpty()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Computes the line numbers of the retained issues that were reported with a file offset only (eg. for rows read in parallel chunks).
+	 *
+	 * @throws IOException
+	 */
+	public void resolveLineNumbers() throws IOException {
+		final Map<Path, List<RF2Issue>> unresolved = buffers.stream()
+				.flatMap(buffer -> buffer.rules.values().stream())
+				.flatMap(rules -> rules.values().stream())
+				.flatMap(ruleIssues -> ruleIssues.retained.stream())
+				.filter(issue -> issue.getFile() != null && issue.getFileOffset() >= 0 && issue.getLineNumber() == 0)
+				.collect(Collectors.groupingBy(RF2Issue::getFile));
+		for (Map.Entry<Path, List<RF2Issue>> entry : unresolved.entrySet()) {
+			final List<RF2Issue> issues = entry.getValue();
+			issues.sort(Comparator.comparingLong(RF2Issue::getFileOffset));
+			final long[] offsets = issues.stream().mapToLong(RF2Issue::getFileOffset).toArray();
+			final long[] lineNumbers = RF2RowReader.lineNumbers(entry.getKey(), offsets);
+			for (int i = 0; i < lineNumbers.length; i++) {
+				issues.get(i).setLineNumber(lineNumbers[i]);
+			}
+		}
 	}
-	
+
+	private List<String> getMessages(Severity severity, Function<RF2Issue, String> toMessage) {
+		return Collections.unmodifiableList(getIssues(severity).stream().map(toMessage).collect(Collectors.toList()));
+	}
+
+	/**
+	 * The location of the calling thread in the checked file.
+	 *
+	 * @since 0.4
+	 */
+	public static final class Cursor implements AutoCloseable {
+
+		private Path file;
+		private RF2Row row;
+		private int column = -1;
+		private String columnHeader;
+
+		private Cursor() {
+		}
+
+		/**
+		 * Selects the column of the current row that is being checked.
+		 *
+		 * @param column
+		 * @param columnHeader
+		 */
+		public void column(int column, String columnHeader) {
+			this.column = column;
+			this.columnHeader = columnHeader;
+		}
+
+		@Override
+		public void close() {
+			file = null;
+			row = null;
+			column = -1;
+			columnHeader = null;
+		}
+
+	}
+
+	/**
+	 * The number of reported and the retained issues of a single rule on a single thread. Retained issues are kept in a heap ordered by reverse
+	 * location, so the issue furthest from the beginning of the file can be replaced when the rule's limit is reached.
+	 */
+	private static final class RuleIssues {
+
+		private long count;
+		private final PriorityQueue<RF2Issue> retained = new PriorityQueue<>(RF2Issue.LOCATION_ORDER.reversed());
+
+	}
+
+	/**
+	 * Issues reported by a single thread, only accessed by the owner thread until the issues are merged.
+	 */
+	private final class IssueBuffer {
+
+		private final Map<Severity, Map<String, RuleIssues>> rules = new EnumMap<>(Severity.class);
+		private final Cursor cursor = new Cursor();
+		private long sequence;
+
+		IssueBuffer() {
+			for (Severity severity : Severity.values()) {
+				rules.put(severity, new HashMap<>());
+			}
+		}
+
+		void add(Severity severity, String rule, Object[] args) {
+			final RuleIssues ruleIssues = rules.get(severity).computeIfAbsent(rule, key -> new RuleIssues());
+			ruleIssues.count++;
+			if (maxIssuesPerRule == 0) {
+				return;
+			}
+
+			final RF2Row row = cursor.row;
+			final long fileOffset = row == null ? -1L : row.getFileOffset();
+			final int column = row == null ? -1 : cursor.column;
+			if (ruleIssues.retained.size() == maxIssuesPerRule) {
+				// issues of the same row are reported in increasing sequence, so only an earlier location can replace a retained issue
+				final RF2Issue last = ruleIssues.retained.peek();
+				if (fileOffset > last.getFileOffset() || (fileOffset == last.getFileOffset() && column >= last.getColumn())) {
+					return;
+				}
+				ruleIssues.retained.poll();
+			}
+
+			final long lineNumber = row == null ? 0L : row.getLineNumber();
+			final String columnHeader = column < 0 ? null : cursor.columnHeader;
+			final String value = column < 0 || column >= row.getColumnCount() ? null : row.get(column);
+			ruleIssues.retained.add(new RF2Issue(severity, rule, args, cursor.file, fileOffset, lineNumber, column, columnHeader, value, sequence++));
+		}
+
+	}
+
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.console;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A {@link Console} that records messages instead of printing them and reports them to the target console when it is {@link #flush() flushed}.
+ * Consoles derived from a buffered console (with a different indentation or prefix) record their messages into the same buffer, so the original
+ * order of the messages is kept. Messages are reported through the matching derived target console, so the target console decides how they are
+ * printed.
+ * <p>
+ * A buffered console must not be used from multiple threads at the same time.
+ * </p>
+ *
+ * @since 0.4
+ */
+public final class BufferedConsole implements Console {
+
+	private final Console console;
+	private final List<ConsoleMessage> messages;
+
+	public BufferedConsole(Console console) {
+		this(console, new ArrayList<>());
+	}
+
+	private BufferedConsole(Console console, List<ConsoleMessage> messages) {
+		this.console = Objects.requireNonNull(console);
+		this.messages = messages;
+	}
+
+	@Override
+	public void warn(String message, Object... args) {
+		messages.add(ConsoleMessage.warn(console, message, args));
+	}
+
+	@Override
+	public void error(String message, Object... args) {
+		messages.add(ConsoleMessage.error(console, message, args));
+	}
+
+	@Override
+	public void log(String message, Object... args) {
+		messages.add(ConsoleMessage.log(console, message, args));
+	}
+
+	@Override
+	public Console withIndentation(int indentation) {
+		return new BufferedConsole(console.withIndentation(indentation), messages);
+	}
+
+	@Override
+	public Console indent(int indentWith) {
+		return new BufferedConsole(console.indent(indentWith), messages);
+	}
+
+	@Override
+	public Console withPrefix(String linePrefix) {
+		return new BufferedConsole(console.withPrefix(linePrefix), messages);
+	}
+
+	/**
+	 * Reports the recorded messages to the target console in the order they were recorded and clears the buffer.
+	 */
+	public void flush() {
+		for (ConsoleMessage message : messages) {
+			message.report();
+		}
+		messages.clear();
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.console;
+
+/**
+ * A message recorded by a {@link Console} to report it later to the target console it was recorded for.
+ *
+ * @since 0.4
+ */
+final class ConsoleMessage {
+
+	private enum Level {
+		WARN, ERROR, LOG
+	}
+
+	private final Console console;
+	private final Level level;
+	private final String message;
+	private final Object[] args;
+
+	private ConsoleMessage(Console console, Level level, String message, Object[] args) {
+		this.console = console;
+		this.level = level;
+		this.message = message;
+		this.args = args;
+	}
+
+	static ConsoleMessage warn(Console console, String message, Object[] args) {
+		return new ConsoleMessage(console, Level.WARN, message, args);
+	}
+
+	static ConsoleMessage error(Console console, String message, Object[] args) {
+		return new ConsoleMessage(console, Level.ERROR, message, args);
+	}
+
+	static ConsoleMessage log(Console console, String message, Object[] args) {
+		return new ConsoleMessage(console, Level.LOG, message, args);
+	}
+
+	void report() {
+		switch (level) {
+		case WARN:
+			console.warn(message, args);
+			break;
+		case ERROR:
+			console.error(message, args);
+			break;
+		default:
+			console.log(message, args);
+		}
+	}
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.console;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+
+/**
+ * A {@link Console} that passes its messages from a writer thread to a reader thread through a bounded queue. The writer blocks while the queue
+ * is full, so a writer that is ahead of the reader holds at most the capacity of the queue in memory. The reader reports the messages to the
+ * target console with {@link #drain()} until the writer {@link #close() closes} the console. Consoles derived from a queued console (with a
+ * different indentation or prefix) share its queue, like the ones of a {@link BufferedConsole}.
+ * <p>
+ * A writer blocked on a full queue fails with a {@link CancellationException} when its thread is interrupted.
+ * </p>
+ *
+ * @since 0.4
+ */
+public final class QueuedConsole implements Console, AutoCloseable {
+
+	private static final ConsoleMessage END = ConsoleMessage.log(null, null, null);
+
+	private final Console console;
+	private final BlockingQueue<ConsoleMessage> messages;
+
+	/**
+	 * @param console - the target console
+	 * @param capacity - the maximum number of messages waiting in the queue, must be greater than zero
+	 */
+	public QueuedConsole(Console console, int capacity) {
+		this(console, new ArrayBlockingQueue<>(capacity));
+	}
+
+	private QueuedConsole(Console console, BlockingQueue<ConsoleMessage> messages) {
+		this.console = Objects.requireNonNull(console);
+		this.messages = messages;
+	}
+
+	@Override
+	public void warn(String message, Object... args) {
+		put(ConsoleMessage.warn(console, message, args));
+	}
+
+	@Override
+	public void error(String message, Object... args) {
+		put(ConsoleMessage.error(console, message, args));
+	}
+
+	@Override
+	public void log(String message, Object... args) {
+		put(ConsoleMessage.log(console, message, args));
+	}
+
+	@Override
+	public Console withIndentation(int indentation) {
+		return new QueuedConsole(console.withIndentation(indentation), messages);
+	}
+
+	@Override
+	public Console indent(int indentWith) {
+		return new QueuedConsole(console.indent(indentWith), messages);
+	}
+
+	@Override
+	public Console withPrefix(String linePrefix) {
+		return new QueuedConsole(console.withPrefix(linePrefix), messages);
+	}
+
+	/**
+	 * Marks the end of the messages, must be called by the writer once, even if it failed. Does not block if the writer thread is interrupted, as
+	 * there is nobody to drain the queue in that case.
+	 */
+	@Override
+	public void close() {
+		try {
+			messages.put(END);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Reports the messages to the target console as they arrive, until the console is {@link #close() closed}.
+	 *
+	 * @throws InterruptedException
+	 */
+	public void drain() throws InterruptedException {
+		ConsoleMessage message;
+		while ((message = messages.take()) != END) {
+			message.report();
+		}
+	}
+
+	private void put(ConsoleMessage message) {
+		try {
+			messages.put(message);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Interrupted while waiting for the console");
+		}
+	}
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable set of SCTIDs stored as a sorted array of distinct <code>long</code> keys, about 9 bytes per component.
+ * <p>
+ * The keys are the IDs multiplied by an odd constant, which maps distinct IDs to distinct, evenly distributed keys, sorted by their unsigned value.
+ * The keys are split into buckets by their highest bits, with {@value #IDS_PER_BUCKET} keys per bucket on average, and the offset of each bucket is
+ * stored in an <code>int</code> array. A lookup reads the offset of a single bucket and compares the few keys of the bucket, so it touches only a
+ * couple of cache lines regardless of the size of the set (a binary search over millions of IDs would miss the CPU caches at most of its steps).
+ * The set is safe to query from multiple threads.
+ * </p>
+ *
+ * @since 0.4
+ */
+public final class RF2ComponentIdSet {
+
+	private static final int IDS_PER_BUCKET = 4;
+	// odd, so multiplying by it is a bijection on longs
+	private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	// sorted keys with their sign bit flipped, so signed order is the unsigned order of the keys
+	private final long[] keys;
+	private final int[] bucketOffsets;
+	private final int shift;
+
+	private RF2ComponentIdSet(long[] keys, int[] bucketOffsets, int shift) {
+		this.keys = keys;
+		this.bucketOffsets = bucketOffsets;
+		this.shift = shift;
+	}
+
+	/**
+	 * Creates a set of the given IDs. The given array is reused to store the set, duplicates are allowed.
+	 *
+	 * @param ids - the IDs of the set, the array must not be used after this call
+	 * @param length - the number of IDs at the beginning of the array
+	 * @return
+	 */
+	public static RF2ComponentIdSet of(long[] ids, int length) {
+		for (int i = 0; i < length; i++) {
+			ids[i] = (ids[i] * MULTIPLIER) ^ Long.MIN_VALUE;
+		}
+		Arrays.parallelSort(ids, 0, length);
+		int size = 0;
+		for (int i = 0; i < length; i++) {
+			if (size == 0 || ids[size - 1] != ids[i]) {
+				ids[size++] = ids[i];
+			}
+		}
+		final long[] keys = size == ids.length ? ids : Arrays.copyOf(ids, size);
+
+		// at least two buckets, so the shift is less than 64
+		final int bucketBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(1, size / IDS_PER_BUCKET) - 1));
+		final int shift = Long.SIZE - bucketBits;
+		final int[] bucketOffsets = new int[(1 << bucketBits) + 1];
+		int bucket = 0;
+		for (int i = 0; i < size; i++) {
+			final int keyBucket = (int) ((keys[i] ^ Long.MIN_VALUE) >>> shift);
+			while (bucket < keyBucket) {
+				bucketOffsets[++bucket] = i;
+			}
+		}
+		while (bucket < bucketOffsets.length - 1) {
+			bucketOffsets[++bucket] = size;
+		}
+		return new RF2ComponentIdSet(keys, bucketOffsets, shift);
+	}
+
+	/**
+	 * @return a builder that collects the IDs of a new set
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @param id
+	 * @return <code>true</code> if the given ID is in this set
+	 */
+	public boolean contains(long id) {
+		final long key = id * MULTIPLIER;
+		final int bucket = (int) (key >>> shift);
+		final long flippedKey = key ^ Long.MIN_VALUE;
+		for (int i = bucketOffsets[bucket], end = bucketOffsets[bucket + 1]; i < end; i++) {
+			if (keys[i] == flippedKey) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the number of IDs in this set
+	 */
+	public int size() {
+		return keys.length;
+	}
+
+	/**
+	 * Collects the IDs of a set in chunks, so the IDs are never copied to a grown array. The chunks are copied into the single array of the set
+	 * and released one by one, so building a set needs memory for its IDs and a single chunk only. Builders can collect the IDs of a parallel
+	 * stream (see {@link java.util.stream.LongStream#collect}), but a single builder must not be used by multiple threads at the same time.
+	 *
+	 * @since 0.4
+	 */
+	public static final class Builder {
+
+		private static final int MIN_CHUNK_SIZE = 1 << 10;
+		private static final int MAX_CHUNK_SIZE = 1 << 16;
+
+		// full chunks, the last one is trimmed to the number of IDs it holds
+		private final List<long[]> chunks = new ArrayList<>();
+		private long[] chunk;
+		private int chunkLength;
+		private long size;
+
+		private Builder() {
+		}
+
+		public Builder add(long id) {
+			if (chunk == null || chunkLength == chunk.length) {
+				seal();
+				chunk = new long[chunks.isEmpty() ? MIN_CHUNK_SIZE : Math.min(MAX_CHUNK_SIZE, chunks.get(chunks.size() - 1).length * 2)];
+			}
+			chunk[chunkLength++] = id;
+			size++;
+			return this;
+		}
+
+		/**
+		 * Moves the IDs of the given builder to this builder, the given builder must not be used after this call.
+		 *
+		 * @param other
+		 * @return
+		 */
+		public Builder addAll(Builder other) {
+			seal();
+			other.seal();
+			chunks.addAll(other.chunks);
+			size += other.size;
+			other.chunks.clear();
+			other.size = 0L;
+			return this;
+		}
+
+		/**
+		 * @return the number of collected IDs, including duplicates
+		 */
+		public long size() {
+			return size;
+		}
+
+		/**
+		 * @return a set of the collected IDs, the builder is empty after this call
+		 */
+		public RF2ComponentIdSet build() {
+			seal();
+			if (size > Integer.MAX_VALUE - 8) {
+				throw new IllegalStateException("Too many component IDs to build a set: " + size);
+			}
+			final long[] ids = new long[(int) size];
+			int length = 0;
+			for (int i = 0; i < chunks.size(); i++) {
+				final long[] chunkIds = chunks.set(i, null);
+				System.arraycopy(chunkIds, 0, ids, length, chunkIds.length);
+				length += chunkIds.length;
+			}
+			chunks.clear();
+			size = 0L;
+			return of(ids, length);
+		}
+
+		private void seal() {
+			if (chunk != null && chunkLength > 0) {
+				chunks.add(chunkLength == chunk.length ? chunk : Arrays.copyOf(chunk, chunkLength));
+			}
+			chunk = null;
+			chunkLength = 0;
+		}
+
+	}
+
+}
@@ -0,0 +1,580 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.index;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongPredicate;
+import java.util.function.LongSupplier;
+import java.util.stream.LongStream;
+
+/**
+ * Indexes the versions of RF2 components by their ID (and effectiveTime) together with a 64-bit hash of their content, to detect duplicate rows
+ * and to select the latest version of each component when creating RF2 files. Each indexed version can carry a <code>long</code> value, for
+ * example the location of the row it was read from.
+ * <p>
+ * SCTIDs are stored as a single <code>long</code> and UUIDs (the IDs of reference set members) as two <code>long</code>s in open-addressing hash
+ * tables, effectiveTimes are stored as <code>int</code>s. The tables are split into segments that are locked independently, so the index can be
+ * updated from multiple threads. The tables can be allocated outside of the Java heap in direct memory, which is released when the index is
+ * {@link #close() closed}. IDs in any other format are stored in a regular map.
+ * </p>
+ *
+ * @since 0.4
+ */
+public final class RF2ComponentIndex implements AutoCloseable {
+
+	/**
+	 * The result of adding a component version to the index.
+	 */
+	public enum Result {
+		/** The component version was not indexed yet and it has been added (in case of a latest version index, it replaced an earlier version) */
+		ADDED,
+		/** The same component version has already been indexed with the same content */
+		DUPLICATE,
+		/** The same component version has already been indexed with different content, the first one is kept */
+		CONFLICT,
+		/** A later version of the component has already been indexed (only in case of a latest version index) */
+		SKIPPED
+	}
+
+	private static final int SEGMENTS = 64;
+	private static final int SEGMENT_SHIFT = Integer.numberOfLeadingZeros(SEGMENTS - 1);
+	private static final int INITIAL_SEGMENT_CAPACITY = 1 << 6;
+
+	private static final int MAX_SCTID_LENGTH = 18;
+	private static final int UUID_LENGTH = 36;
+
+	// effectiveTime codes, valid effectiveTimes are stored as their yyyyMMdd int value, any other non-empty values as negative codes
+	private static final int FREE_SLOT = Integer.MIN_VALUE;
+	private static final int EMPTY_EFFECTIVE_TIME = -1;
+
+	// releases the memory of a direct buffer right away, null if the JVM does not support it and the memory is released by the garbage collector
+	private static final MethodHandle INVOKE_CLEANER = findInvokeCleaner();
+
+	private final boolean byEffectiveTime;
+	private final Segment[] sctids;
+	private final Segment[] uuids;
+	private final Map<String, Version> otherIds = new HashMap<>();
+	private final ConcurrentMap<String, Integer> effectiveTimeCodes = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Integer, String> effectiveTimes = new ConcurrentHashMap<>();
+	private final AtomicInteger otherEffectiveTimeCount = new AtomicInteger();
+
+	private RF2ComponentIndex(boolean byEffectiveTime, boolean offHeap) {
+		this.byEffectiveTime = byEffectiveTime;
+		this.sctids = new Segment[SEGMENTS];
+		this.uuids = new Segment[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			sctids[i] = new Segment(1, offHeap);
+			uuids[i] = new Segment(2, offHeap);
+		}
+	}
+
+	/**
+	 * @param offHeap - whether to allocate the index outside of the Java heap
+	 * @return an index that keeps every version of a component, versions are identified by their ID and effectiveTime
+	 */
+	public static RF2ComponentIndex allVersions(boolean offHeap) {
+		return new RF2ComponentIndex(true, offHeap);
+	}
+
+	/**
+	 * @param offHeap - whether to allocate the index outside of the Java heap
+	 * @return an index that keeps only the latest version of a component, a version without effectiveTime is considered to be the latest
+	 */
+	public static RF2ComponentIndex latestVersions(boolean offHeap) {
+		return new RF2ComponentIndex(false, offHeap);
+	}
+
+	/**
+	 * Adds a component version to this index.
+	 *
+	 * @param id
+	 * @param effectiveTime
+	 * @param contentHash - the hash of the content of the component version
+	 * @return the {@link Result} of the operation
+	 */
+	public Result add(String id, String effectiveTime, long contentHash) {
+		return add(id, effectiveTime, contentHash, null);
+	}
+
+	/**
+	 * Adds a component version to this index with a value. The value is only requested if the version is {@link Result#ADDED added}, while the
+	 * component is locked, so concurrent additions of the same component cannot store the value of a version that lost.
+	 *
+	 * @param id
+	 * @param effectiveTime
+	 * @param contentHash - the hash of the content of the component version
+	 * @param value - supplies the value of the added version or <code>null</code> to not store any value
+	 * @return the {@link Result} of the operation
+	 */
+	public Result add(String id, String effectiveTime, long contentHash, LongSupplier value) {
+		return add(id, effectiveTime, contentHash, value, null);
+	}
+
+	/**
+	 * Adds a component version to this index with a value and verifies duplicates. If the same version has already been indexed with the same
+	 * content hash, the given predicate is called with the value of the indexed version (while the component is locked) to compare the actual
+	 * content, so a hash collision is reported as a {@link Result#CONFLICT conflict} instead of a duplicate.
+	 *
+	 * @param id
+	 * @param effectiveTime
+	 * @param contentHash - the hash of the content of the component version
+	 * @param value - supplies the value of the added version or <code>null</code> to not store any value
+	 * @param sameContent - tests whether the version indexed with the given value has the same content or <code>null</code> to trust the hashes
+	 * @return the {@link Result} of the operation
+	 */
+	public Result add(String id, String effectiveTime, long contentHash, LongSupplier value, LongPredicate sameContent) {
+		final int effectiveTimeCode = encodeEffectiveTime(effectiveTime);
+		final long sctid = parseSCTID(id);
+		if (sctid >= 0) {
+			return segment(sctids, sctid, 0L, effectiveTimeCode).add(sctid, 0L, effectiveTimeCode, contentHash, value, sameContent);
+		} else if (isUUID(id)) {
+			final long high = parseHex(id, 0, 8) << 32 | parseHex(id, 9, 13) << 16 | parseHex(id, 14, 18);
+			final long low = parseHex(id, 19, 23) << 48 | parseHex(id, 24, 36);
+			return segment(uuids, high, low, effectiveTimeCode).add(high, low, effectiveTimeCode, contentHash, value, sameContent);
+		} else {
+			synchronized (otherIds) {
+				final String key = byEffectiveTime ? id + '\t' + effectiveTime : id;
+				final Version version = otherIds.get(key);
+				final Result result = version == null ? Result.ADDED : compare(version.effectiveTime, version.contentHash, version.value, effectiveTimeCode, contentHash, sameContent);
+				if (result == Result.ADDED) {
+					otherIds.put(key, new Version(effectiveTimeCode, contentHash, value == null ? 0L : value.getAsLong()));
+				}
+				return result;
+			}
+		}
+	}
+
+	/**
+	 * Removes a component version from this index.
+	 *
+	 * @param id
+	 * @param effectiveTime
+	 * @return <code>true</code> if the given version of the component was indexed, <code>false</code> otherwise.
+	 */
+	public boolean remove(String id, String effectiveTime) {
+		final int effectiveTimeCode = encodeEffectiveTime(effectiveTime);
+		final long sctid = parseSCTID(id);
+		if (sctid >= 0) {
+			return segment(sctids, sctid, 0L, effectiveTimeCode).remove(sctid, 0L, effectiveTimeCode);
+		} else if (isUUID(id)) {
+			final long high = parseHex(id, 0, 8) << 32 | parseHex(id, 9, 13) << 16 | parseHex(id, 14, 18);
+			final long low = parseHex(id, 19, 23) << 48 | parseHex(id, 24, 36);
+			return segment(uuids, high, low, effectiveTimeCode).remove(high, low, effectiveTimeCode);
+		} else {
+			synchronized (otherIds) {
+				final String key = byEffectiveTime ? id + '\t' + effectiveTime : id;
+				final Version version = otherIds.get(key);
+				if (version != null && version.effectiveTime == effectiveTimeCode) {
+					otherIds.remove(key);
+					return true;
+				}
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * @return the values of all component versions in this index in no particular order.
+	 */
+	public long[] values() {
+		final LongStream.Builder values = LongStream.builder();
+		for (int i = 0; i < SEGMENTS; i++) {
+			sctids[i].values(values);
+			uuids[i].values(values);
+		}
+		synchronized (otherIds) {
+			otherIds.values().forEach(version -> values.add(version.value));
+		}
+		return values.build().toArray();
+	}
+
+	/**
+	 * @return the number of component versions in this index.
+	 */
+	public long size() {
+		long size = 0L;
+		for (int i = 0; i < SEGMENTS; i++) {
+			size += sctids[i].size() + uuids[i].size();
+		}
+		synchronized (otherIds) {
+			return size + otherIds.size();
+		}
+	}
+
+	/**
+	 * Releases the tables of this index, the direct memory of an off-heap index is released right away. The index must not be used afterwards.
+	 */
+	@Override
+	public void close() {
+		for (int i = 0; i < SEGMENTS; i++) {
+			sctids[i].close();
+			uuids[i].close();
+		}
+		synchronized (otherIds) {
+			otherIds.clear();
+		}
+	}
+
+	private Segment segment(Segment[] segments, long high, long low, int effectiveTimeCode) {
+		return segments[(int) (hash(high, low, effectiveTimeCode) >>> 32) >>> SEGMENT_SHIFT];
+	}
+
+	private long hash(long high, long low, int effectiveTimeCode) {
+		long hash = high * 0x9E3779B97F4A7C15L + low;
+		if (byEffectiveTime) {
+			hash = hash * 0x9E3779B97F4A7C15L + effectiveTimeCode;
+		}
+		// murmur3 finalizer
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	/**
+	 * Compares an indexed component version with a new one that has the same key.
+	 */
+	private Result compare(int indexedEffectiveTime, long indexedContentHash, long indexedValue, int effectiveTime, long contentHash, LongPredicate sameContent) {
+		if (indexedEffectiveTime == effectiveTime) {
+			return indexedContentHash == contentHash && (sameContent == null || sameContent.test(indexedValue)) ? Result.DUPLICATE : Result.CONFLICT;
+		} else if (effectiveTime == EMPTY_EFFECTIVE_TIME) {
+			return Result.ADDED;
+		} else if (indexedEffectiveTime == EMPTY_EFFECTIVE_TIME) {
+			// a version without effectiveTime is the latest one, it is not replaced by any dated version
+			return Result.SKIPPED;
+		} else if (compareEffectiveTimes(effectiveTime, indexedEffectiveTime) > 0) {
+			return Result.ADDED;
+		} else {
+			return Result.SKIPPED;
+		}
+	}
+
+	private int encodeEffectiveTime(String effectiveTime) {
+		if (effectiveTime.isEmpty()) {
+			return EMPTY_EFFECTIVE_TIME;
+		}
+		if (effectiveTime.length() == 8) {
+			int value = 0;
+			for (int i = 0; i < 8; i++) {
+				final int digit = effectiveTime.charAt(i) - '0';
+				if (digit < 0 || digit > 9) {
+					return encodeOtherEffectiveTime(effectiveTime);
+				}
+				value = value * 10 + digit;
+			}
+			return value;
+		}
+		return encodeOtherEffectiveTime(effectiveTime);
+	}
+
+	private int encodeOtherEffectiveTime(String effectiveTime) {
+		return effectiveTimeCodes.computeIfAbsent(effectiveTime, value -> {
+			final int code = EMPTY_EFFECTIVE_TIME - otherEffectiveTimeCount.incrementAndGet();
+			effectiveTimes.put(code, value);
+			return code;
+		});
+	}
+
+	private int compareEffectiveTimes(int left, int right) {
+		if (left >= EMPTY_EFFECTIVE_TIME && right >= EMPTY_EFFECTIVE_TIME) {
+			return Integer.compare(left, right);
+		}
+		// invalid values are compared as strings, like the RF2 files are sorted
+		return decodeEffectiveTime(left).compareTo(decodeEffectiveTime(right));
+	}
+
+	private String decodeEffectiveTime(int code) {
+		if (code == EMPTY_EFFECTIVE_TIME) {
+			return "";
+		} else if (code >= 0) {
+			return String.format("%08d", code);
+		} else {
+			return effectiveTimes.get(code);
+		}
+	}
+
+	/**
+	 * @return the SCTID as long or <code>-1</code> if the given ID is not an SCTID without leading zeros.
+	 */
+	private static long parseSCTID(String id) {
+		final int length = id.length();
+		if (length == 0 || length > MAX_SCTID_LENGTH || id.charAt(0) == '0') {
+			return -1L;
+		}
+		long value = 0L;
+		for (int i = 0; i < length; i++) {
+			final int digit = id.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return -1L;
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	/**
+	 * @return <code>true</code> if the given ID is a UUID in its canonical lower case form.
+	 */
+	private static boolean isUUID(String id) {
+		if (id.length() != UUID_LENGTH) {
+			return false;
+		}
+		for (int i = 0; i < UUID_LENGTH; i++) {
+			final char c = id.charAt(i);
+			if (i == 8 || i == 13 || i == 18 || i == 23) {
+				if (c != '-') {
+					return false;
+				}
+			} else if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'f')) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static MethodHandle findInvokeCleaner() {
+		try {
+			final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			return MethodHandles.lookup()
+					.findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+					.bindTo(theUnsafe.get(null));
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static void free(ByteBuffer[] buffers) {
+		if (buffers == null || INVOKE_CLEANER == null) {
+			return;
+		}
+		for (ByteBuffer buffer : buffers) {
+			try {
+				INVOKE_CLEANER.invokeExact(buffer);
+			} catch (Throwable e) {
+				// leave it to the garbage collector
+			}
+		}
+	}
+
+	private static long parseHex(String value, int from, int to) {
+		long result = 0L;
+		for (int i = from; i < to; i++) {
+			result = result << 4 | Character.digit(value.charAt(i), 16);
+		}
+		return result;
+	}
+
+	private static final class Version {
+
+		private final int effectiveTime;
+		private final long contentHash;
+		private final long value;
+
+		Version(int effectiveTime, long contentHash, long value) {
+			this.effectiveTime = effectiveTime;
+			this.contentHash = contentHash;
+			this.value = value;
+		}
+
+	}
+
+	/**
+	 * An open-addressing hash table with linear probing, keyed by one or two <code>long</code> values (and by effectiveTime in case of an index of
+	 * all versions). A slot is free if its effectiveTime is {@link #FREE_SLOT}.
+	 */
+	private final class Segment {
+
+		private final int keyWidth;
+		private final boolean offHeap;
+
+		private LongBuffer keys;
+		private IntBuffer effectiveTimes;
+		private LongBuffer contentHashes;
+		private LongBuffer values;
+		// the direct buffers backing the tables of an off-heap segment
+		private ByteBuffer[] directBuffers;
+		private int mask;
+		private int size;
+
+		Segment(int keyWidth, boolean offHeap) {
+			this.keyWidth = keyWidth;
+			this.offHeap = offHeap;
+			allocate(INITIAL_SEGMENT_CAPACITY);
+		}
+
+		synchronized int size() {
+			return size;
+		}
+
+		synchronized void close() {
+			free(directBuffers);
+			directBuffers = null;
+			keys = null;
+			effectiveTimes = null;
+			contentHashes = null;
+			values = null;
+			size = 0;
+		}
+
+		synchronized void values(LongStream.Builder builder) {
+			for (int i = 0; i <= mask; i++) {
+				if (effectiveTimes.get(i) != FREE_SLOT) {
+					builder.add(values.get(i));
+				}
+			}
+		}
+
+		synchronized Result add(long high, long low, int effectiveTime, long contentHash, LongSupplier value, LongPredicate sameContent) {
+			int slot = find(high, low, effectiveTime);
+			final int indexedEffectiveTime = effectiveTimes.get(slot);
+			if (indexedEffectiveTime != FREE_SLOT) {
+				final Result result = compare(indexedEffectiveTime, contentHashes.get(slot), values.get(slot), effectiveTime, contentHash, sameContent);
+				if (result == Result.ADDED) {
+					// replace the earlier version
+					effectiveTimes.put(slot, effectiveTime);
+					contentHashes.put(slot, contentHash);
+					values.put(slot, value == null ? 0L : value.getAsLong());
+				}
+				return result;
+			}
+			if (size + 1 > (mask + 1) / 4 * 3) {
+				allocate((mask + 1) * 2);
+				slot = find(high, low, effectiveTime);
+			}
+			put(slot, high, low, effectiveTime, contentHash, value == null ? 0L : value.getAsLong());
+			size++;
+			return Result.ADDED;
+		}
+
+		synchronized boolean remove(long high, long low, int effectiveTime) {
+			int slot = find(high, low, effectiveTime);
+			if (effectiveTimes.get(slot) != effectiveTime) {
+				return false;
+			}
+			// shift back the following entries of the probe sequence to fill the gap
+			int next = slot;
+			while (true) {
+				next = (next + 1) & mask;
+				final int nextEffectiveTime = effectiveTimes.get(next);
+				if (nextEffectiveTime == FREE_SLOT) {
+					break;
+				}
+				final int home = home(keys.get(next * keyWidth), keyWidth == 1 ? 0L : keys.get(next * keyWidth + 1), nextEffectiveTime);
+				// move the entry if its home slot is not between the gap and its current position (cyclically)
+				if (slot <= next ? (home <= slot || home > next) : (home <= slot && home > next)) {
+					put(slot, keys.get(next * keyWidth), keyWidth == 1 ? 0L : keys.get(next * keyWidth + 1), nextEffectiveTime, contentHashes.get(next), values.get(next));
+					slot = next;
+				}
+			}
+			effectiveTimes.put(slot, FREE_SLOT);
+			size--;
+			return true;
+		}
+
+		/**
+		 * @return the slot of the given key or the free slot where the key should be inserted
+		 */
+		private int find(long high, long low, int effectiveTime) {
+			int slot = home(high, low, effectiveTime);
+			while (true) {
+				final int slotEffectiveTime = effectiveTimes.get(slot);
+				if (slotEffectiveTime == FREE_SLOT
+						|| keys.get(slot * keyWidth) == high
+						&& (keyWidth == 1 || keys.get(slot * keyWidth + 1) == low)
+						&& (!byEffectiveTime || slotEffectiveTime == effectiveTime)) {
+					return slot;
+				}
+				slot = (slot + 1) & mask;
+			}
+		}
+
+		private int home(long high, long low, int effectiveTime) {
+			return (int) hash(high, low, effectiveTime) & mask;
+		}
+
+		private void put(int slot, long high, long low, int effectiveTime, long contentHash, long value) {
+			keys.put(slot * keyWidth, high);
+			if (keyWidth == 2) {
+				keys.put(slot * keyWidth + 1, low);
+			}
+			effectiveTimes.put(slot, effectiveTime);
+			contentHashes.put(slot, contentHash);
+			values.put(slot, value);
+		}
+
+		private void allocate(int capacity) {
+			final LongBuffer oldKeys = keys;
+			final IntBuffer oldEffectiveTimes = effectiveTimes;
+			final LongBuffer oldContentHashes = contentHashes;
+			final LongBuffer oldValues = values;
+			final ByteBuffer[] oldDirectBuffers = directBuffers;
+			final int oldCapacity = mask + 1;
+
+			directBuffers = offHeap ? new ByteBuffer[4] : null;
+			keys = allocateLongs(capacity * keyWidth, 0);
+			effectiveTimes = allocateInts(capacity, 1);
+			contentHashes = allocateLongs(capacity, 2);
+			values = allocateLongs(capacity, 3);
+			mask = capacity - 1;
+			for (int i = 0; i < capacity; i++) {
+				effectiveTimes.put(i, FREE_SLOT);
+			}
+
+			if (oldKeys != null) {
+				for (int i = 0; i < oldCapacity; i++) {
+					final int effectiveTime = oldEffectiveTimes.get(i);
+					if (effectiveTime != FREE_SLOT) {
+						final long high = oldKeys.get(i * keyWidth);
+						final long low = keyWidth == 1 ? 0L : oldKeys.get(i * keyWidth + 1);
+						put(find(high, low, effectiveTime), high, low, effectiveTime, oldContentHashes.get(i), oldValues.get(i));
+					}
+				}
+				free(oldDirectBuffers);
+			}
+		}
+
+		private LongBuffer allocateLongs(int count, int directBuffer) {
+			return offHeap ? allocateDirect(count * Long.BYTES, directBuffer).asLongBuffer() : LongBuffer.allocate(count);
+		}
+
+		private IntBuffer allocateInts(int count, int directBuffer) {
+			return offHeap ? allocateDirect(count * Integer.BYTES, directBuffer).asIntBuffer() : IntBuffer.allocate(count);
+		}
+
+		private ByteBuffer allocateDirect(int bytes, int directBuffer) {
+			directBuffers[directBuffer] = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+			return directBuffers[directBuffer];
+		}
+
+	}
+
+}
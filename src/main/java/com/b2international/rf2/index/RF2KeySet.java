@@ -0,0 +1,256 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.index;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A set of fixed width keys of one or more <code>long</code> values (eg. an SCTID, the two halves of a UUID, an ID and an effectiveTime) with a
+ * bounded amount of memory.
+ * <p>
+ * The keys are stored in open-addressing hash tables with linear probing, without any per key objects. The tables are split into segments that
+ * are locked independently, so keys can be added from multiple threads. A slot is free if all of its values are zero, the all zero key is
+ * tracked separately in each segment.
+ * </p>
+ * <p>
+ * When growing a table would exceed the memory budget, the set overflows: it stops storing keys and every further key is accepted as new, so the
+ * caller has to check {@link #isOverflown()} and fall back to an approach that does not need to keep every key in memory.
+ * </p>
+ *
+ * @since 0.4
+ */
+public final class RF2KeySet {
+
+	private static final int SEGMENTS = 64;
+	private static final int SEGMENT_SHIFT = Integer.numberOfLeadingZeros(SEGMENTS - 1);
+	private static final int INITIAL_SEGMENT_CAPACITY = 1 << 6;
+
+	private final int keyWidth;
+	private final long memoryBudget;
+	private final AtomicLong allocated = new AtomicLong();
+	private final Segment[] segments;
+	private volatile boolean overflown;
+
+	/**
+	 * @param keyWidth - the number of <code>long</code> values of a key
+	 * @param memoryBudget - the maximum number of bytes the hash tables of the set may occupy
+	 */
+	public RF2KeySet(int keyWidth, long memoryBudget) {
+		Preconditions.checkArgument(keyWidth > 0, "Key width must be greater than zero, was: %s", keyWidth);
+		Preconditions.checkArgument(memoryBudget > 0, "Memory budget must be greater than zero, was: %s", memoryBudget);
+		this.keyWidth = keyWidth;
+		this.memoryBudget = memoryBudget;
+		this.segments = new Segment[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment();
+		}
+	}
+
+	/**
+	 * Adds a key to this set.
+	 *
+	 * @param key - the values of the key, only the first {@link #getKeyWidth() key width} values are used
+	 * @return <code>true</code> if the key was not in the set yet or the set has {@link #isOverflown() overflown}, <code>false</code> if the key
+	 *         has already been added.
+	 */
+	public boolean add(long[] key) {
+		if (overflown) {
+			return true;
+		}
+		final long hash = hash(key);
+		return segments[(int) (hash >>> 32) >>> SEGMENT_SHIFT].add(key, hash);
+	}
+
+	/**
+	 * Removes all keys from this set, keeping its allocated tables. The tables of an overflown set are released.
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+
+	/**
+	 * @return the number of values of a key in this set.
+	 */
+	public int getKeyWidth() {
+		return keyWidth;
+	}
+
+	/**
+	 * @return the number of keys in this set, not including the keys added after the set has {@link #isOverflown() overflown}.
+	 */
+	public long size() {
+		long size = 0L;
+		for (Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @return <code>true</code> if the keys of this set did not fit into its memory budget and it does not store keys anymore.
+	 */
+	public boolean isOverflown() {
+		return overflown;
+	}
+
+	private long hash(long[] key) {
+		long hash = key[0];
+		for (int i = 1; i < keyWidth; i++) {
+			hash = hash * 0x9E3779B97F4A7C15L + key[i];
+		}
+		// murmur3 finalizer
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	/**
+	 * An open-addressing hash table with linear probing of the keys with the same highest hash bits.
+	 */
+	private final class Segment {
+
+		private long[] keys;
+		private int mask;
+		private int size;
+		private boolean containsZeroKey;
+
+		Segment() {
+			if (!allocate(INITIAL_SEGMENT_CAPACITY)) {
+				overflown = true;
+			}
+		}
+
+		synchronized int size() {
+			return containsZeroKey ? size + 1 : size;
+		}
+
+		synchronized void clear() {
+			if (overflown) {
+				keys = null;
+			} else if (keys != null) {
+				Arrays.fill(keys, 0L);
+			}
+			size = 0;
+			containsZeroKey = false;
+		}
+
+		synchronized boolean add(long[] key, long hash) {
+			if (keys == null) {
+				// released after the set has overflown
+				return true;
+			}
+			if (isZero(key)) {
+				if (containsZeroKey) {
+					return false;
+				}
+				containsZeroKey = true;
+				return true;
+			}
+			int slot = find(key, hash);
+			if (!isFree(slot)) {
+				return false;
+			}
+			if (size + 1 > (mask + 1) / 4 * 3) {
+				if (!allocate((mask + 1) * 2)) {
+					overflown = true;
+					keys = null;
+					return true;
+				}
+				slot = find(key, hash);
+			}
+			System.arraycopy(key, 0, keys, slot * keyWidth, keyWidth);
+			size++;
+			return true;
+		}
+
+		/**
+		 * @return the slot of the given key or the free slot where the key should be inserted
+		 */
+		private int find(long[] key, long hash) {
+			int slot = (int) hash & mask;
+			while (true) {
+				if (isFree(slot) || matches(slot, key)) {
+					return slot;
+				}
+				slot = (slot + 1) & mask;
+			}
+		}
+
+		private boolean isFree(int slot) {
+			for (int i = slot * keyWidth, end = i + keyWidth; i < end; i++) {
+				if (keys[i] != 0L) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean matches(int slot, long[] key) {
+			final int offset = slot * keyWidth;
+			for (int i = 0; i < keyWidth; i++) {
+				if (keys[offset + i] != key[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean isZero(long[] key) {
+			for (int i = 0; i < keyWidth; i++) {
+				if (key[i] != 0L) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * @return <code>false</code> if the table of the given capacity would not fit into the memory budget
+		 */
+		private boolean allocate(int capacity) {
+			final long[] oldKeys = keys;
+			final long oldBytes = oldKeys == null ? 0L : (long) oldKeys.length * Long.BYTES;
+			final long bytes = (long) capacity * keyWidth * Long.BYTES;
+			if (allocated.addAndGet(bytes - oldBytes) > memoryBudget) {
+				allocated.addAndGet(oldBytes - bytes);
+				return false;
+			}
+
+			keys = new long[capacity * keyWidth];
+			mask = capacity - 1;
+			if (oldKeys != null) {
+				final long[] key = new long[keyWidth];
+				for (int i = 0; i < oldKeys.length; i += keyWidth) {
+					System.arraycopy(oldKeys, i, key, 0, keyWidth);
+					if (!isZero(key)) {
+						System.arraycopy(key, 0, keys, find(key, hash(key)) * keyWidth, keyWidth);
+					}
+				}
+			}
+			return true;
+		}
+
+	}
+
+}
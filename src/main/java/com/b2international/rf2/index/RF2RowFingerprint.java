@@ -0,0 +1,197 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.index;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Non-cryptographic 64-bit fingerprints of RF2 rows, used to detect rows with the same ID and effectiveTime but different content. The
+ * fingerprint of a row is computed over the UTF-16 code units of its columns joined with TAB characters, so no line {@link String} or byte array
+ * has to be created to compute it.
+ *
+ * @since 0.4
+ */
+public enum RF2RowFingerprint {
+
+	/**
+	 * The 64-bit xxHash (XXH64) of the UTF-16LE encoded row, the default fingerprint.
+	 */
+	XXHASH64 {
+		@Override
+		public long fingerprint(String[] row) {
+			return xxHash64(row);
+		}
+	},
+
+	/**
+	 * The first 64 bits of the 128-bit murmur3 hash of the UTF-16LE encoded row.
+	 */
+	MURMUR3 {
+		@Override
+		public long fingerprint(String[] row) {
+			final Hasher hasher = Hashing.murmur3_128().newHasher();
+			for (int i = 0; i < row.length; i++) {
+				if (i > 0) {
+					hasher.putChar('\t');
+				}
+				hasher.putUnencodedChars(row[i]);
+			}
+			return hasher.hash().asLong();
+		}
+	};
+
+	private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+	private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+	private static final long PRIME64_3 = 0x165667B19E3779F9L;
+	private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+	private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+	/**
+	 * @param row - the column values of the row
+	 * @return the fingerprint of the given row
+	 */
+	public abstract long fingerprint(String[] row);
+
+	private static long xxHash64(String[] row) {
+		final XxHash64 hash = new XxHash64();
+		for (int column = 0; column < row.length; column++) {
+			if (column > 0) {
+				hash.putChar('\t');
+			}
+			hash.putChars(row[column]);
+		}
+		return hash.finish();
+	}
+
+	private static long round(long accumulator, long input) {
+		return Long.rotateLeft(accumulator + input * PRIME64_2, 31) * PRIME64_1;
+	}
+
+	private static long mergeRound(long accumulator, long value) {
+		return (accumulator ^ round(0L, value)) * PRIME64_1 + PRIME64_4;
+	}
+
+	private static long tail(long hash, long word) {
+		return Long.rotateLeft(hash ^ round(0L, word), 27) * PRIME64_1 + PRIME64_4;
+	}
+
+	/**
+	 * Streaming XXH64 state with seed 0, characters are consumed as two little-endian bytes.
+	 */
+	private static final class XxHash64 {
+
+		private long v1 = PRIME64_1 + PRIME64_2;
+		private long v2 = PRIME64_2;
+		private long v3 = 0L;
+		private long v4 = -PRIME64_1;
+		// the completed 8-byte words of the current 32-byte stripe and the current incomplete word
+		private long word0;
+		private long word1;
+		private long word2;
+		private int stripeWords;
+		private long word;
+		private int wordChars;
+		// the number of bytes in completed words
+		private long length;
+
+		void putChars(String value) {
+			final int length = value.length();
+			int i = 0;
+			while (wordChars != 0 && i < length) {
+				putChar(value.charAt(i++));
+			}
+			for (; i + 4 <= length; i += 4) {
+				putWord(value.charAt(i) | (long) value.charAt(i + 1) << 16 | (long) value.charAt(i + 2) << 32 | (long) value.charAt(i + 3) << 48);
+			}
+			while (i < length) {
+				putChar(value.charAt(i++));
+			}
+		}
+
+		void putChar(char c) {
+			word |= (long) c << (wordChars << 4);
+			if (++wordChars == 4) {
+				putWord(word);
+				word = 0L;
+				wordChars = 0;
+			}
+		}
+
+		private void putWord(long input) {
+			switch (stripeWords) {
+			case 0: word0 = input; break;
+			case 1: word1 = input; break;
+			case 2: word2 = input; break;
+			default:
+				v1 = round(v1, word0);
+				v2 = round(v2, word1);
+				v3 = round(v3, word2);
+				v4 = round(v4, input);
+			}
+			stripeWords = (stripeWords + 1) & 3;
+			length += 8;
+		}
+
+		long finish() {
+			long hash;
+			if (length - stripeWords * 8 >= 32) {
+				hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+				hash = mergeRound(hash, v1);
+				hash = mergeRound(hash, v2);
+				hash = mergeRound(hash, v3);
+				hash = mergeRound(hash, v4);
+			} else {
+				hash = PRIME64_5;
+			}
+			hash += length + wordChars * 2;
+
+			// the remaining 8-byte words
+			if (stripeWords > 0) {
+				hash = tail(hash, word0);
+			}
+			if (stripeWords > 1) {
+				hash = tail(hash, word1);
+			}
+			if (stripeWords > 2) {
+				hash = tail(hash, word2);
+			}
+			// the remaining 4-byte and single bytes of the last word
+			long remaining = word;
+			int remainingChars = wordChars;
+			if (remainingChars >= 2) {
+				hash ^= (remaining & 0xFFFFFFFFL) * PRIME64_1;
+				hash = Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+				remaining >>>= 32;
+				remainingChars -= 2;
+			}
+			for (int i = 0; i < remainingChars * 2; i++) {
+				hash ^= (remaining & 0xFFL) * PRIME64_5;
+				hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+				remaining >>>= 8;
+			}
+
+			hash ^= hash >>> 33;
+			hash *= PRIME64_2;
+			hash ^= hash >>> 29;
+			hash *= PRIME64_3;
+			hash ^= hash >>> 32;
+			return hash;
+		}
+
+	}
+
+}
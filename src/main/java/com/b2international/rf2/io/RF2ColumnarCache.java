@@ -0,0 +1,731 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+/**
+ * A local directory of RF2 content files in a compact binary columnar form, so the rows of an already seen source can be read without parsing its
+ * text (and inflating it, if the source is an entry of a release archive).
+ * <p>
+ * Entries are keyed by the {@link RF2ContentHash content hash} of their source, so entries of release archives are looked up without inflating
+ * them, and a copied or downloaded again release is served from the entries of the original. The content hash is stored in the header of the entry as well and is compared with the hash of the source before an entry is read. An
+ * entry is written while the rows of its source are read for the first time, and it is added to the cache only when all rows have been read.
+ * </p>
+ * <p>
+ * Rows are stored in blocks of {@value #BLOCK_ROWS} rows, each column of a block is encoded on its own with the smallest of the following forms:
+ * canonical numbers (like SCTIDs) as bit-packed offsets from the minimum value of the block, low-cardinality columns (like moduleId, refsetId or
+ * typeId) as a dictionary and bit-packed dictionary codes, any other column as bit-packed lengths and UTF-8 bytes. Blocks are memory mapped and
+ * decoded independently, so the rows of an entry can be read in parallel.
+ * </p>
+ *
+ * @since 0.4
+ */
+public final class RF2ColumnarCache {
+
+	static final int BLOCK_ROWS = 1 << 15;
+
+	private static final int MAGIC = 0x52463243; // RF2C
+	private static final int VERSION = 2;
+	private static final String EXTENSION = ".rf2c";
+	private static final int MAX_DICTIONARY_SIZE = 1 << 12;
+	// the number of digits of canonical numbers that always fit into a long
+	private static final int MAX_NUMBER_LENGTH = 18;
+	// magic, version and the content hash of the source
+	private static final int HEADER_SIZE = 24;
+	// offset of the block index, number of blocks and magic
+	private static final int TRAILER_SIZE = 16;
+
+	private static final byte NUMBER = 1;
+	private static final byte DICTIONARY = 2;
+	private static final byte TEXT = 3;
+
+	private final Path directory;
+
+	/**
+	 * @param directory - the cache directory, created if it does not exist yet
+	 * @throws IOException
+	 */
+	public RF2ColumnarCache(Path directory) throws IOException {
+		this.directory = Files.createDirectories(directory);
+	}
+
+	/**
+	 * @return the directory of the cached entries
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @param source
+	 * @return <code>true</code> if the rows of the given source are cached
+	 * @throws IOException
+	 */
+	public boolean contains(Path source) throws IOException {
+		final HashCode sourceHash = RF2ContentHash.of(source);
+		return isValidEntry(getEntryPath(sourceHash), sourceHash);
+	}
+
+	/**
+	 * Returns the rows of the given source from its cached entry. If the source is not cached yet, the given text rows are read instead and
+	 * written to a new entry, which is added to the cache when the returned stream has been read to the end. Closing the returned stream closes
+	 * the text rows.
+	 *
+	 * @param source - the path of the RF2 content file
+	 * @param textRows - reads the rows of the source from its text, without the header
+	 * @return the rows of the source without the header in a sequential stream
+	 * @throws IOException
+	 */
+	public Stream<String[]> rows(Path source, RowsSupplier textRows) throws IOException {
+		final HashCode sourceHash = RF2ContentHash.of(source);
+		final Path entryPath = getEntryPath(sourceHash);
+		if (isValidEntry(entryPath, sourceHash)) {
+			return Entry.open(entryPath).rows(false);
+		}
+		final Stream<String[]> rows = textRows.get();
+		final EntryWriter writer;
+		try {
+			writer = new EntryWriter(entryPath, sourceHash);
+		} catch (IOException e) {
+			// the cache is optional, read the source as if caching was disabled
+			return rows;
+		}
+		return StreamSupport.stream(new CachingSpliterator(rows.iterator(), writer), false).onClose(() -> {
+			try (EntryWriter entryWriter = writer) {
+				rows.close();
+			}
+		});
+	}
+
+	/**
+	 * Returns the rows of the given source from its cached entry, decoding its blocks in parallel. If the source is not cached yet, the given text
+	 * rows are returned as they are, entries are written only by sequential reads (see {@link #rows(Path, RowsSupplier)}).
+	 *
+	 * @param source - the path of the RF2 content file
+	 * @param textRows - reads the rows of the source from its text in parallel, without the header
+	 * @return the rows of the source without the header in a parallel stream
+	 * @throws IOException
+	 */
+	public Stream<String[]> rowsParallel(Path source, RowsSupplier textRows) throws IOException {
+		final HashCode sourceHash = RF2ContentHash.of(source);
+		final Path entryPath = getEntryPath(sourceHash);
+		if (isValidEntry(entryPath, sourceHash)) {
+			return Entry.open(entryPath).rows(true);
+		}
+		return textRows.get();
+	}
+
+	private Path getEntryPath(HashCode sourceHash) {
+		final String key = Hashing.murmur3_128().newHasher()
+				.putInt(VERSION)
+				.putBytes(sourceHash.asBytes())
+				.hash()
+				.toString();
+		return directory.resolve(key + EXTENSION);
+	}
+
+	private static boolean isValidEntry(Path entryPath, HashCode sourceHash) throws IOException {
+		if (!Files.isRegularFile(entryPath)) {
+			return false;
+		}
+		try (FileChannel channel = FileChannel.open(entryPath, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			if (size < HEADER_SIZE + TRAILER_SIZE) {
+				return false;
+			}
+			final ByteBuffer header = readFully(channel, 0L, HEADER_SIZE);
+			final ByteBuffer trailer = readFully(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+			final byte[] storedHash = new byte[HEADER_SIZE - 8];
+			header.position(8);
+			header.get(storedHash);
+			// entries of other versions or other sources are replaced when their source is read again
+			return header.getInt(0) == MAGIC && header.getInt(4) == VERSION && trailer.getInt(12) == MAGIC
+					&& Arrays.equals(storedHash, sourceHash.asBytes());
+		}
+	}
+
+	private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of cache entry");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Reads the rows of an RF2 content file from its text.
+	 */
+	@FunctionalInterface
+	public interface RowsSupplier {
+
+		Stream<String[]> get() throws IOException;
+
+	}
+
+	/**
+	 * Passes the rows read from the text of a source through and writes them to a new entry, the entry is committed after the last row.
+	 */
+	private static final class CachingSpliterator extends Spliterators.AbstractSpliterator<String[]> {
+
+		private final Iterator<String[]> rows;
+		private final EntryWriter writer;
+
+		CachingSpliterator(Iterator<String[]> rows, EntryWriter writer) {
+			super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+			this.rows = rows;
+			this.writer = writer;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super String[]> action) {
+			if (!rows.hasNext()) {
+				writer.commit();
+				return false;
+			}
+			final String[] row = rows.next();
+			// the consumer may modify the row
+			writer.add(row.clone());
+			action.accept(row);
+			return true;
+		}
+
+	}
+
+	/**
+	 * Writes the blocks of a new entry to a temporary file in the cache directory, which is moved to its final place when the entry is committed.
+	 * If writing fails the entry is dropped silently, the rows are still passed on to the reader of the source.
+	 */
+	private static final class EntryWriter implements Closeable {
+
+		private final Path entryPath;
+		private final Path tempPath;
+		private final FileChannel channel;
+		private final List<String[]> block = new ArrayList<>(BLOCK_ROWS);
+		private final List<Long> blockOffsets = new ArrayList<>();
+		private long position;
+		private boolean failed;
+		private boolean committed;
+
+		EntryWriter(Path entryPath, HashCode sourceHash) throws IOException {
+			this.entryPath = entryPath;
+			this.tempPath = Files.createTempFile(entryPath.getParent(), "rf2-cache", ".tmp");
+			try {
+				this.channel = FileChannel.open(tempPath, StandardOpenOption.WRITE);
+			} catch (IOException e) {
+				Files.deleteIfExists(tempPath);
+				throw e;
+			}
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).put(sourceHash.asBytes());
+			header.flip();
+			write(header);
+		}
+
+		void add(String[] row) {
+			if (failed) {
+				return;
+			}
+			block.add(row);
+			if (block.size() == BLOCK_ROWS) {
+				writeBlock();
+			}
+		}
+
+		void commit() {
+			if (committed || failed) {
+				return;
+			}
+			if (!block.isEmpty()) {
+				writeBlock();
+			}
+			final ByteBuffer index = ByteBuffer.allocate(blockOffsets.size() * Long.BYTES + TRAILER_SIZE);
+			blockOffsets.forEach(index::putLong);
+			index.putLong(position).putInt(blockOffsets.size()).putInt(MAGIC);
+			index.flip();
+			write(index);
+			if (failed) {
+				return;
+			}
+			try {
+				channel.close();
+				try {
+					Files.move(tempPath, entryPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(tempPath, entryPath, StandardCopyOption.REPLACE_EXISTING);
+				}
+				committed = true;
+			} catch (IOException e) {
+				failed = true;
+			}
+		}
+
+		private void writeBlock() {
+			try {
+				final ByteBuffer encoded = ByteBuffer.wrap(encodeBlock(block));
+				block.clear();
+				blockOffsets.add(position);
+				write(encoded);
+			} catch (IOException e) {
+				failed = true;
+			}
+		}
+
+		private void write(ByteBuffer buffer) {
+			if (failed) {
+				return;
+			}
+			try {
+				while (buffer.hasRemaining()) {
+					position += channel.write(buffer);
+				}
+			} catch (IOException e) {
+				failed = true;
+			}
+		}
+
+		@Override
+		public void close() {
+			block.clear();
+			if (!committed) {
+				try {
+					channel.close();
+					Files.deleteIfExists(tempPath);
+				} catch (IOException e) {
+					// the leftover temporary file does not affect the cache
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Assigns dictionary codes to the distinct values of a numeric column in the order of their first occurrence, with open addressing.
+	 */
+	private static final class NumberDictionary {
+
+		private final long[] keys = new long[MAX_DICTIONARY_SIZE * 2];
+		// the code of the number in the same slot plus one, zero marks an empty slot
+		private final int[] slots = new int[MAX_DICTIONARY_SIZE * 2];
+		private final long[] numbers = new long[MAX_DICTIONARY_SIZE];
+		private int size;
+
+		void clear() {
+			Arrays.fill(slots, 0);
+			size = 0;
+		}
+
+		/**
+		 * @return the code of the given number or <code>-1</code> if it is a new number and the dictionary is full
+		 */
+		int add(long number) {
+			final int mask = slots.length - 1;
+			int slot = Long.hashCode(number * 0x9E3779B97F4A7C15L) & mask;
+			while (slots[slot] != 0) {
+				if (keys[slot] == number) {
+					return slots[slot] - 1;
+				}
+				slot = (slot + 1) & mask;
+			}
+			if (size == MAX_DICTIONARY_SIZE) {
+				return -1;
+			}
+			keys[slot] = number;
+			numbers[size] = number;
+			slots[slot] = ++size;
+			return size - 1;
+		}
+
+		String[] entries() {
+			final String[] entries = new String[size];
+			for (int i = 0; i < size; i++) {
+				entries[i] = Long.toString(numbers[i]);
+			}
+			return entries;
+		}
+
+	}
+
+	/**
+	 * A committed entry, its blocks are memory mapped when they are decoded.
+	 */
+	private static final class Entry {
+
+		private final FileChannel channel;
+		private final long[] blockOffsets;
+
+		private Entry(FileChannel channel, long[] blockOffsets) {
+			this.channel = channel;
+			this.blockOffsets = blockOffsets;
+		}
+
+		static Entry open(Path entryPath) throws IOException {
+			final FileChannel channel = FileChannel.open(entryPath, StandardOpenOption.READ);
+			try {
+				final ByteBuffer trailer = readFully(channel, channel.size() - TRAILER_SIZE, TRAILER_SIZE);
+				final long indexOffset = trailer.getLong(0);
+				final int blockCount = trailer.getInt(8);
+				final ByteBuffer index = readFully(channel, indexOffset, blockCount * Long.BYTES);
+				// the end of the last block is the start of the index
+				final long[] blockOffsets = new long[blockCount + 1];
+				for (int i = 0; i < blockCount; i++) {
+					blockOffsets[i] = index.getLong();
+				}
+				blockOffsets[blockCount] = indexOffset;
+				return new Entry(channel, blockOffsets);
+			} catch (IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+		}
+
+		Stream<String[]> rows(boolean parallel) {
+			final IntStream blocks = IntStream.range(0, blockOffsets.length - 1);
+			return (parallel ? blocks.parallel() : blocks)
+					.mapToObj(this::readBlock)
+					.flatMap(Arrays::stream)
+					.onClose(() -> {
+						try {
+							channel.close();
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					});
+		}
+
+		private String[][] readBlock(int block) {
+			try {
+				final long offset = blockOffsets[block];
+				return decodeBlock(channel.map(FileChannel.MapMode.READ_ONLY, offset, blockOffsets[block + 1] - offset));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+	}
+
+	static byte[] encodeBlock(List<String[]> rows) throws IOException {
+		final int rowCount = rows.size();
+		final int firstColumnCount = rows.get(0).length;
+		int columnCount = firstColumnCount;
+		boolean irregular = false;
+		for (String[] row : rows) {
+			irregular |= row.length != firstColumnCount;
+			columnCount = Math.max(columnCount, row.length);
+		}
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(rowCount);
+		out.writeInt(columnCount);
+		out.writeBoolean(irregular);
+		if (irregular) {
+			// rows with missing columns have empty values in those columns, which are dropped when the rows are decoded
+			final long[] lengths = new long[rowCount];
+			for (int i = 0; i < rowCount; i++) {
+				lengths[i] = rows.get(i).length;
+			}
+			writePacked(out, lengths, rowCount, bits(columnCount));
+		}
+		final String[] values = new String[rowCount];
+		final long[] numbers = new long[rowCount];
+		final long[] codes = new long[rowCount];
+		final NumberDictionary numberDictionary = new NumberDictionary();
+		for (int column = 0; column < columnCount; column++) {
+			for (int i = 0; i < rowCount; i++) {
+				final String[] row = rows.get(i);
+				values[i] = column < row.length ? row[column] : "";
+			}
+			encodeColumn(out, values, numbers, codes, numberDictionary);
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static void encodeColumn(DataOutputStream out, String[] values, long[] numbers, long[] codes, NumberDictionary numberDictionary) throws IOException {
+		// collect the statistics of all forms, numbers and dictionary codes are kept for the chosen form
+		final int rowCount = values.length;
+		boolean isNumber = true;
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		numberDictionary.clear();
+		boolean numberDictionaryFull = false;
+		long textLength = 0L;
+		long maxLength = 0L;
+		for (int i = 0; i < rowCount; i++) {
+			final String value = values[i];
+			textLength += value.length();
+			maxLength = Math.max(maxLength, value.length());
+			if (isNumber) {
+				final long number = parseCanonicalNumber(value);
+				if (number < 0L) {
+					isNumber = false;
+				} else {
+					numbers[i] = number;
+					min = Math.min(min, number);
+					max = Math.max(max, number);
+					if (!numberDictionaryFull) {
+						final int code = numberDictionary.add(number);
+						numberDictionaryFull = code < 0;
+						codes[i] = code;
+					}
+				}
+			}
+		}
+
+		String[] entries = null;
+		if (isNumber) {
+			// numeric columns are looked up without hashing their text
+			if (!numberDictionaryFull) {
+				entries = numberDictionary.entries();
+			}
+		} else {
+			final Map<String, Integer> dictionary = new HashMap<>();
+			for (int i = 0; i < rowCount; i++) {
+				Integer code = dictionary.get(values[i]);
+				if (code == null) {
+					if (dictionary.size() == MAX_DICTIONARY_SIZE) {
+						break;
+					}
+					code = dictionary.size();
+					dictionary.put(values[i], code);
+				}
+				codes[i] = code;
+				if (i == rowCount - 1) {
+					entries = new String[dictionary.size()];
+					for (Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+						entries[entry.getValue()] = entry.getKey();
+					}
+				}
+			}
+		}
+
+		final long numbersSize = isNumber ? Long.BYTES + 1 + packedSize(rowCount, bits(max - min)) : Long.MAX_VALUE;
+		final long dictionarySize = entries != null ? Integer.BYTES + textSize(entries) + 1 + packedSize(rowCount, bits(entries.length - 1)) : Long.MAX_VALUE;
+		// estimated with one byte per character, most RF2 values are ASCII
+		final long textSize = 1 + packedSize(rowCount, bits(maxLength)) + Integer.BYTES + textLength;
+
+		if (numbersSize <= dictionarySize && numbersSize <= textSize) {
+			out.writeByte(NUMBER);
+			out.writeLong(min);
+			for (int i = 0; i < rowCount; i++) {
+				numbers[i] -= min;
+			}
+			writePacked(out, numbers, rowCount, bits(max - min));
+		} else if (dictionarySize <= textSize) {
+			out.writeByte(DICTIONARY);
+			out.writeInt(entries.length);
+			writeText(out, entries);
+			writePacked(out, codes, rowCount, bits(entries.length - 1));
+		} else {
+			out.writeByte(TEXT);
+			writeText(out, values);
+		}
+	}
+
+	/**
+	 * @return the value of the given decimal number without a sign and leading zeros or <code>-1</code> if it is not such a number
+	 */
+	private static long parseCanonicalNumber(String value) {
+		final int length = value.length();
+		if (length == 0 || length > MAX_NUMBER_LENGTH || (length > 1 && value.charAt(0) == '0')) {
+			return -1L;
+		}
+		long number = 0L;
+		for (int i = 0; i < length; i++) {
+			final char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1L;
+			}
+			number = number * 10 + (c - '0');
+		}
+		return number;
+	}
+
+	private static long textSize(String[] values) {
+		long size = 1 + Integer.BYTES;
+		int count = 0;
+		long maxLength = 0L;
+		for (String value : values) {
+			size += value.length();
+			maxLength = Math.max(maxLength, value.length());
+			count++;
+		}
+		return size + packedSize(count, bits(maxLength));
+	}
+
+	private static void writeText(DataOutputStream out, String[] values) throws IOException {
+		final byte[][] encoded = new byte[values.length][];
+		final long[] lengths = new long[values.length];
+		long maxLength = 0L;
+		int totalLength = 0;
+		for (int i = 0; i < values.length; i++) {
+			encoded[i] = values[i].getBytes(StandardCharsets.UTF_8);
+			lengths[i] = encoded[i].length;
+			maxLength = Math.max(maxLength, lengths[i]);
+			totalLength = Math.addExact(totalLength, encoded[i].length);
+		}
+		writePacked(out, lengths, values.length, bits(maxLength));
+		out.writeInt(totalLength);
+		for (byte[] value : encoded) {
+			out.write(value);
+		}
+	}
+
+	/**
+	 * Writes the number of bits per value followed by the values packed into longs, the lowest bits first.
+	 */
+	private static void writePacked(DataOutputStream out, long[] values, int count, int bits) throws IOException {
+		out.writeByte(bits);
+		if (bits == 0) {
+			return;
+		}
+		final long[] words = new long[(int) (packedSize(count, bits) / Long.BYTES)];
+		for (int i = 0; i < count; i++) {
+			final long bitIndex = (long) i * bits;
+			final int word = (int) (bitIndex >>> 6);
+			final int shift = (int) (bitIndex & 63);
+			words[word] |= values[i] << shift;
+			if (shift + bits > Long.SIZE) {
+				words[word + 1] |= values[i] >>> (Long.SIZE - shift);
+			}
+		}
+		for (long word : words) {
+			out.writeLong(word);
+		}
+	}
+
+	private static long packedSize(int count, int bits) {
+		return ((long) count * bits + Long.SIZE - 1) / Long.SIZE * Long.BYTES;
+	}
+
+	private static int bits(long maxValue) {
+		return Long.SIZE - Long.numberOfLeadingZeros(maxValue);
+	}
+
+	static String[][] decodeBlock(ByteBuffer block) {
+		final int rowCount = block.getInt();
+		final int columnCount = block.getInt();
+		final boolean irregular = block.get() != 0;
+		final long[] lengths = irregular ? readPacked(block, rowCount) : null;
+		final String[][] columns = new String[columnCount][];
+		for (int column = 0; column < columnCount; column++) {
+			columns[column] = decodeColumn(block, rowCount);
+		}
+		final String[][] rows = new String[rowCount][];
+		for (int i = 0; i < rowCount; i++) {
+			final String[] row = new String[irregular ? (int) lengths[i] : columnCount];
+			for (int column = 0; column < row.length; column++) {
+				row[column] = columns[column][i];
+			}
+			rows[i] = row;
+		}
+		return rows;
+	}
+
+	private static String[] decodeColumn(ByteBuffer block, int rowCount) {
+		final byte encoding = block.get();
+		final String[] values;
+		switch (encoding) {
+		case NUMBER:
+			final long min = block.getLong();
+			final long[] offsets = readPacked(block, rowCount);
+			values = new String[rowCount];
+			for (int i = 0; i < rowCount; i++) {
+				values[i] = Long.toString(min + offsets[i]);
+			}
+			return values;
+		case DICTIONARY:
+			final String[] entries = readText(block, block.getInt());
+			final long[] codes = readPacked(block, rowCount);
+			values = new String[rowCount];
+			for (int i = 0; i < rowCount; i++) {
+				values[i] = entries[(int) codes[i]];
+			}
+			return values;
+		case TEXT:
+			return readText(block, rowCount);
+		default:
+			throw new IllegalStateException("Unknown column encoding in cache entry: " + encoding);
+		}
+	}
+
+	private static String[] readText(ByteBuffer block, int count) {
+		final long[] lengths = readPacked(block, count);
+		final byte[] bytes = new byte[block.getInt()];
+		block.get(bytes);
+		final String[] values = new String[count];
+		int offset = 0;
+		for (int i = 0; i < count; i++) {
+			values[i] = new String(bytes, offset, (int) lengths[i], StandardCharsets.UTF_8);
+			offset += lengths[i];
+		}
+		return values;
+	}
+
+	private static long[] readPacked(ByteBuffer block, int count) {
+		final int bits = block.get();
+		final long[] values = new long[count];
+		if (bits == 0) {
+			return values;
+		}
+		Preconditions.checkState(bits <= Long.SIZE, "Invalid number of bits in cache entry: %s", bits);
+		final int start = block.position();
+		final long mask = bits == Long.SIZE ? -1L : (1L << bits) - 1;
+		for (int i = 0; i < count; i++) {
+			final long bitIndex = (long) i * bits;
+			final int word = start + (int) (bitIndex >>> 6) * Long.BYTES;
+			final int shift = (int) (bitIndex & 63);
+			long value = block.getLong(word) >>> shift;
+			if (shift + bits > Long.SIZE) {
+				value |= block.getLong(word + Long.BYTES) << (Long.SIZE - shift);
+			}
+			values[i] = value & mask;
+		}
+		block.position(start + (int) packedSize(count, bits));
+		return values;
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Computes a 128-bit hash of the content of RF2 files for the local caches of the CLI, so a file is found in a cache regardless of its name and
+ * location, eg. in a copied, moved or downloaded again release archive. Entries of zip archives are hashed without inflating them, by their
+ * compressed bytes along with the compression method, the CRC-32 checksum and the uncompressed size stored in the central directory of the
+ * archive. Other files are hashed by their bytes. Hashes are kept until the file (or the archive of the entry) changes.
+ *
+ * @since 0.4
+ */
+public final class RF2ContentHash {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	// hashing a large file takes a while, keep the hashes of the files until they change
+	private static final Cache<Path, FileHash> HASHES = CacheBuilder.newBuilder().maximumSize(1024L).build();
+	// hashes of archive entries by the identity of the entry, which changes with the archive
+	private static final Cache<HashCode, HashCode> ENTRY_HASHES = CacheBuilder.newBuilder().maximumSize(1024L).build();
+
+	private RF2ContentHash() {
+	}
+
+	/**
+	 * @param path - the path of the file, in the default file system or in a zip archive
+	 * @return the 128-bit hash of the content of the file at the given path
+	 * @throws IOException
+	 */
+	public static HashCode of(Path path) throws IOException {
+		final Hasher identityHasher = Hashing.murmur3_128().newHasher();
+		if (RF2ZipArchive.putEntryIdentity(path, identityHasher)) {
+			final HashCode identity = identityHasher.hash();
+			final HashCode cachedHash = ENTRY_HASHES.getIfPresent(identity);
+			if (cachedHash != null) {
+				return cachedHash;
+			}
+			final Hasher entryHasher = Hashing.murmur3_128().newHasher().putBoolean(true);
+			if (RF2ZipArchive.putEntryContent(path, entryHasher)) {
+				final HashCode entryHash = entryHasher.hash();
+				ENTRY_HASHES.put(identity, entryHash);
+				return entryHash;
+			}
+		}
+		final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		final FileHash cachedHash = HASHES.getIfPresent(path);
+		if (cachedHash != null && cachedHash.size == attributes.size() && cachedHash.lastModifiedTime.equals(attributes.lastModifiedTime())) {
+			return cachedHash.hash;
+		}
+		final Hasher hasher = Hashing.murmur3_128().newHasher().putBoolean(false).putLong(attributes.size());
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		try (InputStream in = Files.newInputStream(path)) {
+			int read;
+			while ((read = in.read(buffer)) >= 0) {
+				hasher.putBytes(buffer, 0, read);
+			}
+		}
+		final FileHash fileHash = new FileHash(attributes.size(), attributes.lastModifiedTime(), hasher.hash());
+		HASHES.put(path, fileHash);
+		return fileHash.hash;
+	}
+
+	private static final class FileHash {
+
+		private final long size;
+		private final FileTime lastModifiedTime;
+		private final HashCode hash;
+
+		FileHash(long size, FileTime lastModifiedTime, HashCode hash) {
+			this.size = size;
+			this.lastModifiedTime = lastModifiedTime;
+			this.hash = hash;
+		}
+
+	}
+
+}
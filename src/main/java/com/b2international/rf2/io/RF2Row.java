@@ -0,0 +1,210 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.io;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.b2international.rf2.model.RF2File;
+
+/**
+ * A single RF2 row backed by the raw UTF-8 bytes it was read from. Column boundaries are located when the row is read, but column values are
+ * only decoded into {@link String}s when {@link #get(int)} or {@link #toArray()} is called.
+ * <p>
+ * Rows returned by an {@link RF2RowReader} are reused by the reader, so their content is only valid until the next row is read. Use
+ * {@link #copy()} to keep a row around.
+ * </p>
+ *
+ * @since 0.4
+ */
+public final class RF2Row {
+
+	private static final int DEFAULT_COLUMNS = 16;
+
+	private byte[] buffer;
+	// bounds[i] is the start offset of column i, bounds[columnCount] is the end offset of the row plus one (the position of a virtual separator)
+	private int[] bounds = new int[DEFAULT_COLUMNS + 1];
+	private int columnCount;
+	private long fileOffset;
+	private long lineNumber;
+
+	RF2Row() {
+	}
+
+	/**
+	 * @return the 1-based line number of this row in its source file (the header is line 1) or <code>0</code> if the row was read from a chunk of
+	 *         the file without knowing the number of preceding lines, see {@link #getFileOffset()}.
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * @return the byte offset of the start of this row in its source file.
+	 */
+	public long getFileOffset() {
+		return fileOffset;
+	}
+
+	/**
+	 * @return the number of TAB separated columns in this row.
+	 */
+	public int getColumnCount() {
+		return columnCount;
+	}
+
+	/**
+	 * @param column
+	 * @return the length of the given column's value in bytes.
+	 */
+	public int length(int column) {
+		checkColumn(column);
+		return bounds[column + 1] - 1 - bounds[column];
+	}
+
+	/**
+	 * @param column
+	 * @return <code>true</code> if the given column does not have any value, <code>false</code> otherwise.
+	 */
+	public boolean isEmpty(int column) {
+		return length(column) == 0;
+	}
+
+	/**
+	 * @param column
+	 * @param index
+	 * @return the byte at the given index of the given column's value.
+	 */
+	public byte byteAt(int column, int index) {
+		return buffer[bounds[column] + index];
+	}
+
+	/**
+	 * @return the backing byte array of this row, see {@link #offset(int)} and {@link #length(int)} to access column values directly.
+	 */
+	public byte[] buffer() {
+		return buffer;
+	}
+
+	/**
+	 * @param column
+	 * @return the offset of the given column's value in the {@link #buffer() backing byte array}.
+	 */
+	public int offset(int column) {
+		checkColumn(column);
+		return bounds[column];
+	}
+
+	/**
+	 * @param column
+	 * @param value - the UTF-8 encoded value to compare with
+	 * @return <code>true</code> if the given column's value is equal to the given UTF-8 encoded bytes.
+	 */
+	public boolean contentEquals(int column, byte[] value) {
+		final int length = length(column);
+		if (length != value.length) {
+			return false;
+		}
+		final int offset = bounds[column];
+		for (int i = 0; i < length; i++) {
+			if (buffer[offset + i] != value[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Decodes the value of the given column.
+	 *
+	 * @param column
+	 * @return the value of the given column as {@link String}
+	 */
+	public String get(int column) {
+		return new String(buffer, offset(column), length(column), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Decodes all column values of this row.
+	 *
+	 * @return the column values in the same form as <code>line.split(TAB, -1)</code> would return them.
+	 */
+	public String[] toArray() {
+		final String[] values = new String[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			values[i] = get(i);
+		}
+		return values;
+	}
+
+	/**
+	 * @return a detached copy of this row that is not affected by subsequent reads of the {@link RF2RowReader} this row came from.
+	 */
+	public RF2Row copy() {
+		final int start = bounds[0];
+		final int end = bounds[columnCount];
+		final RF2Row copy = new RF2Row();
+		copy.buffer = Arrays.copyOfRange(buffer, start, end);
+		copy.bounds = new int[columnCount + 1];
+		for (int i = 0; i <= columnCount; i++) {
+			copy.bounds[i] = bounds[i] - start;
+		}
+		copy.columnCount = columnCount;
+		copy.fileOffset = fileOffset;
+		copy.lineNumber = lineNumber;
+		return copy;
+	}
+
+	@Override
+	public String toString() {
+		return String.join(RF2File.TAB, toArray());
+	}
+
+	private void checkColumn(int column) {
+		if (column < 0 || column >= columnCount) {
+			throw new IndexOutOfBoundsException(String.format("Column index '%s' is out of bounds in row with '%s' columns.", column, columnCount));
+		}
+	}
+
+	// reader API
+
+	void start(byte[] buffer, int offset, long fileOffset, long lineNumber) {
+		this.buffer = buffer;
+		this.fileOffset = fileOffset;
+		this.lineNumber = lineNumber;
+		this.columnCount = 0;
+		this.bounds[0] = offset;
+	}
+
+	void separator(int position) {
+		if (columnCount + 2 > bounds.length) {
+			bounds = Arrays.copyOf(bounds, bounds.length * 2);
+		}
+		bounds[++columnCount] = position + 1;
+	}
+
+	void end(int position) {
+		separator(position);
+	}
+
+	void relocate(byte[] buffer, int shift) {
+		this.buffer = buffer;
+		for (int i = 0; i <= columnCount; i++) {
+			bounds[i] -= shift;
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.io;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Partitions RF2 rows into bucket files by the hash of a key column, so that rows with the same key value end up in the same bucket, even if they
+ * come from different files. Rows are copied into the bucket files as they are (without decoding them), separated by CRLF, so the buckets can be
+ * read with {@link RF2RowReader} again. Rows keep their original order within a bucket.
+ *
+ * @since 0.4
+ */
+public final class RF2RowPartitioner {
+
+	private static final int BUCKET_BUFFER_SIZE = 32 * 1024;
+	private static final byte[] CRLF = { '\r', '\n' };
+
+	private final int column;
+	private final int bucketCount;
+	private final Path tempDirectory;
+
+	/**
+	 * @param column - the key column to compute the bucket of a row from
+	 * @param bucketCount - the number of buckets to create
+	 * @param tempDirectory - the directory to write the buckets to or <code>null</code> to use the default temporary-file directory
+	 */
+	public RF2RowPartitioner(int column, int bucketCount, Path tempDirectory) {
+		Preconditions.checkArgument(column >= 0, "Key column must be greater than or equal to zero, was: %s", column);
+		Preconditions.checkArgument(bucketCount > 0, "Bucket count must be greater than zero, was: %s", bucketCount);
+		this.column = column;
+		this.bucketCount = bucketCount;
+		this.tempDirectory = tempDirectory;
+	}
+
+	public int getBucketCount() {
+		return bucketCount;
+	}
+
+	/**
+	 * Writes all remaining rows of the given reader into new bucket files and closes the reader. The caller is responsible for deleting the returned
+	 * files.
+	 *
+	 * @param reader
+	 * @return the bucket files, the file at index <code>i</code> contains the rows of bucket <code>i</code>
+	 * @throws IOException
+	 */
+	public List<Path> partition(RF2RowReader reader) throws IOException {
+		final List<Path> buckets = new ArrayList<>(bucketCount);
+		final OutputStream[] outputs = new OutputStream[bucketCount];
+		try (RF2RowReader r = reader) {
+			for (int i = 0; i < bucketCount; i++) {
+				final Path bucket = tempDirectory == null ? Files.createTempFile("rf2-bucket", ".txt") : Files.createTempFile(tempDirectory, "rf2-bucket", ".txt");
+				buckets.add(bucket);
+				outputs[i] = new BufferedOutputStream(Files.newOutputStream(bucket), BUCKET_BUFFER_SIZE);
+			}
+			RF2Row row;
+			while ((row = r.next()) != null) {
+				final OutputStream out = outputs[getBucket(row)];
+				final int start = row.offset(0);
+				final int lastColumn = row.getColumnCount() - 1;
+				out.write(row.buffer(), start, row.offset(lastColumn) + row.length(lastColumn) - start);
+				out.write(CRLF);
+			}
+			close(outputs);
+		} catch (IOException | RuntimeException e) {
+			try {
+				close(outputs);
+			} catch (IOException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+			delete(buckets);
+			throw e;
+		}
+		return buckets;
+	}
+
+	/**
+	 * @param row
+	 * @return the bucket of the given row, rows with the same key column value are assigned to the same bucket.
+	 */
+	public int getBucket(RF2Row row) {
+		if (column >= row.getColumnCount()) {
+			return 0;
+		}
+		final byte[] buffer = row.buffer();
+		final int offset = row.offset(column);
+		final int end = offset + row.length(column);
+		int hash = 1;
+		for (int i = offset; i < end; i++) {
+			hash = 31 * hash + buffer[i];
+		}
+		// spread the bits of the hash, SCTIDs and UUIDs differ mostly in their last characters
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		return Math.floorMod(hash, bucketCount);
+	}
+
+	/**
+	 * Deletes the given bucket files.
+	 *
+	 * @param buckets
+	 * @throws IOException
+	 */
+	public static void delete(List<Path> buckets) throws IOException {
+		for (Path bucket : buckets) {
+			Files.deleteIfExists(bucket);
+		}
+	}
+
+	private static void close(OutputStream[] outputs) throws IOException {
+		IOException failure = null;
+		for (int i = 0; i < outputs.length; i++) {
+			if (outputs[i] != null) {
+				try {
+					outputs[i].close();
+				} catch (IOException e) {
+					failure = e;
+				}
+				outputs[i] = null;
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+}
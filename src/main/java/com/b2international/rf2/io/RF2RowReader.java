@@ -0,0 +1,301 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads RF2 rows directly from the UTF-8 bytes of an RF2 file. The file is read through a single large reusable buffer, TAB and line separator
+ * offsets are located in one pass over the bytes and each row is exposed as an {@link RF2Row} without decoding or splitting the line into
+ * {@link String}s.
+ * <p>
+ * Lines are separated by either CRLF or LF, and the returned rows have the same columns as <code>line.split(TAB, -1)</code> would produce
+ * for each line returned by {@link Files#lines(Path)}.
+ * </p>
+ *
+ * @since 0.4
+ */
+public final class RF2RowReader implements Closeable {
+
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+	private static final byte TAB = '\t';
+	private static final byte CR = '\r';
+	private static final byte LF = '\n';
+
+	private final ReadableByteChannel channel;
+	private final RF2Row row = new RF2Row();
+
+	private byte[] buffer;
+	private ByteBuffer byteBuffer;
+	// index of the first byte that has not been returned as part of a row yet
+	private int position;
+	// index after the last valid byte in the buffer
+	private int limit;
+	private boolean eof;
+	// offset of the first byte of the buffer in the underlying file
+	private long bufferOffset;
+	private long lineNumber;
+	private final boolean countLines;
+
+	public RF2RowReader(ReadableByteChannel channel, int bufferSize) {
+		this(channel, bufferSize, 0L, true);
+	}
+
+	/**
+	 * @param channel - the channel to read from
+	 * @param bufferSize - the initial size of the read buffer
+	 * @param fileOffset - the offset of the first byte of the channel in the file
+	 * @param countLines - whether the channel starts at the beginning of the file and line numbers can be tracked or not
+	 */
+	RF2RowReader(ReadableByteChannel channel, int bufferSize, long fileOffset, boolean countLines) {
+		this.channel = channel;
+		this.buffer = new byte[bufferSize];
+		this.byteBuffer = ByteBuffer.wrap(buffer);
+		this.bufferOffset = fileOffset;
+		this.countLines = countLines;
+	}
+
+	/**
+	 * Opens an {@link RF2RowReader} for the file at the given path with the {@link #DEFAULT_BUFFER_SIZE default buffer size}.
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public static RF2RowReader open(Path path) throws IOException {
+		return open(path, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Opens an {@link RF2RowReader} for the file at the given path with the given initial buffer size. The buffer grows automatically if a single
+	 * line does not fit into it. Files of zip file systems are read directly from their archive with {@link RF2ZipArchive#newChannel(Path)}.
+	 *
+	 * @param path
+	 * @param bufferSize
+	 * @return
+	 * @throws IOException
+	 */
+	public static RF2RowReader open(Path path, int bufferSize) throws IOException {
+		return new RF2RowReader(RF2ZipArchive.newChannel(path), bufferSize);
+	}
+
+	/**
+	 * Computes the line numbers of the given byte offsets of the file at the given path by counting the line separators preceding them. The file
+	 * is read only up to the last offset.
+	 *
+	 * @param path
+	 * @param offsets - byte offsets in ascending order
+	 * @return the 1-based line number of each offset
+	 * @throws IOException
+	 */
+	public static long[] lineNumbers(Path path, long[] offsets) throws IOException {
+		final long[] lineNumbers = new long[offsets.length];
+		try (ReadableByteChannel channel = RF2ZipArchive.newChannel(path)) {
+			final byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+			final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+			long bufferOffset = 0L;
+			int read = 0;
+			// the line number of the byte at bufferOffset + scanned
+			long lineNumber = 1L;
+			int scanned = 0;
+			for (int next = 0; next < offsets.length; next++) {
+				final long offset = offsets[next];
+				while (offset >= bufferOffset + read) {
+					for (; scanned < read; scanned++) {
+						if (buffer[scanned] == LF) {
+							lineNumber++;
+						}
+					}
+					bufferOffset += read;
+					scanned = 0;
+					byteBuffer.clear();
+					read = channel.read(byteBuffer);
+					if (read < 0) {
+						// offsets after the end of the file are on the last line
+						Arrays.fill(lineNumbers, next, offsets.length, lineNumber);
+						return lineNumbers;
+					}
+				}
+				for (final int end = (int) (offset - bufferOffset); scanned < end; scanned++) {
+					if (buffer[scanned] == LF) {
+						lineNumber++;
+					}
+				}
+				lineNumbers[next] = lineNumber;
+			}
+		}
+		return lineNumbers;
+	}
+
+	/**
+	 * Reads the next row. The returned {@link RF2Row} instance is reused by this reader, its content is valid until the next call of this method.
+	 *
+	 * @return the next row or <code>null</code> if there are no more rows to read.
+	 * @throws IOException
+	 */
+	public RF2Row next() throws IOException {
+		int i = position;
+		if (countLines) {
+			lineNumber++;
+		}
+		row.start(buffer, position, bufferOffset + position, lineNumber);
+		while (true) {
+			if (i == limit) {
+				if (eof) {
+					if (i == position) {
+						// no more data, do not count the missing line
+						if (countLines) {
+							lineNumber--;
+						}
+						return null;
+					}
+					// last line without line separator
+					row.end(i);
+					position = i;
+					return row;
+				}
+				i -= fill();
+				continue;
+			}
+			// scan the buffered bytes using local copies of the fields
+			final byte[] buffer = this.buffer;
+			final int limit = this.limit;
+			for (; i < limit; i++) {
+				final byte b = buffer[i];
+				if (b == TAB) {
+					row.separator(i);
+				} else if (b == LF) {
+					row.end(i > position && buffer[i - 1] == CR ? i - 1 : i);
+					position = i + 1;
+					return row;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Skips the given number of rows.
+	 *
+	 * @param rows
+	 * @return this reader
+	 * @throws IOException
+	 */
+	public RF2RowReader skip(int rows) throws IOException {
+		for (int i = 0; i < rows && next() != null; i++);
+		return this;
+	}
+
+	/**
+	 * Calls the given consumer with all remaining rows of this reader. The consumer must not keep a reference to the passed {@link RF2Row}.
+	 *
+	 * @param consumer
+	 * @throws IOException
+	 */
+	public void forEach(Consumer<RF2Row> consumer) throws IOException {
+		RF2Row next;
+		while ((next = next()) != null) {
+			consumer.accept(next);
+		}
+	}
+
+	/**
+	 * Returns the remaining rows of this reader converted into String[] objects in a sequential stream. Closing the stream closes this reader.
+	 *
+	 * @return
+	 */
+	public Stream<String[]> rows() {
+		final Spliterator<String[]> spliterator = new Spliterators.AbstractSpliterator<String[]>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super String[]> action) {
+				try {
+					final RF2Row next = next();
+					if (next == null) {
+						return false;
+					}
+					action.accept(next.toArray());
+					return true;
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		};
+		return StreamSupport.stream(spliterator, false).onClose(() -> {
+			try {
+				close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	/**
+	 * @return the offset of the next unread byte in the underlying file.
+	 */
+	public long offset() {
+		return bufferOffset + position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Moves the unread part of the buffer to the beginning of the buffer (or grows the buffer if it is full with a single line) and reads more data
+	 * from the channel.
+	 *
+	 * @return the number of bytes the unread part of the buffer was shifted with
+	 */
+	private int fill() throws IOException {
+		final int shift = position;
+		if (shift > 0) {
+			System.arraycopy(buffer, position, buffer, 0, limit - position);
+			limit -= position;
+			position = 0;
+			bufferOffset += shift;
+		} else if (limit == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			byteBuffer = ByteBuffer.wrap(buffer);
+		}
+		row.relocate(buffer, shift);
+
+		byteBuffer.clear().position(limit);
+		int read;
+		do {
+			read = channel.read(byteBuffer);
+		} while (read == 0);
+		if (read < 0) {
+			eof = true;
+		} else {
+			limit += read;
+		}
+		return shift;
+	}
+
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Sorts RF2 rows with a bounded amount of memory. Rows are collected until their estimated size reaches the memory budget, then they are sorted
+ * and written to a temporary file (a sorted run) in a compact binary form. The sorted runs and the rows remaining in memory are merged lazily
+ * while the returned stream is consumed, holding only the current row of each run in memory. When there are too many runs to keep all of them
+ * open, adjacent runs are merged into larger ones first.
+ * <p>
+ * The sort is stable, rows that are equal according to the comparator are returned in their original order.
+ * </p>
+ *
+ * @since 0.4
+ */
+public final class RF2RowSorter {
+
+	private static final long MIN_MEMORY_BUDGET = 1L << 20;
+	private static final int RUN_BUFFER_SIZE = 64 * 1024;
+	// the maximum number of run files merged at once, more runs are merged in multiple passes to limit the number of open files
+	private static final int MAX_MERGE_WIDTH = 64;
+
+	// estimated memory used by a String[] row besides the characters of its values, and by each String value
+	private static final int ROW_OVERHEAD = 32;
+	private static final int VALUE_OVERHEAD = 64;
+
+	private final Comparator<? super String[]> comparator;
+	private final long memoryBudget;
+	private final Path tempDirectory;
+
+	/**
+	 * @param comparator - the order of the sorted rows
+	 * @param memoryBudget - the estimated number of bytes the rows of a single sorted run may occupy in memory
+	 */
+	public RF2RowSorter(Comparator<? super String[]> comparator, long memoryBudget) {
+		this(comparator, memoryBudget, null);
+	}
+
+	/**
+	 * @param comparator - the order of the sorted rows
+	 * @param memoryBudget - the estimated number of bytes the rows of a single sorted run may occupy in memory
+	 * @param tempDirectory - the directory to write the sorted runs to or <code>null</code> to use the default temporary-file directory
+	 */
+	public RF2RowSorter(Comparator<? super String[]> comparator, long memoryBudget, Path tempDirectory) {
+		Preconditions.checkArgument(memoryBudget > 0, "Memory budget must be greater than zero, was: %s", memoryBudget);
+		this.comparator = comparator;
+		this.memoryBudget = memoryBudget;
+		this.tempDirectory = tempDirectory;
+	}
+
+	/**
+	 * @return the default memory budget of a single sort, an eighth of the maximum heap size, but at least 1MB.
+	 */
+	public static long getDefaultMemoryBudget() {
+		return Math.max(MIN_MEMORY_BUDGET, Runtime.getRuntime().maxMemory() / 8);
+	}
+
+	/**
+	 * Reads all remaining rows of the given reader and returns them sorted. The reader is closed when all of its rows have been read. Closing the
+	 * returned stream deletes the temporary files of the sort.
+	 *
+	 * @param reader
+	 * @return the sorted rows in a sequential stream
+	 * @throws IOException
+	 */
+	public Stream<String[]> sort(RF2RowReader reader) throws IOException {
+		try (Stream<String[]> rows = reader.rows()) {
+			return sort(rows.iterator());
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Consumes the given rows and returns them sorted. Closing the returned stream deletes the temporary files of the sort.
+	 *
+	 * @param source
+	 * @return the sorted rows in a sequential stream
+	 * @throws IOException
+	 */
+	public Stream<String[]> sort(Iterator<String[]> source) throws IOException {
+		final List<Path> runs = new ArrayList<>();
+		final List<String[]> rows = new ArrayList<>();
+		try {
+			long estimatedSize = 0L;
+			while (source.hasNext()) {
+				final String[] row = source.next();
+				rows.add(row);
+				estimatedSize += estimateSize(row);
+				if (estimatedSize >= memoryBudget) {
+					runs.add(writeRun(rows));
+					rows.clear();
+					estimatedSize = 0L;
+				}
+			}
+			rows.sort(comparator);
+		} catch (IOException | RuntimeException e) {
+			delete(runs);
+			throw e;
+		}
+
+		if (runs.isEmpty()) {
+			return rows.stream();
+		}
+
+		final List<Path> mergedRuns;
+		try {
+			mergedRuns = mergeRuns(runs);
+		} catch (IOException | RuntimeException e) {
+			delete(runs);
+			throw e;
+		}
+
+		// the rows left in memory are the last run, there is no need to write them to disk
+		final MergeIterator merge = new MergeIterator(mergedRuns, rows);
+		final Spliterator<String[]> spliterator = Spliterators.spliteratorUnknownSize(merge, Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false).onClose(() -> {
+			try {
+				merge.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	private static long estimateSize(String[] row) {
+		long size = ROW_OVERHEAD + row.length * VALUE_OVERHEAD;
+		for (String value : row) {
+			size += value.length();
+		}
+		return size;
+	}
+
+	/**
+	 * Merges adjacent run files until they can be merged in a single pass together with the rows remaining in memory. The order of the runs is kept,
+	 * so merging them remains stable.
+	 */
+	private List<Path> mergeRuns(List<Path> runs) throws IOException {
+		List<Path> remaining = runs;
+		while (remaining.size() >= MAX_MERGE_WIDTH) {
+			final List<Path> merged = new ArrayList<>();
+			for (int from = 0; from < remaining.size(); from += MAX_MERGE_WIDTH) {
+				final List<Path> group = remaining.subList(from, Math.min(from + MAX_MERGE_WIDTH, remaining.size()));
+				if (group.size() == 1) {
+					merged.add(group.get(0));
+					continue;
+				}
+				try (MergeIterator merge = new MergeIterator(group, Collections.emptyList())) {
+					// the merged runs are deleted when the merge is closed
+					merged.add(writeRun(merge));
+				} catch (IOException | RuntimeException e) {
+					delete(merged);
+					delete(remaining.subList(from, remaining.size()));
+					throw e;
+				}
+			}
+			remaining = merged;
+		}
+		return remaining;
+	}
+
+	private Path writeRun(List<String[]> rows) throws IOException {
+		rows.sort(comparator);
+		return writeRun(rows.iterator());
+	}
+
+	private Path writeRun(Iterator<String[]> rows) throws IOException {
+		final Path run = tempDirectory == null ? Files.createTempFile("rf2-sort", ".run") : Files.createTempFile(tempDirectory, "rf2-sort", ".run");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), RUN_BUFFER_SIZE))) {
+			while (rows.hasNext()) {
+				final String[] row = rows.next();
+				writeVarInt(out, row.length);
+				for (String value : row) {
+					final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+					writeVarInt(out, bytes.length);
+					out.write(bytes);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(run);
+			throw e;
+		}
+		return run;
+	}
+
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static void delete(List<Path> runs) throws IOException {
+		for (Path run : runs) {
+			Files.deleteIfExists(run);
+		}
+	}
+
+	/**
+	 * Reads the rows of a sorted run, either from a run file or from memory.
+	 */
+	private static final class Run implements Closeable {
+
+		private final int index;
+		private final DataInputStream in;
+		private final Iterator<String[]> rows;
+		private String[] current;
+
+		Run(int index, DataInputStream in) {
+			this.index = index;
+			this.in = in;
+			this.rows = null;
+		}
+
+		Run(int index, Iterator<String[]> rows) {
+			this.index = index;
+			this.in = null;
+			this.rows = rows;
+		}
+
+		/**
+		 * @return <code>false</code> if the run does not have any more rows
+		 */
+		boolean advance() throws IOException {
+			if (rows != null) {
+				current = rows.hasNext() ? rows.next() : null;
+			} else {
+				current = readRow();
+			}
+			return current != null;
+		}
+
+		private String[] readRow() throws IOException {
+			final int firstByte = in.read();
+			if (firstByte < 0) {
+				return null;
+			}
+			final String[] row = new String[readVarInt(firstByte)];
+			for (int i = 0; i < row.length; i++) {
+				final byte[] bytes = new byte[readVarInt(in.readUnsignedByte())];
+				in.readFully(bytes);
+				row[i] = new String(bytes, StandardCharsets.UTF_8);
+			}
+			return row;
+		}
+
+		private int readVarInt(int firstByte) throws IOException {
+			int value = firstByte & 0x7F;
+			int b = firstByte;
+			for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+				b = in.readUnsignedByte();
+				if (shift > 28) {
+					throw new EOFException("Malformed sorted run");
+				}
+				value |= (b & 0x7F) << shift;
+			}
+			return value;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (in != null) {
+				in.close();
+			}
+		}
+
+	}
+
+	/**
+	 * Merges sorted runs with a heap of their current rows. Equal rows are taken from the run that was written earlier to keep the sort stable.
+	 */
+	private final class MergeIterator implements Iterator<String[]>, Closeable {
+
+		private final List<Path> files;
+		private final List<Run> runs = new ArrayList<>();
+		private final PriorityQueue<Run> heap;
+
+		MergeIterator(List<Path> files, List<String[]> lastRun) throws IOException {
+			this.files = files;
+			this.heap = new PriorityQueue<>(files.size() + 1, Comparator.<Run, String[]>comparing(run -> run.current, comparator).thenComparingInt(run -> run.index));
+			try {
+				for (int i = 0; i < files.size(); i++) {
+					final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(files.get(i)), RUN_BUFFER_SIZE));
+					runs.add(new Run(i, in));
+				}
+				runs.add(new Run(files.size(), lastRun.iterator()));
+				for (Run run : runs) {
+					if (run.advance()) {
+						heap.add(run);
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				close();
+				throw e;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !heap.isEmpty();
+		}
+
+		@Override
+		public String[] next() {
+			final Run run = heap.poll();
+			if (run == null) {
+				throw new NoSuchElementException();
+			}
+			final String[] next = run.current;
+			try {
+				if (run.advance()) {
+					heap.add(run);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return next;
+		}
+
+		@Override
+		public void close() throws IOException {
+			heap.clear();
+			IOException failure = null;
+			for (Run run : runs) {
+				try {
+					run.close();
+				} catch (IOException e) {
+					failure = e;
+				}
+			}
+			delete(files);
+			if (failure != null) {
+				throw failure;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,534 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A {@link Spliterator} over the data rows (all rows after the header) of an RF2 file that can be split into independently parsed chunks.
+ * <p>
+ * Files on the default file system are split into byte ranges aligned to line boundaries. Each range is read with its own {@link RF2RowReader}
+ * using positional reads on a shared {@link FileChannel}, so the fork-join tasks of a parallel stream parse their own part of the file without
+ * any coordination. Entries of zip archives cannot be read from an arbitrary offset, they are read ahead sequentially (and inflated) in blocks of
+ * complete lines, and each block is parsed by its own {@link RF2RowReader}, so only reading the entry is sequential. Files on other file systems
+ * are read sequentially and handed out in batches of copied rows.
+ * </p>
+ * <p>
+ * The {@link RF2Row} instances passed to the consumers are reused by the underlying readers, only stateless operations may be applied to them
+ * without {@link RF2Row#copy() copying} them first.
+ * </p>
+ *
+ * @since 0.4
+ */
+public abstract class RF2RowSpliterator implements Spliterator<RF2Row>, Closeable {
+
+	// do not split ranges smaller than this into separate chunks
+	private static final long MIN_CHUNK_SIZE = 256 * 1024;
+	// number of rows copied into a single batch when splitting a sequentially read file
+	private static final int BATCH_SIZE = 1024;
+	// number of bytes read ahead into a single block when splitting a zip entry
+	private static final int BLOCK_SIZE = 1 << 20;
+	private static final int LINE_SEARCH_BUFFER_SIZE = 8 * 1024;
+
+	RF2RowSpliterator() {
+	}
+
+	/**
+	 * Opens an {@link RF2RowSpliterator} for the data rows of the RF2 file at the given path.
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public static RF2RowSpliterator open(Path path) throws IOException {
+		if (FileSystems.getDefault().equals(path.getFileSystem())) {
+			final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+			try {
+				final long size = channel.size();
+				// the header is the first line of the file, the data rows start right after it
+				final RF2RowReader headerReader = new RF2RowReader(new RangeChannel(channel, 0L, size), LINE_SEARCH_BUFFER_SIZE, 0L, true);
+				headerReader.next();
+				return new Chunked(channel, headerReader.offset(), size, true);
+			} catch (IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+		} else if (RF2ZipArchive.isEntry(path)) {
+			final ReadableByteChannel channel = RF2ZipArchive.newChannel(path);
+			try {
+				final Blocks blocks = new Blocks(channel);
+				blocks.skipHeader();
+				return blocks;
+			} catch (IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+		} else {
+			return new Sequential(RF2RowReader.open(path).skip(1));
+		}
+	}
+
+	/**
+	 * Returns a parallel stream of the data rows of the RF2 file at the given path. Closing the stream closes the underlying file.
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 * @see RF2RowSpliterator
+	 */
+	public static Stream<RF2Row> stream(Path path) throws IOException {
+		final RF2RowSpliterator spliterator = open(path);
+		return StreamSupport.stream(spliterator, true).onClose(() -> {
+			try {
+				spliterator.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | NONNULL;
+	}
+
+	/**
+	 * Splits a file into byte ranges aligned to line boundaries.
+	 */
+	private static final class Chunked extends RF2RowSpliterator {
+
+		private final FileChannel channel;
+		private final boolean owner;
+		private long start;
+		private final long end;
+		private RF2RowReader reader;
+
+		Chunked(FileChannel channel, long start, long end, boolean owner) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			this.owner = owner;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super RF2Row> action) {
+			try {
+				final RF2Row row = reader().next();
+				if (row == null) {
+					return false;
+				}
+				action.accept(row);
+				return true;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super RF2Row> action) {
+			try {
+				final RF2RowReader reader = reader();
+				RF2Row row;
+				while ((row = reader.next()) != null) {
+					action.accept(row);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public Spliterator<RF2Row> trySplit() {
+			if (reader != null || end - start < 2 * MIN_CHUNK_SIZE) {
+				return null;
+			}
+			try {
+				final long splitAt = nextLineStart(start + (end - start) / 2);
+				if (splitAt <= start || splitAt >= end) {
+					return null;
+				}
+				final Chunked prefix = new Chunked(channel, start, splitAt, false);
+				start = splitAt;
+				return prefix;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public long estimateSize() {
+			// the number of rows is unknown, but it is proportional to the number of bytes
+			return end - start;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (owner) {
+				channel.close();
+			}
+		}
+
+		private RF2RowReader reader() {
+			if (reader == null) {
+				final int bufferSize = (int) Math.min(RF2RowReader.DEFAULT_BUFFER_SIZE, Math.max(1L, end - start));
+				reader = new RF2RowReader(new RangeChannel(channel, start, end), bufferSize, start, false);
+			}
+			return reader;
+		}
+
+		/**
+		 * @param from
+		 * @return the offset of the first line that starts at or after the given offset or the end of this range.
+		 */
+		private long nextLineStart(long from) throws IOException {
+			final ByteBuffer buffer = ByteBuffer.allocate(LINE_SEARCH_BUFFER_SIZE);
+			long position = from;
+			while (position < end) {
+				buffer.clear();
+				final int read = channel.read(buffer, position);
+				if (read < 0) {
+					break;
+				}
+				for (int i = 0; i < read; i++) {
+					if (buffer.get(i) == '\n') {
+						return position + i + 1;
+					}
+				}
+				position += read;
+			}
+			return end;
+		}
+
+	}
+
+	/**
+	 * Reads a file sequentially and splits off batches of copied rows.
+	 */
+	private static final class Sequential extends RF2RowSpliterator {
+
+		private final RF2RowReader reader;
+
+		Sequential(RF2RowReader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super RF2Row> action) {
+			try {
+				final RF2Row row = reader.next();
+				if (row == null) {
+					return false;
+				}
+				action.accept(row);
+				return true;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public Spliterator<RF2Row> trySplit() {
+			try {
+				final RF2Row[] batch = new RF2Row[BATCH_SIZE];
+				int size = 0;
+				RF2Row row;
+				while (size < BATCH_SIZE && (row = reader.next()) != null) {
+					batch[size++] = row.copy();
+				}
+				return size == 0 ? null : Spliterators.spliterator(batch, 0, size, characteristics());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+
+	}
+
+	/**
+	 * Reads a zip entry ahead in blocks of complete lines and splits off each block.
+	 */
+	private static final class Blocks extends RF2RowSpliterator {
+
+		private final ReadableByteChannel channel;
+		// bytes read from the channel that have not been split off yet, starting at the beginning of a line
+		private byte[] buffer = new byte[BLOCK_SIZE];
+		private int length;
+		// offset of the first byte of the buffer in the entry
+		private long offset;
+		private boolean eof;
+		private RF2RowReader reader;
+
+		Blocks(ReadableByteChannel channel) {
+			this.channel = channel;
+		}
+
+		void skipHeader() throws IOException {
+			int searched = 0;
+			while (true) {
+				for (int i = searched; i < length; i++) {
+					if (buffer[i] == '\n') {
+						take(i + 1);
+						return;
+					}
+				}
+				if (eof) {
+					take(length);
+					return;
+				}
+				searched = length;
+				fill();
+			}
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super RF2Row> action) {
+			try {
+				final RF2Row row = reader().next();
+				if (row == null) {
+					return false;
+				}
+				action.accept(row);
+				return true;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super RF2Row> action) {
+			try {
+				final RF2RowReader reader = reader();
+				RF2Row row;
+				while ((row = reader.next()) != null) {
+					action.accept(row);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public Spliterator<RF2Row> trySplit() {
+			if (reader != null) {
+				return null;
+			}
+			try {
+				if (length < buffer.length) {
+					fill();
+				}
+				// the block ends after the last line separator of the buffer, read on if a single line does not fit into it
+				int end = 0;
+				int searched = 0;
+				while (true) {
+					for (int i = length - 1; i >= searched; i--) {
+						if (buffer[i] == '\n') {
+							end = i + 1;
+							break;
+						}
+					}
+					if (end > 0 || eof) {
+						break;
+					}
+					searched = length;
+					fill();
+				}
+				if (eof && end < length) {
+					// the last line does not end with a line separator
+					end = length;
+				}
+				if (end == 0) {
+					return null;
+				}
+				final long blockOffset = offset;
+				final byte[] block = take(end);
+				final RF2RowReader blockReader = new RF2RowReader(Channels.newChannel(new ByteArrayInputStream(block, 0, end)), Math.max(1, end), blockOffset, false);
+				return new Block(blockReader, end);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+
+		private RF2RowReader reader() {
+			if (reader == null) {
+				// the rest of the entry is read without splitting, starting with the bytes already read ahead
+				final InputStream rest = new SequenceInputStream(new ByteArrayInputStream(buffer, 0, length), Channels.newInputStream(channel));
+				reader = new RF2RowReader(Channels.newChannel(rest), RF2RowReader.DEFAULT_BUFFER_SIZE, offset, false);
+			}
+			return reader;
+		}
+
+		/**
+		 * Reads from the channel until the buffer is full or the end of the channel is reached, the buffer grows if it is already full.
+		 */
+		private void fill() throws IOException {
+			if (length == buffer.length) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+			final ByteBuffer target = ByteBuffer.wrap(buffer, length, buffer.length - length);
+			while (!eof && target.hasRemaining()) {
+				if (channel.read(target) < 0) {
+					eof = true;
+				}
+			}
+			length = target.position();
+		}
+
+		/**
+		 * Removes the given number of bytes from the beginning of the buffer.
+		 *
+		 * @return an array starting with the removed bytes
+		 */
+		private byte[] take(int count) {
+			final byte[] taken = buffer;
+			buffer = new byte[Math.max(BLOCK_SIZE, length - count)];
+			System.arraycopy(taken, count, buffer, 0, length - count);
+			length -= count;
+			offset += count;
+			return taken;
+		}
+
+	}
+
+	/**
+	 * A block of complete lines read ahead from a zip entry.
+	 */
+	private static final class Block extends RF2RowSpliterator {
+
+		private final RF2RowReader reader;
+		private final long size;
+
+		Block(RF2RowReader reader, long size) {
+			this.reader = reader;
+			this.size = size;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super RF2Row> action) {
+			try {
+				final RF2Row row = reader.next();
+				if (row == null) {
+					return false;
+				}
+				action.accept(row);
+				return true;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public Spliterator<RF2Row> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return size;
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+
+	}
+
+	/**
+	 * Reads a byte range of a {@link FileChannel} with positional reads, so multiple ranges can be read concurrently from the same channel.
+	 */
+	private static final class RangeChannel implements ReadableByteChannel {
+
+		private final FileChannel channel;
+		private long position;
+		private final long end;
+
+		RangeChannel(FileChannel channel, long start, long end) {
+			this.channel = channel;
+			this.position = start;
+			this.end = end;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			if (position >= end) {
+				return -1;
+			}
+			final int limit = dst.limit();
+			final long remaining = end - position;
+			if (dst.remaining() > remaining) {
+				dst.limit(dst.position() + (int) remaining);
+			}
+			try {
+				final int read = channel.read(dst, position);
+				if (read > 0) {
+					position += read;
+				}
+				return read;
+			} finally {
+				dst.limit(limit);
+			}
+		}
+
+		@Override
+		public boolean isOpen() {
+			return channel.isOpen();
+		}
+
+		@Override
+		public void close() throws IOException {
+			// the channel is owned by the spliterator
+		}
+
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.io;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.b2international.rf2.model.RF2File;
+
+/**
+ * A temporary file of RF2 rows that are appended once and later read back by their offsets, to keep rows out of memory until it is known which
+ * of them are needed. Rows can be appended from multiple threads. The file is deleted when the spill file is closed.
+ *
+ * @since 0.4
+ */
+public final class RF2SpillFile implements Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+	private static final int READ_BUFFER_SIZE = 1 << 12;
+	private static final byte[] CRLF = RF2File.CRLF.getBytes(StandardCharsets.US_ASCII);
+
+	private final Path path;
+	private final OutputStream out;
+	private long size;
+	private long flushedSize;
+	private SeekableByteChannel readChannel;
+
+	/**
+	 * Creates a new spill file in the given directory.
+	 *
+	 * @param tempDirectory - the directory to create the file in or <code>null</code> to use the default temporary-file directory
+	 * @throws IOException
+	 */
+	public RF2SpillFile(Path tempDirectory) throws IOException {
+		this.path = tempDirectory == null ? Files.createTempFile("rf2-spill", ".txt") : Files.createTempFile(tempDirectory, "rf2-spill", ".txt");
+		this.out = new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE);
+	}
+
+	/**
+	 * Appends a row to this file.
+	 *
+	 * @param values - the column values of the row, none of them may contain a TAB or line separator character
+	 * @return the offset of the row to read it back with {@link #rows(long[])}
+	 * @throws IOException
+	 */
+	public synchronized long append(String[] values) throws IOException {
+		final long offset = size;
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				out.write('\t');
+				size++;
+			}
+			final byte[] bytes = values[i].getBytes(StandardCharsets.UTF_8);
+			out.write(bytes);
+			size += bytes.length;
+		}
+		out.write(CRLF);
+		size += CRLF.length;
+		return offset;
+	}
+
+	/**
+	 * Reads a single row of this file. Rows can still be appended after calling this method.
+	 *
+	 * @param offset - the offset returned by {@link #append(String[])}
+	 * @return the column values of the row
+	 * @throws IOException
+	 */
+	public synchronized String[] read(long offset) throws IOException {
+		if (offset >= flushedSize) {
+			out.flush();
+			flushedSize = size;
+		}
+		if (readChannel == null) {
+			readChannel = Files.newByteChannel(path);
+		}
+		return new RF2RowReader(readChannel.position(offset), READ_BUFFER_SIZE, offset, false).next().toArray();
+	}
+
+	/**
+	 * Reads the rows at the given offsets in the order they were appended. No rows can be appended after calling this method. The file is read
+	 * sequentially, so reading many rows is as fast as reading the whole file.
+	 *
+	 * @param offsets - the offsets returned by {@link #append(String[])}
+	 * @return the rows in a sequential stream, close it when it is no longer needed.
+	 * @throws IOException
+	 */
+	public Stream<String[]> rows(long[] offsets) throws IOException {
+		synchronized (this) {
+			out.flush();
+			flushedSize = size;
+		}
+		final long[] sortedOffsets = offsets.clone();
+		Arrays.sort(sortedOffsets);
+		final RF2RowReader reader = RF2RowReader.open(path);
+		final Spliterator<String[]> spliterator = new Spliterators.AbstractSpliterator<String[]>(sortedOffsets.length, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.SIZED) {
+
+			private int next;
+
+			@Override
+			public boolean tryAdvance(Consumer<? super String[]> action) {
+				try {
+					RF2Row row;
+					while (next < sortedOffsets.length && (row = reader.next()) != null) {
+						if (row.getFileOffset() == sortedOffsets[next]) {
+							next++;
+							action.accept(row.toArray());
+							return true;
+						}
+					}
+					return false;
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+
+		};
+		return StreamSupport.stream(spliterator, false).onClose(() -> {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			synchronized (this) {
+				try {
+					out.close();
+				} finally {
+					if (readChannel != null) {
+						readChannel.close();
+					}
+				}
+			}
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+
+}
@@ -0,0 +1,565 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.PrimitiveSink;
+
+/**
+ * Reads the entries of a zip archive directly from the archive file. The central directory is read only once when the archive is opened, and
+ * each entry is read through its own {@link FileChannel} with large buffers, so several entries of the same archive can be read and inflated
+ * concurrently.
+ * <p>
+ * Paths of zip file systems (the <code>jar</code> scheme) can be read with {@link #newChannel(Path)}, the archives of these paths are opened on
+ * first access and cached until the archive file changes.
+ * </p>
+ *
+ * @since 0.4
+ */
+public final class RF2ZipArchive {
+
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+	private static final int ZIP64_EXTRA_FIELD = 0x0001;
+
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+	private static final int END_SIZE = 22;
+	private static final int ZIP64_END_SIZE = 56;
+	private static final int ZIP64_LOCATOR_SIZE = 20;
+	private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+	private static final int STORED = 0;
+	private static final int DEFLATED = 8;
+
+	private static final Cache<Path, RF2ZipArchive> ARCHIVES = CacheBuilder.newBuilder().maximumSize(16L).build();
+
+	private final Path path;
+	private final long size;
+	private final FileTime lastModifiedTime;
+	private final Map<String, Entry> entries;
+
+	private RF2ZipArchive(Path path, long size, FileTime lastModifiedTime, Map<String, Entry> entries) {
+		this.path = path;
+		this.size = size;
+		this.lastModifiedTime = lastModifiedTime;
+		this.entries = entries;
+	}
+
+	/**
+	 * Opens the zip archive at the given path by reading its central directory.
+	 *
+	 * @param path - the path of the archive file
+	 * @return
+	 * @throws IOException
+	 */
+	public static RF2ZipArchive open(Path path) throws IOException {
+		final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new RF2ZipArchive(path, attributes.size(), attributes.lastModifiedTime(), readCentralDirectory(channel));
+		}
+	}
+
+	/**
+	 * Opens a channel to read the file at the given path. Files of zip file systems are read directly from their archive with
+	 * {@link #newChannel(String)}, other files are opened with {@link Files#newByteChannel(Path, java.nio.file.OpenOption...)}.
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public static ReadableByteChannel newChannel(Path path) throws IOException {
+		final Path archivePath = getArchivePath(path);
+		if (archivePath != null) {
+			final RF2ZipArchive archive = getArchive(archivePath);
+			final String name = path.toAbsolutePath().toString().substring(1);
+			// entries not yet written to the archive file are only known by the zip file system
+			if (archive != null && archive.entries.containsKey(name)) {
+				return archive.newChannel(name);
+			}
+		}
+		return Files.newByteChannel(path);
+	}
+
+	/**
+	 * Copies the file at the given path to the given target, which must not exist yet. Files of zip file systems are read directly from their
+	 * archive with {@link #newChannel(String)}.
+	 *
+	 * @param source
+	 * @param target
+	 * @throws IOException
+	 */
+	public static void copy(Path source, Path target) throws IOException {
+		try (InputStream in = Channels.newInputStream(newChannel(source))) {
+			Files.copy(in, target);
+		}
+	}
+
+	/**
+	 * @param path
+	 * @return <code>true</code> if the given path is an entry of a zip file system that is read directly from its archive by
+	 *         {@link #newChannel(Path)}
+	 * @throws IOException
+	 */
+	public static boolean isEntry(Path path) throws IOException {
+		final Path archivePath = getArchivePath(path);
+		if (archivePath == null) {
+			return false;
+		}
+		final RF2ZipArchive archive = getArchive(archivePath);
+		return archive != null && archive.entries.containsKey(path.toAbsolutePath().toString().substring(1));
+	}
+
+	/**
+	 * Returns the zip archive at the given path. Archives are opened on first access and cached until the archive file changes, so listing the
+	 * entries of an archive and reading them through {@link #newChannel(Path)} reads its central directory only once.
+	 *
+	 * @param path - the path of the archive file
+	 * @return
+	 * @throws IOException
+	 */
+	public static RF2ZipArchive get(Path path) throws IOException {
+		final RF2ZipArchive archive = getArchive(path);
+		if (archive == null) {
+			throw new NoSuchFileException(path.toString());
+		}
+		return archive;
+	}
+
+	private static Path getArchivePath(Path path) {
+		if (!"jar".equals(path.getFileSystem().provider().getScheme())) {
+			return null;
+		}
+		// jar:<archive URI>!/<entry>
+		final String archiveUri = path.toUri().getRawSchemeSpecificPart();
+		final int separator = archiveUri.indexOf("!/");
+		if (separator < 0) {
+			return null;
+		}
+		try {
+			return Paths.get(URI.create(archiveUri.substring(0, separator)));
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private static RF2ZipArchive getArchive(Path archivePath) throws IOException {
+		if (!Files.isRegularFile(archivePath)) {
+			return null;
+		}
+		try {
+			final RF2ZipArchive archive = ARCHIVES.get(archivePath, () -> open(archivePath));
+			final BasicFileAttributes attributes = Files.readAttributes(archivePath, BasicFileAttributes.class);
+			if (archive.size == attributes.size() && archive.lastModifiedTime.equals(attributes.lastModifiedTime())) {
+				return archive;
+			}
+			final RF2ZipArchive changedArchive = open(archivePath);
+			ARCHIVES.put(archivePath, changedArchive);
+			return changedArchive;
+		} catch (ExecutionException e) {
+			Throwables.propagateIfPossible(e.getCause(), IOException.class);
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * @return the path of the archive file
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * @return the names of the entries of this archive in central directory order (directories end with <code>/</code>)
+	 */
+	public Collection<String> getEntryNames() {
+		return entries.keySet();
+	}
+
+	/**
+	 * @param name - the name of the entry without a leading <code>/</code>
+	 * @return the uncompressed size of the entry with the given name
+	 * @throws NoSuchFileException - if there is no entry with the given name
+	 */
+	public long size(String name) throws NoSuchFileException {
+		return getEntry(name).size;
+	}
+
+	/**
+	 * Identifies the given file if it is an entry of a zip archive without reading the entry itself: puts the real path, size and last
+	 * modification time of the archive file and the name of the entry into the given sink. The identity changes when the archive file changes,
+	 * but it is different for a copy of the same archive.
+	 *
+	 * @param path
+	 * @param sink
+	 * @return <code>true</code> if the identity of the entry was put into the sink, <code>false</code> if the path is not an entry of a zip
+	 *         archive file
+	 * @throws IOException
+	 * @see #putEntryContent(Path, PrimitiveSink)
+	 */
+	public static boolean putEntryIdentity(Path path, PrimitiveSink sink) throws IOException {
+		final Path archivePath = getArchivePath(path);
+		if (archivePath != null) {
+			final RF2ZipArchive archive = getArchive(archivePath);
+			final String name = path.toAbsolutePath().toString().substring(1);
+			if (archive != null && archive.entries.containsKey(name)) {
+				sink.putString(archivePath.toRealPath().toString(), StandardCharsets.UTF_8)
+					.putLong(archive.size)
+					.putLong(archive.lastModifiedTime.toMillis())
+					.putString(name, StandardCharsets.UTF_8);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Identifies the content of the given file if it is an entry of a zip archive without inflating it: puts the compression method, the CRC-32
+	 * checksum and the uncompressed size from the central directory of the archive and the compressed bytes of the entry into the given sink.
+	 * The same entry in a copied, moved or downloaded again archive has the same content, regardless of the name and location of the archive.
+	 *
+	 * @param path
+	 * @param sink
+	 * @return <code>true</code> if the content of the entry was put into the sink, <code>false</code> if the path is not an entry of a zip
+	 *         archive file
+	 * @throws IOException
+	 */
+	public static boolean putEntryContent(Path path, PrimitiveSink sink) throws IOException {
+		final Path archivePath = getArchivePath(path);
+		if (archivePath != null) {
+			final RF2ZipArchive archive = getArchive(archivePath);
+			final String name = path.toAbsolutePath().toString().substring(1);
+			if (archive != null && archive.entries.containsKey(name)) {
+				archive.putContent(archive.entries.get(name), sink);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void putContent(Entry entry, PrimitiveSink sink) throws IOException {
+		sink.putInt(entry.method)
+			.putInt(entry.crc)
+			.putLong(entry.size);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final long dataOffset = getDataOffset(channel, entry);
+			final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(DEFAULT_BUFFER_SIZE, Math.max(entry.compressedSize, 1L)));
+			for (long position = dataOffset, end = dataOffset + entry.compressedSize; position < end; position += buffer.limit()) {
+				buffer.clear();
+				if (end - position < buffer.capacity()) {
+					buffer.limit((int) (end - position));
+				}
+				readFully(channel, buffer, position);
+				sink.putBytes(buffer.flip());
+			}
+		}
+	}
+
+	/**
+	 * Opens a channel to read the uncompressed content of the entry with the given name. Each channel reads the archive file through its own
+	 * {@link FileChannel} and verifies the CRC-32 checksum of the content at the end of the entry.
+	 *
+	 * @param name - the name of the entry without a leading <code>/</code>
+	 * @return
+	 * @throws IOException
+	 */
+	public ReadableByteChannel newChannel(String name) throws IOException {
+		final Entry entry = getEntry(name);
+		final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return new EntryChannel(channel, entry, getDataOffset(channel, entry));
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private long getDataOffset(FileChannel channel, Entry entry) throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(channel, header, entry.localHeaderOffset);
+		if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+			throw new ZipException("Invalid local header of zip entry '" + entry.name + "' in " + path);
+		}
+		return entry.localHeaderOffset + LOCAL_HEADER_SIZE + Short.toUnsignedInt(header.getShort(26)) + Short.toUnsignedInt(header.getShort(28));
+	}
+
+	private Entry getEntry(String name) throws NoSuchFileException {
+		final Entry entry = entries.get(name);
+		if (entry == null) {
+			throw new NoSuchFileException(path + "!/" + name);
+		}
+		return entry;
+	}
+
+	private static Map<String, Entry> readCentralDirectory(FileChannel channel) throws IOException {
+		final long fileSize = channel.size();
+		// the end of central directory record is followed only by the archive comment
+		final int tailSize = (int) Math.min(fileSize, END_SIZE + MAX_COMMENT_SIZE);
+		final ByteBuffer tail = ByteBuffer.allocate(tailSize).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(channel, tail, fileSize - tailSize);
+		int end = tailSize - END_SIZE;
+		while (end >= 0 && tail.getInt(end) != END_SIGNATURE) {
+			end--;
+		}
+		if (end < 0) {
+			throw new ZipException("Zip end of central directory not found");
+		}
+		long entryCount = Short.toUnsignedInt(tail.getShort(end + 10));
+		long directorySize = Integer.toUnsignedLong(tail.getInt(end + 12));
+		long directoryOffset = Integer.toUnsignedLong(tail.getInt(end + 16));
+
+		final int locator = end - ZIP64_LOCATOR_SIZE;
+		if (locator >= 0 && tail.getInt(locator) == ZIP64_LOCATOR_SIGNATURE) {
+			final ByteBuffer zip64End = ByteBuffer.allocate(ZIP64_END_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, zip64End, tail.getLong(locator + 8));
+			if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+				throw new ZipException("Invalid zip64 end of central directory");
+			}
+			entryCount = zip64End.getLong(32);
+			directorySize = zip64End.getLong(40);
+			directoryOffset = zip64End.getLong(48);
+		}
+		if (directorySize > Integer.MAX_VALUE) {
+			throw new ZipException("Zip central directory is too large: " + directorySize);
+		}
+
+		final ByteBuffer directory = ByteBuffer.allocate((int) directorySize).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(channel, directory, directoryOffset);
+		final ImmutableMap.Builder<String, Entry> entries = ImmutableMap.builder();
+		int position = 0;
+		for (long i = 0L; i < entryCount; i++) {
+			if (position + CENTRAL_HEADER_SIZE > directorySize || directory.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+				throw new ZipException("Invalid zip central directory header at entry " + i);
+			}
+			final int method = Short.toUnsignedInt(directory.getShort(position + 10));
+			final int crc = directory.getInt(position + 16);
+			long compressedSize = Integer.toUnsignedLong(directory.getInt(position + 20));
+			long size = Integer.toUnsignedLong(directory.getInt(position + 24));
+			final int nameLength = Short.toUnsignedInt(directory.getShort(position + 28));
+			final int extraLength = Short.toUnsignedInt(directory.getShort(position + 30));
+			final int commentLength = Short.toUnsignedInt(directory.getShort(position + 32));
+			long localHeaderOffset = Integer.toUnsignedLong(directory.getInt(position + 42));
+			final String name = new String(directory.array(), position + CENTRAL_HEADER_SIZE, nameLength, StandardCharsets.UTF_8);
+
+			// 32-bit fields set to 0xFFFFFFFF are stored in the zip64 extra field in this order
+			int extra = position + CENTRAL_HEADER_SIZE + nameLength;
+			final int extraEnd = extra + extraLength;
+			while (extra + 4 <= extraEnd) {
+				final int id = Short.toUnsignedInt(directory.getShort(extra));
+				final int length = Short.toUnsignedInt(directory.getShort(extra + 2));
+				if (id == ZIP64_EXTRA_FIELD) {
+					int field = extra + 4;
+					if (size == 0xFFFFFFFFL) {
+						size = directory.getLong(field);
+						field += 8;
+					}
+					if (compressedSize == 0xFFFFFFFFL) {
+						compressedSize = directory.getLong(field);
+						field += 8;
+					}
+					if (localHeaderOffset == 0xFFFFFFFFL) {
+						localHeaderOffset = directory.getLong(field);
+					}
+				}
+				extra += 4 + length;
+			}
+			entries.put(name, new Entry(name, method, crc, compressedSize, size, localHeaderOffset));
+			position = extraEnd + commentLength;
+		}
+		return entries.build();
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Unexpected end of zip file");
+			}
+		}
+	}
+
+	private static final class Entry {
+
+		private final String name;
+		private final int method;
+		private final int crc;
+		private final long compressedSize;
+		private final long size;
+		private final long localHeaderOffset;
+
+		Entry(String name, int method, int crc, long compressedSize, long size, long localHeaderOffset) {
+			this.name = name;
+			this.method = method;
+			this.crc = crc;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.localHeaderOffset = localHeaderOffset;
+		}
+
+	}
+
+	/**
+	 * Reads the compressed data of an entry with positional reads into a large input buffer and inflates it directly into the caller's buffer.
+	 */
+	private static final class EntryChannel implements ReadableByteChannel {
+
+		private final FileChannel channel;
+		private final Entry entry;
+		private final Inflater inflater;
+		private final ByteBuffer input;
+		private final CRC32 crc = new CRC32();
+		private long position;
+		private final long end;
+		private long read;
+		private boolean open = true;
+
+		EntryChannel(FileChannel channel, Entry entry, long dataOffset) throws ZipException {
+			if (entry.method != STORED && entry.method != DEFLATED) {
+				throw new ZipException("Unsupported compression method " + entry.method + " of zip entry '" + entry.name + "'");
+			}
+			this.channel = channel;
+			this.entry = entry;
+			this.position = dataOffset;
+			this.end = dataOffset + entry.compressedSize;
+			this.inflater = entry.method == DEFLATED ? new Inflater(true) : null;
+			this.input = entry.method == DEFLATED ? ByteBuffer.allocate((int) Math.min(DEFAULT_BUFFER_SIZE, Math.max(entry.compressedSize, 1L))) : null;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			if (!open) {
+				throw new ClosedChannelException();
+			}
+			if (!dst.hasRemaining()) {
+				return 0;
+			}
+			final int start = dst.position();
+			final int n = inflater == null ? readStored(dst) : inflate(dst);
+			if (n < 0) {
+				if (read != entry.size || (int) crc.getValue() != entry.crc) {
+					throw new ZipException("Invalid size or CRC-32 checksum of zip entry '" + entry.name + "'");
+				}
+				return -1;
+			}
+			read += n;
+			crc.update(dst.duplicate().flip().position(start));
+			return n;
+		}
+
+		private int readStored(ByteBuffer dst) throws IOException {
+			if (position >= end) {
+				return -1;
+			}
+			final int limit = dst.limit();
+			if (end - position < dst.remaining()) {
+				dst.limit(dst.position() + (int) (end - position));
+			}
+			try {
+				final int n = channel.read(dst, position);
+				if (n < 0) {
+					throw new EOFException("Unexpected end of zip entry '" + entry.name + "'");
+				}
+				position += n;
+				return n;
+			} finally {
+				dst.limit(limit);
+			}
+		}
+
+		private int inflate(ByteBuffer dst) throws IOException {
+			try {
+				while (true) {
+					if (inflater.finished()) {
+						return -1;
+					}
+					if (inflater.needsInput()) {
+						if (position >= end) {
+							throw new EOFException("Unexpected end of zip entry '" + entry.name + "'");
+						}
+						input.clear();
+						if (end - position < input.capacity()) {
+							input.limit((int) (end - position));
+						}
+						readFully(channel, input, position);
+						position += input.limit();
+						input.flip();
+						inflater.setInput(input);
+					}
+					final int n = inflater.inflate(dst);
+					if (n > 0) {
+						return n;
+					}
+					if (inflater.needsDictionary()) {
+						throw new ZipException("Zip entry '" + entry.name + "' requires a preset dictionary");
+					}
+				}
+			} catch (DataFormatException e) {
+				throw new ZipException("Invalid compressed data of zip entry '" + entry.name + "': " + e.getMessage());
+			}
+		}
+
+		@Override
+		public boolean isOpen() {
+			return open;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (open) {
+				open = false;
+				if (inflater != null) {
+					inflater.end();
+				}
+				channel.close();
+			}
+		}
+
+	}
+
+}
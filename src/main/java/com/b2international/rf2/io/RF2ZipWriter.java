@@ -0,0 +1,543 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Writes a zip archive and compresses its entries on multiple threads. Each file entry is split into blocks that are deflated independently as
+ * raw DEFLATE streams ending on a byte boundary (with the last 32 KB of the preceding block as their dictionary), so they can be concatenated
+ * into a single standard DEFLATE stream of the entry. The CRC-32 checksums of the blocks are combined into the checksum of the entry.
+ * <p>
+ * Entries are written in the order they are added, at most a few blocks per thread are kept in memory. Compression level <code>0</code> stores
+ * the entries without compression. Archives larger than 4 GB and entries larger than 4 GB are written in zip64 format.
+ * </p>
+ * <p>
+ * If compressing or writing an entry fails, the archive is incomplete: no further entries can be added and closing the writer deletes the
+ * archive instead of writing its central directory.
+ * </p>
+ *
+ * @since 0.4
+ */
+public final class RF2ZipWriter implements Closeable {
+
+	public static final int STORE_ONLY = 0;
+	public static final int DEFAULT_COMPRESSION_LEVEL = 6;
+
+	static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+	private static final short ZIP64_EXTRA_FIELD = 0x0001;
+
+	private static final short VERSION_DEFAULT = 20;
+	private static final short VERSION_ZIP64 = 45;
+	private static final short FLAG_UTF8 = 0x0800;
+	private static final short STORED = 0;
+	private static final short DEFLATED = 8;
+	private static final int DIRECTORY_ATTRIBUTE = 0x10;
+
+	private static final long MAX_32 = 0xFFFFFFFFL;
+	private static final int MAX_16 = 0xFFFF;
+	// entries with at least this size have zip64 local headers, leaving room for the DEFLATE overhead of incompressible data
+	private static final long ZIP64_ENTRY_SIZE = 0xFF000000L;
+
+	private final Path path;
+	private final FileChannel channel;
+	private final int level;
+	private final int blockSize;
+	private final int maxPendingBlocks;
+	private final ExecutorService executor;
+	private final int dosTime;
+	private final int dosDate;
+
+	private final Deque<Part> parts = new ArrayDeque<>();
+	private final List<Entry> entries = new ArrayList<>();
+	private final Set<String> names = new HashSet<>();
+	private long position;
+	private boolean failed;
+	private boolean closed;
+
+	/**
+	 * @param path - the path of the archive to create, it must not exist
+	 * @param level - the compression level from {@link #STORE_ONLY} to 9
+	 * @throws IOException
+	 */
+	public RF2ZipWriter(Path path, int level) throws IOException {
+		this(path, level, Runtime.getRuntime().availableProcessors(), DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * @param path - the path of the archive to create, it must not exist
+	 * @param level - the compression level from {@link #STORE_ONLY} to 9
+	 * @param threads - the number of threads compressing the blocks of entries
+	 * @param blockSize - the uncompressed size of the blocks that are compressed independently
+	 * @throws IOException
+	 */
+	RF2ZipWriter(Path path, int level, int threads, int blockSize) throws IOException {
+		Preconditions.checkArgument(level >= STORE_ONLY && level <= Deflater.BEST_COMPRESSION, "Compression level must be between 0 and 9, was: %s", level);
+		Preconditions.checkArgument(threads > 0, "Number of threads must be greater than zero, was: %s", threads);
+		Preconditions.checkArgument(blockSize > 0, "Block size must be greater than zero, was: %s", blockSize);
+		this.path = path;
+		this.level = level;
+		this.blockSize = blockSize;
+		this.maxPendingBlocks = threads * 2;
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("rf2-zip-%d").setDaemon(true).build());
+		final LocalDateTime now = LocalDateTime.now();
+		this.dosTime = now.getHour() << 11 | now.getMinute() << 5 | now.getSecond() >> 1;
+		this.dosDate = Math.max(now.getYear() - 1980, 0) << 9 | now.getMonthValue() << 5 | now.getDayOfMonth();
+	}
+
+	/**
+	 * @return the path of the archive
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Adds a directory entry to the archive. Directories that were already added are ignored.
+	 *
+	 * @param name - the name of the directory without a leading <code>/</code>
+	 * @throws IOException
+	 */
+	public void putDirectory(String name) throws IOException {
+		checkNotFailed();
+		final String directoryName = name.endsWith("/") ? name : name + "/";
+		if (names.add(directoryName)) {
+			final Entry entry = new Entry(directoryName, STORED, 0L, true);
+			parts.add(new Part(entry, null, true, true));
+			drain(maxPendingBlocks);
+		}
+	}
+
+	/**
+	 * Adds the content of the given file as an entry to the archive. The file is read and compressed asynchronously, so it must not be modified
+	 * or deleted until the archive is closed.
+	 *
+	 * @param name - the name of the entry without a leading <code>/</code>
+	 * @param file - the file to add
+	 * @throws IOException
+	 */
+	public void putFile(String name, Path file) throws IOException {
+		checkNotFailed();
+		if (!names.add(name)) {
+			throw new FileAlreadyExistsException(path + "!/" + name);
+		}
+		final long size = Files.size(file);
+		final Entry entry = new Entry(name, level == STORE_ONLY ? STORED : DEFLATED, size, false);
+		long offset = 0L;
+		do {
+			final long blockOffset = offset;
+			final int length = (int) Math.min(blockSize, size - offset);
+			final boolean last = offset + length >= size;
+			// keep the number of blocks in memory bounded
+			drain(maxPendingBlocks - 1);
+			parts.add(new Part(entry, executor.submit(() -> compress(file, blockOffset, length, last)), offset == 0L, last));
+			offset += length;
+		} while (offset < size);
+	}
+
+	private Block compress(Path file, long offset, int length, boolean last) throws IOException {
+		final int dictionaryLength = level == STORE_ONLY ? 0 : (int) Math.min(DICTIONARY_SIZE, offset);
+		final byte[] input = new byte[dictionaryLength + length];
+		try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final ByteBuffer buffer = ByteBuffer.wrap(input);
+			while (buffer.hasRemaining()) {
+				if (fileChannel.read(buffer, offset - dictionaryLength + buffer.position()) < 0) {
+					throw new EOFException("File changed while adding it to zip archive: " + file);
+				}
+			}
+		}
+		final CRC32 crc = new CRC32();
+		crc.update(input, dictionaryLength, length);
+		if (level == STORE_ONLY) {
+			return new Block(input, input.length, (int) crc.getValue(), length);
+		}
+
+		final Deflater deflater = new Deflater(level, true);
+		try {
+			if (dictionaryLength > 0) {
+				deflater.setDictionary(input, 0, dictionaryLength);
+			}
+			deflater.setInput(input, dictionaryLength, length);
+			if (last) {
+				deflater.finish();
+			}
+			byte[] output = new byte[length + (length >> 12) + (length >> 14) + 64];
+			int outputLength = 0;
+			while (true) {
+				// blocks other than the last end with a sync flush, so the next block can be appended on a byte boundary
+				outputLength += deflater.deflate(output, outputLength, output.length - outputLength, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+				if (last ? deflater.finished() : outputLength < output.length) {
+					return new Block(output, outputLength, (int) crc.getValue(), length);
+				}
+				if (outputLength == output.length) {
+					output = Arrays.copyOf(output, output.length * 2);
+				}
+			}
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Writes the parts at the head of the queue until at most the given number of parts remain.
+	 */
+	private void drain(int maxParts) throws IOException {
+		try {
+			while (parts.size() > Math.max(maxParts, 0)) {
+				final Part part = parts.poll();
+				final Entry entry = part.entry;
+				if (part.first) {
+					writeLocalHeader(entry);
+				}
+				if (part.block != null) {
+					final Block block = get(part.block);
+					write(ByteBuffer.wrap(block.data, 0, block.dataLength));
+					entry.crc = entry.blocks == 0 ? block.crc : crc32Combine(entry.crc, block.crc, block.length);
+					entry.compressedSize += block.dataLength;
+					entry.blocks++;
+				}
+				if (part.last) {
+					completeLocalHeader(entry);
+					entries.add(entry);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			// the part has been removed from the queue, the archive cannot be completed anymore
+			failed = true;
+			throw e;
+		}
+	}
+
+	private void checkNotFailed() {
+		Preconditions.checkState(!failed, "Writing zip archive '%s' failed, no more entries can be added", path);
+	}
+
+	private static Block get(Future<Block> block) throws IOException {
+		try {
+			return block.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while compressing zip entries");
+		} catch (ExecutionException e) {
+			Throwables.propagateIfPossible(e.getCause(), IOException.class);
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private void writeLocalHeader(Entry entry) throws IOException {
+		final boolean zip64 = entry.size >= ZIP64_ENTRY_SIZE;
+		final ByteBuffer header = allocate(30 + entry.name.length + (zip64 ? 20 : 0));
+		header.putInt(LOCAL_HEADER_SIGNATURE)
+			.putShort(zip64 ? VERSION_ZIP64 : VERSION_DEFAULT)
+			.putShort(FLAG_UTF8)
+			.putShort(entry.method)
+			.putShort((short) dosTime)
+			.putShort((short) dosDate)
+			// the checksum and the sizes are written when the entry is complete
+			.putInt(0)
+			.putInt(zip64 ? -1 : 0)
+			.putInt(zip64 ? -1 : 0)
+			.putShort((short) entry.name.length)
+			.putShort((short) (zip64 ? 20 : 0))
+			.put(entry.name);
+		if (zip64) {
+			header.putShort(ZIP64_EXTRA_FIELD).putShort((short) 16).putLong(0L).putLong(0L);
+		}
+		entry.localHeaderOffset = position;
+		entry.zip64LocalHeader = zip64;
+		write(header.flip());
+	}
+
+	private void completeLocalHeader(Entry entry) throws IOException {
+		if (entry.zip64LocalHeader) {
+			writeAt(allocate(4).putInt(entry.crc).flip(), entry.localHeaderOffset + 14);
+			writeAt(allocate(16).putLong(entry.size).putLong(entry.compressedSize).flip(), entry.localHeaderOffset + 30 + entry.name.length + 4);
+		} else {
+			Preconditions.checkState(entry.compressedSize < MAX_32, "Compressed size of zip entry '%s' exceeds its local header", entry.nameString());
+			writeAt(allocate(12).putInt(entry.crc).putInt((int) entry.compressedSize).putInt((int) entry.size).flip(), entry.localHeaderOffset + 14);
+		}
+	}
+
+	private void writeCentralDirectory() throws IOException {
+		final long directoryOffset = position;
+		for (Entry entry : entries) {
+			final boolean zip64Size = entry.size >= MAX_32 || entry.compressedSize >= MAX_32;
+			final boolean zip64Offset = entry.localHeaderOffset >= MAX_32;
+			final int extraLength = zip64Size || zip64Offset ? 4 + (zip64Size ? 16 : 0) + (zip64Offset ? 8 : 0) : 0;
+			final ByteBuffer header = allocate(46 + entry.name.length + extraLength);
+			header.putInt(CENTRAL_HEADER_SIGNATURE)
+				.putShort(extraLength > 0 || entry.zip64LocalHeader ? VERSION_ZIP64 : VERSION_DEFAULT)
+				.putShort(extraLength > 0 || entry.zip64LocalHeader ? VERSION_ZIP64 : VERSION_DEFAULT)
+				.putShort(FLAG_UTF8)
+				.putShort(entry.method)
+				.putShort((short) dosTime)
+				.putShort((short) dosDate)
+				.putInt(entry.crc)
+				.putInt(zip64Size ? -1 : (int) entry.compressedSize)
+				.putInt(zip64Size ? -1 : (int) entry.size)
+				.putShort((short) entry.name.length)
+				.putShort((short) extraLength)
+				// comment length, disk number, internal attributes
+				.putShort((short) 0)
+				.putShort((short) 0)
+				.putShort((short) 0)
+				.putInt(entry.directory ? DIRECTORY_ATTRIBUTE : 0)
+				.putInt(zip64Offset ? -1 : (int) entry.localHeaderOffset)
+				.put(entry.name);
+			if (extraLength > 0) {
+				header.putShort(ZIP64_EXTRA_FIELD).putShort((short) (extraLength - 4));
+				if (zip64Size) {
+					header.putLong(entry.size).putLong(entry.compressedSize);
+				}
+				if (zip64Offset) {
+					header.putLong(entry.localHeaderOffset);
+				}
+			}
+			write(header.flip());
+		}
+		final long directorySize = position - directoryOffset;
+
+		final boolean zip64 = entries.size() >= MAX_16 || directorySize >= MAX_32 || directoryOffset >= MAX_32;
+		if (zip64) {
+			final long zip64EndOffset = position;
+			write(allocate(56 + 20)
+				.putInt(ZIP64_END_SIGNATURE)
+				.putLong(44L)
+				.putShort(VERSION_ZIP64)
+				.putShort(VERSION_ZIP64)
+				.putInt(0)
+				.putInt(0)
+				.putLong(entries.size())
+				.putLong(entries.size())
+				.putLong(directorySize)
+				.putLong(directoryOffset)
+				.putInt(ZIP64_LOCATOR_SIGNATURE)
+				.putInt(0)
+				.putLong(zip64EndOffset)
+				.putInt(1)
+				.flip());
+		}
+		write(allocate(22)
+			.putInt(END_SIGNATURE)
+			.putShort((short) 0)
+			.putShort((short) 0)
+			.putShort((short) Math.min(entries.size(), MAX_16))
+			.putShort((short) Math.min(entries.size(), MAX_16))
+			.putInt((int) Math.min(directorySize, MAX_32))
+			.putInt((int) Math.min(directoryOffset, MAX_32))
+			.putShort((short) 0)
+			.flip());
+	}
+
+	private static ByteBuffer allocate(int capacity) {
+		return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private void write(ByteBuffer buffer) throws IOException {
+		final int length = buffer.remaining();
+		writeAt(buffer, position);
+		position += length;
+	}
+
+	private void writeAt(ByteBuffer buffer, long offset) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, offset + buffer.position());
+		}
+	}
+
+	/**
+	 * Writes the remaining entries and the central directory of the archive. If writing any of the entries failed, the incomplete archive is
+	 * deleted instead.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		boolean complete = false;
+		try {
+			try (FileChannel channel = this.channel) {
+				if (!failed) {
+					drain(0);
+					writeCentralDirectory();
+					complete = true;
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+		} finally {
+			if (!complete) {
+				Files.deleteIfExists(path);
+			}
+		}
+	}
+
+	/**
+	 * Computes the CRC-32 checksum of the concatenation of two byte sequences from their checksums and the length of the second sequence (see
+	 * <code>crc32_combine</code> of zlib).
+	 */
+	static int crc32Combine(int crc1, int crc2, long length2) {
+		if (length2 <= 0L) {
+			return crc1;
+		}
+		final long[] even = new long[32];
+		final long[] odd = new long[32];
+		// the operator for one zero bit
+		odd[0] = 0xEDB88320L;
+		long row = 1L;
+		for (int n = 1; n < 32; n++) {
+			odd[n] = row;
+			row <<= 1;
+		}
+		// the operators for two and four zero bits
+		gf2MatrixSquare(even, odd);
+		gf2MatrixSquare(odd, even);
+
+		// apply length2 zero bytes to crc1
+		long crc = Integer.toUnsignedLong(crc1);
+		long length = length2;
+		do {
+			gf2MatrixSquare(even, odd);
+			if ((length & 1L) != 0L) {
+				crc = gf2MatrixTimes(even, crc);
+			}
+			length >>= 1;
+			if (length == 0L) {
+				break;
+			}
+			gf2MatrixSquare(odd, even);
+			if ((length & 1L) != 0L) {
+				crc = gf2MatrixTimes(odd, crc);
+			}
+			length >>= 1;
+		} while (length != 0L);
+		return (int) crc ^ crc2;
+	}
+
+	private static long gf2MatrixTimes(long[] matrix, long vector) {
+		long sum = 0L;
+		for (int i = 0; vector != 0L; i++, vector >>>= 1) {
+			if ((vector & 1L) != 0L) {
+				sum ^= matrix[i];
+			}
+		}
+		return sum;
+	}
+
+	private static void gf2MatrixSquare(long[] square, long[] matrix) {
+		for (int n = 0; n < 32; n++) {
+			square[n] = gf2MatrixTimes(matrix, matrix[n]);
+		}
+	}
+
+	private static final class Entry {
+
+		private final byte[] name;
+		private final short method;
+		private final long size;
+		private final boolean directory;
+		private long localHeaderOffset;
+		private boolean zip64LocalHeader;
+		private int crc;
+		private long compressedSize;
+		private int blocks;
+
+		Entry(String name, short method, long size, boolean directory) {
+			this.name = name.getBytes(StandardCharsets.UTF_8);
+			Preconditions.checkArgument(this.name.length <= MAX_16, "Zip entry name is too long: %s", name);
+			this.method = method;
+			this.size = size;
+			this.directory = directory;
+		}
+
+		String nameString() {
+			return new String(name, StandardCharsets.UTF_8);
+		}
+
+	}
+
+	private static final class Part {
+
+		private final Entry entry;
+		private final Future<Block> block;
+		private final boolean first;
+		private final boolean last;
+
+		Part(Entry entry, Future<Block> block, boolean first, boolean last) {
+			this.entry = entry;
+			this.block = block;
+			this.first = first;
+			this.last = last;
+		}
+
+	}
+
+	private static final class Block {
+
+		private final byte[] data;
+		private final int dataLength;
+		private final int crc;
+		private final int length;
+
+		Block(byte[] data, int dataLength, int crc, int length) {
+			this.data = data;
+			this.dataLength = dataLength;
+			this.crc = crc;
+			this.length = length;
+		}
+
+	}
+
+}
@@ -16,28 +16,51 @@
 package com.b2international.rf2.model;
 
 import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.function.LongSupplier;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import com.b2international.rf2.RF2CreateContext;
+import com.b2international.rf2.RF2DiffContext;
 import com.b2international.rf2.RF2TransformContext;
 import com.b2international.rf2.check.RF2IssueAcceptor;
 import com.b2international.rf2.console.Console;
+import com.b2international.rf2.index.RF2ComponentIndex;
+import com.b2international.rf2.index.RF2RowFingerprint;
+import com.b2international.rf2.io.RF2ColumnarCache;
+import com.b2international.rf2.io.RF2Row;
+import com.b2international.rf2.io.RF2RowPartitioner;
+import com.b2international.rf2.io.RF2RowReader;
+import com.b2international.rf2.io.RF2RowSorter;
+import com.b2international.rf2.io.RF2RowSpliterator;
+import com.b2international.rf2.io.RF2SpillFile;
+import com.b2international.rf2.io.RF2ZipArchive;
 import com.b2international.rf2.naming.RF2ContentFileName;
 import com.b2international.rf2.naming.RF2FileName;
 import com.b2international.rf2.naming.file.RF2ContentSubType;
@@ -45,18 +68,16 @@ import com.b2international.rf2.naming.file.RF2ContentType;
 import com.b2international.rf2.naming.file.RF2VersionDate;
 import com.b2international.rf2.spec.RF2ContentFileSpecification;
 import com.b2international.rf2.spec.RF2Filter;
-import com.b2international.rf2.validation.RF2ColumnValidator;
+import com.b2international.rf2.validation.RF2DuplicateKeyCheck;
+import com.b2international.rf2.validation.RF2ValidationPlan;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ComparisonChain;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Ordering;
-import com.google.common.hash.Hashing;
-
-import groovy.lang.Binding;
-import groovy.lang.Script;
+import com.google.common.io.Closer;
 
 /**
  * @since 0.1
@@ -68,6 +89,37 @@ public final class RF2ContentFile extends RF2File {
         		.compare(left[0], right[0]) // ID second
         		.result();
     
+    private static final Comparator<? super String[]> ID_ROW_COMPARATOR = (left, right) -> ComparisonChain.start()
+    		.compare(left[0], right[0]) // ID first
+    		.compare(left[1], right[1]) // effectiveTime second
+    		.result();
+    
+    private static final Comparator<? super String[]> NUMERIC_ID_ROW_COMPARATOR = (left, right) -> ComparisonChain.start()
+    		.compare(left[0].length(), right[0].length()) // numeric order of SCTIDs, UUIDs have the same length
+    		.compare(left[0], right[0])
+    		.compare(left[1], right[1])
+    		.result();
+    
+    // orders of already sorted files that can be compared without sorting them first, the order of sortedRows() comes first
+    private static final List<Comparator<? super String[]>> SORTED_ROW_ORDERS = ImmutableList.of(ROW_COMPARATOR, NUMERIC_ID_ROW_COMPARATOR, ID_ROW_COMPARATOR);
+    
+    // the order of reported changes, the ROW_COMPARATOR order of the changed rows that follow the change (+ or -) column
+    private static final Comparator<? super String[]> CHANGE_COMPARATOR = (left, right) -> ComparisonChain.start()
+    		.compare(left[2], right[2]) // effectiveTime first
+    		.compare(left[1], right[1]) // ID second
+    		.result();
+    
+    private static final int HEADER_BUFFER_SIZE = 8 * 1024;
+    
+    // estimated size of decoded rows in memory compared to their size in the file
+    private static final int DIFF_ROW_EXPANSION = 6;
+    private static final int MAX_DIFF_BUCKETS = 256;
+    // buffer size of the change files of the buckets, all of them are read at the same time
+    private static final int CHANGE_BUFFER_SIZE = 64 * 1024;
+    
+    // the estimated size of a component index is the size of its sources divided by this value
+    private static final int INDEX_SIZE_DIVISOR = 2;
+    
 	private final RF2ContentFileSpecification specification;
     private String[] header;
 
@@ -86,8 +138,9 @@ public final class RF2ContentFile extends RF2File {
         if (!path.toString().endsWith(TXT) || !Files.exists(path)) {
             return null;
         }
-        try (Stream<String> line = Files.lines(path)) {
-            return line.findFirst().orElse("N/A").split(TAB);
+        try (RF2RowReader reader = RF2RowReader.open(path, HEADER_BUFFER_SIZE)) {
+            final RF2Row headerRow = reader.next();
+            return headerRow == null ? new String[] { "N/A" } : headerRow.toArray();
         } catch (IOException e) {
             throw new RuntimeException("Couldn't extract RF2 file header from path: " + path, e);
         }
@@ -102,6 +155,14 @@ public final class RF2ContentFile extends RF2File {
                 .orElse("Unknown");
     }
 
+    /**
+     * @return the specification this file was recognized with
+     * @since 0.4
+     */
+    public RF2ContentFileSpecification getSpecification() {
+        return specification;
+    }
+
     @Override
     public void visit(Consumer<RF2File> visitor) {
         visitor.accept(this);
@@ -113,6 +174,19 @@ public final class RF2ContentFile extends RF2File {
 
     @Override
     public void check(RF2IssueAcceptor acceptor) throws IOException {
+        check(acceptor, RF2RowSorter.getDefaultMemoryBudget());
+    }
+
+    /**
+     * Checks this file like {@link #check(RF2IssueAcceptor)}, detecting duplicate keys with the given memory budget.
+     * 
+     * @param acceptor
+     * @param memoryBudget - the number of bytes the keys of the rows may occupy in memory before falling back to sorting them
+     * @throws IOException
+     * @see RF2DuplicateKeyCheck
+     * @since 0.4
+     */
+    public void check(RF2IssueAcceptor acceptor, long memoryBudget) throws IOException {
         super.check(acceptor);
         if (isDataFile()) {
             // check RF2 header
@@ -124,25 +198,21 @@ public final class RF2ContentFile extends RF2File {
                 return;
             }
 
-            // assign validators to RF2 columns
-            final Map<Integer, RF2ColumnValidator> validatorsByIndex = new HashMap<>(actualHeader.length);
-            for (int i = 0; i < actualHeader.length; i++) {
-                final String columnHeader = actualHeader[i];
-                final RF2ColumnValidator validator = RF2ColumnValidator.VALIDATORS.get(columnHeader);
-                if (validator != null) {
-                    validatorsByIndex.put(i, validator);
-                } else {
-                    acceptor.warn("No validator is registered for column header '%s'.", columnHeader);
-                    validatorsByIndex.put(i, RF2ColumnValidator.NOOP);
-                }
+            // compile the validators of the RF2 columns once, then validate each row in RF2 content file
+            final RF2ValidationPlan validationPlan = RF2ValidationPlan.compile(this, actualHeader, acceptor);
+            // keys are collected in the same pass, duplicates are reported after it
+            final Optional<RF2DuplicateKeyCheck> duplicateKeyCheck = RF2DuplicateKeyCheck.compile(this, actualHeader, memoryBudget);
+            try (Stream<RF2Row> rows = rowSlicesParallel()) {
+            	rows.forEach(row -> {
+            		validationPlan.validate(row, acceptor);
+            		duplicateKeyCheck.ifPresent(check -> check.add(row));
+            	});
             }
-            // validate each row in RF2 content file
-
-            rowsParallel().forEach(row -> {
-                for (int i = 0; i < row.length; i++) {
-                    validatorsByIndex.get(i).check(this, actualHeader[i], row[i], acceptor);
-                }
-            });
+            if (duplicateKeyCheck.isPresent()) {
+            	duplicateKeyCheck.get().report(acceptor);
+            }
+            // rows read in parallel chunks only know their file offset
+            acceptor.resolveLineNumbers();
         }
     }
 
@@ -153,39 +223,22 @@ public final class RF2ContentFile extends RF2File {
     			createDataFile(context);
     		} else {
     			final Ordering<RF2VersionDate> ordering = Ordering.natural().nullsFirst();
-    			final AtomicReference<RF2FileName> matchingSourceFile = new AtomicReference<>();
-    			final AtomicReference<RF2VersionDate> maxVersionDate = new AtomicReference<>();
-    			context.getSources().forEach(source -> {
-    				try {
-    					source.visit(file -> {
-    						if (getType().equals(file.getType())) {
-    							final RF2FileName rf2FileName = file.getRF2FileName();
-    							final RF2VersionDate newMaxVersionDate = ordering.max(maxVersionDate.get(), rf2FileName.getElement(RF2VersionDate.class).orElse(null));
-    							if (newMaxVersionDate != maxVersionDate.get()) {
-    								matchingSourceFile.set(rf2FileName);
-    								maxVersionDate.set(newMaxVersionDate);
-    							}
-    						}
-    					});
-    				} catch (IOException e) {
-    					throw new RuntimeException(e);
+    			RF2File matchingSourceFile = null;
+    			RF2VersionDate maxVersionDate = null;
+    			for (RF2File file : context.getSourceCatalog().getFiles()) {
+    				if (getType().equals(file.getType())) {
+    					final RF2VersionDate newMaxVersionDate = ordering.max(maxVersionDate, file.getRF2FileName().getElement(RF2VersionDate.class).orElse(null));
+    					if (newMaxVersionDate != maxVersionDate) {
+    						matchingSourceFile = file;
+    						maxVersionDate = newMaxVersionDate;
+    					}
     				}
-    			});
+    			}
     			
-    			if (matchingSourceFile.get() == null) {
+    			if (matchingSourceFile == null) {
     				Files.createFile(getPath());
     			} else {
-    				for (RF2File source : context.getSources()) {
-    					source.visit(file -> {
-    						if (matchingSourceFile.get().equals(file.getRF2FileName())) {
-    							try {
-    								Files.copy(file.getPath(), getPath());
-    							} catch (IOException e) {
-    								throw new RuntimeException(e);
-    							}
-    						}
-    					});
-    				}
+    				RF2ZipArchive.copy(matchingSourceFile.getPath(), getPath());
     			}
     		}
     	});
@@ -195,114 +248,254 @@ public final class RF2ContentFile extends RF2File {
     public void transform(RF2TransformContext context) throws IOException {
     	final boolean isDataFile = isDataFile();
     	context.task(isDataFile ? "Transforming '%s'" : "Copying '%s'", getPath()).run(() -> {
-    		final Script compiledScript = context.getCompiledScript();
 	        final RF2File contentFile = getRF2FileName().createRF2File(context.getParent(), context.getSpecification());
 
 	        if (isDataFile) {
-	            int numberOfModifiedRows = 0;
-	            int numberOfFilteredRows = 0;
-	            int numberOfTotalRows = 0;
-	            try (BufferedWriter writer = Files.newBufferedWriter(contentFile.getPath(), StandardOpenOption.CREATE_NEW)) {
-	                writer.write(newLine(getHeader()));
-
+	            final String[] header = getHeader();
+	            final int threads = context.isParallel() ? Runtime.getRuntime().availableProcessors() : 1;
+	            // each worker runs its own instance of the script or rules compiled for the header of this file
+	            try (RF2TransformExecutor executor = new RF2TransformExecutor(this, header, context.getTransformation(), threads);
+	            		Stream<String[]> rows = rows(context.getColumnarCache());
+	            		BufferedWriter writer = Files.newBufferedWriter(contentFile.getPath(), StandardOpenOption.CREATE_NEW)) {
+	                writeLine(writer, header);
 	                // In case of data file run the script on source
-	                for (String[] line : (Iterable<String[]>) rows()::iterator) {
-
-	                    final Map<String, Object> params = Maps.newHashMap();
-	                    params.put("_file", this);
-
-	                    final String[] header = getHeader();
-	                    if (header.length != line.length) {
-	                    	context.warn("Incorrect number of columns in line: %s", Arrays.toString(line));
-	                    	try {
-	                    		// just write the line back as is
-	                            writer.write(newLine(line));
-	                        } catch (IOException e) {
-	                            throw new RuntimeException(e);
-	                        }
-	                    	continue;
-	                    }
-	                    
-	                    for (int i = 0; i < line.length; i++) {
-                    		params.put(header[i], line[i]);
-	                    }
-
-	                    final Binding binding = new Binding(params);
-	                    compiledScript.setBinding(binding);
-	                    final Object returnValue = compiledScript.run();
-
-	                    final boolean include = !(returnValue instanceof Boolean) || (boolean) returnValue;
-	                    if (include) {
-
-	                        final String[] newDataLine = new String[header.length];
-	                        for (int i = 0; i < header.length; i++) {
-	                        	Object newValue = params.get(header[i]);
-	                            newDataLine[i] = newValue == null ? "" : String.valueOf(newValue);
-	                        }
-	                        if (!Arrays.equals(newDataLine, line)) {
-	                            numberOfModifiedRows++;
-	                        }
-
-
-	                        try {
-	                            writer.write(newLine(newDataLine));
-	                        } catch (IOException e) {
-	                            throw new RuntimeException(e);
-	                        }
-	                    } else {
-	                        numberOfFilteredRows++;
-	                    }
-	                    numberOfTotalRows++;
-	                }
-	            }
-	            context.log("Total lines: '%s'", numberOfTotalRows);
+	                executor.transform(rows::iterator, writer, context);
 
-	            if (numberOfFilteredRows !=0) {
-                    context.log("Excluded lines: '%s'", numberOfFilteredRows);
-                }
+	                context.log("Total lines: '%s'", executor.getNumberOfTotalRows());
 
-	            if (numberOfModifiedRows !=0) {
-                    context.log("Modified lines: '%s'", numberOfModifiedRows);
-                }
+	                if (executor.getNumberOfFilteredRows() != 0) {
+	                    context.log("Excluded lines: '%s'", executor.getNumberOfFilteredRows());
+	                }
+
+	                if (executor.getNumberOfModifiedRows() != 0) {
+	                    context.log("Modified lines: '%s'", executor.getNumberOfModifiedRows());
+	                }
+	            }
 
 	        } else {
-	            Files.copy(getPath(), contentFile.getPath());
+	            RF2ZipArchive.copy(getPath(), contentFile.getPath());
 	        }    		
     	});
     }
     
     @Override
-    public void diff(RF2File other, Console console) throws IOException {
+    public void diff(RF2File other, RF2DiffContext context) throws IOException {
+    	diff(other, context, RF2RowSorter.getDefaultMemoryBudget());
+    }
+    
+    /**
+     * Compares this file against the given other file. Files that are already sorted the same way are merged as they are. Unsorted snapshot files
+     * that do not fit into the given memory budget are partitioned by ID and compared bucket by bucket in parallel, any other files are sorted
+     * first. Changes are always reported sorted by effectiveTime then by ID, regardless of how the files were compared.
+     * 
+     * @param other
+     * @param context
+     * @param memoryBudget - the estimated number of bytes the diff may hold in memory
+     * @throws IOException
+     * @see #diff(RF2File, RF2DiffContext)
+     */
+    public void diff(RF2File other, RF2DiffContext context, long memoryBudget) throws IOException {
     	Preconditions.checkArgument(other instanceof RF2ContentFile, "Cannot compare non-content RF2 file '%s' with '%s'", other.getPath(), getPath());
     	RF2ContentFile otherContentFile = (RF2ContentFile) other;
     	Preconditions.checkArgument(Arrays.equals(getHeader(), otherContentFile.getHeader()), "Cannot compare content files with different headers: '%s' vs '%s'", getHeader(), otherContentFile.getHeader());
-    	Iterator<String[]> compareRows = sortedRows().iterator();
-    	Iterator<String[]> baseRows = otherContentFile.sortedRows().iterator();
-
-    	console.log("%s -> %s", getRF2FileName(), other.getRF2FileName());
+    	context.log("%s -> %s", getRF2FileName(), otherContentFile.getRF2FileName());
+    	
+    	final Console rowConsole = context.indent(2);
+    	final BiConsumer<String, String[]> changes = (change, row) -> rowConsole.log(change + "%s", line(row));
     	
-    	Console rowConsole = console.indent(2);
+    	final Comparator<? super String[]> sortOrder = getCommonSortOrder(otherContentFile);
+    	if (sortOrder != null) {
+    		// both files are already sorted the same way, merge them as they are
+    		if (sortOrder == ROW_COMPARATOR) {
+    			try (Stream<String[]> compareRowStream = rows(context.getColumnarCache()); Stream<String[]> baseRowStream = otherContentFile.rows(context.getColumnarCache())) {
+    				diff(compareRowStream.iterator(), baseRowStream.iterator(), sortOrder, changes);
+    			}
+    		} else {
+    			diffSortedById(otherContentFile, context, sortOrder, memoryBudget, changes);
+    		}
+    		return;
+    	}
     	
+    	final int bucketCount = isSnapshot() && otherContentFile.isSnapshot() ? getDiffBucketCount(otherContentFile, memoryBudget) : 1;
+    	if (bucketCount > 1) {
+    		diffPartitioned(otherContentFile, bucketCount, changes);
+    	} else {
+    		try (Stream<String[]> compareRowStream = sortedRows(memoryBudget, context.getColumnarCache());
+    				Stream<String[]> baseRowStream = otherContentFile.sortedRows(memoryBudget, context.getColumnarCache())) {
+    			diff(compareRowStream.iterator(), baseRowStream.iterator(), ROW_COMPARATOR, changes);
+    		}
+    	}
+    }
+    
+    /**
+     * @return the first of the {@link #SORTED_ROW_ORDERS} that both this and the other file are sorted by or <code>null</code> if there is no such order.
+     */
+    private Comparator<? super String[]> getCommonSortOrder(RF2ContentFile other) throws IOException {
+    	final boolean[] sorted = getSortedOrders();
+    	for (int i = 0; i < sorted.length; i++) {
+    		if (sorted[i]) {
+    			final boolean[] otherSorted = other.getSortedOrders();
+    			for (int j = i; j < sorted.length; j++) {
+    				if (sorted[j] && otherSorted[j]) {
+    					return SORTED_ROW_ORDERS.get(j);
+    				}
+    			}
+    			return null;
+    		}
+    	}
+    	return null;
+    }
+    
+    /**
+     * Reads the ID and effectiveTime columns of this file to check which of the {@link #SORTED_ROW_ORDERS} its rows are already sorted by. Reading
+     * stops as soon as the rows are out of order in all of them.
+     * 
+     * @return whether the rows are sorted by the order at the same index of {@link #SORTED_ROW_ORDERS}, rows with the same ID and effectiveTime
+     *         may follow each other in any order
+     * @throws IOException
+     */
+    private boolean[] getSortedOrders() throws IOException {
+    	final boolean[] sorted = new boolean[SORTED_ROW_ORDERS.size()];
+    	Arrays.fill(sorted, true);
+    	int remaining = sorted.length;
+    	try (RF2RowReader reader = rowReader()) {
+    		String[] previous = null;
+    		RF2Row row;
+    		while (remaining > 0 && (row = reader.next()) != null) {
+    			if (row.getColumnCount() < 2) {
+    				// not an RF2 data row, let the sort report it
+    				Arrays.fill(sorted, false);
+    				break;
+    			}
+    			final String[] key = { row.get(0), row.get(1) };
+    			if (previous != null) {
+    				for (int i = 0; i < sorted.length; i++) {
+    					if (sorted[i] && SORTED_ROW_ORDERS.get(i).compare(previous, key) > 0) {
+    						sorted[i] = false;
+    						remaining--;
+    					}
+    				}
+    			}
+    			previous = key;
+    		}
+    	}
+    	return sorted;
+    }
+    
+    private boolean isSnapshot() {
+    	return getRF2FileName().getElement(RF2ContentSubType.class).map(RF2ContentSubType::isSnapshot).orElse(false);
+    }
+    
+    /**
+     * @return the number of buckets to partition this and the other file into, so that the rows of a bucket of both files fit into the part of the
+     *         memory budget available for a worker thread, or <code>1</code> if the files fit into the memory budget as they are.
+     */
+    private int getDiffBucketCount(RF2ContentFile other, long memoryBudget) throws IOException {
+    	final int parallelism = ForkJoinPool.getCommonPoolParallelism();
+    	final long bucketBudget = Math.max(1L, memoryBudget / parallelism);
+    	final long estimatedSize = (Files.size(getPath()) + Files.size(other.getPath())) * DIFF_ROW_EXPANSION;
+    	final long bucketCount = (estimatedSize + bucketBudget - 1) / bucketBudget;
+    	if (bucketCount <= 1) {
+    		return 1;
+    	}
+    	return (int) Math.min(MAX_DIFF_BUCKETS, Math.max(bucketCount, parallelism));
+    }
+    
+    /**
+     * Merges both files sorted by ID, then sorts their changes by effectiveTime then by ID, so they are reported in the same order as the changes
+     * of sorted files. Changes are usually much fewer than the rows of the files, the sort keeps them in memory if they fit into the given budget.
+     */
+    private void diffSortedById(RF2ContentFile other, RF2DiffContext context, Comparator<? super String[]> sortOrder, long memoryBudget, BiConsumer<String, String[]> changes) throws IOException {
+    	final Path changeFile = Files.createTempFile("rf2-changes", ".txt");
+    	try {
+    		try (Stream<String[]> compareRowStream = rows(context.getColumnarCache()); 
+    				Stream<String[]> baseRowStream = other.rows(context.getColumnarCache());
+    				RowChanges fileChanges = new RowChanges(changeFile)) {
+    			diff(compareRowStream.iterator(), baseRowStream.iterator(), sortOrder, fileChanges);
+    		}
+    		// the sort is stable, so the changes of rows with the same ID and effectiveTime keep their order
+    		try (Stream<String[]> sortedChanges = new RF2RowSorter(CHANGE_COMPARATOR, memoryBudget).sort(RF2RowReader.open(changeFile))) {
+    			sortedChanges.forEach(values -> changes.accept(values[0], Arrays.copyOfRange(values, 1, values.length)));
+    		} catch (UncheckedIOException e) {
+    			throw e.getCause();
+    		}
+    	} finally {
+    		Files.deleteIfExists(changeFile);
+    	}
+    }
+    
+    /**
+     * Partitions both files by the hash of their ID column and compares the buckets in parallel. All versions of a component end up in the same
+     * bucket, so each bucket can be sorted and compared on its own. The changes of each bucket are spilled to a temporary file sorted by
+     * effectiveTime then by ID, and the change files of all buckets are merged in the same order once all buckets have been compared, so only the
+     * rows of the buckets being compared and the current change of each bucket are held in memory.
+     */
+    private void diffPartitioned(RF2ContentFile other, int bucketCount, BiConsumer<String, String[]> changes) throws IOException {
+    	final RF2RowPartitioner partitioner = new RF2RowPartitioner(0, bucketCount, null);
+    	final List<Path> compareBuckets = partitioner.partition(rowReader());
+    	try {
+    		final List<Path> baseBuckets = partitioner.partition(other.rowReader());
+    		final List<Path> changeBuckets = Collections.synchronizedList(new ArrayList<>());
+    		try {
+    			final List<Path> bucketChanges = IntStream.range(0, bucketCount)
+    				.parallel()
+    				.mapToObj(bucket -> diffBucket(compareBuckets.get(bucket), baseBuckets.get(bucket), changeBuckets))
+    				.collect(Collectors.toList());
+    			RF2RowPartitioner.delete(compareBuckets);
+    			RF2RowPartitioner.delete(baseBuckets);
+    			RowChanges.merge(bucketChanges, changes);
+    		} catch (UncheckedIOException e) {
+    			throw e.getCause();
+    		} finally {
+    			RF2RowPartitioner.delete(baseBuckets);
+    			RF2RowPartitioner.delete(changeBuckets);
+    		}
+    	} finally {
+    		RF2RowPartitioner.delete(compareBuckets);
+    	}
+    }
+    
+    /**
+     * @return the file of the changes between the given buckets, which is also added to the given list of change files to delete
+     */
+    private Path diffBucket(Path compareBucket, Path baseBucket, List<Path> changeBuckets) {
+    	try (Stream<String[]> compareRowStream = RF2RowReader.open(compareBucket).rows(); Stream<String[]> baseRowStream = RF2RowReader.open(baseBucket).rows()) {
+    		final Path changeBucket = Files.createTempFile("rf2-changes", ".txt");
+    		changeBuckets.add(changeBucket);
+    		try (RowChanges bucketChanges = new RowChanges(changeBucket)) {
+    			diff(compareRowStream.sorted(ROW_COMPARATOR).iterator(), baseRowStream.sorted(ROW_COMPARATOR).iterator(), ROW_COMPARATOR, bucketChanges);
+    		}
+    		return changeBucket;
+    	} catch (IOException e) {
+    		throw new UncheckedIOException(e);
+    	}
+    }
+    
+    /**
+     * Compares two row iterators sorted by the given order and reports the rows missing from the base rows with <code>+</code> and the rows
+     * missing from the compare rows with <code>-</code> to the given change consumer.
+     */
+    private static void diff(Iterator<String[]> compareRows, Iterator<String[]> baseRows, Comparator<? super String[]> order, BiConsumer<String, String[]> changes) {
     	// since both streams are sorted, we can compare them line by line by iterating over both at the same time
     	String[] compareRow = compareRows.hasNext() ? compareRows.next() : null;
     	String[] baseRow = baseRows.hasNext() ? baseRows.next() : null;
     	while (compareRow != null && baseRow != null) {
     		if (!Arrays.equals(compareRow, baseRow)) {
     			// not equal lines
-    			int compare = ROW_COMPARATOR.compare(compareRow, baseRow);
+    			int compare = order.compare(compareRow, baseRow);
     			if (compare == 0) {
     				// same ID, effectiveTime, but different value somewhere, register both as +/-
-    				rowConsole.log("-%s", line(baseRow));
-    				rowConsole.log("+%s", line(compareRow));
+    				changes.accept("-", baseRow);
+    				changes.accept("+", compareRow);
     				baseRow = baseRows.hasNext() ? baseRows.next() : null;
         			compareRow = compareRows.hasNext() ? compareRows.next() : null;
     			} else if (compare < 0) {
     				// compare is earlier than base, compare values are missing from base
-    				rowConsole.log("+%s", line(compareRow));
+    				changes.accept("+", compareRow);
     				compareRow = compareRows.hasNext() ? compareRows.next() : null;
     			} else {
     				// compare is later than base, base values are missing from compare, proceed in base
-    				rowConsole.log("-%s", line(baseRow));
+    				changes.accept("-", baseRow);
     				baseRow = baseRows.hasNext() ? baseRows.next() : null;
     			}
     		} else {
@@ -314,112 +507,284 @@ public final class RF2ContentFile extends RF2File {
 
     	// if there are items in either of the streams, then register them as +/-
     	if (baseRow != null) {
-    		rowConsole.log("-%s", line(baseRow));
+    		changes.accept("-", baseRow);
     		while (baseRows.hasNext()) {
     			baseRow = baseRows.next();
-    			rowConsole.log("-%s", line(baseRow));
+    			changes.accept("-", baseRow);
     		}
     	}
 
     	if (compareRow != null) {
-    		rowConsole.log("+%s", line(compareRow));
+    		changes.accept("+", compareRow);
     		while (compareRows.hasNext()) {
     			compareRow = compareRows.next();
-    			rowConsole.log("+%s", line(compareRow));
+    			changes.accept("+", compareRow);
     		}
     	}
 
     }
 
+    /**
+     * Creates the given files from a single scan of the sources. The files must have the same specification, usually they are the Full,
+     * Snapshot and Delta versions of the same data file, each source row is routed to all of them. Non-data files are created one by one.
+     * 
+     * @param files - the files to create
+     * @param context
+     * @throws IOException
+     * @since 0.4
+     */
+    public static void create(List<RF2ContentFile> files, RF2CreateContext context) throws IOException {
+        Preconditions.checkArgument(!files.isEmpty(), "At least one file is required");
+        final RF2ContentFile first = files.get(0);
+        Preconditions.checkArgument(files.stream().allMatch(file -> file.specification.equals(first.specification)), "Files created together must have the same specification");
+        if (files.size() == 1 || !first.isDataFile()) {
+            for (RF2ContentFile file : files) {
+                file.create(context);
+            }
+            return;
+        }
+        final StringJoiner paths = new StringJoiner("', '");
+        files.forEach(file -> paths.add(file.getPath().toString()));
+        context.task("Creating files '%s'", paths).run(() -> createDataFiles(files, context));
+    }
+
+    /**
+     * Estimates the memory the component indexes of the given files occupy while they are created together with
+     * {@link #create(List, RF2CreateContext)}: half of the (uncompressed) size of their matching sources for each data file. An index entry takes
+     * 37 to 75 bytes depending on how full its table is, while RF2 lines are usually 60 to 200 bytes long.
+     *
+     * @param files - the files to create, they must have the same specification
+     * @param context
+     * @return the estimated number of bytes
+     * @throws IOException
+     */
+    static long estimateIndexSize(List<RF2ContentFile> files, RF2CreateContext context) throws IOException {
+        final RF2ContentFile first = files.get(0);
+        if (!first.isDataFile()) {
+            return 0L;
+        }
+        long sourceSize = 0L;
+        for (RF2ContentFile source : context.getSourceCatalog().getContentFiles(first.getHeader())) {
+            if (first.fileFilter(source)) {
+                sourceSize += Files.size(source.getPath());
+            }
+        }
+        return sourceSize / INDEX_SIZE_DIVISOR * files.size();
+    }
+
     private void createDataFile(RF2CreateContext context) throws IOException {
-        final RF2ContentSubType releaseType = getRF2FileName().getElement(RF2ContentSubType.class).orElse(null);
-        final String currentReleaseDate = getRF2FileName().getElement(RF2VersionDate.class).map(RF2VersionDate::getVersionDate).orElse("N/A");
-        try (BufferedWriter writer = Files.newBufferedWriter(getPath(), StandardOpenOption.CREATE_NEW)) {
-            writer.write(newLine(getHeader()));
-
-            final ConcurrentMap<String, Map<String, String>> componentsByIdEffectiveTime = new MapMaker()
-            		.concurrencyLevel(Math.max(2, Runtime.getRuntime().availableProcessors()))
-            		.makeMap();
-            
-            final ConcurrentMap<String, Integer> copiedLinesPerFile = new MapMaker()
-            		.concurrencyLevel(Math.max(2, Runtime.getRuntime().availableProcessors()))
-            		.makeMap();
-            
-            Predicate<String[]> lineFilter = getLineFilter();
-
-            context.visitSourceRows(this::fileFilter, lineFilter, /* parallel if */ releaseType.isSnapshot(), (file, line) -> {
-                try {
-                	// this will initialize the map with 0 counter values, just to register all files even if they are empty, so we will log all applicable files during the process
-                	copiedLinesPerFile.merge(file.getPath().toString(), 0, Integer::sum);
-                	
-                    String id = line[0];
-                    String effectiveTime = line[1];
-                    String rawLine = newLine(line);
-                    String lineHash = Hashing.sha256().hashString(rawLine, StandardCharsets.UTF_8).toString();
-
-                    if (componentsByIdEffectiveTime.containsKey(id) && componentsByIdEffectiveTime.get(id).containsKey(effectiveTime)) {
-                        // log a warning about inconsistent ID-EffectiveTime content, keep the first occurrence of the line and skip the others
-                        if (!lineHash.equals(componentsByIdEffectiveTime.get(id).get(effectiveTime))) {
-                            context.warn("Skipping duplicate RF2 line found with same '%s' ID in '%s' effectiveTime but with different column values.", id, effectiveTime);
-                        }
-                        return;
-                    }
+        createDataFiles(List.of(this), context);
+    }
 
-                    if (releaseType.isFull()) {
-                        // in case of Full we can immediately write it out
-                        if (!componentsByIdEffectiveTime.containsKey(id)) {
-                            componentsByIdEffectiveTime.put(id, new HashMap<>());
-                        }
-                        componentsByIdEffectiveTime.get(id).put(effectiveTime, lineHash);
-                        writer.write(rawLine);
+    private static void createDataFiles(List<RF2ContentFile> files, RF2CreateContext context) throws IOException {
+        final RF2ContentFile first = files.get(0);
+        final List<DataFileWriter> writers = new ArrayList<>(files.size());
+        final Closer closer = Closer.create();
+        try {
+            for (RF2ContentFile file : files) {
+                writers.add(closer.register(new DataFileWriter(file, context)));
+            }
+            // Full and Delta lines are written in the order they are read, only Snapshot lines can be selected from sources read in parallel
+            final boolean parallel = writers.stream().allMatch(writer -> writer.releaseType.isSnapshot());
+            context.visitSourceRows(first.getHeader(), first::fileFilter, first.getLineFilter(), parallel, (file, line) -> {
+                for (DataFileWriter writer : writers) {
+                    writer.accept(file, line);
+                }
+            });
+            for (DataFileWriter writer : writers) {
+                writer.finish(parallel);
+            }
+        } catch (Throwable e) {
+            throw closer.rethrow(e, IOException.class);
+        } finally {
+            closer.close();
+        }
+    }
+
+    /**
+     * Writes the selected source lines of a created data file.
+     */
+    private static final class DataFileWriter implements Closeable {
+
+        private final RF2ContentFile file;
+        private final RF2CreateContext context;
+        private final RF2ContentSubType releaseType;
+        private final String currentReleaseDate;
+        private final RF2RowFingerprint fingerprint;
+        private final BufferedWriter writer;
+        private final RF2SpillFile spillFile;
+        private final RF2ComponentIndex componentIndex;
+        private final ConcurrentMap<String, Integer> copiedLinesPerFile = new MapMaker()
+                .concurrencyLevel(Math.max(2, Runtime.getRuntime().availableProcessors()))
+                .makeMap();
+        // spilled lines refer to their source file by its ordinal, rows of several source files may be visited at the same time
+        private final ConcurrentMap<String, Integer> sourceFileOrdinals = new ConcurrentHashMap<>();
+        private final AtomicInteger nextSourceFileOrdinal = new AtomicInteger();
+
+        DataFileWriter(RF2ContentFile file, RF2CreateContext context) throws IOException {
+            this.file = file;
+            this.context = context;
+            this.releaseType = file.getRF2FileName().getElement(RF2ContentSubType.class).orElse(null);
+            this.currentReleaseDate = file.getRF2FileName().getElement(RF2VersionDate.class).map(RF2VersionDate::getVersionDate).orElse("N/A");
+            this.fingerprint = context.getFingerprint();
+            // the header comes from the specification, the file being written must not be read to get it
+            file.header = file.specification.getHeader();
+            this.writer = Files.newBufferedWriter(file.getPath(), StandardOpenOption.CREATE_NEW);
+            try {
+                writer.write(file.newLine(file.getHeader()));
+                // Snapshot candidate lines are spilled to disk and only the location of the latest version of each component is kept in the index,
+                // when verifying duplicates the lines of the other types are spilled as well to compare them with lines with the same fingerprint
+                this.spillFile = releaseType.isSnapshot() || context.isVerifyDuplicates() ? new RF2SpillFile(null) : null;
+            } catch (IOException | RuntimeException e) {
+                writer.close();
+                throw e;
+            }
+            this.componentIndex = releaseType.isSnapshot() 
+                    ? RF2ComponentIndex.latestVersions(context.isOffHeapIndex()) 
+                    : RF2ComponentIndex.allVersions(context.isOffHeapIndex());
+        }
+
+        void accept(RF2File sourceFile, String[] line) {
+            try {
+                // this will initialize the map with 0 counter values, just to register all files even if they are empty, so we will log all applicable files during the process
+                copiedLinesPerFile.merge(sourceFile.getPath().toString(), 0, Integer::sum);
+
+                String id = line[0];
+                String effectiveTime = line[1];
+                long lineHash = fingerprint.fingerprint(line);
+
+                final LongSupplier spilledLine;
+                final LongPredicate sameContent;
+                if (spillFile != null) {
+                    final int sourceFileOrdinal = sourceFileOrdinals.computeIfAbsent(sourceFile.getPath().toString(), path -> nextSourceFileOrdinal.getAndIncrement());
+                    spilledLine = () -> spill(spillFile, sourceFileOrdinal, line);
+                    // fall back to comparing the lines only when their fingerprints are equal
+                    sameContent = context.isVerifyDuplicates() ? offset -> isSpilled(spillFile, offset, line) : null;
+                } else {
+                    spilledLine = null;
+                    sameContent = null;
+                }
+
+                if (releaseType.isFull()) {
+                    // in case of Full we can immediately write out the first occurrence of each ID-EffectiveTime pair
+                    final RF2ComponentIndex.Result result = componentIndex.add(id, effectiveTime, lineHash, spilledLine, sameContent);
+                    if (result == RF2ComponentIndex.Result.ADDED) {
+                        writer.write(file.newLine(line));
                         // this will increase the number of copied lines by 1
-                        copiedLinesPerFile.merge(file.getPath().toString(), 1, Integer::sum);
-                    } else if (releaseType.isSnapshot()) {
-                        // in case of Snapshot we check that the current effective time is greater than the currently registered and replace if yes
-                        if (componentsByIdEffectiveTime.containsKey(id)) {
-                            Entry<String, String> effectiveTimeHash = Iterables.getOnlyElement(componentsByIdEffectiveTime.get(id).entrySet());
-                            if (effectiveTime.isEmpty() || effectiveTime.compareTo(effectiveTimeHash.getKey()) > 0) {
-                                componentsByIdEffectiveTime.put(id, Map.of(effectiveTime, lineHash));
-                            }
+                        copiedLinesPerFile.merge(sourceFile.getPath().toString(), 1, Integer::sum);
+                    } else {
+                        warnIfConflict(context, result, id, effectiveTime);
+                    }
+                } else if (releaseType.isSnapshot()) {
+                    // in case of Snapshot the index keeps the location of the version with the greatest effective time
+                    warnIfConflict(context, componentIndex.add(id, effectiveTime, lineHash, spilledLine, sameContent), id, effectiveTime);
+                } else if (releaseType.isDelta()) {
+                    // in case of Delta we will only add the lines with the releaseDate effective time
+                    // TODO support closest to specified releaseDate!!!
+                    if (currentReleaseDate.equals(effectiveTime)) {
+                        final RF2ComponentIndex.Result result = componentIndex.add(id, effectiveTime, lineHash, spilledLine, sameContent);
+                        if (result == RF2ComponentIndex.Result.ADDED) {
+                            writer.write(file.newLine(line));
+                            copiedLinesPerFile.merge(sourceFile.getPath().toString(), 1, Integer::sum);
                         } else {
-                            componentsByIdEffectiveTime.put(id, Map.of(effectiveTime, lineHash));
-                        }
-                    } else if (releaseType.isDelta()) {
-                        // in case of Delta we will only add the lines with the releaseDate effective time
-                        // TODO support closest to specified releaseDate!!!
-                        if (currentReleaseDate.equals(effectiveTime)) {
-                            componentsByIdEffectiveTime.put(id, Map.of(effectiveTime, lineHash));
-                            writer.write(rawLine);
-                            copiedLinesPerFile.merge(file.getPath().toString(), 1, Integer::sum);
+                            warnIfConflict(context, result, id, effectiveTime);
                         }
                     }
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
                 }
-            });
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
 
-            // Snapshot needs a second run, since we just extracted the applicable rows from all source files, and we need to actually write them into the output
+        /**
+         * @param parallel - <code>true</code> if the sources were read in parallel, so the lines were spilled in no particular order
+         */
+        void finish(boolean parallel) throws IOException {
+            // Snapshot lines are written once all sources have been read and the latest versions are known
             if (releaseType.isSnapshot()) {
-                context.visitSourceRows(this::fileFilter, lineFilter, false, (file, line) -> {
-                    try {
-                        String id = line[0];
-                        String effectiveTime = line[1];
-                        if (componentsByIdEffectiveTime.containsKey(id) && componentsByIdEffectiveTime.get(id).containsKey(effectiveTime)) {
-                            // remove the item from the id effective time map to indicate that we wrote it out
-                            componentsByIdEffectiveTime.remove(id);
-                            writer.write(newLine(line));
-                            copiedLinesPerFile.merge(file.getPath().toString(), 1, Integer::sum);
-                        }
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
+                final String[] sourceFiles = new String[sourceFileOrdinals.size()];
+                sourceFileOrdinals.forEach((path, ordinal) -> sourceFiles[ordinal] = path);
+                // spilled lines are read back in the order they were spilled, which only matches the order of the sources if they were read sequentially
+                try (Stream<String[]> spilledRows = spillFile.rows(componentIndex.values());
+                        Stream<String[]> rows = context.isSortSnapshots() || parallel ? sortSpilledRows(spilledRows) : spilledRows) {
+                    for (String[] row : (Iterable<String[]>) rows::iterator) {
+                        writer.write(file.newLine(Arrays.copyOfRange(row, 1, row.length)));
+                        copiedLinesPerFile.merge(sourceFiles[Integer.parseInt(row[0])], 1, Integer::sum);
                     }
-                });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
             }
-            
-            copiedLinesPerFile.keySet().stream().sorted().forEach(file -> {
-            	context.log("Copied '%s' lines from '%s'", copiedLinesPerFile.get(file), file);
+
+            copiedLinesPerFile.keySet().stream().sorted().forEach(sourceFile -> {
+                context.log("Copied '%s' lines from '%s' to '%s'", copiedLinesPerFile.get(sourceFile), sourceFile, file.getPath().getFileName());
             });
-            
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (BufferedWriter writer = this.writer; RF2ComponentIndex componentIndex = this.componentIndex) {
+                if (spillFile != null) {
+                    spillFile.close();
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Appends a line prefixed with the ordinal of its source file to the given spill file.
+     * 
+     * @return the offset of the spilled line
+     */
+    private static long spill(RF2SpillFile spillFile, int sourceFileOrdinal, String[] line) {
+        final String[] values = new String[line.length + 1];
+        values[0] = Integer.toString(sourceFileOrdinal);
+        System.arraycopy(line, 0, values, 1, line.length);
+        try {
+            return spillFile.append(values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the line spilled at the given offset has the same content as the given line
+     */
+    private static boolean isSpilled(RF2SpillFile spillFile, long offset, String[] line) {
+        final String[] spilled;
+        try {
+            spilled = spillFile.read(offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (spilled.length != line.length + 1) {
+            return false;
+        }
+        for (int i = 0; i < line.length; i++) {
+            if (!spilled[i + 1].equals(line[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sorts spilled Snapshot lines by ID (SCTIDs in numeric order) then by effectiveTime, skipping the source file ordinal column.
+     */
+    private static Stream<String[]> sortSpilledRows(Stream<String[]> spilledRows) throws IOException {
+        final Comparator<String[]> order = (left, right) -> ComparisonChain.start()
+        		.compare(left[1].length(), right[1].length())
+        		.compare(left[1], right[1])
+        		.compare(left[2], right[2])
+        		.result();
+        return new RF2RowSorter(order, RF2RowSorter.getDefaultMemoryBudget()).sort(spilledRows.iterator());
+    }
+
+    private static void warnIfConflict(RF2CreateContext context, RF2ComponentIndex.Result result, String id, String effectiveTime) {
+        if (result == RF2ComponentIndex.Result.CONFLICT) {
+            // log a warning about inconsistent ID-EffectiveTime content, keep the first occurrence of the line and skip the others
+            context.warn("Skipping duplicate RF2 line found with same '%s' ID in '%s' effectiveTime but with different column values.", id, effectiveTime);
         }
     }
 
@@ -490,6 +855,16 @@ public final class RF2ContentFile extends RF2File {
         return Arrays.equals(file.getHeader(), getHeader());
     }
 
+    private static void writeLine(BufferedWriter writer, String[] values) throws IOException {
+    	for (int i = 0; i < values.length; i++) {
+    		if (i > 0) {
+    			writer.write(TAB);
+    		}
+    		writer.write(values[i]);
+    	}
+    	writer.write(CRLF);
+    }
+
     private String newLine(String[] values) {
         return line(values).concat(CRLF);
     }
@@ -526,22 +901,77 @@ public final class RF2ContentFile extends RF2File {
      * @throws IOException
      */
     public final Stream<String[]> rows() throws IOException {
-        return Files.lines(getPath())
-                .skip(1)
-                .map(line -> line.split(TAB, -1));
+        return rowReader().rows();
+    }
+    
+    /**
+     * Reads the rows from the given columnar cache if it is present and the content of this file has been read before, otherwise the rows are
+     * read from the text of this file and added to the cache.
+     * 
+     * @param cache - the columnar cache of the command, if caching is enabled
+     * @return the actual raw data from this RF2 content file without header and each line converted into String[] objects in a sequential stream.
+     * @throws IOException
+     * @since 0.4
+     */
+    public final Stream<String[]> rows(Optional<RF2ColumnarCache> cache) throws IOException {
+    	if (cache.isPresent()) {
+    		return cache.get().rows(getPath(), () -> rowReader().rows());
+    	}
+        return rows();
+    }
+    
+    /**
+     * @return a new {@link RF2RowReader} positioned at the first row after the header, the caller is responsible for closing it.
+     * @throws IOException
+     */
+    public final RF2RowReader rowReader() throws IOException {
+    	return RF2RowReader.open(getPath()).skip(1);
     }
     
     /**
-	 * NOTE: this method does not read the entire source file into memory just by calling it, but when starting a terminal operation on the returned
-	 * Stream, due to the sort's nature, it will load the entire file content into memory which might cause memory issues on certain environment or
-	 * scenarios.
+     * Sorts the rows of this file with the {@link RF2RowSorter#getDefaultMemoryBudget() default memory budget}.
+     * 
+     * @return the actual raw data from this RF2 content file without header and each line converted into String[] objects in a sequential stream
+     *         sorted by effectiveTime then by ID.
+     * @throws IOException
+     * @see #sortedRows(long)
+     */
+    public final Stream<String[]> sortedRows() throws IOException {
+    	return sortedRows(RF2RowSorter.getDefaultMemoryBudget());
+    }
+    
+    /**
+	 * NOTE: the rows are sorted when this method is called. Rows that do not fit into the given memory budget are sorted in runs written to temporary
+	 * files, which are merged while the returned stream is consumed. Close the returned stream to delete the temporary files.
 	 * 
+	 * @param memoryBudget - the estimated number of bytes the sort may hold in memory
 	 * @return the actual raw data from this RF2 content file without header and each line converted into String[] objects in a sequential stream
 	 *         sorted by effectiveTime then by ID.
 	 * @throws IOException
 	 */
-    public final Stream<String[]> sortedRows() throws IOException {
-    	return rows().sorted(ROW_COMPARATOR);
+    public final Stream<String[]> sortedRows(long memoryBudget) throws IOException {
+    	return new RF2RowSorter(ROW_COMPARATOR, memoryBudget).sort(rowReader());
+    }
+    
+    /**
+     * Sorts the {@link #rows(Optional) rows} read from the given columnar cache if it is present, otherwise the same as {@link #sortedRows(long)}.
+     * 
+     * @param memoryBudget - the estimated number of bytes the sort may hold in memory
+     * @param cache - the columnar cache of the command, if caching is enabled
+     * @return the actual raw data from this RF2 content file without header and each line converted into String[] objects in a sequential stream
+     *         sorted by effectiveTime then by ID.
+     * @throws IOException
+     * @since 0.4
+     */
+    public final Stream<String[]> sortedRows(long memoryBudget, Optional<RF2ColumnarCache> cache) throws IOException {
+    	if (cache.isEmpty()) {
+    		return sortedRows(memoryBudget);
+    	}
+    	try (Stream<String[]> rows = rows(cache)) {
+    		return new RF2RowSorter(ROW_COMPARATOR, memoryBudget).sort(rows.iterator());
+    	} catch (UncheckedIOException e) {
+    		throw e.getCause();
+    	}
     }
 
     /**
@@ -549,10 +979,129 @@ public final class RF2ContentFile extends RF2File {
      * @throws IOException
      */
     public final Stream<String[]> rowsParallel() throws IOException {
-        return Files.lines(getPath())
-                .skip(1)
-                .parallel()
-                .map(line -> line.split(TAB, -1));
+        return rowSlicesParallel().map(RF2Row::toArray);
+    }
+    
+    /**
+     * Reads the rows from the given columnar cache if it is present and the content of this file has been read before, otherwise the rows are
+     * read from the text of this file (parallel reads do not add entries to the cache).
+     * 
+     * @param cache - the columnar cache of the command, if caching is enabled
+     * @return the actual raw data from this RF2 content file without header and each line converted into String[] objects in a parallel stream.
+     * @throws IOException
+     * @since 0.4
+     */
+    public final Stream<String[]> rowsParallel(Optional<RF2ColumnarCache> cache) throws IOException {
+    	if (cache.isPresent()) {
+    		return cache.get().rowsParallel(getPath(), () -> rowSlicesParallel().map(RF2Row::toArray));
+    	}
+        return rowsParallel();
+    }
+    
+    /**
+     * The file is split into chunks aligned to line boundaries and each chunk is parsed by its own fork-join task. The returned {@link RF2Row}
+     * instances are reused by the chunk readers, so they must be {@link RF2Row#copy() copied} before passing them to stateful operations.
+     * 
+     * @return the actual raw data from this RF2 content file without header as {@link RF2Row} slices in a parallel stream.
+     * @throws IOException
+     * @see RF2RowSpliterator
+     */
+    public final Stream<RF2Row> rowSlicesParallel() throws IOException {
+    	return RF2RowSpliterator.stream(getPath());
+    }
+    
+    /**
+     * @return the number of data rows (lines without the header) in this RF2 content file, counted in parallel.
+     * @throws IOException
+     */
+    public final long countRows() throws IOException {
+    	try (Stream<RF2Row> rows = rowSlicesParallel()) {
+    		return rows.count();
+    	}
+    }
+
+    /**
+     * Writes the changes of a diff to a file to report them later, each change is stored as a row of the change (<code>+</code> or
+     * <code>-</code>) followed by the columns of the changed row.
+     */
+    private static final class RowChanges implements BiConsumer<String, String[]>, Closeable {
+    	
+    	private final BufferedWriter writer;
+    	
+    	RowChanges(Path path) throws IOException {
+    		this.writer = Files.newBufferedWriter(path);
+    	}
+    	
+    	@Override
+    	public void accept(String change, String[] row) {
+    		try {
+    			writer.write(change);
+    			writer.write(TAB);
+    			writeLine(writer, row);
+    		} catch (IOException e) {
+    			throw new UncheckedIOException(e);
+    		}
+    	}
+    	
+    	@Override
+    	public void close() throws IOException {
+    		writer.close();
+    	}
+    	
+    	/**
+    	 * Merges the changes of the given files, each sorted by {@link #CHANGE_COMPARATOR}, and reports them to the given consumer in the same
+    	 * order. Equal changes are reported in the order of their files.
+    	 */
+    	static void merge(List<Path> paths, BiConsumer<String, String[]> consumer) throws IOException {
+    		final List<ChangeFile> files = new ArrayList<>(paths.size());
+    		final PriorityQueue<ChangeFile> heap = new PriorityQueue<>(Math.max(1, paths.size()), 
+    				Comparator.<ChangeFile, String[]>comparing(file -> file.current, CHANGE_COMPARATOR).thenComparingInt(file -> file.index));
+    		final Closer closer = Closer.create();
+    		try {
+    			for (Path path : paths) {
+    				final ChangeFile file = new ChangeFile(files.size(), closer.register(RF2RowReader.open(path, CHANGE_BUFFER_SIZE)));
+    				files.add(file);
+    				if (file.advance()) {
+    					heap.add(file);
+    				}
+    			}
+    			ChangeFile file;
+    			while ((file = heap.poll()) != null) {
+    				final String[] values = file.current;
+    				consumer.accept(values[0], Arrays.copyOfRange(values, 1, values.length));
+    				if (file.advance()) {
+    					heap.add(file);
+    				}
+    			}
+    		} catch (Throwable e) {
+    			throw closer.rethrow(e, IOException.class);
+    		} finally {
+    			closer.close();
+    		}
+    	}
+    	
+    }
+    
+    /**
+     * The current change of a change file that is being merged.
+     */
+    private static final class ChangeFile {
+    	
+    	private final int index;
+    	private final RF2RowReader reader;
+    	private String[] current;
+    	
+    	ChangeFile(int index, RF2RowReader reader) {
+    		this.index = index;
+    		this.reader = reader;
+    	}
+    	
+    	boolean advance() throws IOException {
+    		final RF2Row row = reader.next();
+    		current = row == null ? null : row.toArray();
+    		return current != null;
+    	}
+    	
     }
 
 }
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.model;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import com.b2international.rf2.RF2CreateContext;
+import com.b2international.rf2.console.BufferedConsole;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Creates the files of an RF2 Release concurrently on a bounded number of threads. Each file is created in a local temporary directory first,
+ * then it is handed over to its target (usually the archive of the release, which is written sequentially) and its output is reported to the
+ * console in the order of their positions (by default the order they were submitted in), so the content of the release does not depend on
+ * which file finishes first. Files with the same sources can be created together, from a single scan of their sources.
+ * <p>
+ * Each created file keeps an index of its components in memory, which grows with the size of its sources, so running one file per thread could
+ * run out of memory on a machine with many processors. Before a file is created, the estimated size of its index is reserved from a memory
+ * budget, {@link #getDefaultMemoryBudget() half of the maximum heap size} by default, and files wait while their estimate does not fit into the
+ * rest of the budget. A file whose estimate exceeds the whole budget is created when no other file is being created.
+ * </p>
+ *
+ * @since 0.4
+ */
+final class RF2CreateExecutor implements AutoCloseable {
+
+	private static final long MEMORY_UNIT = 1L << 20;
+
+	private final ExecutorService executor;
+	// the remaining memory budget in MEMORY_UNITs, handed out in submission order
+	private final Semaphore memory;
+	private final int memoryUnits;
+	private final Path tempDirectory;
+	// files created together share their result, each file is handed over at its own position
+	private final SortedMap<Integer, Future<CreatedFiles>> results = new TreeMap<>();
+
+	RF2CreateExecutor() throws IOException {
+		this(Runtime.getRuntime().availableProcessors(), getDefaultMemoryBudget());
+	}
+
+	/**
+	 * @param threads - the maximum number of files to create at the same time
+	 * @param memoryBudget - the number of bytes the indexes of the files created at the same time may occupy
+	 * @throws IOException
+	 */
+	RF2CreateExecutor(int threads, long memoryBudget) throws IOException {
+		Preconditions.checkArgument(threads > 0, "Number of threads must be greater than zero, was: %s", threads);
+		Preconditions.checkArgument(memoryBudget > 0, "Memory budget must be greater than zero, was: %s", memoryBudget);
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("rf2-create-%d").setDaemon(true).build());
+		this.memoryUnits = toMemoryUnits(memoryBudget, Integer.MAX_VALUE);
+		this.memory = new Semaphore(memoryUnits, true);
+		this.tempDirectory = Files.createTempDirectory("rf2-create");
+	}
+
+	/**
+	 * @return the default memory budget of the files created at the same time, half of the maximum heap size.
+	 */
+	static long getDefaultMemoryBudget() {
+		return Runtime.getRuntime().maxMemory() / 2;
+	}
+
+	/**
+	 * Submits the creation of a file, it is handed over to its target after all files submitted so far.
+	 *
+	 * @param targetDirectory - the directory of the created file
+	 * @param prepare - prepares the file to create in the given local directory
+	 * @param context
+	 */
+	void create(Path targetDirectory, Function<Path, RF2File> prepare, RF2CreateContext context) {
+		final int position = results.isEmpty() ? 0 : results.lastKey() + 1;
+		create(Map.of(position, targetDirectory), (filePosition, directory) -> prepare.apply(directory), (files, fileContext) -> files.get(0).create(fileContext), files -> 0L, context);
+	}
+
+	/**
+	 * Submits the creation of files that are created together by the given creator, for example from a single scan of their sources. Each file
+	 * is handed over to its target at the given position, relative to the positions of the other submitted files.
+	 *
+	 * @param targetDirectories - the directory of each created file by its position
+	 * @param prepare - prepares the file at the given position to create in the given local directory
+	 * @param creator - creates the prepared files, in the order of their positions
+	 * @param memoryEstimate - estimates the number of bytes the creator keeps in memory while creating the prepared files
+	 * @param context
+	 */
+	<F extends RF2File> void create(Map<Integer, Path> targetDirectories, BiFunction<Integer, Path, F> prepare, FilesCreator<F> creator, MemoryEstimate<F> memoryEstimate, RF2CreateContext context) {
+		Preconditions.checkArgument(!targetDirectories.isEmpty(), "At least one file is required");
+		final SortedMap<Integer, Path> localDirectories = new TreeMap<>();
+		targetDirectories.forEach((position, targetDirectory) -> {
+			Preconditions.checkArgument(!results.containsKey(position), "A file has already been submitted at position %s", position);
+			// mirror the target directory structure, so logged paths remain recognizable
+			Path localDirectory = tempDirectory.resolve(Integer.toString(position));
+			for (Path name : targetDirectory) {
+				localDirectory = localDirectory.resolve(name.toString());
+			}
+			localDirectories.put(position, localDirectory);
+		});
+		final Future<CreatedFiles> result = executor.submit(() -> {
+			final BufferedConsole buffer = new BufferedConsole(context);
+			final List<F> files = new ArrayList<>(localDirectories.size());
+			final Map<Integer, CreatedFile> createdFiles = new HashMap<>();
+			for (Entry<Integer, Path> localDirectory : localDirectories.entrySet()) {
+				Files.createDirectories(localDirectory.getValue());
+				final F file = prepare.apply(localDirectory.getKey(), localDirectory.getValue());
+				final Path targetPath = targetDirectories.get(localDirectory.getKey()).resolve(file.getPath().getFileName().toString());
+				files.add(file);
+				createdFiles.put(localDirectory.getKey(), new CreatedFile(file.getPath(), targetPath));
+			}
+			// an estimate larger than the whole budget takes all of it, so the file is created alone
+			final int units = toMemoryUnits(memoryEstimate.estimate(files), memoryUnits);
+			memory.acquire(units);
+			try {
+				creator.create(files, context.newSubContext(buffer));
+			} finally {
+				memory.release(units);
+			}
+			return new CreatedFiles(createdFiles, buffer);
+		});
+		localDirectories.keySet().forEach(position -> results.put(position, result));
+	}
+
+	/**
+	 * Waits for the submitted files, then hands them over to the given target in the order of their positions and reports their output. Each
+	 * file is handed over as soon as all preceding files are, the output of files created together is reported before the first of them. The
+	 * local files are kept until this executor is closed.
+	 *
+	 * @param target - receives the local path and the target path of each created file
+	 * @throws IOException - if the creation of any of the files failed with an {@link IOException}
+	 */
+	void report(CreatedFileTarget target) throws IOException {
+		try {
+			final Set<CreatedFiles> reported = Sets.newIdentityHashSet();
+			for (Entry<Integer, Future<CreatedFiles>> result : results.entrySet()) {
+				final CreatedFiles createdFiles = result.getValue().get();
+				if (reported.add(createdFiles)) {
+					createdFiles.console.flush();
+				}
+				final CreatedFile createdFile = createdFiles.files.get(result.getKey());
+				target.accept(createdFile.localPath, createdFile.targetPath);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for created files");
+		} catch (ExecutionException e) {
+			Throwables.propagateIfPossible(e.getCause(), IOException.class);
+			throw new RuntimeException(e.getCause());
+		} finally {
+			results.clear();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		// cancel the remaining files if reporting failed, and wait for the running ones before deleting their temporary files
+		executor.shutdownNow();
+		try {
+			executor.awaitTermination(1L, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try (Stream<Path> paths = Files.walk(tempDirectory)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.deleteIfExists(path);
+			}
+		}
+	}
+
+	/**
+	 * Creates files prepared in a local directory.
+	 */
+	@FunctionalInterface
+	interface FilesCreator<F extends RF2File> {
+
+		void create(List<F> files, RF2CreateContext context) throws IOException;
+
+	}
+
+	/**
+	 * Estimates the memory used while creating files prepared in a local directory.
+	 */
+	@FunctionalInterface
+	interface MemoryEstimate<F extends RF2File> {
+
+		long estimate(List<F> files) throws IOException;
+
+	}
+
+	/**
+	 * Receives the created files in the order of their positions.
+	 */
+	@FunctionalInterface
+	interface CreatedFileTarget {
+
+		void accept(Path localPath, Path targetPath) throws IOException;
+
+	}
+
+	private static int toMemoryUnits(long bytes, int maxUnits) {
+		return (int) Math.min(maxUnits, Math.max(1L, (bytes + MEMORY_UNIT - 1) / MEMORY_UNIT));
+	}
+
+	private static final class CreatedFile {
+
+		private final Path localPath;
+		private final Path targetPath;
+
+		CreatedFile(Path localPath, Path targetPath) {
+			this.localPath = localPath;
+			this.targetPath = targetPath;
+		}
+
+	}
+
+	private static final class CreatedFiles {
+
+		private final Map<Integer, CreatedFile> files;
+		private final BufferedConsole console;
+
+		CreatedFiles(Map<Integer, CreatedFile> files, BufferedConsole console) {
+			this.files = files;
+			this.console = console;
+		}
+
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.b2international.rf2.RF2DiffContext;
+import com.b2international.rf2.console.Console;
+import com.b2international.rf2.console.QueuedConsole;
+import com.b2international.rf2.io.RF2RowSorter;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.io.Closer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs the diffs of RF2 file pairs concurrently on a bounded number of threads. The output of each diff is reported to the console in the order
+ * the diffs were submitted, together with the messages logged between them, so the report does not depend on which diff finishes first.
+ * <p>
+ * The output of the diff being reported is streamed to the console as it is produced. Diffs that are ahead of it pass their output through a
+ * queue of at most {@link #OUTPUT_CAPACITY} messages and wait while it is full, so the output of a diff is never held in memory as a whole.
+ * Releases nested in the compared files are walked right away and their file pairs are submitted to the same executor, so the number of threads
+ * does not depend on the nesting.
+ * </p>
+ *
+ * @since 0.4
+ */
+final class RF2DiffExecutor implements Closeable {
+
+	static final int OUTPUT_CAPACITY = 1024;
+
+	private final ExecutorService executor;
+	private final long memoryBudget;
+	private final List<Output> outputs = new ArrayList<>();
+	private final Closer resources = Closer.create();
+
+	RF2DiffExecutor() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param threads - the maximum number of diffs to run at the same time, the default memory budget is shared between them
+	 */
+	RF2DiffExecutor(int threads) {
+		Preconditions.checkArgument(threads > 0, "Number of threads must be greater than zero, was: %s", threads);
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("rf2-diff-%d").setDaemon(true).build());
+		this.memoryBudget = Math.max(1L, RF2RowSorter.getDefaultMemoryBudget() / threads);
+	}
+
+	/**
+	 * Logs a message to the given console after the output of the diffs submitted so far.
+	 */
+	void log(Console console, String message, Object... args) {
+		final QueuedConsole output = new QueuedConsole(console, 2);
+		try (QueuedConsole out = output) {
+			out.log(message, args);
+		}
+		outputs.add(new Output(output, CompletableFuture.completedFuture(null)));
+	}
+
+	/**
+	 * Submits the diff of the given files, its output is reported to the console of the given context after the output of the diffs submitted so far. The file
+	 * pairs of releases are submitted one by one.
+	 * 
+	 * @throws IOException - if the given files are releases and they cannot be opened
+	 */
+	void diff(RF2File compare, RF2File base, RF2DiffContext context) throws IOException {
+		if (compare instanceof RF2Release) {
+			((RF2Release) compare).diff(base, context, this);
+			return;
+		}
+		final QueuedConsole output = new QueuedConsole(context, OUTPUT_CAPACITY);
+		outputs.add(new Output(output, executor.submit(() -> {
+			try (QueuedConsole out = output) {
+				if (compare instanceof RF2ContentFile) {
+					((RF2ContentFile) compare).diff(base, context.newSubContext(out), memoryBudget);
+				} else {
+					compare.diff(base, context.newSubContext(out));
+				}
+			}
+			return null;
+		})));
+	}
+
+	/**
+	 * Registers a resource the submitted diffs depend on (eg. the file system of a release), it is closed when this executor is closed.
+	 */
+	<C extends Closeable> C register(C resource) {
+		return resources.register(resource);
+	}
+
+	/**
+	 * Waits for the submitted diffs and reports their output in submission order. The output of a diff is reported while it runs, as soon as all
+	 * preceding diffs are reported.
+	 *
+	 * @throws IOException - if any of the diffs failed with an {@link IOException}
+	 */
+	void report() throws IOException {
+		try {
+			for (Output output : outputs) {
+				output.console.drain();
+				output.result.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for diff results");
+		} catch (ExecutionException e) {
+			Throwables.propagateIfPossible(e.getCause(), IOException.class);
+			throw new RuntimeException(e.getCause());
+		} finally {
+			outputs.clear();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		// cancel the remaining diffs if reporting failed
+		executor.shutdownNow();
+		resources.close();
+	}
+
+	private static final class Output {
+
+		private final QueuedConsole console;
+		private final Future<?> result;
+
+		Output(QueuedConsole console, Future<?> result) {
+			this.console = console;
+			this.result = result;
+		}
+
+	}
+
+}
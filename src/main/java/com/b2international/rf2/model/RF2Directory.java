@@ -23,8 +23,8 @@ import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import com.b2international.rf2.RF2CreateContext;
+import com.b2international.rf2.RF2DiffContext;
 import com.b2international.rf2.RF2TransformContext;
-import com.b2international.rf2.console.Console;
 import com.b2international.rf2.naming.RF2FileName;
 import com.b2international.rf2.spec.RF2Specification;
 import com.google.common.base.Preconditions;
@@ -87,14 +87,26 @@ public final class RF2Directory extends RF2File {
 	}
 	
 	@Override
-	public void diff(RF2File other, Console console) throws IOException {
+	public void diff(RF2File other, RF2DiffContext context) throws IOException {
+		try (RF2DiffExecutor diffs = new RF2DiffExecutor()) {
+			diff(other, context, diffs);
+			diffs.report();
+		}
+	}
+	
+	/**
+	 * Pairs the files of this and the other directory and submits their diffs to the given executor. Subdirectories are walked right away, so the
+	 * files of the whole directory tree are compared concurrently.
+	 */
+	private void diff(RF2File other, RF2DiffContext context, RF2DiffExecutor diffs) throws IOException {
 		Preconditions.checkArgument(other instanceof RF2Directory, "RF2 Directory '%s' cannot be compared with file: '%s'", getRF2FileName(), other.getRF2FileName());
 		RF2Directory otherDirectory = (RF2Directory) other;
 		// walk the first level of the directory and search for similarly named files/directories
 		Iterator<Path> compareFiles = listFiles().iterator();
 		Iterator<Path> baseFiles = otherDirectory.listFiles().iterator();
 		
-		console.log("%s -> %s", getRF2FileName(), other.getRF2FileName());
+		diffs.log(context, "%s -> %s", getRF2FileName(), other.getRF2FileName());
+		final RF2DiffContext fileContext = context.newSubContext(context.indent(2));
 
 		Path compareFile = compareFiles.hasNext() ? compareFiles.next() : null;
     	Path baseFile = baseFiles.hasNext() ? baseFiles.next() : null;
@@ -104,40 +116,44 @@ public final class RF2Directory extends RF2File {
     		RF2File baseRf2File = specification.detect(baseFile);
     		
     		if (compareRf2File.isUnrecognized()) {
-    			console.log("Unrecognized RF2 file: '%s'", compareRf2File.getPath());
+    			diffs.log(context, "Unrecognized RF2 file: '%s'", compareRf2File.getPath());
     			// proceed to next recognizable compare file
     			compareFile = compareFiles.hasNext() ? compareFiles.next() : null;
     		} else if (baseRf2File.isUnrecognized()) {
-    			console.log("Unrecognized RF2 file: '%s'", baseRf2File.getPath());
+    			diffs.log(context, "Unrecognized RF2 file: '%s'", baseRf2File.getPath());
     			// proceed to next recognizable base file
     			baseFile = baseFiles.hasNext() ? baseFiles.next() : null;
     		} else if (compareRf2File.getType().equals(baseRf2File.getType())) {
     			// if types match, then do the diff
-    			compareRf2File.diff(baseRf2File, console.indent(2));
+    			if (compareRf2File instanceof RF2Directory) {
+    				((RF2Directory) compareRf2File).diff(baseRf2File, fileContext, diffs);
+    			} else {
+    				diffs.diff(compareRf2File, baseRf2File, fileContext);
+    			}
         		compareFile = compareFiles.hasNext() ? compareFiles.next() : null;
         		baseFile = baseFiles.hasNext() ? baseFiles.next() : null;
     		} else {
     			// if types do NOT match, then proceed to the next available base file to see if there is a base file that can be diffed with the current compare file
     			// report the current base file as missing ("-") from compare
-    			console.log("Unrecognized file: '%s'", baseRf2File.getPath());
+    			diffs.log(context, "Unrecognized file: '%s'", baseRf2File.getPath());
         		baseFile = baseFiles.hasNext() ? baseFiles.next() : null;
     		}
     	}
     	
     	// if there are items in either of the streams, then register them as +/-
     	if (baseFile != null) {
-    		console.log("-%s", baseFile.getFileName());
+    		diffs.log(context, "-%s", baseFile.getFileName());
     		while (baseFiles.hasNext()) {
     			baseFile = baseFiles.next();
-    			console.log("-%s", baseFile.getFileName());
+    			diffs.log(context, "-%s", baseFile.getFileName());
     		}
     	}
 
     	if (compareFile != null) {
-    		console.log("+%s", compareFile.getFileName());
+    		diffs.log(context, "+%s", compareFile.getFileName());
     		while (compareFiles.hasNext()) {
     			compareFile = compareFiles.next();
-    			console.log("+%s", compareFile.getFileName());
+    			diffs.log(context, "+%s", compareFile.getFileName());
     		}
     	}
 	}
@@ -21,9 +21,9 @@ import java.util.Objects;
 import java.util.function.Consumer;
 
 import com.b2international.rf2.RF2CreateContext;
+import com.b2international.rf2.RF2DiffContext;
 import com.b2international.rf2.RF2TransformContext;
 import com.b2international.rf2.check.RF2IssueAcceptor;
-import com.b2international.rf2.console.Console;
 import com.b2international.rf2.naming.RF2FileName;
 
 /**
@@ -111,14 +111,14 @@ public abstract class RF2File {
 	public abstract void transform(RF2TransformContext context) throws IOException;
 	
 	/**
-	 * Compare this {@link RF2File} against the given other {@link RF2File} and print the differences to the console. Prints nothing if there are no differences.
+	 * Compare this {@link RF2File} against the given other {@link RF2File} and print the differences to the console of the context. Prints nothing if there are no differences.
 	 * 
 	 * @param other
-	 * @param console
+	 * @param context
 	 * @throws IOException 
 	 * @since 0.4
 	 */
-	public abstract void diff(RF2File other, Console console) throws IOException;
+	public abstract void diff(RF2File other, RF2DiffContext context) throws IOException;
 
 	/**
 	 * @return the type (or category) of this {@link RF2File}.
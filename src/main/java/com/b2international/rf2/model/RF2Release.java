@@ -16,36 +16,52 @@
 package com.b2international.rf2.model;
 
 import java.io.IOException;
-import java.net.URI;
 import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.StringJoiner;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 import com.b2international.rf2.RF2CreateContext;
+import com.b2international.rf2.RF2DiffContext;
 import com.b2international.rf2.RF2TransformContext;
-import com.b2international.rf2.console.Console;
+import com.b2international.rf2.io.RF2ZipArchive;
+import com.b2international.rf2.io.RF2ZipWriter;
 import com.b2international.rf2.naming.RF2DirectoryName;
+import com.b2international.rf2.naming.RF2FileName;
 import com.b2international.rf2.naming.RF2ReleaseName;
+import com.b2international.rf2.naming.file.RF2ContentSubType;
+import com.b2international.rf2.naming.file.RF2ContentType;
 import com.b2international.rf2.spec.RF2ContentFileSpecification;
 import com.b2international.rf2.spec.RF2ReleaseSpecification;
 import com.b2international.rf2.spec.RF2Specification;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Sets;
 
 /**
  * @since 0.1 
  */
 public final class RF2Release extends RF2File {
 
+	private static final FileSystemProvider ZIP_PROVIDER = FileSystemProvider.installedProviders()
+			.stream()
+			.filter(provider -> "jar".equals(provider.getScheme()))
+			.findFirst()
+			.orElseThrow(() -> new IllegalStateException("Zip file system provider is not installed"));
+	
 	private final RF2Specification specification;
 
 	public RF2Release(Path parent, RF2ReleaseName fileName, RF2Specification specification) {
@@ -55,26 +71,43 @@ public final class RF2Release extends RF2File {
 	
 	@Override
 	public void visit(Consumer<RF2File> visitor) throws IOException {
+		open(visitor).close();
+	}
+	
+	/**
+	 * Visits this release like {@link #visit(Consumer)} but keeps its file system open, so the visited files can be read until the returned file
+	 * system is closed.
+	 * 
+	 * @param visitor
+	 * @return the open file system of this release
+	 * @throws IOException
+	 */
+	FileSystem open(Consumer<RF2File> visitor) throws IOException {
 		if (!Files.exists(getPath())) {
 			throw new IllegalStateException("Cannot visit non-existing RF2 Release: " + getPath());
 		}
 		
 		visitor.accept(this);
-		try (FileSystem zipfs = openZipfs(false, getPath())) {
-			for (Path root : zipfs.getRootDirectories()) {
-				listFiles(root).forEach(path -> {
-					try {
-						specification.detect(path).visit(visitor);
-					} catch (IOException e) {
-						throw new RuntimeException("Couldn't visit path: " + path, e);
-					}
-				});
-			}
+		final FileSystem zipfs = openZipfs(false, getPath());
+		try {
+			listFiles(zipfs).forEach(path -> {
+				try {
+					specification.detect(path).visit(visitor);
+				} catch (IOException e) {
+					throw new RuntimeException("Couldn't visit path: " + path, e);
+				}
+			});
+		} catch (IOException | RuntimeException e) {
+			zipfs.close();
+			throw e;
 		}
+		return zipfs;
 	}
 	
 	private static FileSystem openZipfs(boolean create, Path path) throws IOException {
-		return FileSystems.newFileSystem(URI.create("jar:" + path.toUri()), Map.of("create", String.valueOf(create)));
+		// the zip file system provides the paths of the entries, the entries are listed and read directly from the archive with RF2ZipArchive.
+		// File systems opened through the provider are not registered by their URI, so the same release can be opened by concurrent tasks
+		return ZIP_PROVIDER.newFileSystem(path, Map.of("create", String.valueOf(create)));
 	}
 	
 	@Override
@@ -91,32 +124,54 @@ public final class RF2Release extends RF2File {
 		context.task("Creating release '%s'", getPath()).run(() -> {
 			final RF2Specification specification = context.getSpecification();
 
-			try (FileSystem zipfs = openZipfs(true, getPath())) {
+			try (RF2CreateExecutor files = new RF2CreateExecutor();
+					RF2ZipWriter zip = new RF2ZipWriter(getPath(), context.getCompressionLevel())) {
+				// the directories of the release exist only in the archive, their paths are used to name the entries
+				final Path archiveRoot = getPath().getFileSystem().getPath(RF2Directory.ROOT_PATH);
 				// root folder with same name
-				RF2Directory rootDir = new RF2DirectoryName(getRF2FileName().getFileName()).createRF2File(zipfs.getPath("/"), specification);
-				rootDir.create(context);
+				RF2Directory rootDir = new RF2DirectoryName(getRF2FileName().getFileName()).createRF2File(archiveRoot, specification);
+				zip.putDirectory(getEntryName(rootDir.getPath()));
 
 				RF2ReleaseSpecification release = specification.getRelease();
+				// the versions of each data file in the contentSubType directories are created together, from a single scan of the sources
+				final Map<RF2ContentFileSpecification, Map<Integer, Path>> dataFiles = new LinkedHashMap<>();
+				final Map<Integer, String> contentSubTypes = new HashMap<>();
 				for (String contentSubType : release.getContentSubTypes()) {
 					RF2Directory contentSubTypeDir = new RF2DirectoryName(contentSubType).createRF2File(rootDir.getPath(), specification);
-					contentSubTypeDir.create(context);
+					zip.putDirectory(getEntryName(contentSubTypeDir.getPath()));
 
 					for (Entry<String, List<RF2ContentFileSpecification>> entry : release.getContent().getFiles().entrySet()) {
 						RF2Directory rf2Directory = new RF2DirectoryName(entry.getKey()).createRF2File(contentSubTypeDir.getPath(), specification);
-						entry.getValue()
-							.stream()
-							.filter(RF2ContentFileSpecification::isDataFile)
-							.forEach(file -> {
-								try {
-									rf2Directory.create(context);
-									file.prepare(rf2Directory.getPath(), release, contentSubType)
-										.create(context);
-								} catch (IOException e) {
-									throw new RuntimeException(e);
-								}
-							});
+						for (RF2ContentFileSpecification file : entry.getValue()) {
+							if (file.isDataFile()) {
+								zip.putDirectory(getEntryName(rf2Directory.getPath()));
+								// files are compressed into the release in the order of their positions
+								final int position = contentSubTypes.size();
+								contentSubTypes.put(position, contentSubType);
+								dataFiles.computeIfAbsent(file, key -> new LinkedHashMap<>()).put(position, rf2Directory.getPath());
+							}
+						}
 					}
 				}
+				// Full and Delta lines are written in the order they are read, so their single scan is sequential. Snapshot files are created on their
+				// own, from a parallel scan of the sources, so their lines are always sorted regardless of the number of data files and processors
+				dataFiles.forEach((file, targetDirectories) -> {
+					final Map<Integer, Path> snapshotDirectories = new LinkedHashMap<>();
+					final Map<Integer, Path> otherDirectories = new LinkedHashMap<>();
+					targetDirectories.forEach((position, directory) -> {
+						final boolean snapshot = RF2ContentSubType.SNAPSHOT.getReleaseType().equals(contentSubTypes.get(position));
+						(snapshot ? snapshotDirectories : otherDirectories).put(position, directory);
+					});
+					for (Map<Integer, Path> group : List.of(snapshotDirectories, otherDirectories)) {
+						if (!group.isEmpty()) {
+							files.create(group, 
+									(position, directory) -> (RF2ContentFile) file.prepare(directory, release, contentSubTypes.get(position)), 
+									RF2ContentFile::create, 
+									createdFiles -> RF2ContentFile.estimateIndexSize(createdFiles, context),
+									context);
+						}
+					}
+				});
 
 				// create all non-data files outside of the contentSubType directories
 				for (Entry<String, List<RF2ContentFileSpecification>> entry : release.getContent().getFiles().entrySet()) {
@@ -126,14 +181,16 @@ public final class RF2Release extends RF2File {
 						.filter(Predicate.not(RF2ContentFileSpecification::isDataFile))
 						.forEach(file -> {
 							try {
-								rf2Directory.create(context);
-								file.prepare(rf2Directory.getPath(), release, null /*use specification based contentSubType*/)
-									.create(context);
+								zip.putDirectory(getEntryName(rf2Directory.getPath()));
+								files.create(rf2Directory.getPath(), directory -> file.prepare(directory, release, null /*use specification based contentSubType*/), context);
 							} catch (Exception e) {
 								throw new RuntimeException(e);
 							}
 						});
 				}
+				
+				// files are created in parallel and compressed into the release in the order above
+				files.report((file, targetPath) -> zip.putFile(getEntryName(targetPath), file));
 			}			
 		}); 
 	}
@@ -142,40 +199,127 @@ public final class RF2Release extends RF2File {
 	public void transform(RF2TransformContext context) throws IOException {
 		context.task("Transforming release '%s'", getPath()).run(() -> {
 			final RF2File release = getRF2FileName().createRF2File(context.getParent(), context.getSpecification());
-			try (FileSystem newReleaseZipfs = openZipfs(true, release.getPath())) {
+			// files are transformed into a local directory first, then compressed into the new release in parallel
+			final Path stagingDirectory = Files.createTempDirectory("rf2-transform");
+			try {
 				try (FileSystem sourceReleaseZipfs = openZipfs(false, getPath())) {
-					
-					for (Path root : sourceReleaseZipfs.getRootDirectories()) {
-						listFiles(root).forEach(path -> {
-							try {
-								specification.detect(path).transform(context.newSubContext(newReleaseZipfs.getPath(root.toString())));
-							} catch (IOException e) {
-								throw new RuntimeException("Couldn't transform path: " + path, e);
-							}
-						});
+					listFiles(sourceReleaseZipfs).forEach(path -> {
+						try {
+							specification.detect(path).transform(context.newSubContext(stagingDirectory));
+						} catch (IOException e) {
+							throw new RuntimeException("Couldn't transform path: " + path, e);
+						}
+					});
+				}
+				
+				try (RF2ZipWriter zip = new RF2ZipWriter(release.getPath(), context.getCompressionLevel());
+						Stream<Path> paths = Files.walk(stagingDirectory)) {
+					// sorted paths list directories before their content
+					for (Path path : (Iterable<Path>) paths.filter(path -> !path.equals(stagingDirectory)).sorted()::iterator) {
+						final String name = getEntryName(stagingDirectory.relativize(path));
+						if (Files.isDirectory(path)) {
+							zip.putDirectory(name);
+						} else {
+							zip.putFile(name, path);
+						}
+					}
+				}
+			} finally {
+				try (Stream<Path> paths = Files.walk(stagingDirectory)) {
+					for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+						Files.deleteIfExists(path);
 					}
 				}
 			}
 		});
 	}
 	
+	/**
+	 * @return the name of the zip entry of the given path, the names of its elements separated by <code>/</code>
+	 */
+	private static String getEntryName(Path path) {
+		final StringJoiner name = new StringJoiner("/");
+		for (Path element : path) {
+			name.add(element.toString());
+		}
+		return name.toString();
+	}
+	
 	@Override
-	public void diff(RF2File other, Console console) throws IOException {
+	public void diff(RF2File other, RF2DiffContext context) throws IOException {
+		try (RF2DiffExecutor diffs = new RF2DiffExecutor()) {
+			diff(other, context, diffs);
+			diffs.report();
+		}
+	}
+	
+	/**
+	 * Pairs the files of this and the other release and submits their diffs to the given executor. The file systems of the releases stay open
+	 * until the executor is closed.
+	 */
+	void diff(RF2File other, RF2DiffContext context, RF2DiffExecutor diffs) throws IOException {
 		Preconditions.checkArgument(other instanceof RF2Release, "RF2 Release '%s' cannot be compared with file: '%s'", getRF2FileName(), other.getRF2FileName());
-		console.log("%s -> %s", getRF2FileName(), other.getRF2FileName());
-		try (FileSystem compareZipfs = openZipfs(false, getPath())) {
-			try (FileSystem baseZipfs = openZipfs(false, other.getPath())) {
-				Path compareRoot = Iterables.getOnlyElement(compareZipfs.getRootDirectories());
-				Path baseRoot = Iterables.getOnlyElement(baseZipfs.getRootDirectories());
-				Path compareFile = listFiles(compareRoot).findFirst().get();
-				Path baseFile = listFiles(baseRoot).findFirst().get();
-				specification.detect(compareFile).diff(specification.detect(baseFile), console.indent(2));
+		diffs.log(context, "%s -> %s", getRF2FileName(), other.getRF2FileName());
+		final RF2DiffContext fileContext = context.newSubContext(context.indent(2));
+		final FileSystem compareZipfs = diffs.register(openZipfs(false, getPath()));
+		final FileSystem baseZipfs = diffs.register(openZipfs(false, other.getPath()));
+		final Map<String, List<RF2File>> compareFiles = getFilesByDiffKey(getPath(), compareZipfs);
+		final Map<String, List<RF2File>> baseFiles = getFilesByDiffKey(other.getPath(), baseZipfs);
+		for (String key : ImmutableSortedSet.copyOf(Sets.union(compareFiles.keySet(), baseFiles.keySet()))) {
+			final List<RF2File> compareFilesWithKey = compareFiles.getOrDefault(key, List.of());
+			final List<RF2File> baseFilesWithKey = baseFiles.getOrDefault(key, List.of());
+			for (int i = 0; i < Math.max(compareFilesWithKey.size(), baseFilesWithKey.size()); i++) {
+				final RF2File compareFile = i < compareFilesWithKey.size() ? compareFilesWithKey.get(i) : null;
+				final RF2File baseFile = i < baseFilesWithKey.size() ? baseFilesWithKey.get(i) : null;
+				if (compareFile == null) {
+					diffs.log(fileContext, "-%s", baseFile.getRF2FileName());
+				} else if (baseFile == null) {
+					diffs.log(fileContext, "+%s", compareFile.getRF2FileName());
+				} else {
+					diffs.diff(compareFile, baseFile, fileContext);
+				}
 			}
 		}
 	}
+	
+	/**
+	 * Collects the files of a release by the key they are paired with the files of another release. Content files are paired by their content
+	 * type, summary and content subtype (ignoring their version date and namespace), any other files are paired by their file name. Files with the
+	 * same key are paired in the order of their paths.
+	 */
+	private Map<String, List<RF2File>> getFilesByDiffKey(Path releasePath, FileSystem zipfs) throws IOException {
+		final Map<String, List<RF2File>> filesByKey = new HashMap<>();
+		RF2ZipArchive.get(releasePath).getEntryNames().stream()
+			.filter(name -> !name.endsWith("/"))
+			.sorted()
+			.forEach(name -> {
+				final RF2File file = specification.detect(zipfs.getPath(RF2Directory.ROOT_PATH, name));
+				filesByKey.computeIfAbsent(getDiffKey(file), key -> new ArrayList<>()).add(file);
+			});
+		return filesByKey;
+	}
+	
+	private static String getDiffKey(RF2File file) {
+		final RF2FileName fileName = file.getRF2FileName();
+		if (!(file instanceof RF2ContentFile)) {
+			return fileName.getFileName();
+		}
+		return String.join(RF2FileName.ELEMENT_SEPARATOR,
+				fileName.getElement(RF2ContentType.class).map(RF2ContentType::getContentType).orElse(""),
+				fileName.getElement(RF2ContentSubType.class).map(RF2ContentSubType::toString).orElse(""));
+	}
 
-	private Stream<Path> listFiles(Path root) throws IOException {
-		return Files.walk(root, 1).filter(path -> !RF2Directory.ROOT_PATH.equals(path.toString())).sorted();
+	/**
+	 * @return the paths of the top-level files and directories of this release in the given file system of this release, listed from the central
+	 *         directory of its archive
+	 */
+	private Stream<Path> listFiles(FileSystem zipfs) throws IOException {
+		return RF2ZipArchive.get(getPath()).getEntryNames().stream()
+				.map(name -> name.indexOf('/') < 0 ? name : name.substring(0, name.indexOf('/')))
+				.filter(name -> !name.isEmpty())
+				.distinct()
+				.sorted()
+				.map(name -> zipfs.getPath(RF2Directory.ROOT_PATH, name));
 	}
 
 }
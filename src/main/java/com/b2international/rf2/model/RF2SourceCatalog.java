@@ -0,0 +1,129 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+
+/**
+ * The files of a set of RF2 sources, collected once and shared by all files created from them. Source releases are opened only once and their
+ * file systems are kept open until the catalog is closed, the headers of the source content files are read only once as well.
+ * <p>
+ * The catalog is opened on first access, so it can be created before it is known whether any file needs the sources.
+ * </p>
+ *
+ * @since 0.4
+ */
+public final class RF2SourceCatalog implements Closeable {
+
+	private final List<RF2File> sources;
+	private final List<FileSystem> fileSystems = new ArrayList<>();
+	private List<RF2File> files;
+	private ImmutableListMultimap<List<String>, RF2ContentFile> contentFilesByHeader;
+
+	/**
+	 * @param sources - the RF2 sources (releases, directories or files) to collect the files of
+	 */
+	public RF2SourceCatalog(List<RF2File> sources) {
+		this.sources = ImmutableList.copyOf(sources);
+	}
+
+	/**
+	 * @return the RF2 sources of this catalog.
+	 */
+	public List<RF2File> getSources() {
+		return sources;
+	}
+
+	/**
+	 * @return all files of the sources in the order they are visited (excluding releases and directories).
+	 * @throws IOException
+	 */
+	public synchronized List<RF2File> getFiles() throws IOException {
+		open();
+		return files;
+	}
+
+	/**
+	 * @param header
+	 * @return the content files of the sources with the given header in the order they are visited.
+	 * @throws IOException
+	 */
+	public synchronized List<RF2ContentFile> getContentFiles(String[] header) throws IOException {
+		open();
+		return contentFilesByHeader.get(Arrays.asList(header));
+	}
+
+	private void open() throws IOException {
+		if (files != null) {
+			return;
+		}
+		final ImmutableList.Builder<RF2File> files = ImmutableList.builder();
+		final ImmutableListMultimap.Builder<List<String>, RF2ContentFile> contentFilesByHeader = ImmutableListMultimap.builder();
+		final Consumer<RF2File> collector = file -> {
+			if (file instanceof RF2Release || file instanceof RF2Directory) {
+				return;
+			}
+			files.add(file);
+			if (file instanceof RF2ContentFile) {
+				final RF2ContentFile contentFile = (RF2ContentFile) file;
+				// reads and caches the header
+				contentFilesByHeader.put(Arrays.asList(contentFile.getHeader()), contentFile);
+			}
+		};
+		try {
+			for (RF2File source : sources) {
+				if (source instanceof RF2Release) {
+					fileSystems.add(((RF2Release) source).open(collector));
+				} else {
+					source.visit(collector);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			close();
+			throw e;
+		}
+		this.files = files.build();
+		this.contentFilesByHeader = contentFilesByHeader.build();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		IOException failure = null;
+		for (FileSystem fileSystem : fileSystems) {
+			try {
+				fileSystem.close();
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		fileSystems.clear();
+		files = null;
+		contentFilesByHeader = null;
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+}
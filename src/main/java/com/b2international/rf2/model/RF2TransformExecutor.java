@@ -0,0 +1,241 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.model;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.b2international.rf2.console.Console;
+import com.b2international.rf2.transform.RF2RowTransformer;
+import com.b2international.rf2.transform.RF2Transformation;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Transforms the rows of an RF2 content file in chunks. With more than one thread the chunks are transformed concurrently, each worker runs
+ * its own transformer (and instance of the script), and the transformed chunks are written in the order of their sequence numbers, so the
+ * output is the same as the output of a sequential transform. With a single thread the chunks are transformed on the calling thread.
+ *
+ * @since 0.4
+ */
+final class RF2TransformExecutor implements AutoCloseable {
+
+	static final int DEFAULT_CHUNK_SIZE = 8192;
+
+	private final RF2ContentFile file;
+	private final String[] header;
+	private final ExecutorService executor;
+	private final ThreadLocal<RF2RowTransformer> transformers;
+	private final int chunkSize;
+	private final int maxPendingChunks;
+	private final Deque<Future<TransformedChunk>> pendingChunks = new ArrayDeque<>();
+
+	private long nextSequence;
+	private long writtenSequence;
+	private int numberOfTotalRows;
+	private int numberOfModifiedRows;
+	private int numberOfFilteredRows;
+
+	/**
+	 * @param file - the transformed file, available to the script as <code>_file</code>
+	 * @param header - the header of the transformed file
+	 * @param transformation - the script or rules to apply to each row
+	 * @param threads - the number of rows chunks to transform at the same time
+	 */
+	RF2TransformExecutor(RF2ContentFile file, String[] header, RF2Transformation transformation, int threads) {
+		this(file, header, transformation, threads, DEFAULT_CHUNK_SIZE);
+	}
+
+	RF2TransformExecutor(RF2ContentFile file, String[] header, RF2Transformation transformation, int threads, int chunkSize) {
+		Preconditions.checkArgument(threads > 0, "Number of threads must be greater than zero, was: %s", threads);
+		Preconditions.checkArgument(chunkSize > 0, "Chunk size must be greater than zero, was: %s", chunkSize);
+		this.file = file;
+		this.header = header;
+		// transformers are not thread-safe, each worker compiles (or looks up) and instantiates its own
+		this.transformers = ThreadLocal.withInitial(() -> transformation.newTransformer(file));
+		this.executor = threads == 1 ? null
+				: Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("rf2-transform-%d").setDaemon(true).build());
+		this.chunkSize = chunkSize;
+		// keep every worker busy while the transformed chunks are written, without reading the entire file into memory
+		this.maxPendingChunks = threads * 2;
+	}
+
+	/**
+	 * Transforms the given rows and writes the included rows to the given writer in their original order. Rows with an incorrect number of
+	 * columns are reported to the console and written as they are.
+	 *
+	 * @param rows - the rows of the file without the header
+	 * @param writer - the writer of the transformed file, positioned after the header
+	 * @param console - receives the warnings about the incorrect rows
+	 * @throws IOException
+	 */
+	void transform(Iterable<String[]> rows, Writer writer, Console console) throws IOException {
+		List<String[]> chunk = new ArrayList<>(chunkSize);
+		for (String[] row : rows) {
+			if (header.length != row.length) {
+				console.warn("Incorrect number of columns in line: %s", Arrays.toString(row));
+			}
+			chunk.add(row);
+			if (chunk.size() == chunkSize) {
+				submit(chunk, writer);
+				chunk = new ArrayList<>(chunkSize);
+			}
+		}
+		if (!chunk.isEmpty()) {
+			submit(chunk, writer);
+		}
+		while (!pendingChunks.isEmpty()) {
+			write(await(pendingChunks.poll()), writer);
+		}
+	}
+
+	/**
+	 * @return the number of rows with the correct number of columns the script or rules were applied to
+	 */
+	int getNumberOfTotalRows() {
+		return numberOfTotalRows;
+	}
+
+	/**
+	 * @return the number of included rows with at least one modified column value
+	 */
+	int getNumberOfModifiedRows() {
+		return numberOfModifiedRows;
+	}
+
+	/**
+	 * @return the number of rows excluded by the script or rules
+	 */
+	int getNumberOfFilteredRows() {
+		return numberOfFilteredRows;
+	}
+
+	private void submit(List<String[]> rows, Writer writer) throws IOException {
+		final long sequence = nextSequence++;
+		if (executor == null) {
+			write(transform(sequence, rows), writer);
+			return;
+		}
+		while (pendingChunks.size() >= maxPendingChunks) {
+			write(await(pendingChunks.poll()), writer);
+		}
+		pendingChunks.add(executor.submit(() -> transform(sequence, rows)));
+	}
+
+	private TransformedChunk transform(long sequence, List<String[]> rows) {
+		final RF2RowTransformer transformer = transformers.get();
+		final String[] values = new String[header.length];
+		final TransformedChunk chunk = new TransformedChunk(sequence, rows.size());
+		for (String[] line : rows) {
+			if (header.length != line.length) {
+				// just write the line back as is
+				chunk.append(line);
+				continue;
+			}
+
+			System.arraycopy(line, 0, values, 0, line.length);
+			final Object returnValue = transformer.transform(file, values);
+
+			final boolean include = !(returnValue instanceof Boolean) || (boolean) returnValue;
+			if (include) {
+				boolean modified = false;
+				for (int i = 0; i < header.length; i++) {
+					if (values[i] == null) {
+						values[i] = "";
+					}
+					modified |= !values[i].equals(line[i]);
+				}
+				if (modified) {
+					chunk.numberOfModifiedRows++;
+				}
+				chunk.append(values);
+			} else {
+				chunk.numberOfFilteredRows++;
+			}
+			chunk.numberOfTotalRows++;
+		}
+		return chunk;
+	}
+
+	private TransformedChunk await(Future<TransformedChunk> pendingChunk) throws IOException {
+		try {
+			return pendingChunk.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for transformed rows");
+		} catch (ExecutionException e) {
+			Throwables.propagateIfPossible(e.getCause(), IOException.class);
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private void write(TransformedChunk chunk, Writer writer) throws IOException {
+		Preconditions.checkState(chunk.sequence == writtenSequence, "Expected rows chunk %s, got %s", writtenSequence, chunk.sequence);
+		writtenSequence++;
+		writer.append(chunk.output);
+		numberOfTotalRows += chunk.numberOfTotalRows;
+		numberOfModifiedRows += chunk.numberOfModifiedRows;
+		numberOfFilteredRows += chunk.numberOfFilteredRows;
+	}
+
+	@Override
+	public void close() {
+		if (executor != null) {
+			// cancel the remaining chunks if the transform failed
+			executor.shutdownNow();
+		}
+	}
+
+	private static final class TransformedChunk {
+
+		// estimated length of a row in the output
+		private static final int ROW_LENGTH = 128;
+
+		private final long sequence;
+		private final StringBuilder output;
+		private int numberOfTotalRows;
+		private int numberOfModifiedRows;
+		private int numberOfFilteredRows;
+
+		TransformedChunk(long sequence, int numberOfRows) {
+			this.sequence = sequence;
+			this.output = new StringBuilder(numberOfRows * ROW_LENGTH);
+		}
+
+		void append(String[] values) {
+			for (int i = 0; i < values.length; i++) {
+				if (i > 0) {
+					output.append(RF2File.TAB);
+				}
+				output.append(values[i]);
+			}
+			output.append(RF2File.CRLF);
+		}
+
+	}
+
+}
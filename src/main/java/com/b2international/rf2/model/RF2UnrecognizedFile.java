@@ -16,13 +16,13 @@
 package com.b2international.rf2.model;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.function.Consumer;
 
 import com.b2international.rf2.RF2CreateContext;
+import com.b2international.rf2.RF2DiffContext;
 import com.b2international.rf2.RF2TransformContext;
-import com.b2international.rf2.console.Console;
+import com.b2international.rf2.io.RF2ZipArchive;
 import com.b2international.rf2.naming.RF2FileName;
 
 /**
@@ -50,7 +50,7 @@ public final class RF2UnrecognizedFile extends RF2File {
     		.task("Copying unrecognized file '%s'", getPath())
     		.run(() -> {
     			// In case of unrecognized files transform is essentially a copy
-    			Files.copy(getPath(), getRF2FileName().createRF2File(context.getParent(), context.getSpecification()).getPath());
+    			RF2ZipArchive.copy(getPath(), getRF2FileName().createRF2File(context.getParent(), context.getSpecification()).getPath());
     		});
     }
 
@@ -60,7 +60,7 @@ public final class RF2UnrecognizedFile extends RF2File {
 	}
 	
 	@Override
-	public void diff(RF2File other, Console console) throws IOException {
+	public void diff(RF2File other, RF2DiffContext context) throws IOException {
 		
 	}
 	
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.sctid;
+
+/**
+ * Table driven implementation of the Verhoeff algorithm for verifying and computing check digits of numeric codes in bulk, either as
+ * <code>long</code> values or as ASCII digits in a byte array (eg. the column values of RF2 rows). Codes given as <code>long</code> values cannot
+ * have leading zeros.
+ * <p>
+ * Unlike {@link RF2VerhoeffCheck}, the methods of this class do not throw exceptions for invalid input, they report the outcome with one of the
+ * result codes of this class instead.
+ * </p>
+ *
+ * @since 0.4
+ */
+public final class RF2Verhoeff {
+
+	/**
+	 * The code has a valid check digit.
+	 */
+	public static final byte VALID = 0;
+
+	/**
+	 * The code consists of digits only, but its check digit is incorrect.
+	 */
+	public static final byte INVALID_CHECK_DIGIT = 1;
+
+	/**
+	 * The code has a character that is not an ASCII digit or it is a negative number.
+	 */
+	public static final byte INVALID_DIGIT = 2;
+
+	/**
+	 * The code does not have any digits.
+	 */
+	public static final byte EMPTY = 3;
+
+	/**
+	 * Returned instead of a check digit if the check digit cannot be computed for a code.
+	 */
+	public static final byte NO_CHECK_DIGIT = -1;
+
+	private static final int[][] D_TABLE = {
+			{ 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 },
+			{ 1, 2, 3, 4, 0, 6, 7, 8, 9, 5 },
+			{ 2, 3, 4, 0, 1, 7, 8, 9, 5, 6 },
+			{ 3, 4, 0, 1, 2, 8, 9, 5, 6, 7 },
+			{ 4, 0, 1, 2, 3, 9, 5, 6, 7, 8 },
+			{ 5, 9, 8, 7, 6, 0, 4, 3, 2, 1 },
+			{ 6, 5, 9, 8, 7, 1, 0, 4, 3, 2 },
+			{ 7, 6, 5, 9, 8, 2, 1, 0, 4, 3 },
+			{ 8, 7, 6, 5, 9, 3, 2, 1, 0, 4 },
+			{ 9, 8, 7, 6, 5, 4, 3, 2, 1, 0 } };
+
+	private static final int[][] P_TABLE = {
+			{ 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 },
+			{ 1, 5, 7, 6, 2, 8, 3, 0, 9, 4 },
+			{ 5, 8, 0, 3, 7, 9, 6, 1, 4, 2 },
+			{ 8, 9, 1, 6, 0, 4, 3, 5, 2, 7 },
+			{ 9, 4, 5, 3, 1, 2, 6, 8, 7, 0 },
+			{ 4, 2, 8, 6, 5, 7, 3, 9, 0, 1 },
+			{ 2, 7, 9, 3, 8, 0, 6, 4, 1, 5 },
+			{ 7, 0, 4, 6, 9, 1, 3, 2, 5, 8 } };
+
+	private static final byte[] INV_TABLE = { 0, 4, 3, 2, 1, 5, 6, 7, 8, 9 };
+
+	/**
+	 * The multiplication and permutation tables combined into a single lookup of one digit, indexed by <tt>(checksum * 8 + position % 8) * 10 + digit</tt>.
+	 */
+	private static final byte[] STEP_TABLE = new byte[10 * 8 * 10];
+
+	/**
+	 * Same as {@link #STEP_TABLE}, but for two consecutive digits at once, indexed by <tt>(checksum * 8 + position % 8) * 100 + digits</tt>, where
+	 * the digit at <tt>position</tt> is the last digit of <tt>digits</tt>.
+	 */
+	private static final byte[] STEP2_TABLE = new byte[10 * 8 * 100];
+
+	static {
+		for (int checksum = 0; checksum < 10; checksum++) {
+			for (int position = 0; position < 8; position++) {
+				for (int digit = 0; digit < 10; digit++) {
+					STEP_TABLE[(checksum * 8 + position) * 10 + digit] = (byte) D_TABLE[checksum][P_TABLE[position][digit]];
+				}
+			}
+		}
+		for (int checksum = 0; checksum < 10; checksum++) {
+			for (int position = 0; position < 8; position++) {
+				for (int digits = 0; digits < 100; digits++) {
+					final int first = step(checksum, position, digits % 10);
+					STEP2_TABLE[(checksum * 8 + position) * 100 + digits] = (byte) step(first, position + 1, digits / 10);
+				}
+			}
+		}
+	}
+
+	private RF2Verhoeff() {}
+
+	/**
+	 * Adds a single digit to a running Verhoeff checksum. Digits must be added from right to left, a code (including its check digit) is valid if
+	 * the checksum of all of its digits is zero.
+	 *
+	 * @param checksum - the checksum of the digits added so far, <tt>0</tt> for the first digit
+	 * @param position - the position of the digit counted from the right, the check digit is at position 0
+	 * @param digit - the value of the digit, must be between 0 and 9
+	 * @return the new checksum
+	 */
+	public static int step(final int checksum, final int position, final int digit) {
+		return STEP_TABLE[(checksum * 8 + (position & 7)) * 10 + digit];
+	}
+
+	/**
+	 * @param code - the code including its check digit as last decimal digit
+	 * @return {@link #VALID}, {@link #INVALID_CHECK_DIGIT} or {@link #INVALID_DIGIT} for negative codes
+	 */
+	public static byte verify(final long code) {
+		if (code < 0L) {
+			return INVALID_DIGIT;
+		}
+		return checksum(code, 0) == 0 ? VALID : INVALID_CHECK_DIGIT;
+	}
+
+	/**
+	 * @param code - the code without check digit
+	 * @return the check digit of the given code (0-9) or {@link #NO_CHECK_DIGIT} for negative codes
+	 */
+	public static byte checkDigit(final long code) {
+		if (code < 0L) {
+			return NO_CHECK_DIGIT;
+		}
+		return INV_TABLE[checksum(code, 1)];
+	}
+
+	/**
+	 * Verifies the check digit of the code in the given range of the given byte array, where each byte should be an ASCII digit.
+	 *
+	 * @param buffer
+	 * @param offset - the offset of the first digit
+	 * @param length - the number of digits, including the check digit
+	 * @return {@link #VALID}, {@link #INVALID_CHECK_DIGIT}, {@link #INVALID_DIGIT} or {@link #EMPTY}
+	 */
+	public static byte verify(final byte[] buffer, final int offset, final int length) {
+		if (length <= 0) {
+			return EMPTY;
+		}
+		final int checksum = checksum(buffer, offset, length, 0);
+		if (checksum < 0) {
+			return INVALID_DIGIT;
+		}
+		return checksum == 0 ? VALID : INVALID_CHECK_DIGIT;
+	}
+
+	/**
+	 * Computes the check digit of the code in the given range of the given byte array, where each byte should be an ASCII digit.
+	 *
+	 * @param buffer
+	 * @param offset - the offset of the first digit
+	 * @param length - the number of digits, without the check digit
+	 * @return the check digit of the given code (0-9) or {@link #NO_CHECK_DIGIT} if the code is empty or has any non-digit characters
+	 */
+	public static byte checkDigit(final byte[] buffer, final int offset, final int length) {
+		if (length <= 0) {
+			return NO_CHECK_DIGIT;
+		}
+		final int checksum = checksum(buffer, offset, length, 1);
+		return checksum < 0 ? NO_CHECK_DIGIT : INV_TABLE[checksum];
+	}
+
+	/**
+	 * Verifies the check digits of the given codes.
+	 *
+	 * @param codes - codes including their check digit
+	 * @param from - the index of the first code to verify
+	 * @param to - the index after the last code to verify
+	 * @param results - receives the {@link #verify(long) result} of each code at the same index
+	 * @return the number of codes that are not {@link #VALID}
+	 */
+	public static int verify(final long[] codes, final int from, final int to, final byte[] results) {
+		int invalid = 0;
+		for (int i = from; i < to; i++) {
+			final byte result = verify(codes[i]);
+			results[i] = result;
+			if (result != VALID) {
+				invalid++;
+			}
+		}
+		return invalid;
+	}
+
+	/**
+	 * Computes the check digits of the given codes.
+	 *
+	 * @param codes - codes without check digit
+	 * @param from - the index of the first code
+	 * @param to - the index after the last code
+	 * @param checkDigits - receives the {@link #checkDigit(long) check digit} of each code at the same index
+	 */
+	public static void checkDigits(final long[] codes, final int from, final int to, final byte[] checkDigits) {
+		for (int i = from; i < to; i++) {
+			checkDigits[i] = checkDigit(codes[i]);
+		}
+	}
+
+	/**
+	 * Appends the check digit to each of the given codes in place, eg. to generate identifiers from item identifiers with partition identifiers.
+	 * Negative codes are left unchanged.
+	 *
+	 * @param codes - codes without check digit
+	 * @param from - the index of the first code
+	 * @param to - the index after the last code
+	 */
+	public static void appendCheckDigits(final long[] codes, final int from, final int to) {
+		for (int i = from; i < to; i++) {
+			final long code = codes[i];
+			if (code >= 0L) {
+				codes[i] = code * 10 + INV_TABLE[checksum(code, 1)];
+			}
+		}
+	}
+
+	/**
+	 * Verifies the check digits of a column of codes stored as ASCII digits in a byte array.
+	 *
+	 * @param buffer - the array containing all codes
+	 * @param offsets - the offset of each code in the buffer
+	 * @param lengths - the length of each code (including its check digit)
+	 * @param from - the index of the first code to verify
+	 * @param to - the index after the last code to verify
+	 * @param results - receives the {@link #verify(byte[], int, int) result} of each code at the same index
+	 * @return the number of codes that are not {@link #VALID}
+	 */
+	public static int verify(final byte[] buffer, final int[] offsets, final int[] lengths, final int from, final int to, final byte[] results) {
+		int invalid = 0;
+		for (int i = from; i < to; i++) {
+			final byte result = verify(buffer, offsets[i], lengths[i]);
+			results[i] = result;
+			if (result != VALID) {
+				invalid++;
+			}
+		}
+		return invalid;
+	}
+
+	/**
+	 * Computes the check digits of a column of codes stored as ASCII digits in a byte array.
+	 *
+	 * @param buffer - the array containing all codes
+	 * @param offsets - the offset of each code in the buffer
+	 * @param lengths - the length of each code (without check digit)
+	 * @param from - the index of the first code
+	 * @param to - the index after the last code
+	 * @param checkDigits - receives the {@link #checkDigit(byte[], int, int) check digit} of each code at the same index
+	 */
+	public static void checkDigits(final byte[] buffer, final int[] offsets, final int[] lengths, final int from, final int to, final byte[] checkDigits) {
+		for (int i = from; i < to; i++) {
+			checkDigits[i] = checkDigit(buffer, offsets[i], lengths[i]);
+		}
+	}
+
+	/*
+	 * Computes the checksum of the decimal digits of a non-negative code two digits at a time, starting with the last digit at the given position.
+	 */
+	private static int checksum(long code, int position) {
+		final int start = position;
+		int checksum = 0;
+		while (code >= 10L) {
+			checksum = STEP2_TABLE[(checksum * 8 + (position & 7)) * 100 + (int) (code % 100L)];
+			code /= 100L;
+			position += 2;
+		}
+		// the remaining most significant digit (or the only digit of zero)
+		if (code > 0L || position == start) {
+			checksum = STEP_TABLE[(checksum * 8 + (position & 7)) * 10 + (int) code];
+		}
+		return checksum;
+	}
+
+	/*
+	 * Computes the checksum of the ASCII digits in the given range two digits at a time, starting with the last digit at the given position, or
+	 * returns -1 if there is a non-digit character in the range.
+	 */
+	private static int checksum(final byte[] buffer, final int offset, final int length, int position) {
+		int checksum = 0;
+		int i = offset + length - 1;
+		for (; i > offset; i -= 2, position += 2) {
+			final int last = buffer[i] - '0';
+			final int previous = buffer[i - 1] - '0';
+			if ((last | previous) < 0 || last > 9 || previous > 9) {
+				return -1;
+			}
+			checksum = STEP2_TABLE[(checksum * 8 + (position & 7)) * 100 + previous * 10 + last];
+		}
+		// the remaining first digit of codes with an odd number of digits
+		if (i == offset) {
+			final int digit = buffer[i] - '0';
+			if (digit < 0 || digit > 9) {
+				return -1;
+			}
+			checksum = STEP_TABLE[(checksum * 8 + (position & 7)) * 10 + digit];
+		}
+		return checksum;
+	}
+
+}
@@ -31,7 +31,8 @@ public class RF2Filter {
     @JsonAnySetter
     public void set(String key, Object value) {
         Preconditions.checkNotNull(value);
-        if (value instanceof Long) {
+        if (value instanceof Number) {
+            // small values, like the ones of active columns, are parsed as Integers
             filters.put(key, String.valueOf(value));
         } else if(value instanceof String) {
             filters.put(key, (String) value);
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.transform;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+
+import groovy.lang.Binding;
+
+/**
+ * A reusable script {@link Binding} for the rows of RF2 files with the same header. The column variables are backed by an array indexed by the
+ * position of the column in the header, so binding a row does not create a variable map. Other variables set by the script are cleared when the
+ * next row is bound, just like a new binding per row would do.
+ *
+ * @since 0.4
+ */
+public final class RF2RowBinding extends Binding {
+
+	/**
+	 * The name of the variable that holds the file of the current row.
+	 */
+	public static final String FILE_VARIABLE = "_file";
+
+	private final Map<String, Integer> columns;
+	private final Object[] values;
+	private Object file;
+
+	/**
+	 * @param header - the column names of the rows to bind
+	 */
+	public RF2RowBinding(String[] header) {
+		final Map<String, Integer> columns = new LinkedHashMap<>();
+		for (int i = 0; i < header.length; i++) {
+			columns.putIfAbsent(header[i], i);
+		}
+		this.columns = ImmutableMap.copyOf(columns);
+		this.values = new Object[header.length];
+	}
+
+	/**
+	 * Binds the given row, the previous column values and any other variables set by the script are discarded.
+	 *
+	 * @param file - the file of the row
+	 * @param row - the column values of the row
+	 */
+	public void bind(Object file, String[] row) {
+		this.file = file;
+		System.arraycopy(row, 0, values, 0, values.length);
+		final Map<?, ?> variables = super.getVariables();
+		if (!variables.isEmpty()) {
+			variables.clear();
+		}
+	}
+
+	/**
+	 * @param column - the index of the column in the header
+	 * @return the current value of the column variable
+	 */
+	public Object getValue(int column) {
+		return values[column];
+	}
+
+	@Override
+	public Object getVariable(String name) {
+		final Integer column = columns.get(name);
+		if (column != null) {
+			return values[column];
+		}
+		if (FILE_VARIABLE.equals(name)) {
+			return file;
+		}
+		return super.getVariable(name);
+	}
+
+	@Override
+	public void setVariable(String name, Object value) {
+		final Integer column = columns.get(name);
+		if (column != null) {
+			values[column] = value;
+		} else if (FILE_VARIABLE.equals(name)) {
+			file = value;
+		} else {
+			super.setVariable(name, value);
+		}
+	}
+
+	@Override
+	public boolean hasVariable(String name) {
+		return columns.containsKey(name) || FILE_VARIABLE.equals(name) || super.hasVariable(name);
+	}
+
+	/**
+	 * @return a snapshot of the variables of the current row, changes of the returned map are not reflected by the binding
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Override
+	public Map getVariables() {
+		final Map variables = new LinkedHashMap<>();
+		variables.put(FILE_VARIABLE, file);
+		columns.forEach((name, column) -> variables.put(name, values[column]));
+		variables.putAll(super.getVariables());
+		return variables;
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.transform;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import org.codehaus.groovy.control.CompilationFailedException;
+
+import com.b2international.rf2.model.RF2ContentFile;
+
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyShell;
+import groovy.lang.Script;
+
+/**
+ * A transform script compiled for the headers of the RF2 files it is applied to.
+ * <p>
+ * For each header the script is first compiled statically (with <code>@CompileStatic</code>) into the body of a method of a class, where the
+ * columns of the row are declared as <code>String</code> fields and <code>_file</code> is an {@link RF2ContentFile}. Column values are copied
+ * from and written back to the row array directly, so running the script needs neither a binding nor dynamic property lookups. Scripts that
+ * cannot be compiled this way (for example because they assign non-String values to columns, use undeclared variables or rely on dynamic
+ * dispatch) run as regular dynamic scripts with a reusable {@link RF2RowBinding}, with the same semantics as before.
+ * </p>
+ *
+ * @since 0.4
+ */
+public final class RF2RowScript implements RF2Transformation {
+
+	private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+
+	private final String rawScript;
+	private final GroovyClassLoader classLoader;
+	private final Class<? extends Script> scriptClass;
+	private final ConcurrentMap<List<String>, Optional<Class<? extends RF2RowTransformer>>> staticTransformers = new ConcurrentHashMap<>();
+
+	private RF2RowScript(String rawScript, GroovyClassLoader classLoader, Class<? extends Script> scriptClass) {
+		this.rawScript = rawScript;
+		this.classLoader = classLoader;
+		this.scriptClass = scriptClass;
+	}
+
+	/**
+	 * Compiles the given script as a dynamic script, it is compiled statically on demand for the headers it is applied to.
+	 *
+	 * @param rawScript - the Groovy source of the script
+	 * @return
+	 * @throws CompilationFailedException - if the script cannot be compiled
+	 */
+	@SuppressWarnings("unchecked")
+	public static RF2RowScript compile(String rawScript) {
+		final GroovyClassLoader classLoader = new GroovyShell(RF2RowScript.class.getClassLoader()).getClassLoader();
+		final Class<?> scriptClass = classLoader.parseClass(rawScript);
+		if (!Script.class.isAssignableFrom(scriptClass)) {
+			throw new IllegalArgumentException("Transform script must be a Groovy script, was: " + scriptClass.getName());
+		}
+		return new RF2RowScript(rawScript, classLoader, (Class<? extends Script>) scriptClass);
+	}
+
+	/**
+	 * @return a new instance of the dynamic script
+	 */
+	public Script newScript() {
+		try {
+			return scriptClass.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException("Couldn't instantiate script", e);
+		}
+	}
+
+	@Override
+	public RF2RowTransformer newTransformer(RF2ContentFile file) {
+		return newTransformer(file.getHeader());
+	}
+
+	/**
+	 * @param header - the column names of the rows to transform
+	 * @return a new transformer of rows with the given header, statically compiled if the script allows it
+	 */
+	public RF2RowTransformer newTransformer(String[] header) {
+		final Optional<Class<? extends RF2RowTransformer>> staticTransformer = staticTransformers.computeIfAbsent(Arrays.asList(header.clone()), this::compileStatic);
+		if (staticTransformer.isPresent()) {
+			try {
+				return staticTransformer.get().getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException e) {
+				throw new RuntimeException("Couldn't instantiate statically compiled script", e);
+			}
+		}
+		return new DynamicRowTransformer(newScript(), header);
+	}
+
+	/**
+	 * @param header
+	 * @return <code>true</code> if the script is compiled statically for the given header
+	 */
+	public boolean isStatic(String[] header) {
+		return staticTransformers.computeIfAbsent(Arrays.asList(header.clone()), this::compileStatic).isPresent();
+	}
+
+	@SuppressWarnings("unchecked")
+	private Optional<Class<? extends RF2RowTransformer>> compileStatic(List<String> header) {
+		for (String column : header) {
+			if (!IDENTIFIER.matcher(column).matches() || RF2RowBinding.FILE_VARIABLE.equals(column) || header.indexOf(column) != header.lastIndexOf(column)) {
+				return Optional.empty();
+			}
+		}
+		final StringBuilder source = new StringBuilder()
+			.append("@groovy.transform.CompileStatic\n")
+			.append("class RF2StaticRowTransformer implements ").append(RF2RowTransformer.class.getName()).append(" {\n");
+		for (String column : header) {
+			source.append("private String ").append(column).append("\n");
+		}
+		source.append("Object transform(").append(RF2ContentFile.class.getName()).append(" _file, String[] _row) {\n");
+		for (int i = 0; i < header.size(); i++) {
+			source.append(header.get(i)).append(" = _row[").append(i).append("]\n");
+		}
+		source.append("final Object _result = _run(_file)\n");
+		for (int i = 0; i < header.size(); i++) {
+			source.append("_row[").append(i).append("] = ").append(header.get(i)).append("\n");
+		}
+		// the script is the body of a method, so its last expression is its return value like in a script
+		source.append("return _result\n}\n")
+			.append("private Object _run(").append(RF2ContentFile.class.getName()).append(" _file) {\n")
+			.append(rawScript)
+			.append("\n}\n}\n");
+		try {
+			return Optional.of((Class<? extends RF2RowTransformer>) classLoader.parseClass(source.toString()));
+		} catch (CompilationFailedException | ClassCastException e) {
+			// the script relies on dynamic features
+			return Optional.empty();
+		}
+	}
+
+	private static final class DynamicRowTransformer implements RF2RowTransformer {
+
+		private final Script script;
+		private final RF2RowBinding binding;
+
+		DynamicRowTransformer(Script script, String[] header) {
+			this.script = script;
+			this.binding = new RF2RowBinding(header);
+			script.setBinding(binding);
+		}
+
+		@Override
+		public Object transform(RF2ContentFile file, String[] row) {
+			binding.bind(file, row);
+			final Object returnValue = script.run();
+			for (int i = 0; i < row.length; i++) {
+				final Object value = binding.getValue(i);
+				row[i] = value == null ? null : String.valueOf(value);
+			}
+			return returnValue;
+		}
+
+	}
+
+}
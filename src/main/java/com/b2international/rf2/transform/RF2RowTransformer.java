@@ -0,0 +1,38 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.transform;
+
+import com.b2international.rf2.model.RF2ContentFile;
+
+/**
+ * Applies a transform script to the rows of RF2 files with the same header. Instances are not thread-safe, each file should use its own
+ * transformer.
+ *
+ * @since 0.4
+ */
+public interface RF2RowTransformer {
+
+	/**
+	 * Runs the script on the given row and replaces the column values of the row with the values of the column variables after the script has
+	 * finished. Columns set to <code>null</code> by the script are <code>null</code> in the row.
+	 *
+	 * @param file - the file of the row, available to the script as the <code>_file</code> variable
+	 * @param row - the column values of the row, one for each column of the header
+	 * @return the value returned by the script
+	 */
+	Object transform(RF2ContentFile file, String[] row);
+
+}
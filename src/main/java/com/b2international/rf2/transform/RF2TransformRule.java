@@ -0,0 +1,109 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.transform;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.b2international.rf2.spec.RF2Filter;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A declarative transform rule. Rows are kept only if they match all <code>include</code> filters and none of the <code>exclude</code>
+ * filters, like the rows of created RF2 files, then the column values of <code>set</code> are assigned to the kept rows that match the
+ * <code>where</code> filter. A rule applies to the files of its <code>contentType</code> (or all files if it is not given) that have all the
+ * columns the rule refers to.
+ *
+ * @since 0.4
+ */
+public final class RF2TransformRule {
+
+	private final String contentType;
+	private final List<RF2Filter> inclusions;
+	private final List<RF2Filter> exclusions;
+	private final RF2Filter condition;
+	private final Map<String, String> assignments;
+
+	@JsonCreator
+	public RF2TransformRule(
+			@JsonProperty("contentType") String contentType,
+			@JsonProperty("include") List<RF2Filter> inclusions,
+			@JsonProperty("exclude") List<RF2Filter> exclusions,
+			@JsonProperty("where") RF2Filter condition,
+			@JsonProperty("set") Map<String, Object> assignments) {
+		Preconditions.checkArgument(condition == null || (assignments != null && !assignments.isEmpty()), "Transform rules with a 'where' filter must 'set' at least one column");
+		this.contentType = contentType;
+		this.inclusions = inclusions == null ? ImmutableList.of() : ImmutableList.copyOf(inclusions);
+		this.exclusions = exclusions == null ? ImmutableList.of() : ImmutableList.copyOf(exclusions);
+		this.condition = condition;
+		final Map<String, String> values = new LinkedHashMap<>();
+		if (assignments != null) {
+			assignments.forEach((column, value) -> values.put(column, value == null ? "" : String.valueOf(value)));
+		}
+		this.assignments = ImmutableMap.copyOf(values);
+	}
+
+	/**
+	 * @return the content type of the files the rule applies to, or <code>null</code> if it applies to all files
+	 */
+	public String getContentType() {
+		return contentType;
+	}
+
+	public List<RF2Filter> getInclusions() {
+		return inclusions;
+	}
+
+	public List<RF2Filter> getExclusions() {
+		return exclusions;
+	}
+
+	/**
+	 * @return the column values of the rows to assign the column values of {@link #getAssignments()} to, empty if all rows are modified
+	 */
+	public Map<String, String> getCondition() {
+		return condition == null ? Collections.emptyMap() : condition.getFilters();
+	}
+
+	/**
+	 * @return the new column values of the rows that match the condition
+	 */
+	public Map<String, String> getAssignments() {
+		return assignments;
+	}
+
+	/**
+	 * @return the names of all columns the rule refers to
+	 */
+	public Set<String> getColumns() {
+		final ImmutableSet.Builder<String> columns = ImmutableSet.builder();
+		inclusions.forEach(filter -> columns.addAll(filter.getFilters().keySet()));
+		exclusions.forEach(filter -> columns.addAll(filter.getFilters().keySet()));
+		return columns
+				.addAll(getCondition().keySet())
+				.addAll(assignments.keySet())
+				.build();
+	}
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.transform;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.b2international.rf2.model.RF2ContentFile;
+import com.b2international.rf2.spec.RF2Filter;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Declarative transform rules read from a YAML file, an alternative to transform scripts for the common cases of filtering rows and setting
+ * column values. The rules are compiled to column index based predicates and assignments for the header of each transformed file, so
+ * applying them does not need a script engine at all. Example:
+ *
+ * <pre>
+ * rules:
+ *   - exclude:
+ *       - active: 0
+ *   - contentType: Concept
+ *     where:
+ *       moduleId: 900000000000207008
+ *     set:
+ *       effectiveTime: 20190201
+ * </pre>
+ *
+ * The rules are applied in order, each rule sees the column values set by the previous ones. A row excluded by any of the rules is not
+ * evaluated any further.
+ *
+ * @since 0.4
+ */
+public final class RF2TransformRules implements RF2Transformation {
+
+	private static final ObjectMapper MAPPER;
+	static {
+		final ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+		mapper.configure(JsonParser.Feature.ALLOW_COMMENTS, true);
+		mapper.configure(JsonParser.Feature.ALLOW_YAML_COMMENTS, true);
+		MAPPER = mapper;
+	}
+
+	private final List<RF2TransformRule> rules;
+
+	@JsonCreator
+	public RF2TransformRules(@JsonProperty("rules") List<RF2TransformRule> rules) {
+		Preconditions.checkArgument(rules != null && !rules.isEmpty(), "At least one transform rule is required");
+		this.rules = ImmutableList.copyOf(rules);
+	}
+
+	/**
+	 * Reads the transform rules from the given YAML file.
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public static RF2TransformRules read(Path path) throws IOException {
+		return MAPPER.readValue(path.toFile(), RF2TransformRules.class);
+	}
+
+	public List<RF2TransformRule> getRules() {
+		return rules;
+	}
+
+	@Override
+	public RF2RowTransformer newTransformer(RF2ContentFile file) {
+		return newTransformer(file.getType(), file.getHeader());
+	}
+
+	/**
+	 * @param contentType - the content type of the transformed file
+	 * @param header - the column names of the rows to transform
+	 * @return a new transformer that applies the rules that apply to files with the given content type and header
+	 */
+	public RF2RowTransformer newTransformer(String contentType, String[] header) {
+		final List<String> columns = Arrays.asList(header);
+		final List<CompiledRule> compiledRules = new ArrayList<>(rules.size());
+		for (RF2TransformRule rule : rules) {
+			if ((rule.getContentType() == null || rule.getContentType().equals(contentType)) && columns.containsAll(rule.getColumns())) {
+				compiledRules.add(new CompiledRule(rule, columns));
+			}
+		}
+		return new RuleTransformer(compiledRules.toArray(new CompiledRule[compiledRules.size()]));
+	}
+
+	private static final class CompiledRule {
+
+		private final ColumnValues inclusions;
+		private final ColumnValues exclusions;
+		private final ColumnValues condition;
+		private final ColumnValues assignments;
+
+		CompiledRule(RF2TransformRule rule, List<String> header) {
+			this.inclusions = ColumnValues.of(rule.getInclusions(), header);
+			this.exclusions = ColumnValues.of(rule.getExclusions(), header);
+			this.condition = new ColumnValues(new ArrayList<>(rule.getCondition().entrySet()), header);
+			this.assignments = new ColumnValues(new ArrayList<>(rule.getAssignments().entrySet()), header);
+		}
+
+		/**
+		 * @return <code>false</code> if the row is excluded by this rule
+		 */
+		boolean apply(String[] row) {
+			if (!inclusions.matchesAll(row) || exclusions.matchesAny(row)) {
+				return false;
+			}
+			if (condition.matchesAll(row)) {
+				assignments.assign(row);
+			}
+			return true;
+		}
+
+	}
+
+	/**
+	 * Column values compiled to the indexes of the columns in the header, the same column may have multiple values.
+	 */
+	private static final class ColumnValues {
+
+		private final int[] columns;
+		private final String[] values;
+
+		ColumnValues(List<Map.Entry<String, String>> columnValues, List<String> header) {
+			this.columns = new int[columnValues.size()];
+			this.values = new String[columnValues.size()];
+			for (int i = 0; i < columns.length; i++) {
+				columns[i] = header.indexOf(columnValues.get(i).getKey());
+				values[i] = columnValues.get(i).getValue();
+			}
+		}
+
+		static ColumnValues of(List<RF2Filter> filters, List<String> header) {
+			final List<Map.Entry<String, String>> columnValues = new ArrayList<>();
+			for (RF2Filter filter : filters) {
+				columnValues.addAll(filter.getFilters().entrySet());
+			}
+			return new ColumnValues(columnValues, header);
+		}
+
+		boolean matchesAll(String[] row) {
+			for (int i = 0; i < columns.length; i++) {
+				if (!values[i].equals(row[columns[i]])) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		boolean matchesAny(String[] row) {
+			for (int i = 0; i < columns.length; i++) {
+				if (values[i].equals(row[columns[i]])) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		void assign(String[] row) {
+			for (int i = 0; i < columns.length; i++) {
+				row[columns[i]] = values[i];
+			}
+		}
+
+	}
+
+	private static final class RuleTransformer implements RF2RowTransformer {
+
+		private final CompiledRule[] rules;
+
+		RuleTransformer(CompiledRule[] rules) {
+			this.rules = rules;
+		}
+
+		@Override
+		public Object transform(RF2ContentFile file, String[] row) {
+			for (CompiledRule rule : rules) {
+				if (!rule.apply(row)) {
+					return Boolean.FALSE;
+				}
+			}
+			// include the row, like a script that does not return a boolean value
+			return null;
+		}
+
+	}
+
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.transform;
+
+import com.b2international.rf2.model.RF2ContentFile;
+
+/**
+ * A compiled transformation of the rows of RF2 content files, either a {@link RF2RowScript script} or a set of declarative
+ * {@link RF2TransformRules rules}.
+ *
+ * @since 0.4
+ */
+public interface RF2Transformation {
+
+	/**
+	 * @param file - the file to transform, its header and content type select the columns and rules the transformer applies
+	 * @return a new transformer of the rows of the given file, it should be used by a single thread only
+	 */
+	RF2RowTransformer newTransformer(RF2ContentFile file);
+
+}
@@ -43,4 +43,17 @@ public final class RF2BooleanValidator implements RF2ColumnValidator {
 		}
 	}
 	
+	@Override
+	public RF2ColumnCheck compile(RF2ContentFile file, String columnHeader, RF2IssueAcceptor acceptor) {
+		return (row, column, issues) -> {
+			if (row.length(column) == 1) {
+				final byte value = row.byteAt(column, 0);
+				if (value == '0' || value == '1') {
+					return;
+				}
+			}
+			check(file, columnHeader, row.get(column), issues);
+		};
+	}
+	
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.validation;
+
+import com.b2international.rf2.io.RF2Row;
+
+/**
+ * Allocation free helpers for the compiled {@link RF2ColumnCheck}s working on the raw bytes of a column.
+ * 
+ * @since 0.4
+ */
+final class RF2ByteChecks {
+
+	private static final int UUID_LENGTH = 36;
+	
+	private RF2ByteChecks() {}
+	
+	/**
+	 * @return <code>true</code> if all bytes in the given range of the given column are ASCII digits.
+	 */
+	static boolean isDigits(RF2Row row, int column, int from, int length) {
+		for (int i = from; i < from + length; i++) {
+			final byte b = row.byteAt(column, i);
+			if (b < '0' || b > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @return the value of the ASCII digits in the given range of the given column, see {@link #isDigits(RF2Row, int, int, int)}.
+	 */
+	static int parseDigits(RF2Row row, int column, int from, int length) {
+		int value = 0;
+		for (int i = from; i < from + length; i++) {
+			value = value * 10 + (row.byteAt(column, i) - '0');
+		}
+		return value;
+	}
+	
+	/**
+	 * @return <code>true</code> if the given column holds a UUID in its canonical 8-4-4-4-12 hexadecimal form.
+	 */
+	static boolean isCanonicalUuid(RF2Row row, int column) {
+		if (row.length(column) != UUID_LENGTH) {
+			return false;
+		}
+		for (int i = 0; i < UUID_LENGTH; i++) {
+			final byte b = row.byteAt(column, i);
+			if (i == 8 || i == 13 || i == 18 || i == 23) {
+				if (b != '-') {
+					return false;
+				}
+			} else if (!((b >= '0' && b <= '9') || (b >= 'a' && b <= 'f') || (b >= 'A' && b <= 'F'))) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.validation;
+
+import com.b2international.rf2.check.RF2IssueAcceptor;
+import com.b2international.rf2.io.RF2Row;
+
+/**
+ * A check of a single RF2 column compiled by an {@link RF2ColumnValidator} for a specific column of a specific file. All file level facts are
+ * resolved when the check is compiled, so checking a cell only inspects the raw bytes of the cell.
+ * 
+ * @since 0.4
+ * @see RF2ColumnValidator#compile(com.b2international.rf2.model.RF2ContentFile, String, RF2IssueAcceptor)
+ */
+@FunctionalInterface
+public interface RF2ColumnCheck {
+
+	/**
+	 * Check that accepts any value.
+	 */
+	RF2ColumnCheck NOOP = (row, column, acceptor) -> {};
+	
+	/**
+	 * Validates the value of the given column in the given row and reports problems using the given {@link RF2IssueAcceptor}.
+	 * 
+	 * @param row - the row that holds the value
+	 * @param column - the index of the column to validate
+	 * @param acceptor - the issue acceptor to report errors/warnings to
+	 */
+	void check(RF2Row row, int column, RF2IssueAcceptor acceptor);
+	
+}
@@ -41,6 +41,11 @@ public interface RF2ColumnValidator {
 		@Override
 		public void check(RF2ContentFile file, String columnHeader, String columnValue, RF2IssueAcceptor acceptor) {
 		}
+		
+		@Override
+		public RF2ColumnCheck compile(RF2ContentFile file, String columnHeader, RF2IssueAcceptor acceptor) {
+			return RF2ColumnCheck.NOOP;
+		}
 	};
 	
 	/**
@@ -59,6 +64,11 @@ public interface RF2ColumnValidator {
 		@Override
 		public void check(RF2ContentFile file, String columnHeader, String columnValue, RF2IssueAcceptor acceptor) {
 		}
+		
+		@Override
+		public RF2ColumnCheck compile(RF2ContentFile file, String columnHeader, RF2IssueAcceptor acceptor) {
+			return RF2ColumnCheck.NOOP;
+		}
 	};
 	
 	/**
@@ -97,4 +107,20 @@ public interface RF2ColumnValidator {
 	 */
 	void check(RF2ContentFile file, String columnHeader, String columnValue, RF2IssueAcceptor acceptor);
 	
+	/**
+	 * Compiles this validator into an {@link RF2ColumnCheck} for the given column of the given file. Implementations should resolve all file
+	 * level information here and check the raw bytes of the cells in the returned check, falling back to
+	 * {@link #check(RF2ContentFile, String, String, RF2IssueAcceptor)} only to report problems. The default implementation decodes each cell and
+	 * calls {@link #check(RF2ContentFile, String, String, RF2IssueAcceptor)}.
+	 * 
+	 * @param file - the file that will be validated with the returned check
+	 * @param columnHeader - the header of the column that will be validated with the returned check
+	 * @param acceptor - the issue acceptor to report file level errors/warnings to
+	 * @return the compiled check
+	 * @since 0.4
+	 */
+	default RF2ColumnCheck compile(RF2ContentFile file, String columnHeader, RF2IssueAcceptor acceptor) {
+		return (row, column, issues) -> check(file, columnHeader, row.get(column), issues);
+	}
+	
 }
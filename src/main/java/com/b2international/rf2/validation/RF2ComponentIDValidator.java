@@ -15,8 +15,10 @@
  */
 package com.b2international.rf2.validation;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import com.b2international.rf2.check.RF2IssueAcceptor;
 import com.b2international.rf2.model.RF2Columns;
@@ -30,7 +32,10 @@ import com.b2international.rf2.naming.file.RF2ContentType;
  */
 public final class RF2ComponentIDValidator implements RF2ColumnValidator {
 
-	private static final Map<String, Set<RF2ContentType>> COLUMNS_TO_TYPES = Map.ofEntries(
+	/**
+	 * The columns that reference other components and the types of components they can reference.
+	 */
+	static final Map<String, Set<RF2ContentType>> COLUMNS_TO_TYPES = Map.ofEntries(
 		// Concept file
 		Map.entry(RF2Columns.MODULE_ID, Set.of(RF2ContentType.CONCEPT)),
 		Map.entry(RF2Columns.DEFINITION_STATUS_ID, Set.of(RF2ContentType.CONCEPT)),
@@ -66,7 +71,22 @@ public final class RF2ComponentIDValidator implements RF2ColumnValidator {
 	@Override
 	public void check(RF2ContentFile file, String columnHeader, String columnValue, RF2IssueAcceptor acceptor) {
 		// validate that the module field has a valid concept ID
-		RF2IdentifierValidator.checkSCTID(COLUMNS_TO_TYPES.get(columnHeader), columnValue, acceptor);
+		RF2IdentifierValidator.checkSCTID(ComponentIdentifiers.BY_COLUMN.get(columnHeader), columnValue, acceptor);
+	}
+	
+	@Override
+	public RF2ColumnCheck compile(RF2ContentFile file, String columnHeader, RF2IssueAcceptor acceptor) {
+		return RF2IdentifierValidator.compileSCTIDCheck(ComponentIdentifiers.BY_COLUMN.get(columnHeader));
+	}
+	
+	/**
+	 * The expected component identifiers of each column, initialized on first use to avoid depending on the initialization order of the validators.
+	 */
+	private static final class ComponentIdentifiers {
+		
+		private static final Map<String, List<Integer>> BY_COLUMN = COLUMNS_TO_TYPES.entrySet().stream()
+				.collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, entry -> RF2IdentifierValidator.getComponentIdentifiers(entry.getValue())));
+		
 	}
 
 }
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.validation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import com.b2international.rf2.check.RF2IssueAcceptor;
+import com.b2international.rf2.index.RF2KeySet;
+import com.b2international.rf2.io.RF2Row;
+import com.b2international.rf2.io.RF2RowReader;
+import com.b2international.rf2.io.RF2RowSorter;
+import com.b2international.rf2.model.RF2Columns;
+import com.b2international.rf2.model.RF2ContentFile;
+import com.b2international.rf2.naming.file.RF2ContentSubType;
+import com.b2international.rf2.naming.file.RF2ContentType;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.hash.Hashing;
+
+/**
+ * Detects rows with the same key in an RF2 content file: the same ID in Snapshot and Delta files and the same ID and effectiveTime in Full files
+ * (and files without a release type in their name).
+ * <p>
+ * The keys are encoded as <code>long</code> values, an SCTID as one, a UUID (the ID of a reference set member) as two and an effectiveTime as
+ * one more value, and are {@link #add(RF2Row) added} to an {@link RF2KeySet} while the rows of the file are validated in parallel. Values in
+ * any other format are encoded by their hash. If the file has duplicates, they are {@link #report(RF2IssueAcceptor) reported} by reading the
+ * file again sequentially, so every occurrence of a key except the first one in the file is reported regardless of the order the parallel
+ * readers added them.
+ * </p>
+ * <p>
+ * If the keys do not fit into the memory budget, the key set overflows and the duplicates are found by sorting the encoded keys (with the offset
+ * of their row) with an {@link RF2RowSorter}, which writes sorted runs to temporary files, then the rows at the offsets of the duplicates are
+ * reported the same way.
+ * </p>
+ *
+ * @since 0.4
+ */
+public final class RF2DuplicateKeyCheck {
+
+	private static final String DUPLICATE_ID = "Duplicate ID '%s'.";
+	private static final String DUPLICATE_ID_AND_EFFECTIVE_TIME = "Duplicate ID '%s' with effectiveTime '%s'.";
+
+	private static final int UUID_LENGTH = 36;
+	private static final int EFFECTIVE_TIME_LENGTH = 8;
+	private static final int HEX_DIGITS = 16;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final RF2ContentFile file;
+	private final int idColumn;
+	private final int effectiveTimeColumn;
+	private final boolean uuids;
+	private final long memoryBudget;
+	private final RF2KeySet keys;
+	private final ThreadLocal<long[]> key;
+	private volatile boolean duplicates;
+
+	private RF2DuplicateKeyCheck(RF2ContentFile file, int idColumn, int effectiveTimeColumn, boolean uuids, long memoryBudget) {
+		this.file = file;
+		this.idColumn = idColumn;
+		this.effectiveTimeColumn = effectiveTimeColumn;
+		this.uuids = uuids;
+		this.memoryBudget = memoryBudget;
+		final int keyWidth = (uuids ? 2 : 1) + (effectiveTimeColumn < 0 ? 0 : 1);
+		this.keys = new RF2KeySet(keyWidth, memoryBudget);
+		this.key = ThreadLocal.withInitial(() -> new long[keyWidth]);
+	}
+
+	/**
+	 * @param file - the file to check
+	 * @param header - the header of the file
+	 * @param memoryBudget - the number of bytes the keys of the file may occupy in memory before falling back to sorting them
+	 * @return the duplicate key check of the given file or an empty {@link Optional} if the file does not have an ID column
+	 */
+	public static Optional<RF2DuplicateKeyCheck> compile(RF2ContentFile file, String[] header, long memoryBudget) {
+		final int idColumn = Arrays.asList(header).indexOf(RF2Columns.ID);
+		if (idColumn < 0) {
+			return Optional.empty();
+		}
+		final boolean byEffectiveTime = !file.getRF2FileName().getElement(RF2ContentSubType.class)
+				.map(contentSubType -> contentSubType.isSnapshot() || contentSubType.isDelta())
+				.orElse(false);
+		final int effectiveTimeColumn = byEffectiveTime ? Arrays.asList(header).indexOf(RF2Columns.EFFECTIVE_TIME) : -1;
+		final boolean uuids = file.getRF2FileName().getElement(RF2ContentType.class).map(RF2ContentType::isRefset).orElse(false);
+		return Optional.of(new RF2DuplicateKeyCheck(file, idColumn, effectiveTimeColumn, uuids, memoryBudget));
+	}
+
+	/**
+	 * Adds the key of the given row, can be called from multiple threads.
+	 *
+	 * @param row
+	 */
+	public void add(RF2Row row) {
+		final long[] rowKey = encode(row);
+		if (rowKey != null && !keys.add(rowKey)) {
+			duplicates = true;
+		}
+	}
+
+	/**
+	 * Reports the rows with duplicate keys to the given acceptor, after the keys of all rows of the file have been {@link #add(RF2Row) added}.
+	 *
+	 * @param acceptor
+	 * @throws IOException
+	 */
+	public void report(RF2IssueAcceptor acceptor) throws IOException {
+		if (keys.isOverflown()) {
+			// release the tables of the key set before sorting
+			keys.clear();
+			final long[] offsets = findDuplicateOffsets();
+			int next = 0;
+			try (RF2RowReader reader = file.rowReader()) {
+				RF2Row row;
+				while (next < offsets.length && (row = reader.next()) != null) {
+					if (row.getFileOffset() == offsets[next]) {
+						report(row, acceptor);
+						next++;
+					}
+				}
+			}
+		} else if (duplicates) {
+			keys.clear();
+			try (RF2RowReader reader = file.rowReader()) {
+				RF2Row row;
+				while ((row = reader.next()) != null) {
+					final long[] rowKey = encode(row);
+					if (rowKey != null && !keys.add(rowKey)) {
+						report(row, acceptor);
+					}
+				}
+			}
+		}
+	}
+
+	private void report(RF2Row row, RF2IssueAcceptor acceptor) {
+		try (RF2IssueAcceptor.Cursor cursor = acceptor.at(file.getPath(), row)) {
+			cursor.column(idColumn, RF2Columns.ID);
+			if (effectiveTimeColumn < 0) {
+				acceptor.error(DUPLICATE_ID, row.get(idColumn));
+			} else {
+				acceptor.error(DUPLICATE_ID_AND_EFFECTIVE_TIME, row.get(idColumn), row.get(effectiveTimeColumn));
+			}
+		}
+	}
+
+	/**
+	 * Sorts the keys of all rows with the offsets of their rows, so the rows with the same key follow each other, ordered by their location.
+	 *
+	 * @return the sorted offsets of the rows that have the same key as a preceding row of the file
+	 */
+	private long[] findDuplicateOffsets() throws IOException {
+		final int keyLength = keys.getKeyWidth() * HEX_DIGITS;
+		final RF2RowSorter sorter = new RF2RowSorter(Comparator.comparing((String[] entry) -> entry[0]), memoryBudget);
+		final LongStream.Builder offsets = LongStream.builder();
+		try (RF2RowReader reader = file.rowReader();
+				Stream<String[]> entries = sorter.sort(new KeyIterator(reader))) {
+			String first = null;
+			for (String[] entry : (Iterable<String[]>) entries::iterator) {
+				if (first != null && entry[0].regionMatches(0, first, 0, keyLength)) {
+					offsets.add(Long.parseLong(entry[0].substring(keyLength), 16));
+				} else {
+					first = entry[0];
+				}
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		final long[] duplicateOffsets = offsets.build().toArray();
+		Arrays.sort(duplicateOffsets);
+		return duplicateOffsets;
+	}
+
+	/**
+	 * @return the key of the given row in the thread's key buffer or <code>null</code> if the row does not have an ID column
+	 */
+	private long[] encode(RF2Row row) {
+		if (idColumn >= row.getColumnCount() || effectiveTimeColumn >= row.getColumnCount()) {
+			return null;
+		}
+		final long[] rowKey = key.get();
+		int index;
+		if (uuids) {
+			if (RF2ByteChecks.isCanonicalUuid(row, idColumn)) {
+				rowKey[0] = parseHex(row, idColumn, 0, 8) << 32 | parseHex(row, idColumn, 9, 13) << 16 | parseHex(row, idColumn, 14, 18);
+				rowKey[1] = parseHex(row, idColumn, 19, 23) << 48 | parseHex(row, idColumn, 24, UUID_LENGTH);
+			} else {
+				final ByteBuffer hash = ByteBuffer.wrap(hash(row, idColumn));
+				rowKey[0] = hash.getLong();
+				rowKey[1] = hash.getLong();
+			}
+			index = 2;
+		} else {
+			final long sctid = RF2IdentifierValidator.parseSCTID(row, idColumn);
+			// SCTIDs are positive, any other value is stored as a negative hash
+			rowKey[0] = sctid >= 0L ? sctid : ByteBuffer.wrap(hash(row, idColumn)).getLong() | Long.MIN_VALUE;
+			index = 1;
+		}
+		if (effectiveTimeColumn >= 0) {
+			final long effectiveTime = parseEffectiveTime(row, effectiveTimeColumn);
+			rowKey[index] = effectiveTime >= 0L ? effectiveTime : ByteBuffer.wrap(hash(row, effectiveTimeColumn)).getLong() | Long.MIN_VALUE;
+		}
+		return rowKey;
+	}
+
+	/**
+	 * @return the yyyyMMdd value of the given column or <code>-1</code> if it is not an 8 digit number
+	 */
+	private static long parseEffectiveTime(RF2Row row, int column) {
+		if (row.length(column) != EFFECTIVE_TIME_LENGTH) {
+			return -1L;
+		}
+		long value = 0L;
+		for (int i = 0; i < EFFECTIVE_TIME_LENGTH; i++) {
+			final int digit = row.byteAt(column, i) - '0';
+			if (digit < 0 || digit > 9) {
+				return -1L;
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	private static long parseHex(RF2Row row, int column, int from, int to) {
+		long result = 0L;
+		for (int i = from; i < to; i++) {
+			result = result << 4 | Character.digit(row.byteAt(column, i), 16);
+		}
+		return result;
+	}
+
+	private static byte[] hash(RF2Row row, int column) {
+		return Hashing.murmur3_128().hashBytes(row.buffer(), row.offset(column), row.length(column)).asBytes();
+	}
+
+	/**
+	 * Reads the rows of a file as single column rows of their encoded key and their offset in hexadecimal digits.
+	 */
+	private final class KeyIterator extends AbstractIterator<String[]> {
+
+		private final RF2RowReader reader;
+		private final char[] chars = new char[(keys.getKeyWidth() + 1) * HEX_DIGITS];
+
+		KeyIterator(RF2RowReader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		protected String[] computeNext() {
+			try {
+				RF2Row row;
+				while ((row = reader.next()) != null) {
+					final long[] rowKey = encode(row);
+					if (rowKey != null) {
+						for (int i = 0; i < keys.getKeyWidth(); i++) {
+							toHex(rowKey[i], i * HEX_DIGITS);
+						}
+						toHex(row.getFileOffset(), keys.getKeyWidth() * HEX_DIGITS);
+						return new String[] { new String(chars) };
+					}
+				}
+				return endOfData();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private void toHex(long value, int offset) {
+			for (int i = HEX_DIGITS - 1; i >= 0; i--) {
+				chars[offset + i] = HEX[(int) value & 0xF];
+				value >>>= 4;
+			}
+		}
+
+	}
+
+}
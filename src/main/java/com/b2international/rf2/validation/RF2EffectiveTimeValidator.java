@@ -15,11 +15,14 @@
  */
 package com.b2international.rf2.validation;
 
+import java.time.Month;
+import java.time.Year;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.Set;
 
 import com.b2international.rf2.check.RF2IssueAcceptor;
+import com.b2international.rf2.io.RF2Row;
 import com.b2international.rf2.model.RF2Columns;
 import com.b2international.rf2.model.RF2ContentFile;
 
@@ -29,6 +32,8 @@ import com.b2international.rf2.model.RF2ContentFile;
  */
 public final class RF2EffectiveTimeValidator implements RF2ColumnValidator {
 	
+	private static final int DATE_LENGTH = 8;
+	
 	@Override
 	public Set<String> getColumns() {
 		return Set.of(RF2Columns.EFFECTIVE_TIME, RF2Columns.SOURCE_EFFECTIVE_TIME, RF2Columns.TARGET_EFFECTIVE_TIME);
@@ -45,4 +50,26 @@ public final class RF2EffectiveTimeValidator implements RF2ColumnValidator {
 		}
 	}
 	
+	@Override
+	public RF2ColumnCheck compile(RF2ContentFile file, String columnHeader, RF2IssueAcceptor acceptor) {
+		return (row, column, issues) -> {
+			final int length = row.length(column);
+			if (length == 0 || (length == DATE_LENGTH && isValidDate(row, column))) {
+				return;
+			}
+			// anything else (including dates with offsets) goes through the formatter
+			check(file, columnHeader, row.get(column), issues);
+		};
+	}
+	
+	private static boolean isValidDate(RF2Row row, int column) {
+		if (!RF2ByteChecks.isDigits(row, column, 0, DATE_LENGTH)) {
+			return false;
+		}
+		final int year = RF2ByteChecks.parseDigits(row, column, 0, 4);
+		final int month = RF2ByteChecks.parseDigits(row, column, 4, 2);
+		final int day = RF2ByteChecks.parseDigits(row, column, 6, 2);
+		return month >= 1 && month <= 12 && day >= 1 && day <= Month.of(month).length(Year.isLeap(year));
+	}
+	
 }
\ No newline at end of file
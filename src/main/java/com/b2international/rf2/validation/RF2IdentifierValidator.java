@@ -15,19 +15,22 @@
  */
 package com.b2international.rf2.validation;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 import com.b2international.rf2.check.RF2IssueAcceptor;
+import com.b2international.rf2.io.RF2Row;
 import com.b2international.rf2.model.RF2Columns;
 import com.b2international.rf2.model.RF2ContentFile;
 import com.b2international.rf2.naming.file.RF2ContentType;
-import com.b2international.rf2.sctid.RF2VerhoeffCheck;
+import com.b2international.rf2.sctid.RF2Verhoeff;
 
 
 /**
@@ -43,6 +46,11 @@ public final class RF2IdentifierValidator implements RF2ColumnValidator {
 		RF2ContentType.STATED_RELATIONSHIP.getContentType(), 2
 	);
 	
+	private static final int MIN_SCTID_LENGTH = 6;
+	private static final int MAX_SCTID_LENGTH = 18;
+	// any component identifier digit
+	private static final int ANY_PARTITION = (1 << 10) - 1;
+
 	@Override
 	public Set<String> getColumns() {
 		return Set.of(RF2Columns.ID);
@@ -71,7 +79,64 @@ public final class RF2IdentifierValidator implements RF2ColumnValidator {
 		}
 	}
 
+	@Override
+	public RF2ColumnCheck compile(RF2ContentFile file, String columnHeader, RF2IssueAcceptor acceptor) {
+		Optional<RF2ContentType> rf2ContentType = file.getRF2FileName().getElement(RF2ContentType.class);
+		if (!rf2ContentType.isPresent()) {
+			acceptor.warn("Unable to validate ID column due to missing content type part in file name");
+			return RF2ColumnCheck.NOOP;
+		}
+		
+		RF2ContentType contentType = rf2ContentType.get();
+		if (contentType.isRefset()) {
+			return (row, column, issues) -> {
+				if (!RF2ByteChecks.isCanonicalUuid(row, column)) {
+					check(file, columnHeader, row.get(column), issues);
+				}
+			};
+		} else {
+			final List<Integer> expectedComponentIdentifiers = getComponentIdentifiers(Collections.singleton(contentType));
+			return compileSCTIDCheck(expectedComponentIdentifiers);
+		}
+	}
+	
+	/**
+	 * @param expectedComponentIdentifiers
+	 * @return a check that accepts valid SCTIDs with one of the given component identifiers directly from the row's bytes and reports the issues of
+	 *         any other value the same way as {@link #checkSCTID(List, String, RF2IssueAcceptor)}.
+	 */
+	static RF2ColumnCheck compileSCTIDCheck(final List<Integer> expectedComponentIdentifiers) {
+		final int partitionMask = getPartitionMask(expectedComponentIdentifiers);
+		return (row, column, issues) -> {
+			if (!isValidSCTID(row, column, partitionMask)) {
+				checkSCTID(expectedComponentIdentifiers, row.get(column), issues);
+			}
+		};
+	}
+
+	/**
+	 * @param contentTypes
+	 * @return the sorted list of partition identifier digits (componentIdentifier) that are valid for SCTIDs of the given content types.
+	 */
+	static List<Integer> getComponentIdentifiers(final Set<RF2ContentType> contentTypes) {
+		return contentTypes.stream()
+				.map(RF2ContentType::getContentType)
+				.map(COMPONENT_TYPES_DIGIT_ASSOCIATION::get)
+				.filter(Objects::nonNull)
+				.sorted()
+				.collect(Collectors.toUnmodifiableList());
+	}
+	
 	static void checkSCTID(final Set<RF2ContentType> expectedContentTypes, String columnValue, RF2IssueAcceptor acceptor) {
+		checkSCTID(getComponentIdentifiers(expectedContentTypes), columnValue, acceptor);
+	}
+	
+	static void checkSCTID(final List<Integer> expectedComponentIdentifiers, String columnValue, RF2IssueAcceptor acceptor) {
+		// most values are valid, look for the actual issue only if the single pass check fails
+		if (columnValue != null && isValidSCTID(columnValue, getPartitionMask(expectedComponentIdentifiers))) {
+			return;
+		}
+		
 		if (columnValue == null || columnValue.isBlank()) {
 			acceptor.error("SCTID '%s' is empty or contains only white space characters.", columnValue);
 			return;
@@ -98,11 +163,6 @@ public final class RF2IdentifierValidator implements RF2ColumnValidator {
 		}
 
 		// validate component identifier in partition identifier
-		List<Integer> expectedComponentIdentifiers = expectedContentTypes.stream()
-				.map(RF2ContentType::getContentType)
-				.map(COMPONENT_TYPES_DIGIT_ASSOCIATION::get)
-				.sorted()
-				.collect(Collectors.toList());
 		boolean foundExpectedContentType = false;
 		for (Integer expectedComponentIdentifier : expectedComponentIdentifiers) {
 			var actualComponentIdentifier = getComponentIdentifier(columnValue);
@@ -118,8 +178,14 @@ public final class RF2IdentifierValidator implements RF2ColumnValidator {
 		}
 		
 		// validate Verhoeff check digit
-		var rawComponentId = columnValue.subSequence(0, columnValue.length() - 1);
-		var expectedChecksum = RF2VerhoeffCheck.calculateChecksum(rawComponentId, false);
+		var digits = columnValue.getBytes(StandardCharsets.US_ASCII);
+		var expectedCheckDigit = RF2Verhoeff.checkDigit(digits, 0, digits.length - 1);
+		if (expectedCheckDigit == RF2Verhoeff.NO_CHECK_DIGIT) {
+			// signed numbers are parsed as numbers, but they are not made of digits only
+			acceptor.error("SCTID '%s' should be a number.", columnValue);
+			return;
+		}
+		var expectedChecksum = Character.forDigit(expectedCheckDigit, 10);
 		var actualChecksum = columnValue.charAt(columnValue.length() - 1);
 		if (actualChecksum != expectedChecksum) {
 			acceptor.error("SCTID '%s' has incorrect Verhoeff check-digit. Expected '%s' but was '%s'.", columnValue, expectedChecksum, actualChecksum);
@@ -127,6 +193,110 @@ public final class RF2IdentifierValidator implements RF2ColumnValidator {
 		}
 	}
 	
+	/**
+	 * @param componentIdentifiers
+	 * @return a bit set with the bits of the given component identifier digits set.
+	 */
+	static int getPartitionMask(final List<Integer> componentIdentifiers) {
+		int partitionMask = 0;
+		for (int componentIdentifier : componentIdentifiers) {
+			partitionMask |= 1 << componentIdentifier;
+		}
+		return partitionMask;
+	}
+	
+	/**
+	 * Checks digits, length, leading zero, component identifier and Verhoeff check digit of an SCTID in a single pass over its characters.
+	 * 
+	 * @param value
+	 * @param partitionMask - the {@link #getPartitionMask(List) bit set} of expected component identifiers
+	 * @return <code>true</code> if the value is a valid SCTID, <code>false</code> if {@link #checkSCTID(List, String, RF2IssueAcceptor)} would report
+	 *         an issue for it.
+	 */
+	static boolean isValidSCTID(final CharSequence value, final int partitionMask) {
+		final int length = value.length();
+		if (length < MIN_SCTID_LENGTH || length > MAX_SCTID_LENGTH || value.charAt(0) == '0') {
+			return false;
+		}
+		// Verhoeff checksum is calculated from right to left
+		int checksum = 0;
+		for (int position = 0; position < length; position++) {
+			final int digit = value.charAt(length - 1 - position) - '0';
+			if (digit < 0 || digit > 9) {
+				return false;
+			}
+			checksum = RF2Verhoeff.step(checksum, position, digit);
+		}
+		return checksum == 0 && (partitionMask & (1 << (value.charAt(length - 2) - '0'))) != 0;
+	}
+	
+	/**
+	 * Same as {@link #isValidSCTID(CharSequence, int)}, but works on the raw bytes of the given column.
+	 * 
+	 * @param row
+	 * @param column
+	 * @param partitionMask
+	 * @return
+	 */
+	static boolean isValidSCTID(final RF2Row row, final int column, final int partitionMask) {
+		final int length = row.length(column);
+		if (length < MIN_SCTID_LENGTH || length > MAX_SCTID_LENGTH) {
+			return false;
+		}
+		final byte[] buffer = row.buffer();
+		final int offset = row.offset(column);
+		return buffer[offset] != '0'
+				&& RF2Verhoeff.verify(buffer, offset, length) == RF2Verhoeff.VALID
+				&& (partitionMask & (1 << (buffer[offset + length - 2] - '0'))) != 0;
+	}
+	
+	/**
+	 * Parses the digits of the given column without validating its check digit and component identifier.
+	 * 
+	 * @param row
+	 * @param column
+	 * @return the value of the given column as a <code>long</code> if it has the format of an SCTID (6-18 digits without a leading zero),
+	 *         otherwise <code>-1</code>
+	 * @see #isValidSCTID(RF2Row, int)
+	 */
+	static long parseSCTID(final RF2Row row, final int column) {
+		final int length = row.length(column);
+		if (length < MIN_SCTID_LENGTH || length > MAX_SCTID_LENGTH) {
+			return -1L;
+		}
+		final byte[] buffer = row.buffer();
+		final int offset = row.offset(column);
+		if (buffer[offset] == '0') {
+			return -1L;
+		}
+		long sctid = 0L;
+		for (int i = 0; i < length; i++) {
+			final int digit = buffer[offset + i] - '0';
+			if (digit < 0 || digit > 9) {
+				return -1L;
+			}
+			sctid = sctid * 10 + digit;
+		}
+		return sctid;
+	}
+
+	/**
+	 * @param row
+	 * @param column
+	 * @return <code>true</code> if the given column is a valid SCTID of any component type
+	 */
+	static boolean isValidSCTID(final RF2Row row, final int column) {
+		return isValidSCTID(row, column, ANY_PARTITION);
+	}
+
+	/**
+	 * @param sctid - a valid SCTID
+	 * @return the component identifier digit of the partition identifier of the given SCTID
+	 */
+	static int getComponentIdentifier(final long sctid) {
+		return (int) (sctid / 10 % 10);
+	}
+
 	private static int getComponentIdentifier(final String componentId) {
 		final char secondPartitionIdDigit = componentId.charAt(componentId.length() - 2);
 		return Character.digit(secondPartitionIdDigit, 10);
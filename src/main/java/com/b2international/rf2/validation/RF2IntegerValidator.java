@@ -26,6 +26,8 @@ import com.b2international.rf2.model.RF2ContentFile;
  */
 public final class RF2IntegerValidator implements RF2ColumnValidator {
 
+	private static final int MAX_SAFE_DIGITS = 9;
+
 	@Override
 	public Set<String> getColumns() {
 		return Set.of(
@@ -47,4 +49,16 @@ public final class RF2IntegerValidator implements RF2ColumnValidator {
 		}
 	}
 	
+	@Override
+	public RF2ColumnCheck compile(RF2ContentFile file, String columnHeader, RF2IssueAcceptor acceptor) {
+		return (row, column, issues) -> {
+			// up to 9 digits always fit into an unsigned integer, anything else goes through the regular check
+			final int length = row.length(column);
+			if (length > 0 && length <= MAX_SAFE_DIGITS && RF2ByteChecks.isDigits(row, column, 0, length)) {
+				return;
+			}
+			check(file, columnHeader, row.get(column), issues);
+		};
+	}
+	
 }
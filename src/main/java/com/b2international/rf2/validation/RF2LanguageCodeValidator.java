@@ -29,6 +29,16 @@ public final class RF2LanguageCodeValidator implements RF2ColumnValidator {
 
 	private static final Set<String> LANG_CODES = Set.of(Locale.getISOLanguages());
 	
+	// two letter lowercase language codes indexed by (firstLetter - 'a') * 26 + (secondLetter - 'a')
+	private static final boolean[] TWO_LETTER_LANG_CODES = new boolean[26 * 26];
+	static {
+		for (String langCode : LANG_CODES) {
+			if (langCode.length() == 2 && langCode.chars().allMatch(c -> c >= 'a' && c <= 'z')) {
+				TWO_LETTER_LANG_CODES[(langCode.charAt(0) - 'a') * 26 + (langCode.charAt(1) - 'a')] = true;
+			}
+		}
+	}
+	
 	@Override
 	public Set<String> getColumns() {
 		return Set.of(RF2Columns.LANGUAGE_CODE);
@@ -40,5 +50,19 @@ public final class RF2LanguageCodeValidator implements RF2ColumnValidator {
 			acceptor.error("LanguageCode '%s' is not a valid ISO 639 language code.", columnValue);
 		}
 	}
+	
+	@Override
+	public RF2ColumnCheck compile(RF2ContentFile file, String columnHeader, RF2IssueAcceptor acceptor) {
+		return (row, column, issues) -> {
+			if (row.length(column) == 2) {
+				final int first = row.byteAt(column, 0) - 'a';
+				final int second = row.byteAt(column, 1) - 'a';
+				if (first >= 0 && first < 26 && second >= 0 && second < 26 && TWO_LETTER_LANG_CODES[first * 26 + second]) {
+					return;
+				}
+			}
+			check(file, columnHeader, row.get(column), issues);
+		};
+	}
 
 }
@@ -53,5 +53,19 @@ public final class RF2NotEmptyValidator implements RF2ColumnValidator {
 			acceptor.error("'%s' column value cannot be empty", columnHeader);
 		}
 	}
+	
+	@Override
+	public RF2ColumnCheck compile(RF2ContentFile file, String columnHeader, RF2IssueAcceptor acceptor) {
+		return (row, column, issues) -> {
+			// any printable ASCII character makes the value non-blank, values without one go through the regular check
+			final int length = row.length(column);
+			for (int i = 0; i < length; i++) {
+				if (row.byteAt(column, i) > ' ') {
+					return;
+				}
+			}
+			check(file, columnHeader, row.get(column), issues);
+		};
+	}
 
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.validation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import com.b2international.rf2.check.RF2IssueAcceptor;
+import com.b2international.rf2.index.RF2ComponentIdSet;
+import com.b2international.rf2.io.RF2Row;
+import com.b2international.rf2.model.RF2Columns;
+import com.b2international.rf2.model.RF2ContentFile;
+import com.b2international.rf2.naming.file.RF2ContentType;
+
+/**
+ * Checks that the components referenced by RF2 files (in the {@link RF2ComponentIDValidator#COLUMNS_TO_TYPES component ID columns}) exist in a
+ * set of RF2 files. The IDs of the concepts, descriptions and relationships of the Concept, Description (and TextDefinition) and Relationship
+ * (and StatedRelationship) files are collected into {@link RF2ComponentIdSet}s, then every reference is looked up in the set of its component
+ * type, which is known from the partition identifier of the referenced SCTID.
+ * <p>
+ * References to a component type are only checked if at least one file of that type was collected, and only references that are valid SCTIDs
+ * are checked, any other value is reported by the column checks of the file.
+ * </p>
+ *
+ * @since 0.4
+ */
+public final class RF2ReferentialIntegrity {
+
+	private static final String[] COMPONENT_TYPES = { "concepts", "descriptions", "relationships" };
+	private static final String[] MISSING_COMPONENT_MESSAGES = {
+		"Referenced concept '%s' does not exist.",
+		"Referenced description '%s' does not exist.",
+		"Referenced relationship '%s' does not exist."
+	};
+
+	// component ID sets by component identifier, null if there is no file of the component type
+	private final RF2ComponentIdSet[] components;
+
+	private RF2ReferentialIntegrity(RF2ComponentIdSet[] components) {
+		this.components = components;
+	}
+
+	/**
+	 * Collects the IDs of the components of the given files, reading each file in parallel.
+	 *
+	 * @param files - the data files to collect component IDs from, files of other content types are ignored
+	 * @return
+	 * @throws IOException
+	 */
+	public static RF2ReferentialIntegrity collect(Collection<RF2ContentFile> files) throws IOException {
+		// the IDs of all files of a component type (including the versions of the same component), the set keeps only the distinct ones
+		final RF2ComponentIdSet.Builder[] ids = new RF2ComponentIdSet.Builder[COMPONENT_TYPES.length];
+		for (RF2ContentFile file : files) {
+			final int componentIdentifier = getComponentIdentifier(file);
+			final int idColumn = Arrays.asList(file.getHeader()).indexOf(RF2Columns.ID);
+			if (componentIdentifier < 0 || idColumn < 0) {
+				continue;
+			}
+			try (Stream<RF2Row> rows = file.rowSlicesParallel()) {
+				final RF2ComponentIdSet.Builder fileIds = rows
+						.mapToLong(row -> idColumn < row.getColumnCount() ? RF2IdentifierValidator.parseSCTID(row, idColumn) : -1L)
+						.filter(id -> id >= 0L)
+						.collect(RF2ComponentIdSet::builder, RF2ComponentIdSet.Builder::add, RF2ComponentIdSet.Builder::addAll);
+				if (ids[componentIdentifier] == null) {
+					ids[componentIdentifier] = fileIds;
+				} else {
+					ids[componentIdentifier].addAll(fileIds);
+				}
+			}
+		}
+
+		final RF2ComponentIdSet[] components = new RF2ComponentIdSet[COMPONENT_TYPES.length];
+		for (int i = 0; i < components.length; i++) {
+			if (ids[i] != null) {
+				components[i] = ids[i].build();
+				ids[i] = null;
+			}
+		}
+		return new RF2ReferentialIntegrity(components);
+	}
+
+	/**
+	 * @return the number of collected components by component type (concepts, descriptions, relationships), types without any files are omitted
+	 */
+	public Map<String, Integer> getComponentCounts() {
+		final Map<String, Integer> counts = new LinkedHashMap<>();
+		for (int i = 0; i < components.length; i++) {
+			if (components[i] != null) {
+				counts.put(COMPONENT_TYPES[i], components[i].size());
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Checks the references of the given file in parallel and reports the ones that point to a missing component to the given acceptor.
+	 *
+	 * @param file - the data file to check
+	 * @param acceptor
+	 * @throws IOException
+	 */
+	public void check(RF2ContentFile file, RF2IssueAcceptor acceptor) throws IOException {
+		final String[] header = file.getHeader();
+		final int[] columns = new int[header.length];
+		int size = 0;
+		for (int i = 0; i < header.length; i++) {
+			if (RF2ComponentIDValidator.COLUMNS_TO_TYPES.containsKey(header[i])) {
+				columns[size++] = i;
+			}
+		}
+		if (size == 0) {
+			return;
+		}
+
+		final int[] referenceColumns = Arrays.copyOf(columns, size);
+		final Path path = file.getPath();
+		try (Stream<RF2Row> rows = file.rowSlicesParallel()) {
+			rows.forEach(row -> {
+				try (RF2IssueAcceptor.Cursor cursor = acceptor.at(path, row)) {
+					for (int column : referenceColumns) {
+						if (column >= row.getColumnCount()) {
+							continue;
+						}
+						final long id = RF2IdentifierValidator.parseSCTID(row, column);
+						if (id < 0L) {
+							continue;
+						}
+						final int componentIdentifier = RF2IdentifierValidator.getComponentIdentifier(id);
+						// invalid SCTIDs are never found, but they are already reported by the column checks
+						if (componentIdentifier < components.length && components[componentIdentifier] != null && !components[componentIdentifier].contains(id)
+								&& RF2IdentifierValidator.isValidSCTID(row, column)) {
+							cursor.column(column, header[column]);
+							acceptor.error(MISSING_COMPONENT_MESSAGES[componentIdentifier], row.get(column));
+						}
+					}
+				}
+			});
+		}
+		// rows read in parallel chunks only know their file offset
+		acceptor.resolveLineNumbers();
+	}
+
+	private static int getComponentIdentifier(RF2ContentFile file) {
+		final Optional<RF2ContentType> contentType = file.getRF2FileName().getElement(RF2ContentType.class);
+		if (!contentType.isPresent() || contentType.get().isRefset()) {
+			return -1;
+		}
+		final List<Integer> componentIdentifiers = RF2IdentifierValidator.getComponentIdentifiers(Set.of(contentType.get()));
+		return componentIdentifiers.size() == 1 ? componentIdentifiers.get(0) : -1;
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.validation;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.b2international.rf2.check.RF2IssueAcceptor;
+import com.b2international.rf2.io.RF2Row;
+import com.b2international.rf2.model.RF2ContentFile;
+
+/**
+ * The column checks of an RF2 content file compiled once from its header. Validating a row runs the compiled {@link RF2ColumnCheck}s of the
+ * validated columns in order, without looking up validators or file level information per cell.
+ * 
+ * @since 0.4
+ */
+public final class RF2ValidationPlan {
+
+	private final Path path;
+	private final int[] columns;
+	private final String[] columnHeaders;
+	private final RF2ColumnCheck[] checks;
+
+	private RF2ValidationPlan(Path path, int[] columns, String[] columnHeaders, RF2ColumnCheck[] checks) {
+		this.path = path;
+		this.columns = columns;
+		this.columnHeaders = columnHeaders;
+		this.checks = checks;
+	}
+	
+	/**
+	 * Compiles the {@link RF2ColumnValidator#VALIDATORS registered validators} for each column of the given header. Columns without a registered
+	 * validator are reported as warnings to the given acceptor.
+	 * 
+	 * @param file - the file to validate
+	 * @param header - the header of the file
+	 * @param acceptor - the issue acceptor to report compile time errors/warnings to
+	 * @return
+	 */
+	public static RF2ValidationPlan compile(RF2ContentFile file, String[] header, RF2IssueAcceptor acceptor) {
+		final int[] columns = new int[header.length];
+		final String[] columnHeaders = new String[header.length];
+		final RF2ColumnCheck[] checks = new RF2ColumnCheck[header.length];
+		int size = 0;
+		for (int i = 0; i < header.length; i++) {
+			final String columnHeader = header[i];
+			final RF2ColumnValidator validator = RF2ColumnValidator.VALIDATORS.get(columnHeader);
+			if (validator == null) {
+				acceptor.warn("No validator is registered for column header '%s'.", columnHeader);
+				continue;
+			}
+			final RF2ColumnCheck check = validator.compile(file, columnHeader, acceptor);
+			if (check != RF2ColumnCheck.NOOP) {
+				columns[size] = i;
+				columnHeaders[size] = columnHeader;
+				checks[size] = check;
+				size++;
+			}
+		}
+		return new RF2ValidationPlan(file.getPath(), Arrays.copyOf(columns, size), Arrays.copyOf(columnHeaders, size), Arrays.copyOf(checks, size));
+	}
+	
+	/**
+	 * @return the column headers and the class names of the {@link RF2ColumnValidator#VALIDATORS registered validators}, in the order of the
+	 *         column headers. The returned value changes if the set of validators changes, so it can be used to identify the results of a check.
+	 */
+	public static String getValidators() {
+		return RF2ColumnValidator.VALIDATORS.entrySet().stream()
+				.sorted(Map.Entry.comparingByKey())
+				.map(entry -> entry.getKey() + "=" + entry.getValue().getClass().getName())
+				.collect(Collectors.joining(","));
+	}
+	
+	/**
+	 * Validates all columns of the given row. Reported issues are attached to the row and the validated column.
+	 * 
+	 * @param row
+	 * @param acceptor
+	 */
+	public void validate(RF2Row row, RF2IssueAcceptor acceptor) {
+		final int columnCount = row.getColumnCount();
+		try (RF2IssueAcceptor.Cursor cursor = acceptor.at(path, row)) {
+			for (int i = 0; i < checks.length; i++) {
+				final int column = columns[i];
+				if (column < columnCount) {
+					cursor.column(column, columnHeaders[i]);
+					checks[i].check(row, column, acceptor);
+				}
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.check;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.b2international.rf2.check.RF2Issue.Severity;
+import com.b2international.rf2.model.RF2ContentFile;
+import com.b2international.rf2.naming.RF2ContentFileName;
+import com.b2international.rf2.naming.file.RF2FileType;
+import com.b2international.rf2.spec.RF2ContentFileSpecification;
+
+/**
+ * @since 0.4
+ */
+public class RF2CheckCacheTest {
+
+	private static final String[] HEADER = { "id", "effectiveTime", "active", "moduleId", "definitionStatusId" };
+	private static final String FILE_NAME = "sct2_Concept_Snapshot_INT_20210131.txt";
+
+	private Path tempDirectory;
+	private RF2ContentFile file;
+
+	@Before
+	public void setup() throws Exception {
+		tempDirectory = Files.createTempDirectory("rf2-check-cache");
+		file = new RF2ContentFile(tempDirectory, new RF2ContentFileName(FILE_NAME),
+				new RF2ContentFileSpecification(HEADER, RF2FileType.SCT2, "Concept", null, null, "Snapshot", "", null, "txt"));
+		write("100005\t20020131\t1\t900000000000207008\t900000000000074008");
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		try (Stream<Path> paths = Files.walk(tempDirectory)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	@Test
+	public void reportCachedResult() throws Exception {
+		final RF2CheckCache cache = new RF2CheckCache(tempDirectory.resolve("cache"), "validators");
+		assertFalse(cache.get(file).isPresent());
+
+		final RF2IssueAcceptor acceptor = new RF2IssueAcceptor(1);
+		acceptor.error("SCTID '%s' is invalid.", "100005");
+		acceptor.error("SCTID '%s' is invalid.", "100006");
+		acceptor.warn("No validator is registered for column header '%s'.", "term");
+		cache.put(file, RF2CheckResult.of(1L, acceptor));
+
+		final Optional<RF2CheckResult> cachedResult = new RF2CheckCache(tempDirectory.resolve("cache"), "validators").get(file);
+		assertTrue(cachedResult.isPresent());
+		assertEquals(1L, cachedResult.get().getRows());
+		assertEquals(List.of(
+				"ERROR: SCTID '100005' is invalid.",
+				"ERROR: 1 more issues like 'SCTID '100005' is invalid.' were not reported",
+				"WARN: No validator is registered for column header 'term'."),
+			cachedResult.get().getIssues().stream().map(issue -> issue.getSeverity() + ": " + issue.getMessage()).collect(Collectors.toList()));
+	}
+
+	@Test
+	public void changedFileIsCheckedAgain() throws Exception {
+		final RF2CheckCache cache = new RF2CheckCache(tempDirectory.resolve("cache"), "validators");
+		cache.put(file, new RF2CheckResult(1L, List.of()));
+		assertTrue(cache.get(file).isPresent());
+
+		write("100005\t20020131\t0\t900000000000207008\t900000000000074008\r\n100005\t20030131\t1\t900000000000207008\t900000000000074008");
+		assertFalse(cache.get(file).isPresent());
+	}
+
+	@Test
+	public void changedConfigurationIsCheckedAgain() throws Exception {
+		new RF2CheckCache(tempDirectory.resolve("cache"), "validators").put(file, new RF2CheckResult(1L, List.of(new RF2CheckResult.Issue(Severity.WARN, "warning"))));
+		assertTrue(new RF2CheckCache(tempDirectory.resolve("cache"), "validators").get(file).isPresent());
+		assertFalse(new RF2CheckCache(tempDirectory.resolve("cache"), "other validators").get(file).isPresent());
+	}
+
+	@Test
+	public void fileOfCopiedArchiveIsNotCheckedAgain() throws Exception {
+		final Path original = tempDirectory.resolve("original.zip");
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(original))) {
+			out.putNextEntry(new ZipEntry("SnomedCT/" + FILE_NAME));
+			out.write(Files.readAllBytes(tempDirectory.resolve(FILE_NAME)));
+			out.closeEntry();
+		}
+		final Path copy = Files.copy(original, Files.createDirectories(tempDirectory.resolve("downloads")).resolve("copy.zip"));
+
+		final RF2CheckCache cache = new RF2CheckCache(tempDirectory.resolve("cache"), "validators");
+		try (FileSystem originalZipfs = FileSystems.newFileSystem(original, (ClassLoader) null);
+				FileSystem copyZipfs = FileSystems.newFileSystem(copy, (ClassLoader) null)) {
+			cache.put(archiveFile(originalZipfs), new RF2CheckResult(1L, List.of(new RF2CheckResult.Issue(Severity.WARN, "warning"))));
+			final Optional<RF2CheckResult> cachedResult = cache.get(archiveFile(copyZipfs));
+			assertTrue(cachedResult.isPresent());
+			assertEquals("warning", cachedResult.get().getIssues().get(0).getMessage());
+		}
+	}
+
+	private RF2ContentFile archiveFile(FileSystem zipfs) {
+		return new RF2ContentFile(zipfs.getPath("/SnomedCT"), new RF2ContentFileName(FILE_NAME), file.getSpecification());
+	}
+
+	private void write(String row) throws Exception {
+		final String content = String.join("\t", HEADER) + "\r\n" + row + "\r\n";
+		Files.write(tempDirectory.resolve(FILE_NAME), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
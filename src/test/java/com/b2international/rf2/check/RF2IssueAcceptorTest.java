@@ -0,0 +1,130 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.check;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.b2international.rf2.check.RF2Issue.Severity;
+import com.b2international.rf2.io.RF2Row;
+import com.b2international.rf2.io.RF2RowSpliterator;
+
+/**
+ * @since 0.4
+ */
+public class RF2IssueAcceptorTest {
+
+	private static final int ROWS = 50_000;
+	private static final String ODD_ID = "Identifier '%s' is odd.";
+	private static final String EMPTY_FILE = "File is empty.";
+
+	private Path file;
+
+	@Before
+	public void setup() throws Exception {
+		file = Files.createTempFile("rf2-issues", ".txt");
+		final StringBuilder content = new StringBuilder("id\tterm\n");
+		for (int i = 0; i < ROWS; i++) {
+			content.append(i).append("\tterm ").append(i).append('\n');
+		}
+		Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	public void noIssues() throws Exception {
+		final RF2IssueAcceptor acceptor = new RF2IssueAcceptor();
+		assertFalse(acceptor.hasIssues());
+		assertTrue(acceptor.getErrors().isEmpty());
+		assertTrue(acceptor.getWarns().isEmpty());
+	}
+
+	@Test
+	public void issuesAreCappedPerRule() throws Exception {
+		final RF2IssueAcceptor acceptor = new RF2IssueAcceptor(10);
+		acceptor.warn(EMPTY_FILE);
+		try (Stream<RF2Row> rows = RF2RowSpliterator.stream(file)) {
+			rows.forEach(row -> {
+				try (RF2IssueAcceptor.Cursor cursor = acceptor.at(file, row)) {
+					cursor.column(0, "id");
+					if (Long.parseLong(row.get(0)) % 2 == 1) {
+						acceptor.error(ODD_ID, row.get(0));
+					}
+				}
+			});
+		}
+		acceptor.resolveLineNumbers();
+
+		assertTrue(acceptor.hasIssues());
+		assertEquals(ROWS / 2, acceptor.getIssueCount(Severity.ERROR, ODD_ID));
+		assertEquals(1L, acceptor.getIssueCount(Severity.WARN, EMPTY_FILE));
+
+		// the first issues of the file are retained, regardless of the order the rows were checked in
+		final Map<String, List<RF2Issue>> errors = acceptor.getIssuesByRule(Severity.ERROR);
+		assertEquals(1, errors.size());
+		final List<RF2Issue> oddIds = errors.get(ODD_ID);
+		assertEquals(10, oddIds.size());
+		for (int i = 0; i < oddIds.size(); i++) {
+			final RF2Issue issue = oddIds.get(i);
+			final String id = Integer.toString(2 * i + 1);
+			assertEquals(Severity.ERROR, issue.getSeverity());
+			assertEquals(file, issue.getFile());
+			assertEquals(id, issue.getValue());
+			assertEquals("id", issue.getColumnHeader());
+			assertEquals(0, issue.getColumn());
+			// the header is on the first line
+			assertEquals(2L * i + 3, issue.getLineNumber());
+			assertEquals(String.format("Identifier '%s' is odd. (line %d, column 'id')", id, 2 * i + 3), issue.toString());
+		}
+
+		// plain messages do not include the location, the located ones do
+		assertEquals("Identifier '1' is odd.", acceptor.getErrors().get(0));
+		assertEquals("Identifier '1' is odd. (line 3, column 'id')", acceptor.getLocatedErrors().get(0));
+
+		final List<String> warns = acceptor.getWarns();
+		assertEquals(1, warns.size());
+		assertEquals(EMPTY_FILE, warns.get(0));
+		assertEquals(List.of(EMPTY_FILE), acceptor.getLocatedWarns());
+	}
+
+	@Test
+	public void issuesAreOnlyCountedWithoutRetention() throws Exception {
+		final RF2IssueAcceptor acceptor = new RF2IssueAcceptor(0);
+		IntStream.range(0, 1000).parallel().forEach(i -> acceptor.error(ODD_ID, i));
+		assertTrue(acceptor.hasIssues());
+		assertEquals(1000L, acceptor.getIssueCount(Severity.ERROR, ODD_ID));
+		assertTrue(acceptor.getIssuesByRule(Severity.ERROR).get(ODD_ID).isEmpty());
+		assertTrue(acceptor.getErrors().isEmpty());
+	}
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.console;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @since 0.4
+ */
+public class BufferedConsoleTest {
+
+	@Test
+	public void flushKeepsOrderAndIndentation() throws Exception {
+		final List<String> lines = new ArrayList<>();
+		final BufferedConsole console = new BufferedConsole(new RecordingConsole(lines, 0));
+		console.log("%s -> %s", "compare", "base");
+		final Console rowConsole = console.indent(2);
+		rowConsole.log("-%s", "row");
+		console.warn("warning");
+		rowConsole.log("+%s", "row");
+		assertTrue(lines.isEmpty());
+
+		console.flush();
+		assertEquals(List.of("0 compare -> base", "2 -row", "0 WARN warning", "2 +row"), lines);
+
+		// the buffer is empty after flushing
+		console.flush();
+		assertEquals(4, lines.size());
+	}
+
+	private static final class RecordingConsole implements Console {
+
+		private final List<String> lines;
+		private final int indentation;
+
+		RecordingConsole(List<String> lines, int indentation) {
+			this.lines = lines;
+			this.indentation = indentation;
+		}
+
+		@Override
+		public void warn(String message, Object... args) {
+			lines.add(indentation + " WARN " + String.format(message, args));
+		}
+
+		@Override
+		public void error(String message, Object... args) {
+			lines.add(indentation + " ERROR " + String.format(message, args));
+		}
+
+		@Override
+		public void log(String message, Object... args) {
+			lines.add(indentation + " " + String.format(message, args));
+		}
+
+		@Override
+		public Console withIndentation(int indentation) {
+			return new RecordingConsole(lines, indentation);
+		}
+
+		@Override
+		public Console indent(int indentWith) {
+			return new RecordingConsole(lines, indentation + indentWith);
+		}
+
+		@Override
+		public Console withPrefix(String linePrefix) {
+			return this;
+		}
+
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.console;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * @since 0.4
+ */
+public class QueuedConsoleTest {
+
+	@Test
+	public void drainKeepsOrderAndIndentation() throws Exception {
+		final List<String> lines = new ArrayList<>();
+		final QueuedConsole console = new QueuedConsole(new RecordingConsole(lines, 0), 2);
+		// the writer gets ahead of the reader by at most two messages
+		final CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+			try (QueuedConsole out = console) {
+				out.log("%s -> %s", "compare", "base");
+				final Console rowConsole = out.indent(2);
+				for (int i = 0; i < 100; i++) {
+					rowConsole.log("+%s", i);
+				}
+				out.warn("warning");
+			}
+		});
+
+		console.drain();
+		writer.get();
+		assertEquals(102, lines.size());
+		assertEquals("0 compare -> base", lines.get(0));
+		for (int i = 0; i < 100; i++) {
+			assertEquals("2 +" + i, lines.get(i + 1));
+		}
+		assertEquals("0 WARN warning", lines.get(101));
+	}
+
+	@Test
+	public void interruptedWriterFails() throws Exception {
+		final QueuedConsole console = new QueuedConsole(new RecordingConsole(new ArrayList<>(), 0), 1);
+		final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+		final Thread writer = new Thread(() -> {
+			try (QueuedConsole out = console) {
+				// the second message blocks, as nobody drains the queue
+				out.log("first");
+				out.log("second");
+			} catch (RuntimeException e) {
+				failure.set(e);
+			}
+		});
+		writer.start();
+		while (writer.getState() != Thread.State.WAITING) {
+			Thread.sleep(1L);
+		}
+		writer.interrupt();
+		writer.join();
+		assertTrue(failure.get() instanceof CancellationException);
+	}
+
+	private static final class RecordingConsole implements Console {
+
+		private final List<String> lines;
+		private final int indentation;
+
+		RecordingConsole(List<String> lines, int indentation) {
+			this.lines = lines;
+			this.indentation = indentation;
+		}
+
+		@Override
+		public void warn(String message, Object... args) {
+			lines.add(indentation + " WARN " + String.format(message, args));
+		}
+
+		@Override
+		public void error(String message, Object... args) {
+			lines.add(indentation + " ERROR " + String.format(message, args));
+		}
+
+		@Override
+		public void log(String message, Object... args) {
+			lines.add(indentation + " " + String.format(message, args));
+		}
+
+		@Override
+		public Console withIndentation(int indentation) {
+			return new RecordingConsole(lines, indentation);
+		}
+
+		@Override
+		public Console indent(int indentWith) {
+			return new RecordingConsole(lines, indentation + indentWith);
+		}
+
+		@Override
+		public Console withPrefix(String linePrefix) {
+			return this;
+		}
+
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import org.junit.Test;
+
+/**
+ * Verifies {@link RF2ComponentIdSet} against a {@link HashSet}.
+ *
+ * @since 0.4
+ */
+public class RF2ComponentIdSetTest {
+
+	private static final int IDS = 100_000;
+
+	@Test
+	public void emptySet() throws Exception {
+		final RF2ComponentIdSet set = RF2ComponentIdSet.of(new long[0], 0);
+		assertEquals(0, set.size());
+		assertFalse(set.contains(100005L));
+		assertFalse(set.contains(0L));
+	}
+
+	@Test
+	public void containsAddedIds() throws Exception {
+		for (int size : new int[] { 1, 5, IDS }) {
+			assertContains(size);
+		}
+	}
+
+	@Test
+	public void buildFromParallelStream() throws Exception {
+		final Random random = new Random(IDS);
+		final long[] ids = LongStream.range(0, IDS).map(i -> randomId(random)).toArray();
+		final Set<Long> expected = new HashSet<>();
+		LongStream.of(ids).forEach(expected::add);
+
+		final RF2ComponentIdSet.Builder builder = LongStream.of(ids).parallel()
+				.collect(RF2ComponentIdSet::builder, RF2ComponentIdSet.Builder::add, RF2ComponentIdSet.Builder::addAll);
+		// duplicates are collected as well
+		builder.addAll(LongStream.of(ids).limit(10).collect(RF2ComponentIdSet::builder, RF2ComponentIdSet.Builder::add, RF2ComponentIdSet.Builder::addAll));
+		assertEquals(IDS + 10, builder.size());
+
+		final RF2ComponentIdSet set = builder.build();
+		assertEquals(expected.size(), set.size());
+		for (long id : ids) {
+			assertEquals(true, set.contains(id));
+		}
+		assertEquals(0L, builder.size());
+	}
+
+	private static void assertContains(int size) {
+		final Random random = new Random(size);
+		final Set<Long> expected = new HashSet<>();
+		// room for duplicates and unused slots at the end of the array
+		final long[] ids = new long[size * 2 + 10];
+		int length = 0;
+		for (int i = 0; i < size; i++) {
+			final long id = randomId(random);
+			expected.add(id);
+			ids[length++] = id;
+			if (random.nextInt(4) == 0) {
+				ids[length++] = id;
+			}
+		}
+
+		final RF2ComponentIdSet set = RF2ComponentIdSet.of(ids, length);
+		assertEquals(expected.size(), set.size());
+		for (long id : expected) {
+			assertEquals(true, set.contains(id));
+		}
+		for (int i = 0; i < IDS; i++) {
+			final long id = randomId(random);
+			assertEquals(expected.contains(id), set.contains(id));
+		}
+	}
+
+	private static long randomId(Random random) {
+		// short format IDs of the International Edition and long format IDs of extensions
+		return random.nextBoolean() ? 100000L + random.nextInt(1_000_000) * 100L + random.nextInt(3) * 10L + random.nextInt(10)
+				: 1_000_000_000_000_000L + (random.nextLong() & 0xFFFFFFFFFFFFL);
+	}
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.index;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.b2international.rf2.index.RF2ComponentIndex.Result;
+
+/**
+ * Verifies {@link RF2ComponentIndex} against the map based logic it replaces.
+ *
+ * @since 0.4
+ */
+public class RF2ComponentIndexTest {
+
+	private static final int OPERATIONS = 200_000;
+	private static final String[] EFFECTIVE_TIMES = { "", "20190131", "20190731", "20200131", "20200731", "2021", "invalid" };
+
+	@Test
+	public void allVersions() throws Exception {
+		try (RF2ComponentIndex index = RF2ComponentIndex.allVersions(false)) {
+			assertAllVersions(index);
+		}
+	}
+
+	@Test
+	public void allVersionsOffHeap() throws Exception {
+		try (RF2ComponentIndex index = RF2ComponentIndex.allVersions(true)) {
+			assertAllVersions(index);
+		}
+	}
+
+	@Test
+	public void latestVersions() throws Exception {
+		try (RF2ComponentIndex index = RF2ComponentIndex.latestVersions(false)) {
+			assertLatestVersions(index);
+		}
+	}
+
+	@Test
+	public void latestVersionsOffHeap() throws Exception {
+		try (RF2ComponentIndex index = RF2ComponentIndex.latestVersions(true)) {
+			assertLatestVersions(index);
+		}
+	}
+
+	@Test
+	public void latestVersionWithoutEffectiveTime() throws Exception {
+		try (RF2ComponentIndex index = RF2ComponentIndex.latestVersions(true)) {
+			assertEquals(Result.ADDED, index.add("100005", "", 1L));
+			assertEquals(Result.SKIPPED, index.add("100005", "20200131", 2L));
+			assertEquals(Result.CONFLICT, index.add("100005", "", 3L));
+			assertEquals(1L, index.size());
+		}
+	}
+
+	@Test
+	public void verifyDuplicates() throws Exception {
+		try (RF2ComponentIndex index = RF2ComponentIndex.allVersions(false)) {
+			verifyDuplicates(index);
+		}
+	}
+
+	private static void verifyDuplicates(RF2ComponentIndex index) {
+		for (String id : new String[] { "100005", "id-1" }) {
+			assertEquals(Result.ADDED, index.add(id, "20200131", 1L, () -> 42L, value -> false));
+			// the predicate gets the value of the indexed version when the hashes are equal
+			assertEquals(Result.DUPLICATE, index.add(id, "20200131", 1L, null, value -> value == 42L));
+			// same hash but different content
+			assertEquals(Result.CONFLICT, index.add(id, "20200131", 1L, null, value -> false));
+			assertEquals(Result.CONFLICT, index.add(id, "20200131", 2L, null, value -> true));
+		}
+	}
+
+	private static void assertAllVersions(RF2ComponentIndex index) {
+		final Random random = new Random(0L);
+		final String[] ids = ids(random);
+		final Map<String, Long> expected = new HashMap<>();
+		for (int i = 0; i < OPERATIONS; i++) {
+			final String id = ids[random.nextInt(ids.length)];
+			final String effectiveTime = EFFECTIVE_TIMES[random.nextInt(EFFECTIVE_TIMES.length)];
+			final String key = id + "|" + effectiveTime;
+			if (random.nextInt(4) == 0) {
+				assertEquals(key, expected.remove(key) != null, index.remove(id, effectiveTime));
+			} else {
+				final long hash = random.nextInt(2);
+				final Long indexedHash = expected.putIfAbsent(key, hash);
+				final Result result = indexedHash == null ? Result.ADDED : indexedHash == hash ? Result.DUPLICATE : Result.CONFLICT;
+				assertEquals(key, result, index.add(id, effectiveTime, hash));
+			}
+		}
+		assertEquals(expected.size(), index.size());
+	}
+
+	private static void assertLatestVersions(RF2ComponentIndex index) {
+		final Random random = new Random(0L);
+		final String[] ids = ids(random);
+		final Map<String, String> expectedEffectiveTimes = new HashMap<>();
+		final Map<String, Long> expectedHashes = new HashMap<>();
+		for (int i = 0; i < OPERATIONS; i++) {
+			final String id = ids[random.nextInt(ids.length)];
+			final String effectiveTime = EFFECTIVE_TIMES[random.nextInt(EFFECTIVE_TIMES.length)];
+			final String indexedEffectiveTime = expectedEffectiveTimes.get(id);
+			if (random.nextInt(4) == 0) {
+				final boolean removed = effectiveTime.equals(indexedEffectiveTime);
+				if (removed) {
+					expectedEffectiveTimes.remove(id);
+					expectedHashes.remove(id);
+				}
+				assertEquals(id, removed, index.remove(id, effectiveTime));
+			} else {
+				final long hash = random.nextInt(2);
+				final Result result;
+				// a version without effectiveTime is the latest one
+				if (indexedEffectiveTime == null
+						|| effectiveTime.isEmpty() && !indexedEffectiveTime.isEmpty()
+						|| !indexedEffectiveTime.isEmpty() && effectiveTime.compareTo(indexedEffectiveTime) > 0) {
+					expectedEffectiveTimes.put(id, effectiveTime);
+					expectedHashes.put(id, hash);
+					result = Result.ADDED;
+				} else if (effectiveTime.equals(indexedEffectiveTime)) {
+					result = expectedHashes.get(id) == hash ? Result.DUPLICATE : Result.CONFLICT;
+				} else {
+					result = Result.SKIPPED;
+				}
+				assertEquals(id + "|" + effectiveTime, result, index.add(id, effectiveTime, hash));
+			}
+		}
+		assertEquals(expectedEffectiveTimes.size(), index.size());
+	}
+
+	/**
+	 * @return a mix of SCTIDs, UUIDs and IDs in other formats
+	 */
+	private static String[] ids(Random random) {
+		final String[] ids = new String[5_000];
+		for (int i = 0; i < ids.length; i++) {
+			switch (i % 5) {
+			case 0:
+				ids[i] = new UUID(random.nextLong(), random.nextLong()).toString();
+				break;
+			case 1:
+				ids[i] = "id-" + i;
+				break;
+			case 2:
+				// with leading zeros, not an SCTID
+				ids[i] = "0" + i;
+				break;
+			default:
+				ids[i] = Long.toString(100_000L + random.nextInt(Integer.MAX_VALUE) * 1000L);
+			}
+		}
+		return ids;
+	}
+
+}
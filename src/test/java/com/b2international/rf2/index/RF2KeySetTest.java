@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Verifies {@link RF2KeySet} against a {@link HashSet}.
+ *
+ * @since 0.4
+ */
+public class RF2KeySetTest {
+
+	private static final int OPERATIONS = 200_000;
+
+	@Test
+	public void addKeys() throws Exception {
+		for (int keyWidth = 1; keyWidth <= 3; keyWidth++) {
+			assertAdd(keyWidth);
+		}
+	}
+
+	@Test
+	public void clear() throws Exception {
+		final RF2KeySet keys = new RF2KeySet(2, 1L << 20);
+		assertTrue(keys.add(new long[] { 0L, 0L }));
+		assertTrue(keys.add(new long[] { 100005L, 20020131L }));
+		assertEquals(2L, keys.size());
+		keys.clear();
+		assertEquals(0L, keys.size());
+		assertTrue(keys.add(new long[] { 0L, 0L }));
+		assertTrue(keys.add(new long[] { 100005L, 20020131L }));
+		assertFalse(keys.add(new long[] { 100005L, 20020131L }));
+	}
+
+	@Test
+	public void overflow() throws Exception {
+		// the initial tables fit, but not the added keys
+		final RF2KeySet keys = new RF2KeySet(1, 64 * 1024);
+		for (long key = 1L; key <= 10_000L; key++) {
+			assertTrue(keys.add(new long[] { key }));
+		}
+		assertTrue(keys.isOverflown());
+		// duplicates are not detected anymore
+		assertTrue(keys.add(new long[] { 1L }));
+
+		assertTrue(new RF2KeySet(1, 1L).isOverflown());
+	}
+
+	private static void assertAdd(int keyWidth) {
+		final Random random = new Random(keyWidth);
+		final RF2KeySet keys = new RF2KeySet(keyWidth, 1L << 30);
+		final Set<List<Long>> expected = new HashSet<>();
+		for (int i = 0; i < OPERATIONS; i++) {
+			final long[] key = new long[keyWidth];
+			for (int j = 0; j < keyWidth; j++) {
+				// small values to have zero keys and many duplicates
+				key[j] = random.nextBoolean() ? random.nextInt(300) : random.nextLong();
+			}
+			final List<Long> expectedKey = Arrays.asList(Arrays.stream(key).boxed().toArray(Long[]::new));
+			assertEquals(expected.add(expectedKey), keys.add(key));
+		}
+		assertFalse(keys.isOverflown());
+		assertEquals(expected.size(), keys.size());
+	}
+
+}
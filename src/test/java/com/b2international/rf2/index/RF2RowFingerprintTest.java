@@ -0,0 +1,125 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * @since 0.4
+ */
+public class RF2RowFingerprintTest {
+
+	@Test
+	public void xxHash64TestVectors() throws Exception {
+		assertEquals(0xEF46DB3751D8E999L, xxHash64(new byte[0]));
+		assertEquals(0xD24EC4F1A98C6E5BL, xxHash64("a".getBytes(StandardCharsets.US_ASCII)));
+		assertEquals(0x44BC2CF5AD770999L, xxHash64("abc".getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	@Test
+	public void xxHash64OfJoinedRow() throws Exception {
+		final Random random = new Random(0L);
+		for (int i = 0; i < 10_000; i++) {
+			final String[] row = randomRow(random);
+			final byte[] bytes = String.join("\t", row).getBytes(StandardCharsets.UTF_16LE);
+			assertEquals(String.join("|", row), xxHash64(bytes), RF2RowFingerprint.XXHASH64.fingerprint(row));
+		}
+	}
+
+	@Test
+	public void murmur3OfJoinedRow() throws Exception {
+		final Random random = new Random(0L);
+		for (int i = 0; i < 1_000; i++) {
+			final String[] row = randomRow(random);
+			final long expected = Hashing.murmur3_128().hashBytes(String.join("\t", row).getBytes(StandardCharsets.UTF_16LE)).asLong();
+			assertEquals(String.join("|", row), expected, RF2RowFingerprint.MURMUR3.fingerprint(row));
+		}
+	}
+
+	@Test
+	public void columnBoundariesMatter() throws Exception {
+		for (RF2RowFingerprint fingerprint : RF2RowFingerprint.values()) {
+			assertTrue(fingerprint.fingerprint(new String[] { "ab", "c" }) != fingerprint.fingerprint(new String[] { "a", "bc" }));
+		}
+	}
+
+	private static String[] randomRow(Random random) {
+		final String[] row = new String[1 + random.nextInt(6)];
+		for (int column = 0; column < row.length; column++) {
+			final char[] value = new char[random.nextInt(40)];
+			for (int i = 0; i < value.length; i++) {
+				// mostly ASCII with some accented characters
+				value[i] = (char) (random.nextInt(10) == 0 ? 0xE0 + random.nextInt(32) : 'a' + random.nextInt(26));
+			}
+			row[column] = new String(value);
+		}
+		return row;
+	}
+
+	/**
+	 * Reference XXH64 implementation over a byte array with seed 0.
+	 */
+	private static long xxHash64(byte[] input) {
+		final long p1 = 0x9E3779B185EBCA87L, p2 = 0xC2B2AE3D27D4EB4FL, p3 = 0x165667B19E3779F9L, p4 = 0x85EBCA77C2B2AE63L, p5 = 0x27D4EB2F165667C5L;
+		final ByteBuffer buffer = ByteBuffer.wrap(input).order(ByteOrder.LITTLE_ENDIAN);
+		long hash;
+		if (input.length >= 32) {
+			long v1 = p1 + p2, v2 = p2, v3 = 0L, v4 = -p1;
+			while (buffer.remaining() >= 32) {
+				v1 = Long.rotateLeft(v1 + buffer.getLong() * p2, 31) * p1;
+				v2 = Long.rotateLeft(v2 + buffer.getLong() * p2, 31) * p1;
+				v3 = Long.rotateLeft(v3 + buffer.getLong() * p2, 31) * p1;
+				v4 = Long.rotateLeft(v4 + buffer.getLong() * p2, 31) * p1;
+			}
+			hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+			for (long v : new long[] { v1, v2, v3, v4 }) {
+				hash = (hash ^ Long.rotateLeft(v * p2, 31) * p1) * p1 + p4;
+			}
+		} else {
+			hash = p5;
+		}
+		hash += input.length;
+		while (buffer.remaining() >= 8) {
+			hash ^= Long.rotateLeft(buffer.getLong() * p2, 31) * p1;
+			hash = Long.rotateLeft(hash, 27) * p1 + p4;
+		}
+		if (buffer.remaining() >= 4) {
+			hash ^= (buffer.getInt() & 0xFFFFFFFFL) * p1;
+			hash = Long.rotateLeft(hash, 23) * p2 + p3;
+		}
+		while (buffer.hasRemaining()) {
+			hash ^= (buffer.get() & 0xFFL) * p5;
+			hash = Long.rotateLeft(hash, 11) * p1;
+		}
+		hash ^= hash >>> 33;
+		hash *= p2;
+		hash ^= hash >>> 29;
+		hash *= p3;
+		hash ^= hash >>> 32;
+		return hash;
+	}
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.b2international.rf2.model.RF2File;
+
+/**
+ * @since 0.4
+ */
+public class RF2ColumnarCacheTest {
+
+	private static final int ROWS = RF2ColumnarCache.BLOCK_ROWS * 2 + 100;
+
+	private Path tempDirectory;
+	private RF2ColumnarCache cache;
+
+	@Before
+	public void setup() throws Exception {
+		tempDirectory = Files.createTempDirectory("rf2-cache");
+		cache = new RF2ColumnarCache(tempDirectory.resolve("cache"));
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		try (Stream<Path> paths = Files.walk(tempDirectory)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	@Test
+	public void readCachedRows() throws Exception {
+		final List<String[]> expected = randomRows();
+		final Path source = write("sct2_Description_Full-en_INT_20210131.txt", expected);
+
+		assertFalse(cache.contains(source));
+		assertRows(expected, readRows(source));
+		assertTrue(cache.contains(source));
+
+		// the text of the source is not read again
+		try (Stream<String[]> rows = cache.rows(source, () -> { throw new AssertionError("Cached source read as text"); })) {
+			assertRows(expected, rows.collect(Collectors.toList()));
+		}
+		try (Stream<String[]> rows = cache.rowsParallel(source, () -> { throw new AssertionError("Cached source read as text"); })) {
+			assertRows(expected, rows.collect(Collectors.toList()));
+		}
+	}
+
+	@Test
+	public void readIrregularRows() throws Exception {
+		final List<String[]> expected = List.of(
+				new String[] { "100005", "20020131", "1", "900000000000207008", "0123" },
+				new String[] { "" },
+				new String[] { "100005", "20020131" },
+				new String[] { "100005", "20020131", "1", "900000000000207008", "-1", "extra" },
+				new String[] { "1000000000000000000", "20020131", "1", "", "Ärztin" });
+		final Path source = write("sct2_Concept_Full_INT_20210131.txt", expected);
+
+		assertRows(expected, readRows(source));
+		assertTrue(cache.contains(source));
+		assertRows(expected, readRows(source));
+	}
+
+	@Test
+	public void keepPartiallyReadRowsOutOfCache() throws Exception {
+		final Path source = write("sct2_Concept_Full_INT_20210131.txt", randomRows());
+		try (Stream<String[]> rows = cache.rows(source, () -> RF2RowReader.open(source).skip(1).rows())) {
+			assertEquals(10L, rows.limit(10L).count());
+		}
+		assertFalse(cache.contains(source));
+		try (Stream<Path> files = Files.list(cache.getDirectory())) {
+			assertEquals(0L, files.count());
+		}
+	}
+
+	@Test
+	public void changedSourceIsNotCached() throws Exception {
+		final Path source = write("sct2_Concept_Full_INT_20210131.txt", List.<String[]>of(new String[] { "100005", "20020131" }));
+		readRows(source);
+		assertTrue(cache.contains(source));
+		write("sct2_Concept_Full_INT_20210131.txt", List.<String[]>of(new String[] { "100005", "20030131", "1" }));
+		assertFalse(cache.contains(source));
+		try (Stream<String[]> rows = cache.rowsParallel(source, () -> RF2RowReader.open(source).skip(1).rows())) {
+			assertRows(List.<String[]>of(new String[] { "100005", "20030131", "1" }), rows.collect(Collectors.toList()));
+		}
+	}
+
+	@Test
+	public void sameEntryOfCopiedArchiveIsCached() throws Exception {
+		final List<String[]> expected = List.<String[]>of(new String[] { "100005", "20020131" });
+		final String name = "SnomedCT/sct2_Concept_Full_INT_20210131.txt";
+		final Path original = writeArchive("original.zip", name, expected);
+		final Path copy = Files.copy(original, Files.createDirectories(tempDirectory.resolve("downloads")).resolve("copy.zip"));
+		final Path other = writeArchive("other.zip", name, List.<String[]>of(new String[] { "100005", "20030131" }));
+		try (FileSystem originalZipfs = FileSystems.newFileSystem(original, (ClassLoader) null);
+				FileSystem copyZipfs = FileSystems.newFileSystem(copy, (ClassLoader) null);
+				FileSystem otherZipfs = FileSystems.newFileSystem(other, (ClassLoader) null)) {
+			final Path originalEntry = originalZipfs.getPath("/" + name);
+			assertRows(expected, readRows(originalEntry));
+			assertTrue(cache.contains(originalEntry));
+			// the same content at another path
+			assertTrue(cache.contains(copyZipfs.getPath("/" + name)));
+			assertRows(expected, readRows(copyZipfs.getPath("/" + name)));
+			// the same entry name with other content
+			assertFalse(cache.contains(otherZipfs.getPath("/" + name)));
+		}
+	}
+
+	@Test
+	public void entryOfOtherSourceIsNotServed() throws Exception {
+		final Path first = write("sct2_Concept_Full_INT_20210131.txt", List.<String[]>of(new String[] { "100005", "20020131" }));
+		final Path second = write("sct2_Concept_Full_INT_20220131.txt", List.<String[]>of(new String[] { "138875005", "20020131" }));
+		readRows(first);
+		readRows(second);
+		final List<Path> entries;
+		try (Stream<Path> files = Files.list(cache.getDirectory())) {
+			entries = files.collect(Collectors.toList());
+		}
+		assertEquals(2, entries.size());
+		// swap the entries of the two sources
+		final Path temp = tempDirectory.resolve("entry.tmp");
+		Files.move(entries.get(0), temp);
+		Files.move(entries.get(1), entries.get(0));
+		Files.move(temp, entries.get(1), StandardCopyOption.REPLACE_EXISTING);
+		assertFalse(cache.contains(first));
+		assertFalse(cache.contains(second));
+		assertRows(List.<String[]>of(new String[] { "138875005", "20020131" }), readRows(second));
+	}
+
+	private List<String[]> readRows(Path source) throws Exception {
+		try (Stream<String[]> rows = cache.rows(source, () -> RF2RowReader.open(source).skip(1).rows())) {
+			return rows.collect(Collectors.toList());
+		}
+	}
+
+	private Path write(String fileName, List<String[]> rows) throws Exception {
+		final StringBuilder content = new StringBuilder("id\teffectiveTime\tactive\tmoduleId\tterm").append(RF2File.CRLF);
+		for (String[] row : rows) {
+			content.append(String.join(RF2File.TAB, row)).append(RF2File.CRLF);
+		}
+		final Path source = tempDirectory.resolve(fileName);
+		Files.write(source, content.toString().getBytes(StandardCharsets.UTF_8));
+		return source;
+	}
+
+	private Path writeArchive(String fileName, String entryName, List<String[]> rows) throws Exception {
+		final Path archive = tempDirectory.resolve(fileName);
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive))) {
+			out.putNextEntry(new ZipEntry(entryName));
+			out.write(Files.readAllBytes(write("entry.txt", rows)));
+			out.closeEntry();
+		}
+		return archive;
+	}
+
+	private static List<String[]> randomRows() {
+		final Random random = new Random(0L);
+		final List<String[]> rows = new ArrayList<>();
+		for (int i = 0; i < ROWS; i++) {
+			rows.add(new String[] {
+				Long.toString(100000L + random.nextInt(1_000_000) * 1000L + 10L),
+				"20" + (10 + random.nextInt(11)) + "0131",
+				Integer.toString(random.nextInt(2)),
+				random.nextBoolean() ? "900000000000207008" : "900000000000012004",
+				"term " + random.nextInt() + (random.nextInt(10) == 0 ? " (ü)" : "")
+			});
+		}
+		return rows;
+	}
+
+	private static void assertRows(List<String[]> expected, List<String[]> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertArrayEquals(expected.get(i), actual.get(i));
+		}
+	}
+
+}
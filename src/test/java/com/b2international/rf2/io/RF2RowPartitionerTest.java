@@ -0,0 +1,108 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since 0.4
+ */
+public class RF2RowPartitionerTest {
+
+	private static final int ROWS = 10_000;
+	private static final int BUCKETS = 16;
+
+	private Path tempDirectory;
+
+	@Before
+	public void setup() throws Exception {
+		tempDirectory = Files.createTempDirectory("rf2-partitioner");
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		try (Stream<Path> files = Files.list(tempDirectory)) {
+			RF2RowPartitioner.delete(files.collect(Collectors.toList()));
+		}
+		Files.deleteIfExists(tempDirectory);
+	}
+
+	@Test
+	public void rowsWithSameKeyShareBucket() throws Exception {
+		final Random random = new Random(0L);
+		final List<String> lines = new ArrayList<>();
+		for (int i = 0; i < ROWS; i++) {
+			// every ID has multiple versions
+			lines.add(String.join("\t", Integer.toString(100_000 + random.nextInt(ROWS / 4)), "2020" + (1 + random.nextInt(3)) + "131", "term é " + i));
+		}
+		final RF2RowPartitioner partitioner = new RF2RowPartitioner(0, BUCKETS, tempDirectory);
+		final List<Path> buckets = partitioner.partition(reader(String.join("\r\n", lines)));
+		assertEquals(BUCKETS, buckets.size());
+
+		final Map<String, Integer> bucketById = new HashMap<>();
+		final List<String> partitionedLines = new ArrayList<>();
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			try (Stream<String[]> rows = RF2RowReader.open(buckets.get(bucket)).rows()) {
+				final List<String[]> bucketRows = rows.collect(Collectors.toList());
+				// the hash spreads the IDs into all buckets
+				assertTrue(!bucketRows.isEmpty());
+				for (String[] row : bucketRows) {
+					final Integer previous = bucketById.put(row[0], bucket);
+					assertTrue(previous == null || previous == bucket);
+					partitionedLines.add(String.join("\t", row));
+				}
+			}
+		}
+
+		// rows are copied as they are and keep their order within a bucket
+		final List<String> expectedLines = lines.stream()
+				.sorted((left, right) -> Integer.compare(bucketById.get(left.split("\t")[0]), bucketById.get(right.split("\t")[0])))
+				.collect(Collectors.toList());
+		assertEquals(expectedLines, partitionedLines);
+
+		// the same key is assigned to the same bucket when it comes from another file
+		final String id = lines.get(0).split("\t")[0];
+		try (RF2RowReader otherReader = reader(id + "\t20210131\tother")) {
+			final RF2Row row = otherReader.next();
+			assertNotNull(row);
+			assertEquals((int) bucketById.get(id), partitioner.getBucket(row));
+		}
+	}
+
+	private RF2RowReader reader(String content) {
+		return new RF2RowReader(Channels.newChannel(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))), 1024);
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+/**
+ * @since 0.4
+ */
+public class RF2RowReaderTest {
+
+	private static final String CONTENT = "id\teffectiveTime\tactive\tterm\r\n"
+			+ "100005\t20020131\t0\tSNOMED RT Concept\r\n"
+			+ "\r\n"
+			+ "101009\t\t1\tQuilonia ethiopica (organism) \u2013 \u00fcn\u00efc\u00f6d\u00e9\r\n"
+			+ "102002\t20020131\t1\t\n"
+			+ "103007\t20020131\t1\tlast line without separator";
+
+	@Test
+	public void sameColumnsAsSplit() throws Exception {
+		// use a tiny buffer to exercise compaction and growth of the buffer
+		for (int bufferSize : new int[] { 1, 3, 16, 1024 }) {
+			try (RF2RowReader reader = reader(CONTENT, bufferSize)) {
+				List<String[]> actual = reader.rows().collect(Collectors.toList());
+				List<String> expected = CONTENT.lines().collect(Collectors.toList());
+				assertEquals(expected.size(), actual.size());
+				for (int i = 0; i < expected.size(); i++) {
+					assertArrayEquals(expected.get(i).split("\t", -1), actual.get(i));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void columnSlices() throws Exception {
+		try (RF2RowReader reader = reader(CONTENT, 8).skip(1)) {
+			RF2Row row = reader.next();
+			assertEquals(2L, row.getLineNumber());
+			assertEquals(4, row.getColumnCount());
+			assertEquals(6, row.length(0));
+			assertEquals((byte) '1', row.byteAt(0, 0));
+			assertTrue(row.contentEquals(1, "20020131".getBytes(StandardCharsets.UTF_8)));
+			assertEquals("SNOMED RT Concept", row.get(3));
+
+			RF2Row copy = row.copy();
+			// empty line
+			row = reader.next();
+			assertEquals(1, row.getColumnCount());
+			assertTrue(row.isEmpty(0));
+			assertEquals("100005\t20020131\t0\tSNOMED RT Concept", copy.toString());
+
+			row = reader.next();
+			assertTrue(row.isEmpty(1));
+			assertEquals("Quilonia ethiopica (organism) \u2013 \u00fcn\u00efc\u00f6d\u00e9", row.get(3));
+
+			assertEquals("", reader.next().get(3));
+			assertEquals("last line without separator", reader.next().get(3));
+			assertNull(reader.next());
+			assertNull(reader.next());
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void columnOutOfBounds() throws Exception {
+		try (RF2RowReader reader = reader(CONTENT, 1024)) {
+			reader.next().get(4);
+		}
+	}
+
+	@Test
+	public void emptyFile() throws Exception {
+		try (RF2RowReader reader = reader("", 1024)) {
+			assertNull(reader.next());
+		}
+	}
+
+	private static RF2RowReader reader(String content, int bufferSize) {
+		return new RF2RowReader(Channels.newChannel(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))), bufferSize);
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since 0.4
+ */
+public class RF2RowSorterTest {
+
+	private static final int ROWS = 20_000;
+	// effectiveTime then id, the term column is not part of the order
+	private static final Comparator<String[]> COMPARATOR = Comparator.<String[], String>comparing(row -> row[1]).thenComparing(row -> row[0]);
+
+	private Path tempDirectory;
+	private String content;
+	private List<String[]> expected;
+
+	@Before
+	public void setup() throws Exception {
+		tempDirectory = Files.createTempDirectory("rf2-sorter");
+		final Random random = new Random(0L);
+		final StringBuilder builder = new StringBuilder();
+		final List<String[]> rows = new ArrayList<>();
+		for (int i = 0; i < ROWS; i++) {
+			// few distinct keys, so the stability of the sort is verified as well
+			final String[] row = { Integer.toString(100_000 + random.nextInt(ROWS / 4)), "2020" + (1 + random.nextInt(3)) + "131", "term é " + i };
+			rows.add(row);
+			builder.append(String.join("\t", row)).append("\r\n");
+		}
+		content = builder.toString();
+		expected = rows.stream().sorted(COMPARATOR).collect(Collectors.toList());
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		Files.deleteIfExists(tempDirectory);
+	}
+
+	@Test
+	public void sortInMemory() throws Exception {
+		assertSorted(Long.MAX_VALUE);
+	}
+
+	@Test
+	public void sortWithRuns() throws Exception {
+		// about 100 rows per run
+		assertSorted(100 * 256);
+	}
+
+	@Test
+	public void sortSingleRowRuns() throws Exception {
+		assertSorted(1);
+	}
+
+	private void assertSorted(long memoryBudget) throws Exception {
+		final RF2RowSorter sorter = new RF2RowSorter(COMPARATOR, memoryBudget, tempDirectory);
+		final List<String[]> actual;
+		try (Stream<String[]> rows = sorter.sort(reader())) {
+			actual = rows.collect(Collectors.toList());
+		}
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertArrayEquals(expected.get(i), actual.get(i));
+		}
+		// all sorted runs are deleted when the stream is closed
+		try (Stream<Path> runs = Files.list(tempDirectory)) {
+			assertEquals(0L, runs.count());
+		}
+	}
+
+	private RF2RowReader reader() {
+		return new RF2RowReader(Channels.newChannel(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))), 1024);
+	}
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since 0.4
+ */
+public class RF2RowSpliteratorTest {
+
+	private static final int ROWS = 50_000;
+	
+	private Path file;
+	
+	@Before
+	public void setup() throws Exception {
+		file = Files.createTempFile("sct2_Concept_Snapshot_INT_", ".txt");
+		try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+			writer.write("id\teffectiveTime\tactive\tmoduleId\tdefinitionStatusId\r\n");
+			for (int i = 0; i < ROWS; i++) {
+				writer.write(String.format("%s\t20210131\t1\t900000000000207008\t900000000000074008\r\n", 100_000 + i));
+			}
+		}
+	}
+	
+	@After
+	public void cleanup() throws Exception {
+		Files.deleteIfExists(file);
+	}
+	
+	@Test
+	public void parallelRowsMatchSequentialRows() throws Exception {
+		try (Stream<RF2Row> rows = RF2RowSpliterator.stream(file)) {
+			assertEquals(ROWS, rows.count());
+		}
+		
+		final List<String> expected;
+		try (Stream<String[]> rows = RF2RowReader.open(file).skip(1).rows()) {
+			expected = rows.map(row -> row[0]).collect(Collectors.toList());
+		}
+		
+		try (Stream<RF2Row> rows = RF2RowSpliterator.stream(file)) {
+			// chunks are parsed independently, but the encounter order is kept
+			assertEquals(expected, rows.map(row -> row.get(0)).collect(Collectors.toList()));
+		}
+	}
+	
+	@Test
+	public void chunksAreAlignedToLines() throws Exception {
+		try (RF2RowSpliterator spliterator = RF2RowSpliterator.open(file)) {
+			final RF2RowSpliterator prefix = (RF2RowSpliterator) spliterator.trySplit();
+			final long[] rows = new long[2];
+			prefix.forEachRemaining(row -> {
+				assertEquals(5, row.getColumnCount());
+				rows[0]++;
+			});
+			spliterator.forEachRemaining(row -> {
+				assertEquals(5, row.getColumnCount());
+				rows[1]++;
+			});
+			assertEquals(ROWS, rows[0] + rows[1]);
+		}
+	}
+	
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since 0.4
+ */
+public class RF2SpillFileTest {
+
+	private static final int ROWS = 10_000;
+
+	private Path tempDirectory;
+
+	@Before
+	public void setup() throws Exception {
+		tempDirectory = Files.createTempDirectory("rf2-spill");
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		Files.deleteIfExists(tempDirectory);
+	}
+
+	@Test
+	public void readSelectedRowsInAppendOrder() throws Exception {
+		final Random random = new Random(0L);
+		final List<String[]> expected = new ArrayList<>();
+		final List<Long> offsets = new ArrayList<>();
+		try (RF2SpillFile spillFile = new RF2SpillFile(tempDirectory)) {
+			for (int i = 0; i < ROWS; i++) {
+				final String[] row = { Integer.toString(100_000 + i), "", "term é " + random.nextInt() };
+				final long offset = spillFile.append(row);
+				if (random.nextInt(3) == 0) {
+					expected.add(row);
+					offsets.add(offset);
+				}
+			}
+			// the order of the offsets does not matter
+			Collections.shuffle(offsets, random);
+
+			final List<String[]> actual;
+			try (Stream<String[]> rows = spillFile.rows(offsets.stream().mapToLong(Long::longValue).toArray())) {
+				actual = rows.collect(Collectors.toList());
+			}
+			assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertArrayEquals(expected.get(i), actual.get(i));
+			}
+		}
+		// the file is deleted on close
+		try (Stream<Path> files = Files.list(tempDirectory)) {
+			assertTrue(files.count() == 0L);
+		}
+	}
+
+	@Test
+	public void readSingleRowsWhileAppending() throws Exception {
+		try (RF2SpillFile spillFile = new RF2SpillFile(tempDirectory)) {
+			final List<Long> offsets = new ArrayList<>();
+			for (int i = 0; i < ROWS; i++) {
+				offsets.add(spillFile.append(new String[] { Integer.toString(i), "term é " + i }));
+				// read back the row just appended and an earlier one
+				assertArrayEquals(new String[] { Integer.toString(i), "term é " + i }, spillFile.read(offsets.get(i)));
+				assertArrayEquals(new String[] { Integer.toString(i / 2), "term é " + i / 2 }, spillFile.read(offsets.get(i / 2)));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since 0.4
+ */
+public class RF2ZipArchiveTest {
+
+	private Path zipFile;
+	private byte[] deflated;
+	private byte[] stored;
+
+	@Before
+	public void setup() throws Exception {
+		final Random random = new Random(0L);
+		final StringBuilder rows = new StringBuilder("id\teffectiveTime\tactive\tmoduleId\tterm\r\n");
+		for (int i = 0; i < 50_000; i++) {
+			rows.append(100_000 + i).append("\t20210131\t1\t900000000000207008\tterm é ").append(random.nextInt(1000)).append("\r\n");
+		}
+		deflated = rows.toString().getBytes(StandardCharsets.UTF_8);
+		stored = "Release notes".getBytes(StandardCharsets.UTF_8);
+
+		zipFile = Files.createTempFile("rf2-zip", ".zip");
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+			out.putNextEntry(new ZipEntry("SnomedCT/"));
+			out.closeEntry();
+			out.putNextEntry(new ZipEntry("SnomedCT/sct2_Description_Full-en_INT_20210131.txt"));
+			out.write(deflated);
+			out.closeEntry();
+			final ZipEntry storedEntry = new ZipEntry("SnomedCT/Readme.txt");
+			final CRC32 crc = new CRC32();
+			crc.update(stored);
+			storedEntry.setMethod(ZipEntry.STORED);
+			storedEntry.setSize(stored.length);
+			storedEntry.setCrc(crc.getValue());
+			out.putNextEntry(storedEntry);
+			out.write(stored);
+			out.closeEntry();
+		}
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		Files.deleteIfExists(zipFile);
+	}
+
+	@Test
+	public void readEntries() throws Exception {
+		final RF2ZipArchive archive = RF2ZipArchive.open(zipFile);
+		assertEquals(Arrays.asList("SnomedCT/", "SnomedCT/sct2_Description_Full-en_INT_20210131.txt", "SnomedCT/Readme.txt"), new ArrayList<>(archive.getEntryNames()));
+		assertEquals(deflated.length, archive.size("SnomedCT/sct2_Description_Full-en_INT_20210131.txt"));
+		try (ReadableByteChannel channel = archive.newChannel("SnomedCT/sct2_Description_Full-en_INT_20210131.txt")) {
+			assertArrayEquals(deflated, readAll(channel, 8192));
+		}
+		try (ReadableByteChannel channel = archive.newChannel("SnomedCT/Readme.txt")) {
+			assertArrayEquals(stored, readAll(channel, 5));
+		}
+	}
+
+	@Test
+	public void readEntriesConcurrently() throws Exception {
+		final RF2ZipArchive archive = RF2ZipArchive.open(zipFile);
+		final String name = "SnomedCT/sct2_Description_Full-en_INT_20210131.txt";
+		// interleave the reads of two channels of the same entry
+		try (ReadableByteChannel first = archive.newChannel(name); ReadableByteChannel second = archive.newChannel(name)) {
+			final ByteArrayOutputStream firstBytes = new ByteArrayOutputStream();
+			final ByteArrayOutputStream secondBytes = new ByteArrayOutputStream();
+			final ByteBuffer buffer = ByteBuffer.allocate(4096);
+			boolean firstDone = false;
+			boolean secondDone = false;
+			while (!firstDone || !secondDone) {
+				firstDone = firstDone || transfer(first, buffer, firstBytes) < 0;
+				secondDone = secondDone || transfer(second, buffer, secondBytes) < 0;
+			}
+			assertArrayEquals(deflated, firstBytes.toByteArray());
+			assertArrayEquals(deflated, secondBytes.toByteArray());
+		}
+	}
+
+	@Test
+	public void readZipFileSystemPaths() throws Exception {
+		try (FileSystem zipfs = FileSystems.newFileSystem(zipFile, (ClassLoader) null)) {
+			try (ReadableByteChannel channel = RF2ZipArchive.newChannel(zipfs.getPath("/SnomedCT/sct2_Description_Full-en_INT_20210131.txt"))) {
+				assertArrayEquals(deflated, readAll(channel, RF2ZipArchive.DEFAULT_BUFFER_SIZE));
+			}
+			try (RF2RowReader reader = RF2RowReader.open(zipfs.getPath("/SnomedCT/Readme.txt"))) {
+				assertArrayEquals(new String[] { "Release notes" }, reader.next().toArray());
+			}
+		}
+	}
+
+	private static byte[] readAll(ReadableByteChannel channel, int bufferSize) throws Exception {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+		while (transfer(channel, buffer, bytes) >= 0) {
+		}
+		return bytes.toByteArray();
+	}
+
+	private static int transfer(ReadableByteChannel channel, ByteBuffer buffer, OutputStream out) throws Exception {
+		buffer.clear();
+		final int read = channel.read(buffer);
+		out.write(buffer.array(), 0, buffer.position());
+		return read;
+	}
+
+}
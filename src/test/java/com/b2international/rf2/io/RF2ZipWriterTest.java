@@ -0,0 +1,157 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since 0.4
+ */
+public class RF2ZipWriterTest {
+
+	private Path tempDirectory;
+	private final Map<String, byte[]> files = new LinkedHashMap<>();
+
+	@Before
+	public void setup() throws Exception {
+		tempDirectory = Files.createTempDirectory("rf2-zip");
+		final Random random = new Random(0L);
+		final StringBuilder rows = new StringBuilder("id\teffectiveTime\tactive\tmoduleId\tterm\r\n");
+		for (int i = 0; i < 20_000; i++) {
+			rows.append(100_000 + i).append("\t20210131\t1\t900000000000207008\tterm é ").append(random.nextInt(1000)).append("\r\n");
+		}
+		files.put("SnomedCT/Full/sct2_Description_Full-en_INT_20210131.txt", rows.toString().getBytes(StandardCharsets.UTF_8));
+		final byte[] noise = new byte[10_000];
+		random.nextBytes(noise);
+		files.put("SnomedCT/Full/noise.bin", noise);
+		files.put("SnomedCT/Full/empty.txt", new byte[0]);
+		for (Map.Entry<String, byte[]> file : files.entrySet()) {
+			Files.write(tempDirectory.resolve(file.getKey().replace('/', '_')), file.getValue());
+		}
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		try (Stream<Path> paths = Files.walk(tempDirectory)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	@Test
+	public void writeReadableArchive() throws Exception {
+		for (int level : new int[] { RF2ZipWriter.STORE_ONLY, 1, RF2ZipWriter.DEFAULT_COMPRESSION_LEVEL, 9 }) {
+			final Path zip = tempDirectory.resolve("release-" + level + ".zip");
+			// small blocks, so entries are split and compressed on multiple threads
+			try (RF2ZipWriter writer = new RF2ZipWriter(zip, level, 3, 4096)) {
+				writer.putDirectory("SnomedCT");
+				writer.putDirectory("SnomedCT/Full/");
+				writer.putDirectory("SnomedCT/");
+				for (String name : files.keySet()) {
+					writer.putFile(name, tempDirectory.resolve(name.replace('/', '_')));
+				}
+			}
+
+			// ZipInputStream verifies the local headers, the sizes and the checksums of the entries
+			try (ZipInputStream in = new ZipInputStream(Files.newInputStream(zip))) {
+				assertEquals("SnomedCT/", in.getNextEntry().getName());
+				assertEquals("SnomedCT/Full/", in.getNextEntry().getName());
+				for (Map.Entry<String, byte[]> file : files.entrySet()) {
+					final ZipEntry entry = in.getNextEntry();
+					assertEquals(file.getKey(), entry.getName());
+					assertEquals(level == RF2ZipWriter.STORE_ONLY ? ZipEntry.STORED : ZipEntry.DEFLATED, entry.getMethod());
+					assertArrayEquals(file.getValue(), in.readAllBytes());
+				}
+				assertEquals(null, in.getNextEntry());
+			}
+			try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+				assertEquals(files.size() + 2, zipFile.size());
+				for (Map.Entry<String, byte[]> file : files.entrySet()) {
+					final ZipEntry entry = zipFile.getEntry(file.getKey());
+					assertEquals(file.getValue().length, entry.getSize());
+					assertArrayEquals(file.getValue(), zipFile.getInputStream(entry).readAllBytes());
+				}
+			}
+			final byte[] description = files.get("SnomedCT/Full/sct2_Description_Full-en_INT_20210131.txt");
+			if (level > RF2ZipWriter.STORE_ONLY) {
+				assertTrue(Files.size(zip) < description.length / 4);
+			}
+		}
+	}
+
+	@Test
+	public void deleteArchiveAfterFailure() throws Exception {
+		final Path zip = tempDirectory.resolve("failed.zip");
+		final RF2ZipWriter writer = new RF2ZipWriter(zip, RF2ZipWriter.DEFAULT_COMPRESSION_LEVEL, 1, 4096);
+		writer.putDirectory("SnomedCT");
+		writer.putFile("SnomedCT/noise.bin", tempDirectory.resolve("SnomedCT_Full_noise.bin"));
+		// reading a directory as the content of an entry fails in the compression task
+		final Path directory = Files.createDirectory(tempDirectory.resolve("directory"));
+		// a directory with content has a non-zero size on all common file systems
+		Files.write(directory.resolve("file.txt"), new byte[1]);
+		writer.putFile("SnomedCT/directory.txt", directory);
+		try {
+			writer.close();
+			fail("Closing the writer should report the failed entry");
+		} catch (IOException e) {
+			// expected
+		}
+		assertFalse(Files.exists(zip));
+	}
+
+	@Test
+	public void combineChecksums() throws Exception {
+		final Random random = new Random(0L);
+		for (int i = 0; i < 100; i++) {
+			final byte[] bytes = new byte[random.nextInt(5000)];
+			random.nextBytes(bytes);
+			final int split = random.nextInt(bytes.length + 1);
+			assertEquals(crc(bytes, 0, bytes.length),
+					RF2ZipWriter.crc32Combine(crc(bytes, 0, split), crc(bytes, split, bytes.length - split), bytes.length - split));
+		}
+		assertEquals(crc(new byte[0], 0, 0), RF2ZipWriter.crc32Combine(0, 0, 0L));
+	}
+
+	private static int crc(byte[] bytes, int offset, int length) {
+		final CRC32 crc = new CRC32();
+		crc.update(bytes, offset, length);
+		return (int) crc.getValue();
+	}
+
+}
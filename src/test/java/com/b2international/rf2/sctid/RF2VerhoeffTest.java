@@ -0,0 +1,146 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.sctid;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Verifies that {@link RF2Verhoeff} produces the same check digits as {@link RF2VerhoeffCheck}.
+ *
+ * @since 0.4
+ */
+public class RF2VerhoeffTest {
+
+	// all codes with at most 6 digits (0 is excluded, a long value cannot represent the leading zero of its code with check digit)
+	private static final int EXHAUSTIVE_CODES = 999_999;
+	private static final int RANDOM_CODES = 1_000_000;
+
+	@Test
+	public void checkDigitsOfAllShortCodes() throws Exception {
+		final long[] codes = new long[EXHAUSTIVE_CODES];
+		for (int i = 0; i < EXHAUSTIVE_CODES; i++) {
+			codes[i] = i + 1;
+		}
+		assertCheckDigits(codes);
+	}
+
+	@Test
+	public void checkDigitsOfRandomLongCodes() throws Exception {
+		final Random random = new Random(0L);
+		final long[] codes = new long[RANDOM_CODES];
+		for (int i = 0; i < RANDOM_CODES; i++) {
+			// up to 17 digits, so the code with its check digit is still a valid SCTID length
+			codes[i] = 1 + (random.nextLong() >>> 1) % 99_999_999_999_999_999L;
+		}
+		assertCheckDigits(codes);
+	}
+
+	@Test
+	public void verifyAllDigitReplacements() throws Exception {
+		// replacing any single digit of a valid code makes its check digit invalid
+		final String code = "1234567890123456";
+		final String sctid = code + RF2VerhoeffCheck.calculateChecksum(code, false);
+		assertEquals(RF2Verhoeff.VALID, RF2Verhoeff.verify(Long.parseLong(sctid)));
+		for (int i = 0; i < sctid.length(); i++) {
+			for (char digit = '0'; digit <= '9'; digit++) {
+				final char[] chars = sctid.toCharArray();
+				chars[i] = digit;
+				final String candidate = new String(chars);
+				final byte expected = RF2VerhoeffCheck.calculateChecksum(candidate, true) == '0' ? RF2Verhoeff.VALID : RF2Verhoeff.INVALID_CHECK_DIGIT;
+				final byte[] bytes = candidate.getBytes(StandardCharsets.US_ASCII);
+				assertEquals(candidate, expected, RF2Verhoeff.verify(bytes, 0, bytes.length));
+				if (candidate.charAt(0) != '0') {
+					assertEquals(candidate, expected, RF2Verhoeff.verify(Long.parseLong(candidate)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void invalidCodes() throws Exception {
+		final byte[] bytes = "12a4\t".getBytes(StandardCharsets.US_ASCII);
+		assertEquals(RF2Verhoeff.INVALID_DIGIT, RF2Verhoeff.verify(bytes, 0, 4));
+		assertEquals(RF2Verhoeff.INVALID_DIGIT, RF2Verhoeff.verify(bytes, 3, 2));
+		assertEquals(RF2Verhoeff.NO_CHECK_DIGIT, RF2Verhoeff.checkDigit(bytes, 0, 3));
+		assertEquals(RF2Verhoeff.EMPTY, RF2Verhoeff.verify(bytes, 0, 0));
+		assertEquals(RF2Verhoeff.NO_CHECK_DIGIT, RF2Verhoeff.checkDigit(bytes, 0, 0));
+		assertEquals(RF2Verhoeff.INVALID_DIGIT, RF2Verhoeff.verify(-1L));
+		assertEquals(RF2Verhoeff.NO_CHECK_DIGIT, RF2Verhoeff.checkDigit(-1L));
+
+		final long[] codes = { -1L, 1L };
+		RF2Verhoeff.appendCheckDigits(codes, 0, codes.length);
+		assertArrayEquals(new long[] { -1L, Long.parseLong("1" + RF2VerhoeffCheck.calculateChecksum("1", false)) }, codes);
+	}
+
+	private static void assertCheckDigits(final long[] codes) {
+		final int count = codes.length;
+
+		// expected check digits and the codes as a column of ASCII digits
+		final byte[] expectedCheckDigits = new byte[count];
+		final StringBuilder column = new StringBuilder();
+		final int[] offsets = new int[count];
+		final int[] lengths = new int[count];
+		final StringBuilder sctidColumn = new StringBuilder();
+		final int[] sctidOffsets = new int[count];
+		final int[] sctidLengths = new int[count];
+		for (int i = 0; i < count; i++) {
+			final String code = Long.toString(codes[i]);
+			final char checkDigit = RF2VerhoeffCheck.calculateChecksum(code, false);
+			expectedCheckDigits[i] = (byte) (checkDigit - '0');
+			offsets[i] = column.length();
+			lengths[i] = code.length();
+			column.append(code).append('\t');
+			sctidOffsets[i] = sctidColumn.length();
+			sctidLengths[i] = code.length() + 1;
+			sctidColumn.append(code).append(checkDigit).append('\t');
+		}
+		final byte[] buffer = column.toString().getBytes(StandardCharsets.US_ASCII);
+		final byte[] sctidBuffer = sctidColumn.toString().getBytes(StandardCharsets.US_ASCII);
+
+		final byte[] checkDigits = new byte[count];
+		RF2Verhoeff.checkDigits(codes, 0, count, checkDigits);
+		assertArrayEquals(expectedCheckDigits, checkDigits);
+
+		final byte[] byteCheckDigits = new byte[count];
+		RF2Verhoeff.checkDigits(buffer, offsets, lengths, 0, count, byteCheckDigits);
+		assertArrayEquals(expectedCheckDigits, byteCheckDigits);
+
+		// codes with their check digit appended are valid, with any other check digit they are not
+		final long[] sctids = codes.clone();
+		RF2Verhoeff.appendCheckDigits(sctids, 0, count);
+		final long[] invalidSctids = new long[count];
+		for (int i = 0; i < count; i++) {
+			assertEquals(codes[i] * 10 + expectedCheckDigits[i], sctids[i]);
+			invalidSctids[i] = codes[i] * 10 + (expectedCheckDigits[i] + 1 + i % 9) % 10;
+		}
+		final byte[] results = new byte[count];
+		assertEquals(0, RF2Verhoeff.verify(sctids, 0, count, results));
+		assertArrayEquals(new byte[count], results);
+		assertEquals(0, RF2Verhoeff.verify(sctidBuffer, sctidOffsets, sctidLengths, 0, count, results));
+		assertArrayEquals(new byte[count], results);
+		assertEquals(count, RF2Verhoeff.verify(invalidSctids, 0, count, results));
+		for (int i = 0; i < count; i++) {
+			assertEquals(RF2Verhoeff.INVALID_CHECK_DIGIT, results[i]);
+		}
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.transform;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import com.b2international.rf2.model.RF2ContentFile;
+import com.b2international.rf2.naming.RF2ContentFileName;
+import com.b2international.rf2.naming.file.RF2FileType;
+import com.b2international.rf2.spec.RF2ContentFileSpecification;
+
+/**
+ * @since 0.4
+ */
+public class RF2RowScriptTest {
+
+	private static final String[] HEADER = { "id", "effectiveTime", "active", "moduleId", "definitionStatusId" };
+	private static final RF2ContentFile CONCEPT_FILE = new RF2ContentFile(Paths.get("target"), new RF2ContentFileName("sct2_Concept_Snapshot_INT_20190131.txt"),
+			new RF2ContentFileSpecification(HEADER, RF2FileType.SCT2, "Concept", null, null, "Snapshot", "", null, "txt"));
+
+	@Test
+	public void staticColumnAssignment() throws Exception {
+		final RF2RowScript script = RF2RowScript.compile("effectiveTime = 'Concept'.equals(_file.getType()) ? '20190201' : effectiveTime");
+		assertTrue(script.isStatic(HEADER));
+		final String[] row = row();
+		script.newTransformer(HEADER).transform(CONCEPT_FILE, row);
+		assertArrayEquals(new String[] { "353008", "20190201", "0", "900000000000207008", "900000000000074008" }, row);
+	}
+
+	@Test
+	public void staticFilter() throws Exception {
+		final RF2RowScript script = RF2RowScript.compile("effectiveTime.equals('20190131') && active == '0'");
+		assertTrue(script.isStatic(HEADER));
+		final RF2RowTransformer transformer = script.newTransformer(HEADER);
+		assertEquals(Boolean.TRUE, transformer.transform(CONCEPT_FILE, row()));
+		final String[] row = row();
+		row[2] = "1";
+		assertEquals(Boolean.FALSE, transformer.transform(CONCEPT_FILE, row));
+	}
+
+	@Test
+	public void nonStringAssignment() throws Exception {
+		final RF2RowScript script = RF2RowScript.compile("active = active == '1' ? 0 : 1");
+		final RF2RowTransformer transformer = script.newTransformer(HEADER);
+		final String[] row = row();
+		transformer.transform(CONCEPT_FILE, row);
+		assertEquals("1", row[2]);
+		transformer.transform(CONCEPT_FILE, row);
+		assertEquals("0", row[2]);
+	}
+
+	@Test
+	public void dynamicVariablesAreClearedPerRow() throws Exception {
+		final RF2RowScript script = RF2RowScript.compile("if (binding.hasVariable('seen')) { moduleId = 'seen' }; seen = true; moduleId = null");
+		assertFalse(script.isStatic(HEADER));
+		final RF2RowTransformer transformer = script.newTransformer(HEADER);
+		for (int i = 0; i < 3; i++) {
+			final String[] row = row();
+			transformer.transform(CONCEPT_FILE, row);
+			assertEquals(null, row[3]);
+		}
+	}
+
+	@Test
+	public void dynamicInvalidColumnNames() throws Exception {
+		final String[] header = { "id", "effective-time" };
+		final RF2RowScript script = RF2RowScript.compile("id = id + '0'");
+		assertFalse(script.isStatic(header));
+		final String[] row = { "1", "20190131" };
+		script.newTransformer(header).transform(CONCEPT_FILE, row);
+		assertArrayEquals(new String[] { "10", "20190131" }, row);
+	}
+
+	private static String[] row() {
+		return new String[] { "353008", "20190131", "0", "900000000000207008", "900000000000074008" };
+	}
+
+}
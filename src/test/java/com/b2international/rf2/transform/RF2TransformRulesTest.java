@@ -0,0 +1,95 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.transform;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+
+import org.junit.Test;
+
+import com.b2international.rf2.spec.RF2Filter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * @since 0.4
+ */
+public class RF2TransformRulesTest {
+
+	private static final String[] HEADER = { "id", "effectiveTime", "active", "moduleId", "definitionStatusId" };
+
+	@Test
+	public void setColumnValues() throws Exception {
+		final RF2TransformRules rules = new RF2TransformRules(ImmutableList.of(
+				new RF2TransformRule("Concept", null, null, filter("moduleId", 900000000000207008L), ImmutableMap.of("effectiveTime", 20190201))));
+		final RF2RowTransformer transformer = rules.newTransformer("Concept", HEADER);
+		final String[] row = row("1");
+		assertEquals(null, transformer.transform(null, row));
+		assertArrayEquals(new String[] { "353008", "20190201", "1", "900000000000207008", "900000000000074008" }, row);
+
+		final String[] otherModule = row("1");
+		otherModule[3] = "449080006";
+		transformer.transform(null, otherModule);
+		assertEquals("20190131", otherModule[1]);
+
+		// the rule applies to Concept files only
+		final String[] description = row("1");
+		rules.newTransformer("Description", HEADER).transform(null, description);
+		assertArrayEquals(row("1"), description);
+	}
+
+	@Test
+	public void includeAndExclude() throws Exception {
+		final RF2TransformRules rules = new RF2TransformRules(ImmutableList.of(
+				new RF2TransformRule(null, ImmutableList.of(filter("definitionStatusId", 900000000000074008L)), ImmutableList.of(filter("active", 0), filter("id", "449005")), null, null)));
+		final RF2RowTransformer transformer = rules.newTransformer("Concept", HEADER);
+		assertEquals(null, transformer.transform(null, row("1")));
+		assertEquals(Boolean.FALSE, transformer.transform(null, row("0")));
+		final String[] excludedId = row("1");
+		excludedId[0] = "449005";
+		assertEquals(Boolean.FALSE, transformer.transform(null, excludedId));
+		final String[] notIncluded = row("1");
+		notIncluded[4] = "900000000000073002";
+		assertEquals(Boolean.FALSE, transformer.transform(null, notIncluded));
+	}
+
+	@Test
+	public void rulesAreAppliedInOrder() throws Exception {
+		final RF2TransformRules rules = new RF2TransformRules(ImmutableList.of(
+				new RF2TransformRule(null, null, null, null, ImmutableMap.of("active", "0")),
+				new RF2TransformRule(null, null, ImmutableList.of(filter("active", 0)), null, null)));
+		assertEquals(Boolean.FALSE, rules.newTransformer("Concept", HEADER).transform(null, row("1")));
+	}
+
+	@Test
+	public void rulesWithUnknownColumnsDoNotApply() throws Exception {
+		final RF2TransformRules rules = new RF2TransformRules(ImmutableList.of(
+				new RF2TransformRule(null, null, ImmutableList.of(filter("active", 0)), filter("typeId", 116680003L), ImmutableMap.of("active", 0))));
+		assertEquals(null, rules.newTransformer("Concept", HEADER).transform(null, row("0")));
+	}
+
+	private static RF2Filter filter(String column, Object value) {
+		final RF2Filter filter = new RF2Filter();
+		filter.set(column, value);
+		return filter;
+	}
+
+	private static String[] row(String active) {
+		return new String[] { "353008", "20190131", active, "900000000000207008", "900000000000074008" };
+	}
+
+}
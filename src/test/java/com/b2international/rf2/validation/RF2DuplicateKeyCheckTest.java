@@ -0,0 +1,127 @@
+/*
+ * Copyright 2021 B2i Healthcare, https://b2ihealthcare.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.b2international.rf2.validation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.b2international.rf2.check.RF2IssueAcceptor;
+import com.b2international.rf2.model.RF2ContentFile;
+import com.b2international.rf2.naming.RF2ContentFileName;
+import com.b2international.rf2.naming.file.RF2FileType;
+import com.b2international.rf2.spec.RF2ContentFileSpecification;
+
+/**
+ * Verifies that {@link RF2DuplicateKeyCheck} reports the same issues with and without sorting the keys.
+ *
+ * @since 0.4
+ */
+public class RF2DuplicateKeyCheckTest {
+
+	private static final String[] CONCEPT_HEADER = { "id", "effectiveTime", "active", "moduleId", "definitionStatusId" };
+	private static final String[] REFSET_HEADER = { "id", "effectiveTime", "active", "moduleId", "refsetId", "referencedComponentId" };
+	private static final String CONCEPT = "\t1\t900000000000207008\t900000000000074008";
+	private static final String MEMBER = "\t1\t900000000000207008\t900000000000509007\t100005";
+	private static final long MEMORY_BUDGET = 1L << 20;
+
+	private Path tempDirectory;
+
+	@Before
+	public void setup() throws Exception {
+		tempDirectory = Files.createTempDirectory("rf2-duplicate-keys");
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		try (Stream<Path> paths = Files.walk(tempDirectory)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	@Test
+	public void snapshotIds() throws Exception {
+		final RF2ContentFile file = write("sct2_Concept_Snapshot_INT_20210131.txt", "Concept", "Snapshot", CONCEPT_HEADER,
+				"100005\t20020131" + CONCEPT,
+				"138875005\t20020131" + CONCEPT,
+				"100005\t20210131" + CONCEPT,
+				"100005\t20210131" + CONCEPT,
+				"invalid\t20020131" + CONCEPT,
+				"invalid\t20020131" + CONCEPT);
+		assertErrors(file,
+				"Duplicate ID '100005'. (line 4, column 'id')",
+				"Duplicate ID '100005'. (line 5, column 'id')",
+				"Duplicate ID 'invalid'. (line 7, column 'id')");
+	}
+
+	@Test
+	public void fullVersions() throws Exception {
+		final RF2ContentFile file = write("sct2_Concept_Full_INT_20210131.txt", "Concept", "Full", CONCEPT_HEADER,
+				"100005\t20020131" + CONCEPT,
+				"100005\t20210131" + CONCEPT,
+				"138875005\t20020131" + CONCEPT,
+				"100005\t20020131" + CONCEPT,
+				"100005\t" + CONCEPT,
+				"100005\t" + CONCEPT);
+		assertErrors(file,
+				"Duplicate ID '100005' with effectiveTime '20020131'. (line 5, column 'id')",
+				"Duplicate ID '100005' with effectiveTime ''. (line 7, column 'id')");
+	}
+
+	@Test
+	public void memberUuids() throws Exception {
+		final RF2ContentFile file = write("der2_Refset_SimpleSnapshot_INT_20210131.txt", "Refset", "Snapshot", REFSET_HEADER,
+				"80000bb4-4d24-5ff7-a29d-5d6ee3f6e9c3\t20020131" + MEMBER,
+				"a3b4e2a1-9fa3-5e3d-a1b9-c2e0e5f1d7a2\t20020131" + MEMBER,
+				"80000bb4-4d24-5ff7-a29d-5d6ee3f6e9c3\t20210131" + MEMBER);
+		assertErrors(file,
+				"Duplicate ID '80000bb4-4d24-5ff7-a29d-5d6ee3f6e9c3'. (line 4, column 'id')");
+	}
+
+	private void assertErrors(RF2ContentFile file, String...expectedErrors) throws Exception {
+		// the key set of the first check fits into the budget, the second one falls back to sorting immediately
+		for (long memoryBudget : new long[] { MEMORY_BUDGET, 1L }) {
+			final RF2IssueAcceptor acceptor = new RF2IssueAcceptor();
+			file.check(acceptor, memoryBudget);
+			// only the duplicate key issues are verified, the column checks report the invalid values as well
+			assertEquals(List.of(expectedErrors), acceptor.getLocatedErrors().stream().filter(error -> error.startsWith("Duplicate")).collect(Collectors.toList()));
+		}
+	}
+
+	private RF2ContentFile write(String fileName, String contentType, String contentSubType, String[] header, String...rows) throws Exception {
+		final StringBuilder content = new StringBuilder(String.join("\t", header)).append("\r\n");
+		for (String row : rows) {
+			content.append(row).append("\r\n");
+		}
+		Files.write(tempDirectory.resolve(fileName), content.toString().getBytes(StandardCharsets.UTF_8));
+		final RF2FileType fileType = contentType.equals("Refset") ? RF2FileType.DER2 : RF2FileType.SCT2;
+		return new RF2ContentFile(tempDirectory, new RF2ContentFileName(fileName),
+				new RF2ContentFileSpecification(header, fileType, contentType, null, null, contentSubType, "", null, "txt"));
+	}
+
+}